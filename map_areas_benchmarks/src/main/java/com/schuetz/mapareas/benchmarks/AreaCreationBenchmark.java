@@ -0,0 +1,62 @@
+package com.schuetz.mapareas.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.schuetz.mapareas.MapAreaManager;
+import com.schuetz.mapareas.MapAreaMeasure;
+
+/**
+ * Creation of a circle with a long click on the map, in a manager which already has areaCount circles
+ *
+ * Each iteration starts with a new manager, and the circles created during the iteration stay in it.
+ *
+ * @author ivanschuetz
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AreaCreationBenchmark {
+
+	@Param({"10", "1000", "100000"})
+	public int areaCount;
+
+	private MapAreaManager manager;
+	private LatLng[] points = new LatLng[1024];
+	private int index;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		Random random = new Random(1);
+		ManualFrameScheduler frameScheduler = new ManualFrameScheduler();
+		manager = Benchmarks.createManager(new FakeMapOverlays(), frameScheduler, new MapAreaMeasure(500, MapAreaMeasure.Unit.meters));
+		Benchmarks.addAreas(manager, frameScheduler, areaCount, random);
+		for (int i = 0; i < points.length; i++) {
+			points[i] = new LatLng(46 + random.nextDouble() * 4, 8 + random.nextDouble() * 6);
+		}
+	}
+
+	@Benchmark
+	public MapAreaManager onMapLongClick() {
+		index = (index + 1) & (points.length - 1);
+		manager.onMapLongClick(points[index]);
+		return manager;
+	}
+}
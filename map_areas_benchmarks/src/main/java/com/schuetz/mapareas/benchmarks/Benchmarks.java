@@ -0,0 +1,76 @@
+package com.schuetz.mapareas.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.LatLng;
+import com.schuetz.mapareas.AreaSpec;
+import com.schuetz.mapareas.MapAreaManager;
+import com.schuetz.mapareas.MapAreaManager.CircleManagerListener;
+import com.schuetz.mapareas.MapAreaMeasure;
+import com.schuetz.mapareas.MapAreaWrapper;
+
+/**
+ * Setup shared by the benchmarks
+ *
+ * @author ivanschuetz
+ */
+public class Benchmarks {
+
+	public static final CircleManagerListener NO_OP_LISTENER = new CircleManagerListener() {
+		@Override
+		public void onCreateCircle(MapAreaWrapper draggableCircle) {
+		}
+
+		@Override
+		public void onResizeCircleEnd(MapAreaWrapper draggableCircle) {
+		}
+
+		@Override
+		public void onMoveCircleEnd(MapAreaWrapper draggableCircle) {
+		}
+
+		@Override
+		public void onMoveCircleStart(MapAreaWrapper draggableCircle) {
+		}
+
+		@Override
+		public void onResizeCircleStart(MapAreaWrapper draggableCircle) {
+		}
+
+		@Override
+		public void onMinRadius(MapAreaWrapper draggableCircle) {
+		}
+
+		@Override
+		public void onMaxRadius(MapAreaWrapper draggableCircle) {
+		}
+	};
+
+	private Benchmarks() {
+	}
+
+	/**
+	 * @return manager on a stubbed map, adding overlays to overlays and scheduling frames with frameScheduler
+	 */
+	public static MapAreaManager createManager(FakeMapOverlays overlays, ManualFrameScheduler frameScheduler, MapAreaMeasure initRadius) {
+		MapAreaManager manager = new MapAreaManager(new GoogleMap(), 1, 0xff000000, 0x440000ff, initRadius, NO_OP_LISTENER);
+		manager.setMapOverlays(overlays);
+		manager.setFrameScheduler(frameScheduler);
+		return manager;
+	}
+
+	/**
+	 * Adds count circles with overlays, randomly placed around (48, 11)
+	 */
+	public static void addAreas(MapAreaManager manager, ManualFrameScheduler frameScheduler, int count, Random random) {
+		List<AreaSpec> specs = new ArrayList<AreaSpec>(count);
+		for (int i = 0; i < count; i++) {
+			specs.add(new AreaSpec(new LatLng(46 + random.nextDouble() * 4, 8 + random.nextDouble() * 6), 100 + random.nextDouble() * 2000));
+		}
+		manager.addAll(specs);
+		frameScheduler.runAllFrames();
+	}
+}
@@ -0,0 +1,126 @@
+package com.schuetz.mapareas.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.OverlayMutations;
+import com.schuetz.mapareas.AreaSpec;
+import com.schuetz.mapareas.MapAreaManager;
+import com.schuetz.mapareas.MapAreaMeasure;
+
+/**
+ * One second of dragging a marker, with drag events at inputRate per second and frames every 16.67 ms of a fake clock
+ *
+ * Each invocation is one second of drag, so the counters are overlay mutations and frames per second of drag.
+ * Without coalescing every drag event changes the overlays, with coalescing it should be at most once per frame.
+ * JMH sums event counters over the measurement iterations, so keep one measurement iteration (-i 1).
+ *
+ * @author ivanschuetz
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 1)
+@Fork(1)
+public class DragMutationsBenchmark {
+
+	private static final long SECOND_NANOS = 1000000000L;
+
+	@Param({"false", "true"})
+	public boolean coalesce;
+
+	@Param({"60", "120", "240"})
+	public int inputRate;
+
+	@Param({"center", "radius"})
+	public String marker;
+
+	private MapAreaManager manager;
+	private ManualFrameScheduler frameScheduler;
+	private Marker draggedMarker;
+	private LatLng start;
+	private double lonStep;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Counters {
+		public long overlayMutations;
+		/** frames which applied overlay updates */
+		public long frames;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			overlayMutations = 0;
+			frames = 0;
+		}
+	}
+
+	@Setup
+	public void setUp() {
+		FakeMapOverlays overlays = new FakeMapOverlays();
+		frameScheduler = new ManualFrameScheduler();
+		manager = Benchmarks.createManager(overlays, frameScheduler, new MapAreaMeasure(500, MapAreaMeasure.Unit.meters));
+		manager.setCoalesceDragUpdates(coalesce);
+		Benchmarks.addAreas(manager, frameScheduler, 1000, new Random(1));
+
+		//the dragged circle is added last, its markers are the last ones added to the map
+		manager.add(new AreaSpec(new LatLng(48, 11), 1000));
+		List<Marker> markers = overlays.getMarkers();
+		if ("center".equals(marker)) {
+			draggedMarker = markers.get(markers.size() - 2);
+		} else {
+			draggedMarker = markers.get(markers.size() - 1);
+		}
+		start = draggedMarker.getPosition();
+		lonStep = 0.01 / inputRate;
+	}
+
+	@Benchmark
+	public MapAreaManager dragOneSecond(Counters counters) {
+		long mutationsBefore = OverlayMutations.count();
+		int framesBefore = frameScheduler.getFrames();
+
+		long now = 0;
+		long nextFrame = ManualFrameScheduler.FRAME_NANOS;
+		manager.onMarkerDragStart(draggedMarker);
+		for (int i = 1; i <= inputRate; i++) {
+			long eventTime = i * SECOND_NANOS / inputRate;
+			while (nextFrame <= eventTime) {
+				frameScheduler.advance(nextFrame - now);
+				now = nextFrame;
+				frameScheduler.runFrame();
+				nextFrame += ManualFrameScheduler.FRAME_NANOS;
+			}
+			frameScheduler.advance(eventTime - now);
+			now = eventTime;
+			//back and forth, so every invocation starts at the same position
+			double lonOffset = (i <= inputRate / 2 ? i : inputRate - i) * lonStep;
+			draggedMarker.setPosition(new LatLng(start.latitude, start.longitude + lonOffset));
+			manager.onMarkerDrag(draggedMarker);
+		}
+		manager.onMarkerDragEnd(draggedMarker);
+		frameScheduler.runAllFrames();
+
+		counters.overlayMutations += OverlayMutations.count() - mutationsBefore;
+		counters.frames += frameScheduler.getFrames() - framesBefore;
+		return manager;
+	}
+}
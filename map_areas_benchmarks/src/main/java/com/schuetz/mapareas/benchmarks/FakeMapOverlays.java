@@ -0,0 +1,72 @@
+package com.schuetz.mapareas.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.Circle;
+import com.google.android.gms.maps.model.CircleOptions;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.Polygon;
+import com.google.android.gms.maps.model.PolygonOptions;
+import com.google.android.gms.maps.model.TileOverlay;
+import com.google.android.gms.maps.model.TileOverlayOptions;
+import com.schuetz.mapareas.MapOverlays;
+
+/**
+ * MapOverlays creating stubbed overlays, which keeps the created markers so benchmarks can drag them
+ *
+ * @author ivanschuetz
+ */
+public class FakeMapOverlays implements MapOverlays {
+
+	private final List<Marker> markers = new ArrayList<Marker>();
+	private int addedOverlays;
+
+	@Override
+	public Marker addMarker(MarkerOptions markerOptions) {
+		Marker marker = new Marker(markerOptions);
+		markers.add(marker);
+		addedOverlays++;
+		return marker;
+	}
+
+	@Override
+	public Circle addCircle(CircleOptions circleOptions) {
+		addedOverlays++;
+		return new Circle(circleOptions);
+	}
+
+	@Override
+	public Polygon addPolygon(PolygonOptions polygonOptions) {
+		addedOverlays++;
+		return new Polygon(polygonOptions);
+	}
+
+	@Override
+	public TileOverlay addTileOverlay(TileOverlayOptions tileOverlayOptions) {
+		addedOverlays++;
+		return new TileOverlay(tileOverlayOptions);
+	}
+
+	@Override
+	public BitmapDescriptor iconFromResource(int drawableId) {
+		return BitmapDescriptorFactory.fromResource(drawableId);
+	}
+
+	/**
+	 * @return markers in the order they were added. A circle adds its center marker and then its radius marker
+	 */
+	public List<Marker> getMarkers() {
+		return markers;
+	}
+
+	/**
+	 * @return count of overlays added to the map
+	 */
+	public int getAddedOverlays() {
+		return addedOverlays;
+	}
+}
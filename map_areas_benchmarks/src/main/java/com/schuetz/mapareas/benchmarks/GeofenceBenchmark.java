@@ -0,0 +1,102 @@
+package com.schuetz.mapareas.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.schuetz.mapareas.GeofenceEngine;
+import com.schuetz.mapareas.Geodesy;
+
+/**
+ * Location fixes per second processed by GeofenceEngine, against checking every fix with every circle
+ *
+ * The fixes are a random walk over the area of the circles, so most fixes are near some circle.
+ * bruteForce is in point-circle checks per second, engine in fixes per second.
+ *
+ * @author ivanschuetz
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeofenceBenchmark {
+
+	private static final int FIXES = 4096;
+
+	@Param({"100", "10000"})
+	public int areaCount;
+
+	private GeofenceEngine<Integer> engine;
+	private double[] latitudes;
+	private double[] longitudes;
+	private double[] radii;
+	private double[] fixLatitudes = new double[FIXES];
+	private double[] fixLongitudes = new double[FIXES];
+	private long[] times = new long[FIXES];
+	private long time;
+	private int fix;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(1);
+		engine = new GeofenceEngine<Integer>();
+		engine.setDwellTime(60000);
+		latitudes = new double[areaCount];
+		longitudes = new double[areaCount];
+		radii = new double[areaCount];
+		for (int i = 0; i < areaCount; i++) {
+			latitudes[i] = 48 + random.nextDouble();
+			longitudes[i] = 11 + random.nextDouble();
+			radii[i] = 100 + random.nextDouble() * 2000;
+			engine.put(Integer.valueOf(i), latitudes[i], longitudes[i], radii[i]);
+		}
+		double latitude = 48.5;
+		double longitude = 11.5;
+		for (int i = 0; i < FIXES; i++) {
+			latitude = Math.max(48, Math.min(49, latitude + (random.nextDouble() - 0.5) * 0.002));
+			longitude = Math.max(11, Math.min(12, longitude + (random.nextDouble() - 0.5) * 0.002));
+			fixLatitudes[i] = latitude;
+			fixLongitudes[i] = longitude;
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(FIXES)
+	public void engine() {
+		for (int i = 0; i < FIXES; i++) {
+			times[i] = time;
+			time += 1000;
+		}
+		engine.process(fixLatitudes, fixLongitudes, times, 0, FIXES);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(1000)
+	public int bruteForce() {
+		int inside = 0;
+		double latitude = fixLatitudes[fix];
+		double longitude = fixLongitudes[fix];
+		fix = (fix + 1) & (FIXES - 1);
+		for (int i = 0; i < 1000; i++) {
+			int area = i % areaCount;
+			if (Geodesy.haversineMeters(latitudes[area], longitudes[area], latitude, longitude) <= radii[area]) {
+				inside++;
+			}
+		}
+		return inside;
+	}
+}
@@ -0,0 +1,71 @@
+package com.schuetz.mapareas.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.schuetz.mapareas.FrameScheduler;
+
+/**
+ * FrameScheduler driven by the caller: scheduled work runs only in runFrame(), and the clock is advanced by the caller
+ *
+ * @author ivanschuetz
+ */
+public class ManualFrameScheduler implements FrameScheduler {
+
+	public static final long FRAME_NANOS = 16666667;
+
+	private List<Runnable> scheduled = new ArrayList<Runnable>();
+	private List<Runnable> running = new ArrayList<Runnable>();
+	private long nowNanos;
+	private int frames;
+
+	@Override
+	public void scheduleFrame(Runnable runnable) {
+		scheduled.add(runnable);
+	}
+
+	@Override
+	public long nowNanos() {
+		return nowNanos;
+	}
+
+	public void advance(long nanos) {
+		nowNanos += nanos;
+	}
+
+	/**
+	 * Runs the work scheduled before this frame. Work scheduled while running goes to the next frame
+	 *
+	 * @return false if there was no work
+	 */
+	public boolean runFrame() {
+		if (scheduled.isEmpty()) {
+			return false;
+		}
+		List<Runnable> frame = scheduled;
+		scheduled = running;
+		running = frame;
+		for (int i = 0, size = frame.size(); i < size; i++) {
+			frame.get(i).run();
+		}
+		frame.clear();
+		frames++;
+		return true;
+	}
+
+	/**
+	 * Runs frames until no work is scheduled, advancing the clock one frame each
+	 */
+	public void runAllFrames() {
+		while (runFrame()) {
+			advance(FRAME_NANOS);
+		}
+	}
+
+	/**
+	 * @return count of frames which ran work
+	 */
+	public int getFrames() {
+		return frames;
+	}
+}
@@ -0,0 +1,82 @@
+package com.schuetz.mapareas.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.schuetz.mapareas.MapAreasUtils;
+
+/**
+ * Radius marker position and radius of a circle, with LatLng objects and with the allocation free versions
+ *
+ * @author ivanschuetz
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapAreasUtilsBenchmark {
+
+	private static final int POINTS = 1024;
+
+	private LatLng[] centers = new LatLng[POINTS];
+	private LatLng[] radiusPositions = new LatLng[POINTS];
+	private double[] radii = new double[POINTS];
+	private double[] out = new double[2];
+	private int index;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(1);
+		for (int i = 0; i < POINTS; i++) {
+			centers[i] = new LatLng(random.nextDouble() * 160 - 80, random.nextDouble() * 360 - 180);
+			radii[i] = 10 + random.nextDouble() * 100000;
+			radiusPositions[i] = MapAreasUtils.toRadiusLatLng(centers[i], radii[i]);
+		}
+	}
+
+	private int next() {
+		index = (index + 1) & (POINTS - 1);
+		return index;
+	}
+
+	@Benchmark
+	public LatLng toRadiusLatLng() {
+		int i = next();
+		return MapAreasUtils.toRadiusLatLng(centers[i], radii[i]);
+	}
+
+	@Benchmark
+	public double[] toRadiusLatLngPrimitive() {
+		int i = next();
+		MapAreasUtils.toRadiusLatLng(centers[i].latitude, centers[i].longitude, radii[i], out);
+		return out;
+	}
+
+	@Benchmark
+	public double toRadiusMeters() {
+		int i = next();
+		return MapAreasUtils.toRadiusMeters(centers[i], radiusPositions[i]);
+	}
+
+	@Benchmark
+	public double toRadiusMetersPrimitive() {
+		int i = next();
+		LatLng center = centers[i];
+		LatLng radius = radiusPositions[i];
+		return MapAreasUtils.toRadiusMeters(center.latitude, center.longitude, radius.latitude, radius.longitude);
+	}
+}
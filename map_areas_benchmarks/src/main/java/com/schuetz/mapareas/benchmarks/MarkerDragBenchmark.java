@@ -0,0 +1,85 @@
+package com.schuetz.mapareas.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Marker;
+import com.schuetz.mapareas.AreaSpec;
+import com.schuetz.mapareas.MapAreaManager;
+import com.schuetz.mapareas.MapAreaMeasure;
+
+/**
+ * Drag events of the markers of one circle, in a manager with areaCount circles
+ *
+ * Markers are found by id in the marker index, so the cost should be the same for any count of circles.
+ *
+ * @author ivanschuetz
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarkerDragBenchmark {
+
+	@Param({"10", "100", "1000", "10000", "100000"})
+	public int areaCount;
+
+	private MapAreaManager manager;
+	private Marker centerMarker;
+	private Marker radiusMarker;
+
+	private LatLng[] centerPositions = new LatLng[2];
+	private LatLng[] radiusPositions = new LatLng[2];
+	private int index;
+
+	@Setup
+	public void setUp() {
+		FakeMapOverlays overlays = new FakeMapOverlays();
+		ManualFrameScheduler frameScheduler = new ManualFrameScheduler();
+		manager = Benchmarks.createManager(overlays, frameScheduler, new MapAreaMeasure(500, MapAreaMeasure.Unit.meters));
+		Benchmarks.addAreas(manager, frameScheduler, areaCount - 1, new Random(1));
+
+		//the dragged circle is added last, its markers are the last ones added to the map
+		manager.add(new AreaSpec(new LatLng(48, 11), 1000));
+		List<Marker> markers = overlays.getMarkers();
+		centerMarker = markers.get(markers.size() - 2);
+		radiusMarker = markers.get(markers.size() - 1);
+
+		centerPositions[0] = new LatLng(48, 11);
+		centerPositions[1] = new LatLng(48.001, 11.001);
+		radiusPositions[0] = new LatLng(48, 11.02);
+		radiusPositions[1] = new LatLng(48, 11.03);
+	}
+
+	@Benchmark
+	public MapAreaManager dragCenterMarker() {
+		index ^= 1;
+		centerMarker.setPosition(centerPositions[index]);
+		manager.onMarkerDrag(centerMarker);
+		return manager;
+	}
+
+	@Benchmark
+	public MapAreaManager dragRadiusMarker() {
+		index ^= 1;
+		radiusMarker.setPosition(radiusPositions[index]);
+		manager.onMarkerDrag(radiusMarker);
+		return manager;
+	}
+}
@@ -0,0 +1,95 @@
+package com.schuetz.mapareas.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.schuetz.mapareas.AreaTileRenderer;
+import com.schuetz.mapareas.WebMercator;
+
+/**
+ * Rendering of the tiles around (48, 11) with areaCount circles in the same region as Benchmarks.addAreas
+ *
+ * render is the pixels only, renderPng adds the PNG encoding (the cache is disabled), cachedRenderPng takes the tiles from the cache.
+ *
+ * @author ivanschuetz
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TileRenderBenchmark {
+
+	private static final int TILE_SIZE = AreaTileRenderer.DEFAULT_TILE_SIZE;
+
+	@Param({"100", "10000"})
+	public int areaCount;
+
+	@Param({"8", "12"})
+	public int zoom;
+
+	private AreaTileRenderer renderer;
+	private AreaTileRenderer uncachedRenderer;
+	private int[][] tiles;
+	private int index;
+
+	@Setup
+	public void setUp() {
+		renderer = new AreaTileRenderer(TILE_SIZE, 1024);
+		uncachedRenderer = new AreaTileRenderer(TILE_SIZE, 0);
+		Random random = new Random(1);
+		for (int i = 0; i < areaCount; i++) {
+			double latitude = 46 + random.nextDouble() * 4;
+			double longitude = 8 + random.nextDouble() * 6;
+			double radius = 100 + random.nextDouble() * 2000;
+			renderer.put(i, latitude, longitude, radius, 2, 0xff000000, 0x440000ff);
+			uncachedRenderer.put(i, latitude, longitude, radius, 2, 0xff000000, 0x440000ff);
+		}
+
+		//4 x 4 tiles around (48, 11)
+		double worldSize = TILE_SIZE * Math.pow(2, zoom);
+		int centerX = (int)(WebMercator.toX(11, worldSize) / TILE_SIZE);
+		int centerY = (int)(WebMercator.toY(48, worldSize) / TILE_SIZE);
+		tiles = new int[16][];
+		for (int i = 0; i < 16; i++) {
+			tiles[i] = new int[] {centerX - 2 + i % 4, centerY - 2 + i / 4};
+			renderer.renderPng(tiles[i][0], tiles[i][1], zoom);
+		}
+	}
+
+	private int[] nextTile() {
+		index = (index + 1) & 15;
+		return tiles[index];
+	}
+
+	@Benchmark
+	public int[] render() {
+		int[] tile = nextTile();
+		return uncachedRenderer.render(tile[0], tile[1], zoom);
+	}
+
+	@Benchmark
+	public byte[] renderPng() {
+		int[] tile = nextTile();
+		return uncachedRenderer.renderPng(tile[0], tile[1], zoom);
+	}
+
+	@Benchmark
+	public byte[] cachedRenderPng() {
+		int[] tile = nextTile();
+		return renderer.renderPng(tile[0], tile[1], zoom);
+	}
+}
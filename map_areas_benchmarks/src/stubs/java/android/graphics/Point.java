@@ -0,0 +1,19 @@
+package android.graphics;
+
+/**
+ * Stub of the Android / Google Play services class with the same name, with only what map_areas_library uses,
+ * so the library can run on a plain JVM. Not part of the library
+ */
+public class Point {
+
+	public int x;
+	public int y;
+
+	public Point() {
+	}
+
+	public Point(int x, int y) {
+		this.x = x;
+		this.y = y;
+	}
+}
@@ -0,0 +1,19 @@
+package android.os;
+
+/**
+ * Stub of the Android / Google Play services class with the same name, with only what map_areas_library uses,
+ * so the library can run on a plain JVM. Not part of the library
+ */
+public class Build {
+
+	public static class VERSION {
+		/**
+		 * Older than any Android version, so the library picks its fallbacks. Benchmarks replace the schedulers anyway
+		 */
+		public static final int SDK_INT = 0;
+	}
+
+	public static class VERSION_CODES {
+		public static final int JELLY_BEAN = 16;
+	}
+}
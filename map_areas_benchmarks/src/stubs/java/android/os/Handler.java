@@ -0,0 +1,18 @@
+package android.os;
+
+/**
+ * Stub of the Android / Google Play services class with the same name, with only what map_areas_library uses,
+ * so the library can run on a plain JVM. Not part of the library
+ */
+public class Handler {
+
+	public Handler(Looper looper) {
+	}
+
+	/**
+	 * There is no looper on the JVM. Benchmarks replace the schedulers of the library with fakes
+	 */
+	public final boolean post(Runnable runnable) {
+		throw new RuntimeException("Stub!");
+	}
+}
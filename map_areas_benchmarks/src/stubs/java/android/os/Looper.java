@@ -0,0 +1,17 @@
+package android.os;
+
+/**
+ * Stub of the Android / Google Play services class with the same name, with only what map_areas_library uses,
+ * so the library can run on a plain JVM. Not part of the library
+ */
+public final class Looper {
+
+	private static final Looper MAIN_LOOPER = new Looper();
+
+	private Looper() {
+	}
+
+	public static Looper getMainLooper() {
+		return MAIN_LOOPER;
+	}
+}
@@ -0,0 +1,23 @@
+package android.view;
+
+/**
+ * Stub of the Android / Google Play services class with the same name, with only what map_areas_library uses,
+ * so the library can run on a plain JVM. Not part of the library
+ */
+public final class Choreographer {
+
+	public interface FrameCallback {
+		void doFrame(long frameTimeNanos);
+	}
+
+	/**
+	 * There is no looper on the JVM. Benchmarks replace the schedulers of the library with fakes
+	 */
+	public static Choreographer getInstance() {
+		throw new RuntimeException("Stub!");
+	}
+
+	public void postFrameCallback(FrameCallback callback) {
+		throw new RuntimeException("Stub!");
+	}
+}
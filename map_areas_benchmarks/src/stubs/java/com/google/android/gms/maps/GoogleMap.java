@@ -0,0 +1,105 @@
+package com.google.android.gms.maps;
+
+import com.google.android.gms.maps.model.CameraPosition;
+import com.google.android.gms.maps.model.Circle;
+import com.google.android.gms.maps.model.CircleOptions;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.Polygon;
+import com.google.android.gms.maps.model.PolygonOptions;
+import com.google.android.gms.maps.model.TileOverlay;
+import com.google.android.gms.maps.model.TileOverlayOptions;
+
+/**
+ * Stub of the Android / Google Play services class with the same name, with only what map_areas_library uses,
+ * so the library can run on a plain JVM. Not part of the library
+ */
+public final class GoogleMap {
+
+	public interface OnMarkerDragListener {
+		void onMarkerDragStart(Marker marker);
+
+		void onMarkerDrag(Marker marker);
+
+		void onMarkerDragEnd(Marker marker);
+	}
+
+	public interface OnMapLongClickListener {
+		void onMapLongClick(LatLng point);
+	}
+
+	public interface OnCameraChangeListener {
+		void onCameraChange(CameraPosition position);
+	}
+
+	/**
+	 * Size of the stubbed map view in pixels
+	 */
+	public static final int VIEW_WIDTH = 1080;
+	public static final int VIEW_HEIGHT = 1920;
+
+	private CameraPosition cameraPosition = new CameraPosition(new LatLng(0, 0), 2, 0, 0);
+
+	private OnMarkerDragListener onMarkerDragListener;
+	private OnMapLongClickListener onMapLongClickListener;
+	private OnCameraChangeListener onCameraChangeListener;
+
+	public void setOnMarkerDragListener(OnMarkerDragListener listener) {
+		this.onMarkerDragListener = listener;
+	}
+
+	public void setOnMapLongClickListener(OnMapLongClickListener listener) {
+		this.onMapLongClickListener = listener;
+	}
+
+	public void setOnCameraChangeListener(OnCameraChangeListener listener) {
+		this.onCameraChangeListener = listener;
+	}
+
+	public OnMarkerDragListener getOnMarkerDragListener() {
+		return onMarkerDragListener;
+	}
+
+	public OnMapLongClickListener getOnMapLongClickListener() {
+		return onMapLongClickListener;
+	}
+
+	public OnCameraChangeListener getOnCameraChangeListener() {
+		return onCameraChangeListener;
+	}
+
+	public CameraPosition getCameraPosition() {
+		return cameraPosition;
+	}
+
+	/**
+	 * Stand-in for moveCamera(CameraUpdate), notifies the camera change listener
+	 */
+	public void moveCamera(CameraPosition position) {
+		this.cameraPosition = position;
+		if (onCameraChangeListener != null) {
+			onCameraChangeListener.onCameraChange(position);
+		}
+	}
+
+	public Projection getProjection() {
+		return new Projection(cameraPosition.target.latitude, cameraPosition.target.longitude, cameraPosition.zoom, VIEW_WIDTH, VIEW_HEIGHT);
+	}
+
+	public Marker addMarker(MarkerOptions options) {
+		return new Marker(options);
+	}
+
+	public Circle addCircle(CircleOptions options) {
+		return new Circle(options);
+	}
+
+	public Polygon addPolygon(PolygonOptions options) {
+		return new Polygon(options);
+	}
+
+	public TileOverlay addTileOverlay(TileOverlayOptions options) {
+		return new TileOverlay(options);
+	}
+}
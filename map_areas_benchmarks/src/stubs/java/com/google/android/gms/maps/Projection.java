@@ -0,0 +1,54 @@
+package com.google.android.gms.maps;
+
+import android.graphics.Point;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.VisibleRegion;
+
+/**
+ * Stub of the Android / Google Play services class with the same name, with only what map_areas_library uses,
+ * so the library can run on a plain JVM. Not part of the library
+ */
+public final class Projection {
+
+	private final double centerX;
+	private final double centerY;
+	private final double worldSize;
+	private final int width;
+	private final int height;
+
+	/**
+	 * Web Mercator projection of a screen of width x height pixels, centered on the camera target
+	 */
+	Projection(double latitude, double longitude, float zoom, int width, int height) {
+		this.worldSize = 256 * Math.pow(2, zoom);
+		this.centerX = (longitude + 180) / 360 * worldSize;
+		double sin = Math.sin(Math.toRadians(Math.max(-85.05112878, Math.min(85.05112878, latitude))));
+		this.centerY = (0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI)) * worldSize;
+		this.width = width;
+		this.height = height;
+	}
+
+	public Point toScreenLocation(LatLng location) {
+		double x = (location.longitude + 180) / 360 * worldSize;
+		double sin = Math.sin(Math.toRadians(Math.max(-85.05112878, Math.min(85.05112878, location.latitude))));
+		double y = (0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI)) * worldSize;
+		return new Point((int)Math.round(x - centerX + width / 2.0), (int)Math.round(y - centerY + height / 2.0));
+	}
+
+	public LatLng fromScreenLocation(Point point) {
+		double x = centerX + point.x - width / 2.0;
+		double y = centerY + point.y - height / 2.0;
+		double longitude = x / worldSize * 360 - 180;
+		double latitude = Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y / worldSize))));
+		return new LatLng(latitude, longitude);
+	}
+
+	public VisibleRegion getVisibleRegion() {
+		LatLng nearLeft = fromScreenLocation(new Point(0, height));
+		LatLng nearRight = fromScreenLocation(new Point(width, height));
+		LatLng farLeft = fromScreenLocation(new Point(0, 0));
+		LatLng farRight = fromScreenLocation(new Point(width, 0));
+		return new VisibleRegion(nearLeft, nearRight, farLeft, farRight, new LatLngBounds(nearLeft, farRight));
+	}
+}
@@ -0,0 +1,20 @@
+package com.google.android.gms.maps.model;
+
+/**
+ * Stub of the Android / Google Play services class with the same name, with only what map_areas_library uses,
+ * so the library can run on a plain JVM. Not part of the library
+ */
+public final class CameraPosition {
+
+	public final LatLng target;
+	public final float zoom;
+	public final float tilt;
+	public final float bearing;
+
+	public CameraPosition(LatLng target, float zoom, float tilt, float bearing) {
+		this.target = target;
+		this.zoom = zoom;
+		this.tilt = tilt;
+		this.bearing = bearing;
+	}
+}
@@ -0,0 +1,64 @@
+package com.google.android.gms.maps.model;
+
+/**
+ * Stub of the Android / Google Play services class with the same name, with only what map_areas_library uses,
+ * so the library can run on a plain JVM. Not part of the library
+ */
+public final class Circle {
+
+	private LatLng center;
+	private double radius;
+	private boolean visible;
+
+	/**
+	 * Not public in Google Play services, circles are created by the map
+	 */
+	public Circle(CircleOptions options) {
+		this.center = options.getCenter();
+		this.radius = options.getRadius();
+		this.visible = options.isVisible();
+	}
+
+	public LatLng getCenter() {
+		return center;
+	}
+
+	public void setCenter(LatLng center) {
+		OverlayMutations.record();
+		this.center = center;
+	}
+
+	public double getRadius() {
+		return radius;
+	}
+
+	public void setRadius(double radius) {
+		OverlayMutations.record();
+		this.radius = radius;
+	}
+
+	public void setStrokeWidth(float width) {
+		OverlayMutations.record();
+	}
+
+	public void setStrokeColor(int color) {
+		OverlayMutations.record();
+	}
+
+	public void setFillColor(int color) {
+		OverlayMutations.record();
+	}
+
+	public boolean isVisible() {
+		return visible;
+	}
+
+	public void setVisible(boolean visible) {
+		OverlayMutations.record();
+		this.visible = visible;
+	}
+
+	public void remove() {
+		OverlayMutations.record();
+	}
+}
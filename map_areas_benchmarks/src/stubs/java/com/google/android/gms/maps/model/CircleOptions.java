@@ -0,0 +1,51 @@
+package com.google.android.gms.maps.model;
+
+/**
+ * Stub of the Android / Google Play services class with the same name, with only what map_areas_library uses,
+ * so the library can run on a plain JVM. Not part of the library
+ */
+public final class CircleOptions {
+
+	private LatLng center;
+	private double radius;
+	private boolean visible = true;
+
+	public CircleOptions center(LatLng center) {
+		this.center = center;
+		return this;
+	}
+
+	public CircleOptions radius(double radius) {
+		this.radius = radius;
+		return this;
+	}
+
+	public CircleOptions strokeWidth(float width) {
+		return this;
+	}
+
+	public CircleOptions strokeColor(int color) {
+		return this;
+	}
+
+	public CircleOptions fillColor(int color) {
+		return this;
+	}
+
+	public CircleOptions visible(boolean visible) {
+		this.visible = visible;
+		return this;
+	}
+
+	public LatLng getCenter() {
+		return center;
+	}
+
+	public double getRadius() {
+		return radius;
+	}
+
+	public boolean isVisible() {
+		return visible;
+	}
+}
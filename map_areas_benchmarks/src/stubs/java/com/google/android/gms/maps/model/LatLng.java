@@ -0,0 +1,37 @@
+package com.google.android.gms.maps.model;
+
+/**
+ * Stub of the Android / Google Play services class with the same name, with only what map_areas_library uses,
+ * so the library can run on a plain JVM. Not part of the library
+ */
+public final class LatLng {
+
+	public final double latitude;
+	public final double longitude;
+
+	public LatLng(double latitude, double longitude) {
+		this.latitude = Math.max(-90, Math.min(90, latitude));
+		this.longitude = -180 <= longitude && longitude < 180 ? longitude : ((longitude - 180) % 360 + 360) % 360 - 180;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof LatLng)) {
+			return false;
+		}
+		LatLng other = (LatLng)o;
+		return Double.doubleToLongBits(latitude) == Double.doubleToLongBits(other.latitude)
+				&& Double.doubleToLongBits(longitude) == Double.doubleToLongBits(other.longitude);
+	}
+
+	@Override
+	public int hashCode() {
+		long bits = Double.doubleToLongBits(latitude) * 31 + Double.doubleToLongBits(longitude);
+		return (int)(bits ^ (bits >>> 32));
+	}
+
+	@Override
+	public String toString() {
+		return "lat/lng: (" + latitude + "," + longitude + ")";
+	}
+}
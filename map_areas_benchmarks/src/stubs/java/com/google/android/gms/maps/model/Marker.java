@@ -0,0 +1,57 @@
+package com.google.android.gms.maps.model;
+
+/**
+ * Stub of the Android / Google Play services class with the same name, with only what map_areas_library uses,
+ * so the library can run on a plain JVM. Not part of the library
+ */
+public final class Marker {
+
+	private static int nextId;
+
+	private final String id;
+	private LatLng position;
+	private boolean visible;
+
+	/**
+	 * Not public in Google Play services, markers are created by the map
+	 */
+	public Marker(MarkerOptions options) {
+		this.id = "m" + nextId++;
+		this.position = options.getPosition();
+		this.visible = options.isVisible();
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public LatLng getPosition() {
+		return position;
+	}
+
+	public void setPosition(LatLng position) {
+		OverlayMutations.record();
+		this.position = position;
+	}
+
+	public void setAnchor(float u, float v) {
+		OverlayMutations.record();
+	}
+
+	public void setIcon(BitmapDescriptor icon) {
+		OverlayMutations.record();
+	}
+
+	public boolean isVisible() {
+		return visible;
+	}
+
+	public void setVisible(boolean visible) {
+		OverlayMutations.record();
+		this.visible = visible;
+	}
+
+	public void remove() {
+		OverlayMutations.record();
+	}
+}
@@ -0,0 +1,41 @@
+package com.google.android.gms.maps.model;
+
+/**
+ * Stub of the Android / Google Play services class with the same name, with only what map_areas_library uses,
+ * so the library can run on a plain JVM. Not part of the library
+ */
+public final class MarkerOptions {
+
+	private LatLng position;
+	private boolean visible = true;
+
+	public MarkerOptions position(LatLng position) {
+		this.position = position;
+		return this;
+	}
+
+	public MarkerOptions anchor(float u, float v) {
+		return this;
+	}
+
+	public MarkerOptions draggable(boolean draggable) {
+		return this;
+	}
+
+	public MarkerOptions icon(BitmapDescriptor icon) {
+		return this;
+	}
+
+	public MarkerOptions visible(boolean visible) {
+		this.visible = visible;
+		return this;
+	}
+
+	public LatLng getPosition() {
+		return position;
+	}
+
+	public boolean isVisible() {
+		return visible;
+	}
+}
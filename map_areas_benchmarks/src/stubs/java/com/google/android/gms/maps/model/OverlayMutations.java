@@ -0,0 +1,28 @@
+package com.google.android.gms.maps.model;
+
+/**
+ * Counts the calls changing overlays on the stubbed map, each of which is a call into the native map on a device.
+ * Only exists in the stubs. Not thread safe
+ */
+public final class OverlayMutations {
+
+	private static long count;
+
+	private OverlayMutations() {
+	}
+
+	static void record() {
+		count++;
+	}
+
+	/**
+	 * @return count of calls to setters of markers, circles and polygons since the last reset
+	 */
+	public static long count() {
+		return count;
+	}
+
+	public static void reset() {
+		count = 0;
+	}
+}
@@ -0,0 +1,49 @@
+package com.google.android.gms.maps.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stub of the Android / Google Play services class with the same name, with only what map_areas_library uses,
+ * so the library can run on a plain JVM. Not part of the library
+ */
+public final class Polygon {
+
+	private List<LatLng> points;
+
+	/**
+	 * Not public in Google Play services, polygons are created by the map
+	 */
+	public Polygon(PolygonOptions options) {
+		this.points = new ArrayList<LatLng>(options.getPoints());
+	}
+
+	public List<LatLng> getPoints() {
+		return points;
+	}
+
+	public void setPoints(List<LatLng> points) {
+		OverlayMutations.record();
+		this.points = new ArrayList<LatLng>(points);
+	}
+
+	public void setStrokeWidth(float width) {
+		OverlayMutations.record();
+	}
+
+	public void setStrokeColor(int color) {
+		OverlayMutations.record();
+	}
+
+	public void setFillColor(int color) {
+		OverlayMutations.record();
+	}
+
+	public void setVisible(boolean visible) {
+		OverlayMutations.record();
+	}
+
+	public void remove() {
+		OverlayMutations.record();
+	}
+}
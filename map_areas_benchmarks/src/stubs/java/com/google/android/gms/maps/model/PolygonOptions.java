@@ -0,0 +1,41 @@
+package com.google.android.gms.maps.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stub of the Android / Google Play services class with the same name, with only what map_areas_library uses,
+ * so the library can run on a plain JVM. Not part of the library
+ */
+public final class PolygonOptions {
+
+	private final List<LatLng> points = new ArrayList<LatLng>();
+
+	public PolygonOptions add(LatLng point) {
+		points.add(point);
+		return this;
+	}
+
+	public PolygonOptions addAll(Iterable<LatLng> points) {
+		for (LatLng point : points) {
+			this.points.add(point);
+		}
+		return this;
+	}
+
+	public PolygonOptions strokeWidth(float width) {
+		return this;
+	}
+
+	public PolygonOptions strokeColor(int color) {
+		return this;
+	}
+
+	public PolygonOptions fillColor(int color) {
+		return this;
+	}
+
+	public List<LatLng> getPoints() {
+		return points;
+	}
+}
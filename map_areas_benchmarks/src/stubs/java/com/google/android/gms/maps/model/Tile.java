@@ -0,0 +1,18 @@
+package com.google.android.gms.maps.model;
+
+/**
+ * Stub of the Android / Google Play services class with the same name, with only what map_areas_library uses,
+ * so the library can run on a plain JVM. Not part of the library
+ */
+public final class Tile {
+
+	public final int width;
+	public final int height;
+	public final byte[] data;
+
+	public Tile(int width, int height, byte[] data) {
+		this.width = width;
+		this.height = height;
+		this.data = data;
+	}
+}
@@ -0,0 +1,29 @@
+package com.google.android.gms.maps.model;
+
+/**
+ * Stub of the Android / Google Play services class with the same name, with only what map_areas_library uses,
+ * so the library can run on a plain JVM. Not part of the library
+ */
+public final class TileOverlay {
+
+	private final TileProvider tileProvider;
+
+	/**
+	 * Not public in Google Play services, tile overlays are created by the map
+	 */
+	public TileOverlay(TileOverlayOptions options) {
+		this.tileProvider = options.getTileProvider();
+	}
+
+	public TileProvider getTileProvider() {
+		return tileProvider;
+	}
+
+	public void clearTileCache() {
+		OverlayMutations.record();
+	}
+
+	public void remove() {
+		OverlayMutations.record();
+	}
+}
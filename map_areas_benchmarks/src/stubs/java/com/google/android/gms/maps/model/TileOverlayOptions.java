@@ -0,0 +1,19 @@
+package com.google.android.gms.maps.model;
+
+/**
+ * Stub of the Android / Google Play services class with the same name, with only what map_areas_library uses,
+ * so the library can run on a plain JVM. Not part of the library
+ */
+public final class TileOverlayOptions {
+
+	private TileProvider tileProvider;
+
+	public TileOverlayOptions tileProvider(TileProvider tileProvider) {
+		this.tileProvider = tileProvider;
+		return this;
+	}
+
+	public TileProvider getTileProvider() {
+		return tileProvider;
+	}
+}
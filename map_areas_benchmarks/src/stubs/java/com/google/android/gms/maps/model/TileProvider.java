@@ -0,0 +1,12 @@
+package com.google.android.gms.maps.model;
+
+/**
+ * Stub of the Android / Google Play services class with the same name, with only what map_areas_library uses,
+ * so the library can run on a plain JVM. Not part of the library
+ */
+public interface TileProvider {
+
+	Tile NO_TILE = new Tile(-1, -1, null);
+
+	Tile getTile(int x, int y, int zoom);
+}
@@ -0,0 +1,22 @@
+package com.google.android.gms.maps.model;
+
+/**
+ * Stub of the Android / Google Play services class with the same name, with only what map_areas_library uses,
+ * so the library can run on a plain JVM. Not part of the library
+ */
+public final class VisibleRegion {
+
+	public final LatLng nearLeft;
+	public final LatLng nearRight;
+	public final LatLng farLeft;
+	public final LatLng farRight;
+	public final LatLngBounds latLngBounds;
+
+	public VisibleRegion(LatLng nearLeft, LatLng nearRight, LatLng farLeft, LatLng farRight, LatLngBounds latLngBounds) {
+		this.nearLeft = nearLeft;
+		this.nearRight = nearRight;
+		this.farLeft = farLeft;
+		this.farRight = farRight;
+		this.latLngBounds = latLngBounds;
+	}
+}
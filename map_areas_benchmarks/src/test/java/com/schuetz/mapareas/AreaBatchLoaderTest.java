@@ -0,0 +1,132 @@
+package com.schuetz.mapareas;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.schuetz.mapareas.MapAreaManager.AreasLoadListener;
+import com.schuetz.mapareas.benchmarks.Benchmarks;
+import com.schuetz.mapareas.benchmarks.FakeMapOverlays;
+import com.schuetz.mapareas.benchmarks.ManualFrameScheduler;
+
+/**
+ * Frame budget of AreaBatchLoader, and circles of MapAreaManager.addAll getting their overlays over frames
+ *
+ * @author ivanschuetz
+ */
+public class AreaBatchLoaderTest {
+
+	private static final long MILLIS = 1000000;
+
+	private ManualFrameScheduler frameScheduler;
+	private List<String> progress = new ArrayList<String>();
+	private int loaded;
+
+	@Before
+	public void setUp() {
+		frameScheduler = new ManualFrameScheduler();
+	}
+
+	@Test
+	public void frameBudget() {
+		//each circle takes 1 ms, so 8 ms frames load 8 circles
+		AreaBatchLoader loader = createLoader(8 * MILLIS);
+		loader.enqueue(Collections.<MapAreaWrapper>nCopies(20, null), listener("a"));
+		assertTrue(loader.isLoading());
+		assertEquals(0, loaded);
+
+		frameScheduler.runFrame();
+		assertEquals(8, loaded);
+		frameScheduler.runAllFrames();
+		assertEquals(20, loaded);
+		assertFalse(loader.isLoading());
+		assertEquals(3, frameScheduler.getFrames());
+		assertEquals(list("a 8/20", "a 16/20", "a 20/20"), progress);
+	}
+
+	@Test
+	public void batchesInOrder() {
+		AreaBatchLoader loader = createLoader(8 * MILLIS);
+		loader.enqueue(Collections.<MapAreaWrapper>nCopies(5, null), listener("a"));
+		loader.enqueue(Collections.<MapAreaWrapper>nCopies(5, null), listener("b"));
+		frameScheduler.runAllFrames();
+
+		//b continues in the frame in which a finished
+		assertEquals(list("a 5/5", "b 3/5", "b 5/5"), progress);
+		assertEquals(2, frameScheduler.getFrames());
+	}
+
+	@Test
+	public void progressWithoutBudget() {
+		AreaBatchLoader loader = createLoader(0);
+		loader.enqueue(Collections.<MapAreaWrapper>nCopies(3, null), listener("a"));
+		frameScheduler.runAllFrames();
+		assertEquals(list("a 1/3", "a 2/3", "a 3/3"), progress);
+	}
+
+	@Test
+	public void addAll() {
+		FakeMapOverlays overlays = new FakeMapOverlays();
+		MapAreaManager manager = Benchmarks.createManager(overlays, frameScheduler, new MapAreaMeasure(500, MapAreaMeasure.Unit.meters));
+		manager.setLoadFrameBudget(0);
+		List<AreaSpec> specs = new ArrayList<AreaSpec>();
+		for (int i = 0; i < 4; i++) {
+			specs.add(new AreaSpec(new LatLng(48, 11 + i), 1000));
+		}
+		List<MapAreaWrapper> circles = manager.addAll(specs, listener("all"));
+
+		//available right away, without overlays
+		assertEquals(4, manager.getCircles().size());
+		assertEquals(4, manager.getSnapshot().size());
+		assertEquals(1, manager.findAreasContaining(new LatLng(48, 12)).size());
+		assertEquals(0, overlays.getAddedOverlays());
+
+		frameScheduler.runFrame();
+		assertTrue(circles.get(0).isAttached());
+		assertFalse(circles.get(1).isAttached());
+
+		//removed while loading, never attached
+		manager.remove(circles.get(2));
+		frameScheduler.runAllFrames();
+		assertTrue(circles.get(1).isAttached());
+		assertFalse(circles.get(2).isAttached());
+		assertTrue(circles.get(3).isAttached());
+		assertEquals(9, overlays.getAddedOverlays());
+		assertEquals(list("all 1/4", "all 2/4", "all 3/4", "all 4/4"), progress);
+	}
+
+	private AreaBatchLoader createLoader(long frameBudgetNanos) {
+		return new AreaBatchLoader(frameScheduler, new AreaBatchLoader.LoadStep() {
+			@Override
+			public void load(MapAreaWrapper draggableCircle) {
+				loaded++;
+				frameScheduler.advance(MILLIS);
+			}
+		}, frameBudgetNanos);
+	}
+
+	private AreasLoadListener listener(final String name) {
+		return new AreasLoadListener() {
+			@Override
+			public void onAreasLoadProgress(int loaded, int total) {
+				progress.add(name + " " + loaded + "/" + total);
+			}
+		};
+	}
+
+	private static List<String> list(String... elements) {
+		List<String> list = new ArrayList<String>();
+		for (String element : elements) {
+			list.add(element);
+		}
+		return list;
+	}
+}
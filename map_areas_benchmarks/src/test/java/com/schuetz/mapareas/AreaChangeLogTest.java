@@ -0,0 +1,109 @@
+package com.schuetz.mapareas;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.schuetz.mapareas.benchmarks.Benchmarks;
+import com.schuetz.mapareas.benchmarks.FakeMapOverlays;
+import com.schuetz.mapareas.benchmarks.ManualFrameScheduler;
+
+/**
+ * Compaction of AreaChangeLog
+ *
+ * @author ivanschuetz
+ */
+public class AreaChangeLogTest {
+
+	private AreaChangeLog log = new AreaChangeLog(100);
+	private MapAreaWrapper a;
+	private MapAreaWrapper b;
+
+	@Before
+	public void setUp() {
+		MapAreaManager manager = Benchmarks.createManager(new FakeMapOverlays(), new ManualFrameScheduler(), new MapAreaMeasure(500, MapAreaMeasure.Unit.meters));
+		a = manager.add(new AreaSpec(new LatLng(48, 11), 1000));
+		b = manager.add(new AreaSpec(new LatLng(49, 12), 1000));
+	}
+
+	@Test
+	public void dropsCreatedAndRemovedCircle() {
+		log.recordCreated(a, spec(48, 1000)); //1
+		log.recordCreated(b, spec(49, 1000)); //2
+		log.recordRemoved(b, spec(49, 1000)); //3
+		log.recordUpdated(a, spec(48, 1000), spec(48, 2000)); //4
+		log.recordUpdated(a, spec(48, 2000), spec(48, 3000)); //5
+		log.setCapacity(4);
+
+		List<AreaChange> changes = poll(0, true);
+		assertEquals(1, changes.size());
+		AreaChange change = changes.get(0);
+		assertSame(a, change.area);
+		assertEquals(5, change.sequence);
+		assertTrue(change.is(AreaChange.CREATED));
+		assertTrue(change.is(AreaChange.RESIZED));
+		assertNull(change.getBefore());
+		assertEquals(3000, change.getAfter().radiusMeters, 0);
+
+		poll(1, true);
+		//saw the creation of b but not its removal
+		poll(2, false);
+		poll(3, true);
+		poll(5, true);
+	}
+
+	@Test
+	public void doesNotMergeAcrossRemoval() {
+		log.recordUpdated(a, spec(48, 1000), spec(48, 2000)); //1
+		log.recordRemoved(a, spec(48, 2000)); //2
+		log.recordCreated(a, spec(50, 1000)); //3
+		log.recordCreated(b, spec(49, 1000)); //4
+		for (int i = 0; i < 3; i++) {
+			log.recordUpdated(b, spec(49, 1000 + i), spec(49, 1001 + i)); //5 - 7
+		}
+		log.setCapacity(6);
+
+		List<AreaChange> changes = poll(0, true);
+		assertEquals(3, changes.size());
+		assertEquals(2, changes.get(0).sequence);
+		assertTrue(changes.get(0).is(AreaChange.REMOVED));
+		assertEquals(1000, changes.get(0).getBefore().radiusMeters, 0);
+		assertNull(changes.get(0).getAfter());
+		assertEquals(3, changes.get(1).sequence);
+		assertEquals(AreaChange.CREATED, changes.get(1).flags);
+		assertEquals(new LatLng(50, 11), changes.get(1).getAfter().center);
+		assertEquals(7, changes.get(2).sequence);
+		assertSame(b, changes.get(2).area);
+		assertEquals(1003, changes.get(2).getAfter().radiusMeters, 0);
+	}
+
+	@Test
+	public void returnsCopies() {
+		log.recordUpdated(a, spec(48, 1000), spec(48, 2000));
+		AreaChange change = poll(0, true).get(0);
+		change.getBefore().radiusMeters = 5;
+		change.getAfter().center = new LatLng(0, 0);
+
+		assertEquals(1000, change.getBefore().radiusMeters, 0);
+		assertEquals(new LatLng(48, 11), change.getAfter().center);
+	}
+
+	private List<AreaChange> poll(long afterSequence, boolean expectedComplete) {
+		List<AreaChange> changes = new ArrayList<AreaChange>();
+		assertEquals(expectedComplete, log.poll(afterSequence, changes));
+		return changes;
+	}
+
+	private static AreaSpec spec(double lat, double radiusMeters) {
+		return new AreaSpec(new LatLng(lat, 11), radiusMeters);
+	}
+}
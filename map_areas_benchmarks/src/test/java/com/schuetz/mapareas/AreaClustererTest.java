@@ -0,0 +1,104 @@
+package com.schuetz.mapareas;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import com.schuetz.mapareas.AreaClusterer.AreaCluster;
+
+/**
+ * Incremental updates of the cached levels of AreaClusterer against a clusterer built from scratch
+ *
+ * @author ivanschuetz
+ */
+public class AreaClustererTest {
+
+	private static final int[] ZOOMS = {2, 6, 10};
+
+	@Test
+	public void incrementalMatchesRebuild() {
+		Random random = new Random(19);
+		AreaClusterer<Integer> clusterer = new AreaClusterer<Integer>();
+		int ids = 300;
+		double[][] circles = new double[ids][];
+		Integer[] items = new Integer[ids]; //the clusterer compares items by identity
+		for (int i = 0; i < ids; i++) {
+			items[i] = Integer.valueOf(i);
+		}
+		for (int step = 0; step < 2000; step++) {
+			int id = random.nextInt(ids);
+			if (circles[id] != null && random.nextInt(4) == 0) {
+				clusterer.remove(items[id]);
+				circles[id] = null;
+			} else if (circles[id] != null && random.nextBoolean()) {
+				//small move or resize, mostly in the same cell
+				circles[id][0] += (random.nextDouble() - 0.5) * 0.01;
+				circles[id][2] = 100 + random.nextDouble() * 10000;
+				clusterer.put(items[id], circles[id][0], circles[id][1], circles[id][2]);
+			} else {
+				//around 48, 11 and across the antimeridian
+				double longitude = random.nextBoolean() ? 11 + random.nextDouble() * 4 : Geodesy.normalizeLongitude(178 + random.nextDouble() * 4);
+				circles[id] = new double[] {48 + random.nextDouble() * 4, longitude, 100 + random.nextDouble() * 10000};
+				clusterer.put(items[id], circles[id][0], circles[id][1], circles[id][2]);
+			}
+
+			if (step % 50 == 0) {
+				AreaClusterer<Integer> rebuilt = new AreaClusterer<Integer>();
+				for (int i = 0; i < ids; i++) {
+					if (circles[i] != null) {
+						rebuilt.put(i, circles[i][0], circles[i][1], circles[i][2]);
+					}
+				}
+				for (int zoom : ZOOMS) {
+					assertEquals("step " + step + " zoom " + zoom, describe(rebuilt.getClusters(zoom)), describe(clusterer.getClusters(zoom)));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void versionChangesWithAggregate() {
+		AreaClusterer<Integer> clusterer = new AreaClusterer<Integer>();
+		clusterer.put(1, 48, 11, 1000);
+		clusterer.put(2, 48.001, 11.001, 1000);
+		List<AreaCluster<Integer>> clusters = clusterer.getClusters(10);
+		assertEquals(1, clusters.size());
+		AreaCluster<Integer> cluster = clusters.get(0);
+		int version = cluster.getVersion();
+		assertEquals(2, cluster.getSize());
+
+		clusterer.getClusters(10);
+		assertEquals(version, cluster.getVersion());
+
+		clusterer.put(2, 48.001, 11.001, 2000);
+		clusterer.getClusters(10);
+		assertTrue(cluster.getVersion() > version);
+		assertTrue(cluster.getRadiusMeters() >= 2000);
+
+		clusterer.remove(1);
+		clusterer.remove(2);
+		assertEquals(0, clusterer.getClusters(10).size());
+	}
+
+	/**
+	 * @return clusters with their sorted items, center and radius, sorted by items
+	 */
+	private static String describe(List<AreaCluster<Integer>> clusters) {
+		Map<String, String> descriptions = new TreeMap<String, String>();
+		for (AreaCluster<Integer> cluster : clusters) {
+			List<Integer> items = new ArrayList<Integer>(cluster.getItems());
+			Collections.sort(items);
+			descriptions.put(items.toString(), String.format("%.9f %.9f %.3f",
+					cluster.getLatitude(), cluster.getLongitude(), cluster.getRadiusMeters()));
+		}
+		return descriptions.toString();
+	}
+}
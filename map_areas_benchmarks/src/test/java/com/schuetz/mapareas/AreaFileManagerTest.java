@@ -0,0 +1,72 @@
+package com.schuetz.mapareas;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.schuetz.mapareas.benchmarks.Benchmarks;
+import com.schuetz.mapareas.benchmarks.FakeMapOverlays;
+import com.schuetz.mapareas.benchmarks.ManualFrameScheduler;
+
+/**
+ * Area files opened and saved by MapAreaManager
+ *
+ * @author ivanschuetz
+ */
+public class AreaFileManagerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void openAddsCirclesAlreadyInManager() throws IOException {
+		File file = new File(folder.getRoot(), "areas");
+		MapAreaManager manager = createManager();
+		manager.add(new AreaSpec(new LatLng(48, 11), 1000));
+		manager.saveAreas(file);
+
+		MapAreaManager other = createManager();
+		other.add(new AreaSpec(new LatLng(49, 12), 2000));
+		other.openAreaFile(file, null);
+		other.closeAreaFile();
+
+		assertRadii(file, 1000, 2000);
+	}
+
+	@Test
+	public void saveToOpenFile() throws IOException {
+		File file = new File(folder.getRoot(), "areas");
+		MapAreaManager manager = createManager();
+		manager.openAreaFile(file, null);
+		MapAreaWrapper first = manager.add(new AreaSpec(new LatLng(48, 11), 1000));
+		MapAreaWrapper second = manager.add(new AreaSpec(new LatLng(49, 12), 2000));
+		manager.remove(first);
+
+		manager.saveAreas(file);
+		//journaled to the new snapshot, with the record ids of the saved circles
+		second.setRadius(2500);
+		manager.add(new AreaSpec(new LatLng(50, 13), 3000));
+		manager.closeAreaFile();
+
+		assertRadii(file, 2500, 3000);
+	}
+
+	private static void assertRadii(File file, double... radii) throws IOException {
+		List<MapAreaWrapper> loaded = createManager().openAreaFile(file, null);
+		assertEquals(radii.length, loaded.size());
+		for (int i = 0; i < radii.length; i++) {
+			assertEquals(radii[i], loaded.get(i).getRadius(), 0);
+		}
+	}
+
+	private static MapAreaManager createManager() {
+		return Benchmarks.createManager(new FakeMapOverlays(), new ManualFrameScheduler(), new MapAreaMeasure(500, MapAreaMeasure.Unit.meters));
+	}
+}
@@ -0,0 +1,166 @@
+package com.schuetz.mapareas;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.schuetz.mapareas.benchmarks.Benchmarks;
+import com.schuetz.mapareas.benchmarks.FakeMapOverlays;
+import com.schuetz.mapareas.benchmarks.ManualFrameScheduler;
+
+/**
+ * Journal replay of AreaFile, and crashes while replacing the snapshot
+ *
+ * @author ivanschuetz
+ */
+public class AreaFileTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File file;
+	private File journalFile;
+
+	@Before
+	public void setUp() {
+		file = new File(folder.getRoot(), "areas");
+		journalFile = new File(file.getPath() + ".journal");
+	}
+
+	@Test
+	public void replaysJournal() throws IOException {
+		AreaFile areaFile = AreaFile.open(file);
+		add(areaFile, 1000);
+		add(areaFile, 2000);
+		add(areaFile, 3000);
+		areaFile.update(1, 49, 12, 2500, -1, -1, 1, 0, 0);
+		areaFile.delete(0);
+		areaFile.close();
+
+		//partial record left by a crash while appending
+		RandomAccessFile journal = new RandomAccessFile(journalFile, "rw");
+		journal.setLength(journal.length() + 10);
+		journal.close();
+
+		areaFile = AreaFile.open(file);
+		assertEquals(3, areaFile.getRecordCount());
+		assertTrue(areaFile.isDeleted(0));
+		assertEquals(2500, areaFile.getRadius(1), 0);
+		assertEquals(49, areaFile.getLatitude(1), 0);
+		assertEquals(3000, areaFile.getRadius(2), 0);
+
+		//the partial record was dropped, new records are read back
+		add(areaFile, 4000);
+		areaFile.close();
+		areaFile = AreaFile.open(file);
+		assertEquals(4000, areaFile.getRadius(3), 0);
+		areaFile.close();
+	}
+
+	@Test
+	public void compact() throws IOException {
+		AreaFile areaFile = AreaFile.open(file);
+		add(areaFile, 1000);
+		add(areaFile, 2000);
+		add(areaFile, 3000);
+		areaFile.delete(1);
+
+		assertArrayEquals(new int[] {0, -1, 1}, areaFile.compact());
+		assertRadii(areaFile, 1000, 3000);
+		areaFile.update(1, 48, 11, 3500, -1, -1, 1, 0, 0);
+		areaFile.close();
+
+		areaFile = AreaFile.open(file);
+		assertRadii(areaFile, 1000, 3500);
+		areaFile.close();
+		assertFalse(new File(file.getPath() + ".tmp").exists());
+	}
+
+	@Test
+	public void ignoresJournalAfterCrashInCompact() throws IOException {
+		AreaFile areaFile = AreaFile.open(file);
+		add(areaFile, 1000);
+		add(areaFile, 2000);
+		add(areaFile, 3000);
+		areaFile.delete(0);
+		byte[] oldJournal = read(journalFile);
+		areaFile.compact();
+		areaFile.close();
+
+		//crash after replacing the snapshot, before emptying the journal
+		write(journalFile, oldJournal);
+
+		areaFile = AreaFile.open(file);
+		assertRadii(areaFile, 2000, 3000);
+		areaFile.close();
+	}
+
+	@Test
+	public void ignoresJournalAfterCrashInWrite() throws IOException {
+		AreaFile areaFile = AreaFile.open(file);
+		add(areaFile, 1000);
+		add(areaFile, 2000);
+		areaFile.close();
+		byte[] oldJournal = read(journalFile);
+
+		MapAreaManager manager = Benchmarks.createManager(new FakeMapOverlays(), new ManualFrameScheduler(),
+				new MapAreaMeasure(500, MapAreaMeasure.Unit.meters));
+		AreaFile.write(file, Collections.singletonList(manager.add(new AreaSpec(new LatLng(48, 11), 5000))));
+		assertFalse(journalFile.exists());
+		assertFalse(new File(file.getPath() + ".tmp").exists());
+
+		//crash after replacing the snapshot, before deleting the journal
+		write(journalFile, oldJournal);
+
+		areaFile = AreaFile.open(file);
+		assertRadii(areaFile, 5000);
+		areaFile.close();
+	}
+
+	private static void add(AreaFile areaFile, double radiusMeters) throws IOException {
+		areaFile.add(48, 11, radiusMeters, -1, -1, 1, 0xff000000, 0x440000ff);
+	}
+
+	private static void assertRadii(AreaFile areaFile, double... radii) {
+		assertEquals(radii.length, areaFile.getAreaCount());
+		double[] fileRadii = new double[areaFile.getRecordCount()];
+		for (int id = 0; id < fileRadii.length; id++) {
+			fileRadii[id] = areaFile.getRadius(id);
+		}
+		assertEquals(Arrays.toString(radii), Arrays.toString(fileRadii));
+	}
+
+	private static byte[] read(File file) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			byte[] bytes = new byte[(int)randomAccessFile.length()];
+			randomAccessFile.readFully(bytes);
+			return bytes;
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	private static void write(File file, byte[] bytes) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.setLength(0);
+			randomAccessFile.write(bytes);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+}
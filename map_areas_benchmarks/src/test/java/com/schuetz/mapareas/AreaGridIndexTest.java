@@ -0,0 +1,283 @@
+package com.schuetz.mapareas;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Queries of AreaGridIndex compared with brute force over all circles
+ *
+ * @author ivanschuetz
+ */
+public class AreaGridIndexTest {
+
+	private static final int CIRCLES = 3000;
+
+	private AreaGridIndex<Integer> index;
+	private Integer[] ids = new Integer[CIRCLES]; //the index compares items by identity
+	private double[] latitudes = new double[CIRCLES];
+	private double[] longitudes = new double[CIRCLES];
+	private double[] radii = new double[CIRCLES];
+	private Random random = new Random(7);
+
+	@Before
+	public void setUp() {
+		index = new AreaGridIndex<Integer>(0.5);
+		for (int i = 0; i < CIRCLES; i++) {
+			switch (i % 4) {
+				case 0: //anywhere
+					latitudes[i] = random.nextDouble() * 180 - 90;
+					longitudes[i] = random.nextDouble() * 360 - 180;
+					break;
+				case 1: //around the antimeridian
+					latitudes[i] = random.nextDouble() * 120 - 60;
+					longitudes[i] = Geodesy.normalizeLongitude(175 + random.nextDouble() * 10);
+					break;
+				case 2: //around the poles
+					latitudes[i] = (random.nextBoolean() ? 1 : -1) * (80 + random.nextDouble() * 10);
+					longitudes[i] = random.nextDouble() * 360 - 180;
+					break;
+				default: //dense region
+					latitudes[i] = 47 + random.nextDouble() * 2;
+					longitudes[i] = 8 + random.nextDouble() * 2;
+			}
+			//mostly small circles, some spanning many cells or containing a pole
+			radii[i] = i % 50 == 0 ? 500000 + random.nextDouble() * 2000000 : 100 + random.nextDouble() * 50000;
+			ids[i] = Integer.valueOf(i);
+			index.put(ids[i], latitudes[i], longitudes[i], radii[i]);
+		}
+	}
+
+	@Test
+	public void findContainingMatchesBruteForce() {
+		for (int query = 0; query < 2000; query++) {
+			double latitude = query % 4 == 3 ? 47 + random.nextDouble() * 2 : random.nextDouble() * 180 - 90;
+			double longitude = query % 4 == 3 ? 8 + random.nextDouble() * 2 
+					: query % 4 == 1 ? Geodesy.normalizeLongitude(178 + random.nextDouble() * 4) : random.nextDouble() * 360 - 180;
+			if (query % 100 == 0) {
+				latitude = query % 200 == 0 ? 90 : -90;
+			}
+
+			List<Integer> found = new ArrayList<Integer>();
+			index.findContaining(latitude, longitude, found);
+
+			Set<Integer> expected = new HashSet<Integer>();
+			for (int i = 0; i < CIRCLES; i++) {
+				if (Geodesy.haversineMeters(latitudes[i], longitudes[i], latitude, longitude) <= radii[i]) {
+					expected.add(i);
+				}
+			}
+			assertEquals("point " + latitude + ", " + longitude, expected, new HashSet<Integer>(found));
+			assertEquals("duplicates", expected.size(), found.size());
+		}
+	}
+
+	@Test
+	public void findIntersectingMatchesBruteForce() {
+		int checked = 0;
+		for (int query = 0; query < 90; query++) {
+			double minLat;
+			double maxLat;
+			double minLon;
+			double maxLon;
+			if (query % 3 == 0) { //crossing the antimeridian
+				minLat = random.nextDouble() * 100 - 60;
+				maxLat = minLat + random.nextDouble() * 20;
+				minLon = 170 + random.nextDouble() * 9;
+				maxLon = -179 + random.nextDouble() * 9;
+			} else if (query % 3 == 1) { //at high latitudes, up to a pole
+				minLat = 70 + random.nextDouble() * 15;
+				maxLat = query % 2 == 0 ? 90 : minLat + random.nextDouble() * 5;
+				minLon = random.nextDouble() * 340 - 180;
+				maxLon = minLon + random.nextDouble() * 20;
+			} else {
+				minLat = random.nextDouble() * 160 - 80;
+				maxLat = minLat + random.nextDouble() * 10;
+				minLon = random.nextDouble() * 340 - 180;
+				maxLon = minLon + random.nextDouble() * 20;
+			}
+
+			List<Integer> found = new ArrayList<Integer>();
+			index.findIntersecting(minLat, minLon, maxLat, maxLon, found);
+			Set<Integer> foundSet = new HashSet<Integer>(found);
+			assertEquals("duplicates", foundSet.size(), found.size());
+
+			for (int i = 0; i < CIRCLES; i++) {
+				double latitudeGap = Math.max(0, Math.max(minLat - latitudes[i], latitudes[i] - maxLat));
+				if (Math.toRadians(latitudeGap) * MapAreasConstants.RADIUS_OF_EARTH_METERS > radii[i]) {
+					assertFalse(foundSet.contains(i)); //the distance is at least the latitude difference
+					continue;
+				}
+				double distance = sampledDistanceToRect(latitudes[i], longitudes[i], minLat, minLon, maxLat, maxLon);
+				if (Math.abs(distance - radii[i]) < 3000) {
+					continue; //too close to the border for the sampled distance
+				}
+				assertEquals("circle " + i + " rect " + minLat + ", " + minLon + ", " + maxLat + ", " + maxLon,
+						distance <= radii[i], foundSet.contains(i));
+				checked++;
+			}
+		}
+		assertTrue(checked > 0);
+	}
+
+	@Test
+	public void intersectsUsesClosestPointOnMeridianEdge() {
+		AreaGridIndex<String> index = new AreaGridIndex<String>();
+		//closest point of the edge at longitude 30 is at latitude 81.3, not at the latitude of the center
+		index.put("circle", 80, 0, 565000);
+		assertTrue(Geodesy.haversineMeters(80, 0, 80, 30) > 565000);
+		assertTrue(index.intersects("circle", 60, 30, 85, 40));
+		assertFalse(index.intersects("circle", 60, 31, 85, 40));
+
+		List<String> found = new ArrayList<String>();
+		index.findIntersecting(60, 30, 85, 40, found);
+		assertEquals(1, found.size());
+	}
+
+	@Test
+	public void findOverlappingMatchesBruteForce() {
+		for (int item = 0; item < CIRCLES; item += 7) {
+			List<Integer> found = new ArrayList<Integer>();
+			index.findOverlapping(ids[item], found);
+
+			Set<Integer> expected = new HashSet<Integer>();
+			for (int i = 0; i < CIRCLES; i++) {
+				if (i != item && Geodesy.haversineMeters(latitudes[i], longitudes[i], latitudes[item], longitudes[item]) 
+						< radii[i] + radii[item]) {
+					expected.add(i);
+				}
+			}
+			assertEquals("circle " + item, expected, new HashSet<Integer>(found));
+			assertEquals("duplicates", expected.size(), found.size());
+		}
+	}
+
+	@Test
+	public void findNearestMatchesBruteForce() {
+		double[] bruteForce = new double[CIRCLES];
+		for (int query = 0; query < 300; query++) {
+			double latitude = queryLatitude(query);
+			double longitude = queryLongitude(query);
+			int k = query % 3 == 0 ? 1 : 1 + random.nextInt(40);
+
+			List<Integer> found = new ArrayList<Integer>();
+			double[] distances = new double[k];
+			int count = index.findNearest(latitude, longitude, k, found, distances);
+
+			for (int i = 0; i < CIRCLES; i++) {
+				bruteForce[i] = edgeDistance(i, latitude, longitude);
+			}
+			String message = "point " + latitude + ", " + longitude + " k " + k;
+			assertEquals(message, k, count);
+			assertEquals(message, k, new HashSet<Integer>(found).size());
+			double[] sorted = bruteForce.clone();
+			Arrays.sort(sorted);
+			for (int i = 0; i < k; i++) {
+				int item = found.get(i);
+				assertEquals(message, bruteForce[item], distances[i], 1e-6);
+				//ties can be returned in any order, compare the distances
+				assertEquals(message, sorted[i], distances[i], 1e-6);
+			}
+		}
+	}
+
+	@Test
+	public void findWithinDistanceMatchesBruteForce() {
+		for (int query = 0; query < 300; query++) {
+			double latitude = queryLatitude(query);
+			double longitude = queryLongitude(query);
+			double maxDistance = query % 5 == 0 ? 1000000 + random.nextDouble() * 3000000 : random.nextDouble() * 200000;
+
+			List<Integer> found = new ArrayList<Integer>();
+			index.findWithinDistance(latitude, longitude, maxDistance, found);
+			Set<Integer> foundSet = new HashSet<Integer>(found);
+			assertEquals("duplicates", foundSet.size(), found.size());
+
+			for (int i = 0; i < CIRCLES; i++) {
+				double distance = edgeDistance(i, latitude, longitude);
+				if (Math.abs(distance - maxDistance) < 1e-6) {
+					continue;
+				}
+				assertEquals("point " + latitude + ", " + longitude + " distance " + maxDistance + " circle " + i,
+						distance <= maxDistance, foundSet.contains(i));
+			}
+		}
+	}
+
+	@Test
+	public void updatesAndRemovals() {
+		index.put(ids[0], 0, 179.99, 3000);
+		List<Integer> found = new ArrayList<Integer>();
+		index.findContaining(0, -179.995, found);
+		assertTrue(found.contains(0));
+
+		index.remove(ids[0]);
+		found.clear();
+		index.findContaining(0, -179.995, found);
+		assertFalse(found.contains(0));
+		assertEquals(CIRCLES - 1, index.size());
+	}
+
+	/**
+	 * @return latitude of query point, in the dense region, around the antimeridian, near or at a pole, or anywhere
+	 */
+	private double queryLatitude(int query) {
+		switch (query % 5) {
+			case 0: return 47 + random.nextDouble() * 2;
+			case 1: return random.nextDouble() * 120 - 60;
+			case 2: return (random.nextBoolean() ? 1 : -1) * (85 + random.nextDouble() * 5);
+			case 3: return query % 2 == 0 ? 90 : -90;
+			default: return random.nextDouble() * 180 - 90;
+		}
+	}
+
+	private double queryLongitude(int query) {
+		switch (query % 5) {
+			case 0: return 8 + random.nextDouble() * 2;
+			case 1: return Geodesy.normalizeLongitude(178 + random.nextDouble() * 4);
+			default: return random.nextDouble() * 360 - 180;
+		}
+	}
+
+	/**
+	 * @return distance from a point to the edge of circle i, negative inside
+	 */
+	private double edgeDistance(int i, double latitude, double longitude) {
+		return Geodesy.haversineMeters(latitudes[i], longitudes[i], latitude, longitude) - radii[i];
+	}
+
+	/**
+	 * @return distance from a point to a rectangle, 0 inside, from points sampled along the edges of the rectangle
+	 */
+	private static double sampledDistanceToRect(double latitude, double longitude, double minLat, double minLon, double maxLat, double maxLon) {
+		double width = minLon <= maxLon ? maxLon - minLon : maxLon + 360 - minLon;
+		double offset = Geodesy.normalizeLongitude(longitude - minLon);
+		if (offset < 0) {
+			offset += 360;
+		}
+		if (latitude >= minLat && latitude <= maxLat && offset <= width) {
+			return 0;
+		}
+		double distance = Double.MAX_VALUE;
+		int samples = 500;
+		for (int i = 0; i <= samples; i++) {
+			double lat = minLat + (maxLat - minLat) * i / samples;
+			double lon = minLon + width * i / samples;
+			distance = Math.min(distance, Geodesy.haversineMeters(latitude, longitude, lat, minLon));
+			distance = Math.min(distance, Geodesy.haversineMeters(latitude, longitude, lat, maxLon));
+			distance = Math.min(distance, Geodesy.haversineMeters(latitude, longitude, minLat, lon));
+			distance = Math.min(distance, Geodesy.haversineMeters(latitude, longitude, maxLat, lon));
+		}
+		return distance;
+	}
+}
@@ -0,0 +1,98 @@
+package com.schuetz.mapareas;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.schuetz.mapareas.AreaMetrics.MetricSnapshot;
+
+/**
+ * Bucket and percentile math of AreaMetrics
+ *
+ * @author ivanschuetz
+ */
+public class AreaMetricsTest {
+
+	@Test
+	public void bucketRoundTrip() {
+		for (int bucket = 0; bucket < AreaMetrics.BUCKET_COUNT; bucket++) {
+			long upperBound = AreaMetrics.bucketUpperBound(bucket);
+			assertEquals(bucket, AreaMetrics.bucket(upperBound));
+			if (bucket + 1 < AreaMetrics.BUCKET_COUNT) {
+				assertEquals(bucket + 1, AreaMetrics.bucket(upperBound + 1));
+			}
+		}
+		assertEquals(AreaMetrics.BUCKET_COUNT - 1, AreaMetrics.bucket(Long.MAX_VALUE));
+		assertEquals(Long.MAX_VALUE, AreaMetrics.bucketUpperBound(AreaMetrics.BUCKET_COUNT - 1));
+		assertEquals(0, AreaMetrics.bucket(-5));
+	}
+
+	@Test
+	public void bucketError() {
+		Random random = new Random(23);
+		for (int i = 0; i < 100000; i++) {
+			long nanos = i < 10000 ? i : (random.nextLong() >>> 1) >>> random.nextInt(63);
+			long upperBound = AreaMetrics.bucketUpperBound(AreaMetrics.bucket(nanos));
+			assertTrue(nanos + " " + upperBound, upperBound >= nanos);
+			assertTrue(nanos + " " + upperBound, upperBound - nanos <= nanos / 8);
+		}
+	}
+
+	@Test
+	public void percentiles() {
+		AreaMetrics metrics = new AreaMetrics();
+		assertEquals(0, metrics.snapshot()[AreaMetrics.DRAG_DISPATCH].getPercentileNanos(50));
+
+		for (int nanos = 1; nanos <= 1000; nanos++) {
+			metrics.record(AreaMetrics.DRAG_DISPATCH, nanos);
+		}
+		MetricSnapshot snapshot = metrics.snapshot()[AreaMetrics.DRAG_DISPATCH];
+		assertEquals(1000, snapshot.getCount());
+		assertEquals(500.5, snapshot.getMeanNanos(), 1e-9);
+		assertEquals(1000, snapshot.getMaxNanos());
+		assertEquals(1, snapshot.getPercentileNanos(0));
+		assertEquals(10, snapshot.getPercentileNanos(1));
+		assertBucketOf(500, snapshot.getPercentileNanos(50));
+		assertEquals(1000, snapshot.getPercentileNanos(99)); //bucket of 990 goes up to 1023, limited by max
+		assertEquals(1000, snapshot.getPercentileNanos(100));
+		assertEquals(0, metrics.snapshot()[AreaMetrics.MARKER_LOOKUP].getCount());
+
+		metrics.reset();
+		assertEquals(0, metrics.snapshot()[AreaMetrics.DRAG_DISPATCH].getCount());
+	}
+
+	@Test
+	public void concurrentRecords() throws InterruptedException {
+		final AreaMetrics metrics = new AreaMetrics();
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			final int thread = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 10000; j++) {
+						metrics.record(AreaMetrics.OVERLAY_UPDATE, thread * 10000 + j);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		MetricSnapshot snapshot = metrics.snapshot()[AreaMetrics.OVERLAY_UPDATE];
+		assertEquals(40000, snapshot.getCount());
+		assertEquals(39999, snapshot.getMaxNanos());
+		assertEquals(39999 / 2.0, snapshot.getMeanNanos(), 1e-9);
+	}
+
+	/**
+	 * Percentiles are reported as the upper bound of the bucket of the exact value
+	 */
+	private static void assertBucketOf(long exactNanos, long percentileNanos) {
+		assertEquals(AreaMetrics.bucketUpperBound(AreaMetrics.bucket(exactNanos)), percentileNanos);
+	}
+}
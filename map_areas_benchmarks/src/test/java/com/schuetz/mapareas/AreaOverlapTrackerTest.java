@@ -0,0 +1,164 @@
+package com.schuetz.mapareas;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.schuetz.mapareas.AreaOverlapTracker.OverlapListener;
+
+/**
+ * Overlap events of AreaOverlapTracker against a brute force pairwise check, and the sampled union area
+ *
+ * @author ivanschuetz
+ */
+public class AreaOverlapTrackerTest {
+
+	private static final double EARTH_RADIUS = MapAreasConstants.RADIUS_OF_EARTH_METERS;
+
+	private AreaOverlapTracker<Integer> tracker;
+	private List<String> events = new ArrayList<String>();
+	private Set<Long> pairs = new HashSet<Long>();
+
+	@Before
+	public void setUp() {
+		tracker = new AreaOverlapTracker<Integer>();
+		tracker.setListener(new OverlapListener<Integer>() {
+			@Override
+			public void onOverlapStart(Integer area, Integer other) {
+				events.add("start " + area + " " + other);
+				assertTrue("overlap started twice " + area + " " + other, pairs.add(pair(area, other)));
+			}
+
+			@Override
+			public void onOverlapEnd(Integer area, Integer other) {
+				events.add("end " + area + " " + other);
+				assertTrue("overlap ended without start " + area + " " + other, pairs.remove(pair(area, other)));
+			}
+		});
+	}
+
+	@Test
+	public void events() {
+		tracker.put(1, 0, 0, 1000);
+		tracker.put(2, 0, 0.02, 1000); //~2.2 km apart
+		assertFalse(tracker.hasOverlaps(1));
+
+		tracker.put(2, 0, 0.015, 1000);
+		tracker.put(2, 0, 0.016, 1000); //still overlapping
+		tracker.put(2, 0, 0.016, 500); //resized apart
+		tracker.put(2, 0, 0.016, 1000);
+		tracker.put(3, 0, 0.008, 100);
+		assertTrue(tracker.hasOverlaps(1));
+
+		tracker.remove(1);
+		tracker.remove(1);
+		assertEquals(2, tracker.size());
+
+		assertEquals(list("start 2 1", "end 2 1", "start 2 1", "start 3 1", "start 3 2", "end 1 2", "end 1 3"), events);
+	}
+
+	@Test
+	public void matchesBruteForce() {
+		Random random = new Random(11);
+		int ids = 120;
+		double[][] circles = new double[ids][];
+		//clusters at the equator, across the antimeridian and around the north pole
+		double[][] clusters = {{48, 11}, {0, 180}, {89.9, 0}};
+		for (int step = 0; step < 3000; step++) {
+			int id = random.nextInt(ids);
+			if (circles[id] != null && random.nextInt(4) == 0) {
+				tracker.remove(id);
+				circles[id] = null;
+			} else {
+				double[] cluster = clusters[random.nextInt(clusters.length)];
+				double latitude = Math.min(90, cluster[0] + (random.nextDouble() - 0.5) * 0.2);
+				double longitude = Geodesy.normalizeLongitude(cluster[1] + (random.nextDouble() - 0.5) * 0.6);
+				double radius = random.nextInt(20) == 0 ? 200000 + random.nextDouble() * 5000000 : 100 + random.nextDouble() * 5000;
+				tracker.put(id, latitude, longitude, radius);
+				circles[id] = new double[] {latitude, longitude, radius};
+			}
+
+			if (step % 100 == 0 || step > 2900) {
+				Set<Long> expected = new HashSet<Long>();
+				for (int i = 0; i < ids; i++) {
+					for (int j = i + 1; j < ids; j++) {
+						if (circles[i] != null && circles[j] != null && Geodesy.haversineMeters(circles[i][0], circles[i][1],
+								circles[j][0], circles[j][1]) < circles[i][2] + circles[j][2]) {
+							expected.add(pair(i, j));
+						}
+					}
+				}
+				assertEquals("step " + step, expected, pairs);
+
+				List<Integer> found = new ArrayList<Integer>();
+				tracker.findPairs(found);
+				Set<Long> foundPairs = new HashSet<Long>();
+				for (int i = 0; i < found.size(); i += 2) {
+					assertTrue(foundPairs.add(pair(found.get(i), found.get(i + 1))));
+				}
+				assertEquals(expected, foundPairs);
+			}
+		}
+	}
+
+	@Test
+	public void unionAreaSeparateCircles() {
+		tracker.put(1, 0, 0, 1000);
+		tracker.put(2, 10, 10, 2000);
+		assertEquals(capArea(1000) + capArea(2000), tracker.getUnionAreaSquareMeters(), 1e-6);
+	}
+
+	@Test
+	public void unionAreaLens() {
+		double radius = 1000;
+		double distance = 1200;
+		double lens = 2 * radius * radius * Math.acos(distance / (2 * radius))
+				- distance / 2 * Math.sqrt(4 * radius * radius - distance * distance);
+		double expected = 2 * Math.PI * radius * radius - lens;
+		double[] out = new double[2];
+
+		//at the equator, across the antimeridian and at the pole
+		double[][] centers = {{0, 10}, {0, 180}, {90, 0}};
+		for (double[] center : centers) {
+			tracker.clear(); //without events
+			pairs.clear();
+			Geodesy.destination(center[0], center[1], 90, distance, out);
+			tracker.put(1, center[0], center[1], radius);
+			tracker.put(2, out[0], out[1], radius);
+			assertEquals("center " + center[0] + ", " + center[1], expected, tracker.getUnionAreaSquareMeters(1 << 18), expected * 0.005);
+		}
+	}
+
+	@Test
+	public void unionAreaContained() {
+		tracker.put(1, 48, 11, 3000);
+		tracker.put(2, 48, 11.001, 500);
+		tracker.put(3, 48, 11, 3000); //same as 1
+		assertEquals(capArea(3000), tracker.getUnionAreaSquareMeters(1 << 16), capArea(3000) * 0.01);
+	}
+
+	private static double capArea(double radiusMeters) {
+		return 2 * Math.PI * EARTH_RADIUS * EARTH_RADIUS * (1 - Math.cos(radiusMeters / EARTH_RADIUS));
+	}
+
+	private static Long pair(int a, int b) {
+		return Long.valueOf(Math.min(a, b) * 100000L + Math.max(a, b));
+	}
+
+	private static List<String> list(String... elements) {
+		List<String> list = new ArrayList<String>();
+		for (String element : elements) {
+			list.add(element);
+		}
+		return list;
+	}
+}
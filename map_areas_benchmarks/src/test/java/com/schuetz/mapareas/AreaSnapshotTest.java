@@ -0,0 +1,129 @@
+package com.schuetz.mapareas;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.schuetz.mapareas.benchmarks.Benchmarks;
+import com.schuetz.mapareas.benchmarks.FakeMapOverlays;
+import com.schuetz.mapareas.benchmarks.ManualFrameScheduler;
+
+/**
+ * Snapshots published when circles are added, appended to the previous one when possible
+ *
+ * @author ivanschuetz
+ */
+public class AreaSnapshotTest {
+
+	private MapAreaManager manager;
+
+	@Before
+	public void setUp() {
+		manager = Benchmarks.createManager(new FakeMapOverlays(), new ManualFrameScheduler(), new MapAreaMeasure(500, MapAreaMeasure.Unit.meters));
+	}
+
+	@Test
+	public void appendDoesNotChangeOlderSnapshots() {
+		MapAreaWrapper first = manager.add(new AreaSpec(new LatLng(48, 11), 1000));
+		AreaSnapshot older = manager.getSnapshot();
+		for (int i = 1; i < 100; i++) {
+			manager.add(new AreaSpec(new LatLng(48, 11 + i * 0.01), 1000 + i));
+		}
+
+		assertEquals(1, older.size());
+		assertEquals(1, older.getAreas().size());
+		assertSame(first, older.getArea(0));
+		assertNull(older.getOwner(manager.getCircles().get(1).getHandle()));
+		assertSnapshotOfManager();
+	}
+
+	@Test
+	public void reusedHandles() {
+		for (int i = 0; i < 10; i++) {
+			manager.add(new AreaSpec(new LatLng(48, 11 + i * 0.01), 1000 + i));
+		}
+		MapAreaWrapper removed = manager.getCircles().get(3);
+		int handle = removed.getHandle();
+		manager.remove(removed);
+		AreaSnapshot older = manager.getSnapshot();
+		MapAreaWrapper added = manager.add(new AreaSpec(new LatLng(50, 12), 2000));
+
+		assertNull(older.getOwner(handle));
+		assertEquals(9, older.size());
+		assertSame(added, manager.getSnapshot().getOwner(added.getHandle()));
+		assertSnapshotOfManager();
+	}
+
+	@Test
+	public void appendAfterGeometryDelta() {
+		MapAreaWrapper moved = manager.add(new AreaSpec(new LatLng(48, 11), 1000));
+		moved.setCenter(new LatLng(49, 12));
+		manager.add(new AreaSpec(new LatLng(50, 13), 3000));
+
+		assertEquals(49, manager.getSnapshot().getLatitude(moved.getHandle()), 0);
+		assertSnapshotOfManager();
+	}
+
+	@Test
+	public void olderSnapshotDoesNotReadAppendedCircles() {
+		manager.add(new AreaSpec(new LatLng(48, 11), 1000));
+		AreaSnapshot older = manager.getSnapshot();
+		MapAreaWrapper appended = manager.add(new AreaSpec(new LatLng(49, 12), 2000));
+
+		try {
+			older.getArea(1);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			//expected
+		}
+		try {
+			older.getHandle(1);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			//expected
+		}
+		try {
+			older.getRadius(appended.getHandle());
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			//expected
+		}
+		try {
+			older.getFillColor(appended.getHandle());
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			//expected
+		}
+		try {
+			older.getAreas().get(1);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			//expected
+		}
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void circlesAreUnmodifiable() {
+		manager.getCircles().remove(manager.add(new AreaSpec(new LatLng(48, 11), 1000)));
+	}
+
+	private void assertSnapshotOfManager() {
+		AreaSnapshot snapshot = manager.getSnapshot();
+		assertEquals(manager.getCircles().size(), snapshot.size());
+		for (int i = 0; i < snapshot.size(); i++) {
+			MapAreaWrapper circle = manager.getCircles().get(i);
+			int handle = snapshot.getHandle(i);
+			assertSame(circle, snapshot.getArea(i));
+			assertEquals(circle.getHandle(), handle);
+			assertSame(circle, snapshot.getOwner(handle));
+			assertEquals(circle.getLatitude(), snapshot.getLatitude(handle), 0);
+			assertEquals(circle.getLongitude(), snapshot.getLongitude(handle), 0);
+			assertEquals(circle.getRadius(), snapshot.getRadius(handle), 0);
+		}
+	}
+}
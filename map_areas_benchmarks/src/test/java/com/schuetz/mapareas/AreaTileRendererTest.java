@@ -0,0 +1,213 @@
+package com.schuetz.mapareas;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Pixels of the tiles of AreaTileRenderer and invalidation of its cache
+ *
+ * @author ivanschuetz
+ */
+public class AreaTileRendererTest {
+
+	private static final int TILE_SIZE = AreaTileRenderer.DEFAULT_TILE_SIZE;
+	private static final int STROKE_COLOR = 0xffff0000;
+	private static final int FILL_COLOR = 0xff00ff00;
+
+	@Test
+	public void pixelsInsideStrokeAndOutside() {
+		assertPixelClasses(48.1, 11.6, 3000, 4, 12);
+		assertPixelClasses(-33.9, 151.2, 500, 2, 15);
+		assertPixelClasses(70, -20, 200000, 6, 6); //spans many rows of different scale
+	}
+
+	@Test
+	public void antimeridian() {
+		AreaTileRenderer renderer = new AreaTileRenderer();
+		renderer.put(0, 0, 179.95, 20000, 2, STROKE_COLOR, FILL_COLOR);
+		int zoom = 8;
+		int lastX = (1 << zoom) - 1;
+		int y = 1 << (zoom - 1);
+		assertTrue(countColor(renderer.render(lastX, y, zoom), FILL_COLOR) > 0);
+		assertTrue(countColor(renderer.render(0, y, zoom), FILL_COLOR) > 0); //west of the antimeridian
+		assertPixelClasses(0, 179.95, 20000, 2, zoom);
+
+		assertNotNull(renderer.renderPng(lastX, y, zoom));
+		assertNotNull(renderer.renderPng(0, y, zoom));
+		assertEquals(2, renderer.getCachedTileCount());
+		assertEquals(2, renderer.put(0, 1, 179.95, 20000, 2, STROKE_COLOR, FILL_COLOR)); //both sides of the antimeridian
+		assertEquals(0, renderer.getCachedTileCount());
+	}
+
+	@Test
+	public void invalidationKeepsCacheUpToDate() {
+		Random random = new Random(1);
+		AreaTileRenderer renderer = new AreaTileRenderer(TILE_SIZE, 1000);
+		int zoom = 9;
+		double worldSize = TILE_SIZE * Math.pow(2, zoom);
+		//tiles around the antimeridian and around (48, 11)
+		int[][] tiles = new int[48][];
+		int centerX = (int)(WebMercator.toX(11, worldSize) / TILE_SIZE);
+		int centerY = (int)(WebMercator.toY(48, worldSize) / TILE_SIZE);
+		int lastX = (1 << zoom) - 1;
+		int equatorY = 1 << (zoom - 1);
+		for (int i = 0; i < 6; i++) {
+			for (int j = 0; j < 4; j++) {
+				tiles[i * 4 + j] = new int[] {centerX - 3 + i, centerY - 2 + j};
+				tiles[24 + i * 4 + j] = new int[] {(lastX - 2 + i) & lastX, equatorY - 2 + j};
+			}
+		}
+
+		for (int step = 0; step < 300; step++) {
+			renderAll(renderer, tiles, zoom);
+			int cached = renderer.getCachedTileCount();
+			int id = random.nextInt(20);
+			int invalidated;
+			int operation = random.nextInt(10);
+			if (operation == 0) {
+				invalidated = renderer.remove(id);
+			} else if (operation == 1) {
+				invalidated = renderer.setHidden(id, !renderer.isHidden(id));
+			} else {
+				boolean nearAntimeridian = random.nextBoolean();
+				double latitude = nearAntimeridian ? random.nextDouble() * 4 - 2 : 48 + random.nextDouble() * 2 - 1;
+				double longitude = nearAntimeridian ? 179 + random.nextDouble() * 2 : 11 + random.nextDouble() * 4 - 2;
+				invalidated = renderer.put(id, latitude, Geodesy.normalizeLongitude(longitude), 1000 + random.nextDouble() * 20000,
+						1 + random.nextInt(4), STROKE_COLOR, FILL_COLOR);
+			}
+			assertEquals(cached - invalidated, renderer.getCachedTileCount());
+			//each tile, cached or not, looks like a tile rendered now. Circles near a tile without pixels in it give a transparent tile
+			for (int[] tile : tiles) {
+				byte[] png = renderer.renderPng(tile[0], tile[1], zoom);
+				int[] pixels = renderer.render(tile[0], tile[1], zoom);
+				if (png == null) {
+					assertEquals("step " + step, 0, countNotTransparent(pixels));
+				} else if (pixels == null) {
+					assertArrayEquals("step " + step, PngEncoder.encode(new int[TILE_SIZE * TILE_SIZE], TILE_SIZE, TILE_SIZE), png);
+				} else {
+					assertArrayEquals("step " + step, PngEncoder.encode(pixels, TILE_SIZE, TILE_SIZE), png);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void invalidationCountsOnlyTouchedTiles() {
+		AreaTileRenderer renderer = new AreaTileRenderer();
+		int zoom = 10;
+		double worldSize = TILE_SIZE * Math.pow(2, zoom);
+		int x = (int)(WebMercator.toX(11, worldSize) / TILE_SIZE);
+		int y = (int)(WebMercator.toY(48, worldSize) / TILE_SIZE);
+		for (int i = -5; i <= 5; i++) {
+			for (int j = -5; j <= 5; j++) {
+				renderer.renderPng(x + i, y + j, zoom);
+			}
+		}
+		assertEquals(121, renderer.getCachedTileCount());
+
+		//small circle in the middle of one tile
+		double latitude = WebMercator.toLatitude((y + 0.5) * TILE_SIZE, worldSize);
+		double longitude = WebMercator.toLongitude((x + 0.5) * TILE_SIZE, worldSize);
+		assertEquals(1, renderer.put(0, latitude, longitude, 100, 2, STROKE_COLOR, FILL_COLOR));
+		assertEquals(120, renderer.getCachedTileCount());
+		//moved to the next tile: cached tiles are removed where it was and where it is
+		renderer.renderPng(x, y, zoom);
+		double nextLongitude = WebMercator.toLongitude((x + 1.5) * TILE_SIZE, worldSize);
+		assertEquals(2, renderer.put(0, latitude, nextLongitude, 100, 2, STROKE_COLOR, FILL_COLOR));
+		renderer.renderPng(x + 1, y, zoom);
+		assertEquals(1, renderer.setHidden(0, true));
+		assertEquals(0, renderer.remove(0)); //hidden circles aren't in the tiles
+	}
+
+	/**
+	 * Renders the tiles around the circle and checks each pixel against the spherical distance of its center to the circle center.
+	 * Pixels closer than a hundredth of a pixel to an edge are skipped
+	 */
+	private static void assertPixelClasses(double latitude, double longitude, double radiusMeters, float strokeWidth, int zoom) {
+		AreaTileRenderer renderer = new AreaTileRenderer();
+		renderer.put(0, latitude, longitude, radiusMeters, strokeWidth, STROKE_COLOR, FILL_COLOR);
+		double worldSize = TILE_SIZE * Math.pow(2, zoom);
+		double metersPerPixel = WebMercator.metersPerPixel(latitude, worldSize);
+		double halfStroke = strokeWidth / 2 * metersPerPixel;
+		double outer = radiusMeters + halfStroke;
+		double inner = radiusMeters - halfStroke;
+		double tolerance = 0.01 * metersPerPixel;
+
+		int centerX = (int)Math.floor(WebMercator.toX(longitude, worldSize) / TILE_SIZE);
+		int centerY = (int)Math.floor(WebMercator.toY(latitude, worldSize) / TILE_SIZE);
+		int tileCount = 1 << zoom;
+		int fill = 0, stroke = 0;
+		for (int tileX = centerX - 1; tileX <= centerX + 1; tileX++) {
+			for (int tileY = Math.max(0, centerY - 1); tileY <= Math.min(tileCount - 1, centerY + 1); tileY++) {
+				int x = (tileX + tileCount) % tileCount;
+				int[] pixels = renderer.render(x, tileY, zoom);
+				for (int row = 0; row < TILE_SIZE; row++) {
+					double pixelLatitude = WebMercator.toLatitude((double)tileY * TILE_SIZE + row + 0.5, worldSize);
+					for (int column = 0; column < TILE_SIZE; column++) {
+						double pixelLongitude = WebMercator.toLongitude((double)x * TILE_SIZE + column + 0.5, worldSize);
+						double distance = distance(latitude, longitude, pixelLatitude, pixelLongitude);
+						int pixel = pixels == null ? 0 : pixels[row * TILE_SIZE + column];
+						String message = "tile " + x + ", " + tileY + " pixel " + column + ", " + row + " at " + distance + " m";
+						if (distance < inner - tolerance) {
+							assertEquals(message, FILL_COLOR, pixel);
+							fill++;
+						} else if (distance > inner + tolerance && distance < outer - tolerance) {
+							assertEquals(message, STROKE_COLOR, pixel);
+							stroke++;
+						} else if (distance > outer + tolerance) {
+							assertEquals(message, 0, pixel);
+						}
+					}
+				}
+			}
+		}
+		assertTrue(fill > 0);
+		assertTrue(stroke > 0);
+	}
+
+	/**
+	 * @return great circle distance on the sphere used by the renderer
+	 */
+	private static double distance(double latitude1, double longitude1, double latitude2, double longitude2) {
+		double phi1 = Math.toRadians(latitude1);
+		double phi2 = Math.toRadians(latitude2);
+		double cos = Math.sin(phi1) * Math.sin(phi2) + Math.cos(phi1) * Math.cos(phi2) * Math.cos(Math.toRadians(longitude2 - longitude1));
+		return Math.acos(Math.max(-1, Math.min(1, cos))) * MapAreasConstants.RADIUS_OF_EARTH_METERS;
+	}
+
+	private static void renderAll(AreaTileRenderer renderer, int[][] tiles, int zoom) {
+		for (int[] tile : tiles) {
+			renderer.renderPng(tile[0], tile[1], zoom);
+		}
+	}
+
+	private static int countNotTransparent(int[] pixels) {
+		int count = 0;
+		if (pixels != null) {
+			for (int pixel : pixels) {
+				if (pixel != 0) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	private static int countColor(int[] pixels, int color) {
+		int count = 0;
+		if (pixels != null) {
+			for (int pixel : pixels) {
+				if (pixel == color) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,121 @@
+package com.schuetz.mapareas;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.schuetz.mapareas.benchmarks.Benchmarks;
+import com.schuetz.mapareas.benchmarks.FakeMapOverlays;
+import com.schuetz.mapareas.benchmarks.ManualFrameScheduler;
+
+/**
+ * Values delivered by AsyncCircleManagerListener, with an executor run by the test
+ *
+ * @author ivanschuetz
+ */
+public class AsyncCircleManagerListenerTest {
+
+	private List<Runnable> tasks = new ArrayList<Runnable>();
+	private List<AreaSpec> specs = new ArrayList<AreaSpec>();
+	private List<MapAreaWrapper> circles = new ArrayList<MapAreaWrapper>();
+	private AsyncCircleManagerListener asyncListener;
+	private MapAreaManager manager;
+
+	@Before
+	public void setUp() {
+		Executor executor = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				tasks.add(command);
+			}
+		};
+		asyncListener = new AsyncCircleManagerListener(new RecordingListener(), executor, 16, AsyncCircleManagerListener.OVERFLOW_DROP_OLDEST);
+		manager = Benchmarks.createManager(new FakeMapOverlays(), new ManualFrameScheduler(), new MapAreaMeasure(500, MapAreaMeasure.Unit.meters));
+	}
+
+	@Test
+	public void deliversValuesOfEventTime() {
+		MapAreaWrapper circle = manager.add(new AreaSpec(new LatLng(48, 11), 1000));
+		asyncListener.onMoveCircleEnd(circle);
+		circle.setCenter(new LatLng(49, 12));
+		circle.setRadius(2000);
+		asyncListener.onResizeCircleEnd(circle);
+		manager.remove(circle); //moves the circle to a store of its own
+		runTasks();
+
+		assertEquals(2, specs.size());
+		assertSame(circle, circles.get(0));
+		assertEquals(new LatLng(48, 11), specs.get(0).center);
+		assertEquals(1000, specs.get(0).radiusMeters, 0);
+		assertEquals(new LatLng(49, 12), specs.get(1).center);
+		assertEquals(2000, specs.get(1).radiusMeters, 0);
+	}
+
+	@Test
+	public void coalescedRadiusLimitHasLatestValues() {
+		MapAreaWrapper circle = manager.add(new AreaSpec(new LatLng(48, 11), 1000));
+		asyncListener.onMaxRadius(circle);
+		circle.setRadius(1500);
+		asyncListener.onMaxRadius(circle);
+		runTasks();
+
+		assertEquals(1, specs.size());
+		assertEquals(1, asyncListener.getCoalescedCount());
+		assertEquals(1500, specs.get(0).radiusMeters, 0);
+	}
+
+	private void runTasks() {
+		while (!tasks.isEmpty()) {
+			tasks.remove(0).run();
+		}
+	}
+
+	private class RecordingListener implements AsyncCircleManagerListener.Listener {
+		private void record(MapAreaWrapper draggableCircle, AreaSpec spec) {
+			circles.add(draggableCircle);
+			specs.add(spec);
+		}
+
+		@Override
+		public void onCreateCircle(MapAreaWrapper draggableCircle, AreaSpec spec) {
+			record(draggableCircle, spec);
+		}
+
+		@Override
+		public void onResizeCircleEnd(MapAreaWrapper draggableCircle, AreaSpec spec) {
+			record(draggableCircle, spec);
+		}
+
+		@Override
+		public void onMoveCircleEnd(MapAreaWrapper draggableCircle, AreaSpec spec) {
+			record(draggableCircle, spec);
+		}
+
+		@Override
+		public void onMoveCircleStart(MapAreaWrapper draggableCircle, AreaSpec spec) {
+			record(draggableCircle, spec);
+		}
+
+		@Override
+		public void onResizeCircleStart(MapAreaWrapper draggableCircle, AreaSpec spec) {
+			record(draggableCircle, spec);
+		}
+
+		@Override
+		public void onMinRadius(MapAreaWrapper draggableCircle, AreaSpec spec) {
+			record(draggableCircle, spec);
+		}
+
+		@Override
+		public void onMaxRadius(MapAreaWrapper draggableCircle, AreaSpec spec) {
+			record(draggableCircle, spec);
+		}
+	}
+}
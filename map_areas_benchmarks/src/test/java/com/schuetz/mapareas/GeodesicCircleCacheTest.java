@@ -0,0 +1,45 @@
+package com.schuetz.mapareas;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Outlines of GeodesicCircleCache against the geodesic distance on the ellipsoid
+ *
+ * @author ivanschuetz
+ */
+public class GeodesicCircleCacheTest {
+
+	@Test
+	public void verticesOnCircle() {
+		Random random = new Random(1);
+		GeodesicCircleCache cache = new GeodesicCircleCache();
+		double maxError = 0;
+		for (int i = 0; i < 500; i++) {
+			double latitude = random.nextDouble() * 160 - 80;
+			double longitude = random.nextDouble() * 360 - 180;
+			double radius = 10 + random.nextDouble() * GeodesicCircleCache.MAX_TEMPLATE_RADIUS_METERS;
+			double[] vertices = cache.outline(latitude, longitude, radius, 10);
+			for (int j = 0; j < vertices.length; j += 2) {
+				double distance = Geodesy.vincentyMeters(latitude, longitude, vertices[j], vertices[j + 1]);
+				maxError = Math.max(maxError, Math.abs(distance - radius) / radius);
+			}
+		}
+		assertTrue("max relative error " + maxError, maxError < 5e-4);
+	}
+
+	@Test
+	public void resizeUsesCachedTemplates() {
+		GeodesicCircleCache cache = new GeodesicCircleCache();
+		//a resize gesture: a new radius for each drag event
+		for (int i = 0; i < 200; i++) {
+			cache.outline(48.2, 11.5, 1000 + i * 0.05, 14);
+		}
+		assertTrue("templates " + cache.size(), cache.size() <= 2);
+		assertEquals(cache.outline(48.2, 11.5, 1000, 14).length, cache.outline(48.2, 11.5, 1000.5, 14).length);
+	}
+}
@@ -0,0 +1,67 @@
+package com.schuetz.mapareas;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Marker;
+import com.schuetz.mapareas.benchmarks.Benchmarks;
+import com.schuetz.mapareas.benchmarks.FakeMapOverlays;
+import com.schuetz.mapareas.benchmarks.ManualFrameScheduler;
+
+/**
+ * Dragging circles after switching to and from geodesic mode, see MapAreaManager.setGeodesicCircles
+ *
+ * @author ivanschuetz
+ */
+public class GeodesicCirclesTest {
+
+	private FakeMapOverlays overlays;
+	private ManualFrameScheduler frameScheduler;
+	private MapAreaManager manager;
+	private MapAreaWrapper circle;
+
+	@Before
+	public void setUp() {
+		overlays = new FakeMapOverlays();
+		frameScheduler = new ManualFrameScheduler();
+		manager = Benchmarks.createManager(overlays, frameScheduler, new MapAreaMeasure(500, MapAreaMeasure.Unit.meters));
+		circle = manager.add(new AreaSpec(new LatLng(0, 11), 1000));
+	}
+
+	@Test
+	public void dragAfterToggle() {
+		manager.setGeodesicCircles(true);
+		drag(circle.getCenterMarker(), new LatLng(10, 12));
+		assertEquals(10, circle.getLatitude(), 0);
+		assertEquals(12, circle.getLongitude(), 0);
+
+		manager.setGeodesicCircles(false);
+		drag(circle.getCenterMarker(), new LatLng(20, 13));
+		assertEquals(20, circle.getLatitude(), 0);
+		assertEquals(13, circle.getLongitude(), 0);
+
+		//markers are kept, only the outline is replaced
+		assertEquals(2, overlays.getMarkers().size());
+	}
+
+	@Test
+	public void resizeAfterToggle() {
+		manager.setGeodesicCircles(true);
+		double[] position = new double[2];
+		Geodesy.vincentyDestination(0, 11, 90, 2000, position, 0);
+		drag(circle.getRadiusMarker(), new LatLng(position[0], position[1]));
+
+		assertEquals(2000, circle.getRadius(), 1e-3);
+	}
+
+	private void drag(Marker marker, LatLng position) {
+		manager.onMarkerDragStart(marker);
+		marker.setPosition(position);
+		manager.onMarkerDrag(marker);
+		manager.onMarkerDragEnd(marker);
+		frameScheduler.runAllFrames();
+	}
+}
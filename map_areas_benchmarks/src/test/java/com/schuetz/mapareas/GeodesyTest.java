@@ -0,0 +1,108 @@
+package com.schuetz.mapareas;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Geodesy against published reference distances (Vincenty 1975, Karney 2013)
+ *
+ * @author ivanschuetz
+ */
+public class GeodesyTest {
+
+	//Flinders Peak and Buninyong, Vincenty's example
+	private static final double FLINDERS_LAT = -dms(37, 57, 3.72030);
+	private static final double FLINDERS_LON = dms(144, 25, 29.52440);
+	private static final double BUNINYONG_LAT = -dms(37, 39, 10.15610);
+	private static final double BUNINYONG_LON = dms(143, 55, 35.38390);
+	private static final double FLINDERS_BUNINYONG_METERS = 54972.271;
+	private static final double FLINDERS_BUNINYONG_BEARING = dms(306, 52, 5.37);
+
+	private static final double WGS84_QUARTER_MERIDIAN_METERS = 10001965.729;
+
+	@Test
+	public void vincentyReferenceDistances() {
+		assertEquals(FLINDERS_BUNINYONG_METERS, Geodesy.vincentyMeters(FLINDERS_LAT, FLINDERS_LON, BUNINYONG_LAT, BUNINYONG_LON), 1e-3);
+		assertEquals(WGS84_QUARTER_MERIDIAN_METERS, Geodesy.vincentyMeters(0, 0, 90, 0), 1e-3);
+		assertEquals(WGS84_QUARTER_MERIDIAN_METERS, Geodesy.vincentyMeters(-90, 0, 0, 30), 1e-3);
+		assertEquals(Math.toRadians(1) * Geodesy.WGS84_SEMI_MAJOR_AXIS_METERS, Geodesy.vincentyMeters(0, 0, 0, 1), 1e-3);
+		assertEquals(0, Geodesy.vincentyMeters(48, 11, 48, 11), 0);
+
+		//nearly antipodal but still converging, Karney's example
+		assertEquals(19936288.579, Geodesy.vincentyMeters(0, 0, 0.5, 179.5), 1e-3);
+	}
+
+	@Test
+	public void vincentyAntipodal() {
+		//the iteration doesn't converge, falls back to haversine, which is within 0.1% of the geodesic
+		assertVincentyFallback(19944127.421, 0, 0, 0.5, 179.7);
+		assertVincentyFallback(2 * WGS84_QUARTER_MERIDIAN_METERS, 0, 0, 0, 180);
+		assertVincentyFallback(2 * WGS84_QUARTER_MERIDIAN_METERS, 10, 20, -10, -160);
+	}
+
+	@Test
+	public void vincentyDestination() {
+		double[] out = new double[3];
+		Geodesy.vincentyDestination(FLINDERS_LAT, FLINDERS_LON, FLINDERS_BUNINYONG_BEARING, FLINDERS_BUNINYONG_METERS, out, 1);
+		assertEquals(BUNINYONG_LAT, out[1], 1e-7);
+		assertEquals(BUNINYONG_LON, out[2], 1e-7);
+
+		Geodesy.vincentyDestination(0, 179.5, 90, Math.toRadians(1) * Geodesy.WGS84_SEMI_MAJOR_AXIS_METERS, out, 0);
+		assertEquals(0, out[0], 1e-9);
+		assertEquals(-179.5, out[1], 1e-9);
+	}
+
+	@Test
+	public void haversineReferenceDistances() {
+		double radius = MapAreasConstants.RADIUS_OF_EARTH_METERS;
+		assertEquals(Math.PI / 2 * radius, Geodesy.haversineMeters(0, 0, 90, 0), 1e-6);
+		//asin is ill conditioned near the antipode
+		assertEquals(Math.PI * radius, Geodesy.haversineMeters(10, 20, -10, -160), 1);
+		assertEquals(Math.toRadians(1) * radius, Geodesy.haversineMeters(0, 179.5, 0, -179.5), 1e-6);
+		//60 degrees of longitude at 60N, on the sphere: cos(d) = sin(60)^2 + cos(60)^2 cos(60)
+		assertEquals(Math.acos(0.75 + 0.25 * 0.5) * radius, Geodesy.haversineMeters(60, 0, 60, 60), 1e-6);
+
+		//spherical bearing, close to the ellipsoidal one of the reference
+		assertEquals(FLINDERS_BUNINYONG_BEARING, Geodesy.initialBearing(FLINDERS_LAT, FLINDERS_LON, BUNINYONG_LAT, BUNINYONG_LON), 0.2);
+	}
+
+	@Test
+	public void destinationRoundTrip() {
+		Random random = new Random(5);
+		double[] out = new double[2];
+		for (int i = 0; i < 1000; i++) {
+			double latitude = random.nextDouble() * 160 - 80;
+			double longitude = random.nextDouble() * 360 - 180;
+			double bearing = random.nextDouble() * 360;
+			double distance = random.nextDouble() * 5000000;
+			Geodesy.destination(latitude, longitude, bearing, distance, out);
+			assertEquals(distance, Geodesy.haversineMeters(latitude, longitude, out[0], out[1]), 1e-3);
+			if (distance > 1) {
+				assertEquals(0, angleDifference(bearing, Geodesy.initialBearing(latitude, longitude, out[0], out[1])), 1e-6);
+			}
+
+			Geodesy.vincentyDestination(latitude, longitude, bearing, distance, out, 0);
+			assertEquals(distance, Geodesy.vincentyMeters(latitude, longitude, out[0], out[1]), 1e-3);
+			//the sphere is within 0.6% of the ellipsoid
+			assertEquals(distance, Geodesy.haversineMeters(latitude, longitude, out[0], out[1]), distance * 0.006);
+		}
+	}
+
+	private static void assertVincentyFallback(double geodesicMeters, double lat1, double lon1, double lat2, double lon2) {
+		double meters = Geodesy.vincentyMeters(lat1, lon1, lat2, lon2);
+		assertEquals(Geodesy.haversineMeters(lat1, lon1, lat2, lon2), meters, 0);
+		assertEquals(geodesicMeters, meters, geodesicMeters * 0.001);
+	}
+
+	private static double angleDifference(double a, double b) {
+		double difference = Math.abs(a - b) % 360;
+		return Math.min(difference, 360 - difference);
+	}
+
+	private static double dms(double degrees, double minutes, double seconds) {
+		return degrees + minutes / 60 + seconds / 3600;
+	}
+}
@@ -0,0 +1,207 @@
+package com.schuetz.mapareas;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.schuetz.mapareas.GeofenceEngine.GeofenceListener;
+
+/**
+ * Transitions reported by GeofenceEngine
+ *
+ * @author ivanschuetz
+ */
+public class GeofenceEngineTest {
+
+	private static final double METERS_PER_DEGREE = Math.toRadians(1) * MapAreasConstants.RADIUS_OF_EARTH_METERS;
+
+	private GeofenceEngine<String> engine;
+	private List<String> events = new ArrayList<String>();
+
+	@Before
+	public void setUp() {
+		engine = new GeofenceEngine<String>();
+		engine.setListener(new GeofenceListener<String>() {
+			@Override
+			public void onEnter(String area, long timeMillis) {
+				events.add("enter " + area + " " + timeMillis);
+			}
+
+			@Override
+			public void onExit(String area, long timeMillis) {
+				events.add("exit " + area + " " + timeMillis);
+			}
+
+			@Override
+			public void onDwell(String area, long timeMillis) {
+				events.add("dwell " + area + " " + timeMillis);
+			}
+		});
+		engine.put("a", 0, 0, 1000);
+		engine.put("b", 0, 0.015, 1000); //overlaps a
+	}
+
+	@Test
+	public void enterAndExit() {
+		engine.process(0, -0.1, 0);
+		engine.process(0, 0, 1);
+		engine.process(0, 0.0075, 2); //in both
+		engine.process(0, 0.015, 3);
+		engine.process(0, 0.1, 4);
+
+		assertEvents("enter a 1", "enter b 2", "exit a 3", "exit b 4");
+		assertFalse(engine.isInside("a"));
+	}
+
+	@Test
+	public void dwellOncePerStay() {
+		engine.setDwellTime(1000);
+		engine.process(0, 0, 0);
+		engine.process(0, 0, 500);
+		engine.process(0, 0, 1000);
+		engine.process(0, 0, 5000);
+		engine.process(0, 0.1, 6000);
+		engine.process(0, 0, 7000);
+		engine.process(0, 0, 9000);
+
+		assertEvents("enter a 0", "dwell a 1000", "exit a 6000", "enter a 7000", "dwell a 9000");
+	}
+
+	@Test
+	public void exitMargin() {
+		engine.setExitMargin(50);
+		double edge = 1000 / METERS_PER_DEGREE;
+		engine.process(0, -edge + 10 / METERS_PER_DEGREE, 0); //10 m inside
+		engine.process(0, -edge - 10 / METERS_PER_DEGREE, 1); //10 m outside, in the margin
+		engine.process(0, -edge + 5 / METERS_PER_DEGREE, 2);
+		engine.process(0, -edge - 40 / METERS_PER_DEGREE, 3);
+		assertTrue(engine.isInside("a"));
+		engine.process(0, -edge - 60 / METERS_PER_DEGREE, 4);
+
+		assertEvents("enter a 0", "exit a 4");
+	}
+
+	@Test
+	public void noExitMargin() {
+		double edge = 1000 / METERS_PER_DEGREE;
+		engine.process(0, -edge + 10 / METERS_PER_DEGREE, 0);
+		engine.process(0, -edge - 10 / METERS_PER_DEGREE, 1);
+		engine.process(0, -edge + 5 / METERS_PER_DEGREE, 2);
+
+		assertEvents("enter a 0", "exit a 1", "enter a 2");
+	}
+
+	@Test
+	public void removeWithoutExit() {
+		engine.setExitMargin(50);
+		engine.process(0, 0, 0);
+		engine.remove("a");
+		engine.process(0, 0.1, 1);
+		engine.put("a", 0, 0, 1000);
+		engine.process(0, 0, 2);
+
+		assertEvents("enter a 0", "enter a 2");
+	}
+
+	@Test
+	public void sharedIndex() {
+		AreaGridIndex<String> index = new AreaGridIndex<String>();
+		index.put("c", 10, 10, 1000);
+		GeofenceEngine<String> shared = new GeofenceEngine<String>(index);
+		shared.setExitMargin(100);
+		shared.process(10, 10, 0);
+		assertTrue(shared.isInside("c"));
+
+		index.put("c", 20, 20, 1000); //moved by the owner of the index
+		shared.process(10, 10, 1);
+		assertFalse(shared.isInside("c"));
+		index.remove("c");
+		shared.process(20, 20, 2);
+		assertFalse(shared.isInside("c"));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void putOnSharedIndex() {
+		new GeofenceEngine<String>(new AreaGridIndex<String>()).put("c", 0, 0, 100);
+	}
+
+	@Test
+	public void matchesBruteForce() {
+		GeofenceEngine<Integer> engine = new GeofenceEngine<Integer>();
+		Random random = new Random(3);
+		int circles = 300;
+		Integer[] ids = new Integer[circles];
+		double[] latitudes = new double[circles];
+		double[] longitudes = new double[circles];
+		double[] radii = new double[circles];
+		for (int i = 0; i < circles; i++) {
+			ids[i] = Integer.valueOf(i);
+			latitudes[i] = 48 + random.nextDouble() * 0.5;
+			longitudes[i] = 11 + random.nextDouble() * 0.5;
+			radii[i] = 200 + random.nextDouble() * 5000;
+			engine.put(ids[i], latitudes[i], longitudes[i], radii[i]);
+		}
+		final int[] transitions = new int[2];
+		engine.setListener(new GeofenceListener<Integer>() {
+			@Override
+			public void onEnter(Integer area, long timeMillis) {
+				transitions[0]++;
+			}
+
+			@Override
+			public void onExit(Integer area, long timeMillis) {
+				transitions[1]++;
+			}
+
+			@Override
+			public void onDwell(Integer area, long timeMillis) {
+			}
+		});
+
+		int count = 2000;
+		double[] fixLatitudes = new double[count];
+		double[] fixLongitudes = new double[count];
+		long[] times = new long[count];
+		for (int i = 0; i < count; i++) {
+			fixLatitudes[i] = 48 + random.nextDouble() * 0.5;
+			fixLongitudes[i] = 11 + random.nextDouble() * 0.5;
+			times[i] = i * 1000;
+		}
+
+		boolean[] inside = new boolean[circles];
+		int enters = 0;
+		int exits = 0;
+		for (int i = 0; i < count; i++) {
+			engine.process(fixLatitudes, fixLongitudes, times, i, 1);
+			for (int j = 0; j < circles; j++) {
+				boolean nowInside = Geodesy.haversineMeters(latitudes[j], longitudes[j], fixLatitudes[i], fixLongitudes[i]) <= radii[j];
+				if (nowInside != inside[j]) {
+					if (nowInside) {
+						enters++;
+					} else {
+						exits++;
+					}
+				}
+				inside[j] = nowInside;
+				assertEquals("fix " + i + " circle " + j, nowInside, engine.isInside(ids[j]));
+			}
+		}
+		assertEquals(enters, transitions[0]);
+		assertEquals(exits, transitions[1]);
+	}
+
+	private void assertEvents(String... expected) {
+		List<String> expectedEvents = new ArrayList<String>();
+		for (String event : expected) {
+			expectedEvents.add(event);
+		}
+		assertEquals(expectedEvents, events);
+	}
+}
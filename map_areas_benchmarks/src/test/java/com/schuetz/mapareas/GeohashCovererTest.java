@@ -0,0 +1,67 @@
+package com.schuetz.mapareas;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.schuetz.mapareas.benchmarks.Benchmarks;
+import com.schuetz.mapareas.benchmarks.FakeMapOverlays;
+import com.schuetz.mapareas.benchmarks.ManualFrameScheduler;
+
+/**
+ * Order of the coverings of GeohashCoverer, and MapAreaManager.getCellCovering
+ *
+ * @author ivanschuetz
+ */
+public class GeohashCovererTest {
+
+	@Test
+	public void coveringsInGeohashOrder() {
+		Random random = new Random(1);
+		//small circles with max level 12, cells with geohashes from 'h' on use the sign bit
+		GeohashCoverer coverer = new GeohashCoverer(10, 12, 64);
+		for (int i = 0; i < 200; i++) {
+			double latitude = random.nextDouble() * 170 - 85;
+			double longitude = random.nextDouble() * 360 - 180;
+			assertGeohashOrder(coverer.cover(latitude, longitude, 0.5 + random.nextDouble() * 5));
+		}
+		//cells of mixed levels
+		coverer = new GeohashCoverer(2, 6, 24);
+		for (int i = 0; i < 200; i++) {
+			double latitude = random.nextDouble() * 170 - 85;
+			double longitude = random.nextDouble() * 360 - 180;
+			assertGeohashOrder(coverer.cover(latitude, longitude, 100 + random.nextDouble() * 20000));
+		}
+	}
+
+	@Test
+	public void coveringOfLevel12CellsAroundSignBit() {
+		//longitude 0: the first geohash character changes from 'e'/'g' (positive cells) to 's'/'u' (sign bit set)
+		long[] cells = new GeohashCoverer(12, 12, 64).cover(45, 0, 0.2);
+		assertTrue(cells.length > 1);
+		assertGeohashOrder(cells);
+	}
+
+	@Test
+	public void cellCoveringOfOtherCircleIsEmpty() {
+		MapAreaManager manager = Benchmarks.createManager(new FakeMapOverlays(), new ManualFrameScheduler(),
+				new MapAreaMeasure(500, MapAreaMeasure.Unit.meters));
+		MapAreaWrapper removed = manager.add(new AreaSpec(new LatLng(48, 11), 1000));
+		manager.remove(removed);
+		manager.add(new AreaSpec(new LatLng(10, 11), 1000));
+
+		assertEquals(0, manager.getCellCovering(removed).length);
+	}
+
+	private static void assertGeohashOrder(long[] cells) {
+		for (int i = 1; i < cells.length; i++) {
+			String previous = GeohashCoverer.toGeohash(cells[i - 1]);
+			String geohash = GeohashCoverer.toGeohash(cells[i]);
+			assertTrue(previous + " >= " + geohash, previous.compareTo(geohash) < 0);
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package com.schuetz.mapareas;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.CameraPosition;
+import com.google.android.gms.maps.model.Circle;
+import com.google.android.gms.maps.model.CircleOptions;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+import com.schuetz.mapareas.benchmarks.Benchmarks;
+import com.schuetz.mapareas.benchmarks.FakeMapOverlays;
+import com.schuetz.mapareas.benchmarks.ManualFrameScheduler;
+
+/**
+ * OverlayPool, and the reuse of overlays by circles entering and leaving the viewport in virtualized mode
+ *
+ * @author ivanschuetz
+ */
+public class OverlayPoolTest {
+
+	private BitmapDescriptor centerIcon = BitmapDescriptorFactory.fromResource(1);
+	private BitmapDescriptor radiusIcon = BitmapDescriptorFactory.fromResource(2);
+
+	@Test
+	public void acquireByIcon() {
+		OverlayPool pool = new OverlayPool(4);
+		Marker center = marker();
+		Marker radius = marker();
+		pool.releaseMarker(center, centerIcon);
+		pool.releaseMarker(radius, radiusIcon);
+
+		assertFalse(center.isVisible());
+		assertSame(radius, pool.acquireMarker(radiusIcon));
+		assertNull(pool.acquireMarker(radiusIcon));
+		assertSame(center, pool.acquireMarker(centerIcon));
+		assertEquals(0, pool.getMarkerCount());
+	}
+
+	@Test
+	public void releaseWhenFull() {
+		OverlayPool pool = new OverlayPool(2);
+		for (int i = 0; i < 3; i++) {
+			pool.releaseMarker(marker(), centerIcon);
+			pool.releaseCircle(new Circle(new CircleOptions()));
+		}
+
+		assertEquals(2, pool.getMarkerCount());
+		assertEquals(2, pool.getCircleCount());
+	}
+
+	@Test
+	public void shrinkAfterReuse() {
+		OverlayPool pool = new OverlayPool(8);
+		for (int i = 0; i < 16; i++) {
+			BitmapDescriptor icon = BitmapDescriptorFactory.fromResource(10 + i);
+			pool.releaseMarker(marker(), icon);
+			pool.acquireMarker(icon); //leaves no markers for icon
+		}
+		pool.releaseMarker(marker(), radiusIcon);
+		pool.releaseMarker(marker(), radiusIcon);
+		for (int i = 0; i < 3; i++) {
+			pool.releaseCircle(new Circle(new CircleOptions()));
+		}
+
+		pool.setMaxSize(1);
+		assertEquals(1, pool.getMarkerCount());
+		assertEquals(1, pool.getCircleCount());
+		assertTrue(pool.acquireMarker(radiusIcon) != null);
+
+		pool.setMaxSize(0);
+		assertEquals(0, pool.getMarkerCount());
+		assertEquals(0, pool.getCircleCount());
+		assertNull(pool.acquireCircle());
+	}
+
+	@Test
+	public void virtualizedReusesOverlays() {
+		GoogleMap map = new GoogleMap();
+		map.moveCamera(new CameraPosition(new LatLng(0, 0), 10, 0, 0));
+		FakeMapOverlays overlays = new FakeMapOverlays();
+		ManualFrameScheduler frameScheduler = new ManualFrameScheduler();
+		MapAreaManager manager = new MapAreaManager(map, 1, 0xff000000, 0x440000ff, new MapAreaMeasure(500, MapAreaMeasure.Unit.meters),
+				Benchmarks.NO_OP_LISTENER);
+		manager.setMapOverlays(overlays);
+		manager.setFrameScheduler(frameScheduler);
+		MapAreaWrapper near = manager.add(new AreaSpec(new LatLng(0, 0), 1000));
+		MapAreaWrapper far = manager.add(new AreaSpec(new LatLng(0, 50), 1000));
+		int addedOverlays = overlays.getAddedOverlays();
+
+		manager.setVirtualized(true);
+		frameScheduler.runAllFrames();
+		assertTrue(near.isAttached());
+		assertFalse(far.isAttached());
+
+		map.moveCamera(new CameraPosition(new LatLng(0, 50), 10, 0, 0));
+		frameScheduler.runAllFrames();
+		assertFalse(near.isAttached());
+		assertTrue(far.isAttached());
+		assertEquals(addedOverlays, overlays.getAddedOverlays());
+
+		manager.setVirtualized(false);
+		frameScheduler.runAllFrames();
+		assertTrue(near.isAttached());
+		assertTrue(far.isAttached());
+		assertEquals(addedOverlays, overlays.getAddedOverlays());
+	}
+
+	private static Marker marker() {
+		return new Marker(new MarkerOptions().visible(true));
+	}
+}
@@ -0,0 +1,115 @@
+package com.schuetz.mapareas;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Marker;
+import com.schuetz.mapareas.benchmarks.Benchmarks;
+import com.schuetz.mapareas.benchmarks.FakeMapOverlays;
+import com.schuetz.mapareas.benchmarks.ManualFrameScheduler;
+
+/**
+ * Circles with a radius in pixels, see MapAreaManager.setPixelRadius
+ *
+ * @author ivanschuetz
+ */
+public class PixelRadiusTest {
+
+	private FakeMapOverlays overlays;
+	private ManualFrameScheduler frameScheduler;
+	private MapAreaManager manager;
+	private MapAreaWrapper circle;
+	private Marker centerMarker;
+	private Marker radiusMarker;
+
+	@Before
+	public void setUp() {
+		overlays = new FakeMapOverlays();
+		frameScheduler = new ManualFrameScheduler();
+		manager = Benchmarks.createManager(overlays, frameScheduler, new MapAreaMeasure(500, MapAreaMeasure.Unit.meters));
+		circle = manager.add(new AreaSpec(new LatLng(0, 11), 1000));
+		List<Marker> markers = overlays.getMarkers();
+		centerMarker = markers.get(0);
+		radiusMarker = markers.get(1);
+		manager.setPixelRadius(circle, 100);
+	}
+
+	@Test
+	public void moveKeepsPixelRadius() {
+		double equatorRadius = circle.getRadius();
+		drag(centerMarker, new LatLng(60, 11));
+
+		assertEquals(100, manager.getPixelRadius(circle), 0);
+		assertEquals(equatorRadius * Math.cos(Math.toRadians(60)), circle.getRadius(), 1e-6 * equatorRadius);
+		assertRadiusMarkerAt(circle.getRadius());
+	}
+
+	@Test
+	public void coalescedMoveKeepsPixelRadius() {
+		manager.setCoalesceDragUpdates(true);
+		double equatorRadius = circle.getRadius();
+		manager.onMarkerDragStart(centerMarker);
+		centerMarker.setPosition(new LatLng(30, 11));
+		manager.onMarkerDrag(centerMarker);
+		centerMarker.setPosition(new LatLng(60, 11));
+		manager.onMarkerDrag(centerMarker);
+		frameScheduler.runAllFrames();
+
+		assertEquals(100, manager.getPixelRadius(circle), 0);
+		assertEquals(equatorRadius * Math.cos(Math.toRadians(60)), circle.getRadius(), 1e-6 * equatorRadius);
+		assertRadiusMarkerAt(circle.getRadius());
+		manager.onMarkerDragEnd(centerMarker);
+	}
+
+	@Test
+	public void translateSelectionKeepsPixelRadius() {
+		double equatorRadius = circle.getRadius();
+		manager.select(circle);
+		manager.translateSelection(60, 0);
+
+		assertEquals(100, manager.getPixelRadius(circle), 0);
+		assertEquals(equatorRadius * Math.cos(Math.toRadians(60)), circle.getRadius(), 1e-6 * equatorRadius);
+	}
+
+	@Test
+	public void resizeChangesPixelRadius() {
+		double radius = circle.getRadius();
+		drag(radiusMarker, MapAreasUtils.toRadiusLatLng(circle.getCenter(), radius * 2));
+
+		assertEquals(200, manager.getPixelRadius(circle), 1e-3);
+	}
+
+	@Test
+	public void ignoresCircleOfOtherStore() {
+		manager.remove(circle);
+		MapAreaWrapper other = manager.add(new AreaSpec(new LatLng(10, 11), 1000));
+		double radius = other.getRadius();
+
+		manager.setPixelRadius(circle, 50);
+
+		assertEquals(0, manager.getPixelRadius(circle), 0);
+		assertEquals(0, manager.getPixelRadius(other), 0);
+		assertEquals(radius, other.getRadius(), 0);
+	}
+
+	private void drag(Marker marker, LatLng position) {
+		manager.onMarkerDragStart(marker);
+		marker.setPosition(position);
+		manager.onMarkerDrag(marker);
+		manager.onMarkerDragEnd(marker);
+		frameScheduler.runAllFrames();
+	}
+
+	private void assertRadiusMarkerAt(double radius) {
+		LatLng center = circle.getCenter();
+		LatLng position = radiusMarker.getPosition();
+		double markerRadius = MapAreasUtils.toRadiusMeters(center.latitude, center.longitude, position.latitude, position.longitude);
+		assertTrue(markerRadius + " != " + radius, Math.abs(markerRadius - radius) < 1e-3 * radius);
+	}
+}
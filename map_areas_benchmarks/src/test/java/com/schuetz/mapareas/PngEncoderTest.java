@@ -0,0 +1,77 @@
+package com.schuetz.mapareas;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+/**
+ * PngEncoder output decoded with ImageIO
+ *
+ * @author ivanschuetz
+ */
+public class PngEncoderTest {
+
+	@Test
+	public void randomPixelsRoundTrip() throws IOException {
+		Random random = new Random(1);
+		int width = 37;
+		int height = 23;
+		int[] pixels = new int[width * height];
+		for (int i = 0; i < pixels.length; i++) {
+			pixels[i] = random.nextInt();
+		}
+		assertRoundTrip(pixels, width, height);
+	}
+
+	@Test
+	public void runsRoundTrip() throws IOException {
+		//runs of equal colors like filled circles, with transparent pixels between
+		int size = 64;
+		int[] pixels = new int[size * size];
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				if (x > y) {
+					pixels[y * size + x] = x < 48 ? 0x440000ff : 0xffff0000;
+				}
+			}
+		}
+		assertRoundTrip(pixels, size, size);
+	}
+
+	@Test
+	public void renderedTileRoundTrip() throws IOException {
+		AreaTileRenderer renderer = new AreaTileRenderer();
+		renderer.put(0, 48, 11, 20000, 3, 0xff000000, 0x440000ff);
+		renderer.put(1, 48.1, 11.1, 15000, 2, 0x80ff0000, 0x4000ff00);
+		int zoom = 8;
+		double worldSize = AreaTileRenderer.DEFAULT_TILE_SIZE * Math.pow(2, zoom);
+		int x = (int)(WebMercator.toX(11, worldSize) / AreaTileRenderer.DEFAULT_TILE_SIZE);
+		int y = (int)(WebMercator.toY(48, worldSize) / AreaTileRenderer.DEFAULT_TILE_SIZE);
+
+		int[] pixels = renderer.render(x, y, zoom);
+		assertRoundTrip(pixels, AreaTileRenderer.DEFAULT_TILE_SIZE, AreaTileRenderer.DEFAULT_TILE_SIZE);
+		assertPixels(pixels, AreaTileRenderer.DEFAULT_TILE_SIZE, AreaTileRenderer.DEFAULT_TILE_SIZE, renderer.renderPng(x, y, zoom));
+	}
+
+	private static void assertRoundTrip(int[] pixels, int width, int height) throws IOException {
+		assertPixels(pixels, width, height, PngEncoder.encode(pixels, width, height));
+	}
+
+	private static void assertPixels(int[] pixels, int width, int height, byte[] png) throws IOException {
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+		assertEquals(width, image.getWidth());
+		assertEquals(height, image.getHeight());
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				assertEquals("pixel " + x + ", " + y, pixels[y * width + x], image.getRGB(x, y));
+			}
+		}
+	}
+}
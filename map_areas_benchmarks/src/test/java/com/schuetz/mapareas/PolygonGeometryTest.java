@@ -0,0 +1,128 @@
+package com.schuetz.mapareas;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.android.gms.maps.model.LatLng;
+
+/**
+ * Banded point in polygon test of PolygonGeometry against plain ray casting over all edges
+ *
+ * @author ivanschuetz
+ */
+public class PolygonGeometryTest {
+
+	//comb with horizontal edges and vertices on integer coordinates
+	private static final double[] COMB_LATITUDES = {0, 0, 4, 4, 1, 1, 4, 4, 1, 1, 4, 4};
+	private static final double[] COMB_LONGITUDES = {0, 5, 5, 4, 4, 3, 3, 2, 2, 1, 1, 0};
+
+	@Test
+	public void concave() {
+		Random random = new Random(13);
+		for (int polygon = 0; polygon < 20; polygon++) {
+			int count = 3 + random.nextInt(300);
+			double[] latitudes = new double[count];
+			double[] longitudes = new double[count];
+			//star shaped, with random radius per vertex
+			for (int i = 0; i < count; i++) {
+				double angle = 2 * Math.PI * i / count;
+				double radius = 0.1 + random.nextDouble();
+				latitudes[i] = 10 + radius * Math.sin(angle);
+				longitudes[i] = 20 + radius * Math.cos(angle);
+			}
+			PolygonGeometry geometry = new PolygonGeometry(latitudes, longitudes, count);
+			for (int i = 0; i < 2000; i++) {
+				double latitude = 8.8 + random.nextDouble() * 2.4;
+				double longitude = 18.8 + random.nextDouble() * 2.4;
+				assertEquals(rayCasting(latitudes, longitudes, latitude, longitude), geometry.contains(latitude, longitude));
+			}
+		}
+	}
+
+	@Test
+	public void verticesAndHorizontalEdges() {
+		PolygonGeometry geometry = new PolygonGeometry(COMB_LATITUDES, COMB_LONGITUDES, COMB_LATITUDES.length);
+		for (double latitude = -1; latitude <= 5; latitude += 0.5) {
+			for (double longitude = -1; longitude <= 6; longitude += 0.5) {
+				assertEquals(latitude + ", " + longitude, rayCasting(COMB_LATITUDES, COMB_LONGITUDES, latitude, longitude),
+						geometry.contains(latitude, longitude));
+			}
+		}
+		assertTrue(geometry.contains(2, 0.5)); //tooth
+		assertFalse(geometry.contains(2, 1.5)); //gap
+		assertTrue(geometry.contains(0.5, 1.5));
+	}
+
+	@Test
+	public void setVertexAndTranslate() {
+		Random random = new Random(17);
+		double[] latitudes = COMB_LATITUDES.clone();
+		double[] longitudes = COMB_LONGITUDES.clone();
+		PolygonGeometry geometry = new PolygonGeometry(latitudes, longitudes, latitudes.length);
+		for (int step = 0; step < 50; step++) {
+			if (step % 2 == 0) {
+				int vertex = random.nextInt(latitudes.length);
+				latitudes[vertex] = random.nextDouble() * 6 - 1;
+				longitudes[vertex] = random.nextDouble() * 7 - 1;
+				geometry.setVertex(vertex, latitudes[vertex], longitudes[vertex]);
+			} else {
+				double deltaLat = random.nextDouble() - 0.5;
+				double deltaLon = random.nextDouble() - 0.5;
+				for (int i = 0; i < latitudes.length; i++) {
+					latitudes[i] += deltaLat;
+					longitudes[i] += deltaLon;
+				}
+				geometry.translate(deltaLat, deltaLon);
+			}
+			for (int i = 0; i < 500; i++) {
+				double latitude = random.nextDouble() * 8 - 2;
+				double longitude = random.nextDouble() * 9 - 2;
+				assertEquals(rayCasting(latitudes, longitudes, latitude, longitude), geometry.contains(latitude, longitude));
+			}
+		}
+	}
+
+	@Test
+	public void antimeridian() {
+		//comb moved to the antimeridian, with longitudes normalized like LatLng does, against the comb at 0
+		List<LatLng> vertices = new ArrayList<LatLng>();
+		for (int i = 0; i < COMB_LATITUDES.length; i++) {
+			vertices.add(new LatLng(COMB_LATITUDES[i], COMB_LONGITUDES[i] + 177.5));
+		}
+		MapPolygonWrapper polygon = new MapPolygonWrapper(vertices, 1, 0xff000000, 0x440000ff, null, null, 0.5f, 0.5f, 0.5f, 0.5f);
+		for (double latitude = -1; latitude <= 5; latitude += 0.5) {
+			for (double longitude = -1; longitude <= 6; longitude += 0.5) {
+				LatLng point = new LatLng(latitude, longitude + 177.5);
+				assertEquals(point.toString(), rayCasting(COMB_LATITUDES, COMB_LONGITUDES, latitude, longitude), polygon.contains(point));
+			}
+		}
+		assertEquals(180, Math.abs(polygon.getCenter().longitude), 1e-9);
+		assertEquals(5, polygon.getGeometry().getMaxLongitude() - polygon.getGeometry().getMinLongitude(), 1e-9);
+
+		//moving a vertex across the antimeridian
+		polygon.setVertex(0, new LatLng(0, 179));
+		assertTrue(polygon.contains(new LatLng(0.5, 179.5)));
+		assertFalse(polygon.contains(new LatLng(0.5, 178.5)));
+	}
+
+	/**
+	 * Even-odd ray casting over all edges
+	 */
+	private static boolean rayCasting(double[] latitudes, double[] longitudes, double latitude, double longitude) {
+		boolean inside = false;
+		for (int i = 0, j = latitudes.length - 1; i < latitudes.length; j = i++) {
+			if ((latitudes[i] > latitude) != (latitudes[j] > latitude)
+					&& longitude < (longitudes[i] - longitudes[j]) * (latitude - latitudes[j]) / (latitudes[i] - latitudes[j]) + longitudes[j]) {
+				inside = !inside;
+			}
+		}
+		return inside;
+	}
+}
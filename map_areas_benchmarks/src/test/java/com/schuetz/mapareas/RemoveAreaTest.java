@@ -0,0 +1,164 @@
+package com.schuetz.mapareas;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Marker;
+import com.schuetz.mapareas.AreaOverlapTracker.OverlapListener;
+import com.schuetz.mapareas.GeofenceEngine.GeofenceListener;
+import com.schuetz.mapareas.benchmarks.Benchmarks;
+import com.schuetz.mapareas.benchmarks.FakeMapOverlays;
+import com.schuetz.mapareas.benchmarks.ManualFrameScheduler;
+
+/**
+ * MapAreaManager.remove: overlays go back to the pool and the circle is gone from markers, indexes and snapshot
+ *
+ * @author ivanschuetz
+ */
+public class RemoveAreaTest {
+
+	private FakeMapOverlays overlays;
+	private ManualFrameScheduler frameScheduler;
+	private MapAreaManager manager;
+	private List<String> events = new ArrayList<String>();
+
+	@Before
+	public void setUp() {
+		overlays = new FakeMapOverlays();
+		frameScheduler = new ManualFrameScheduler();
+		manager = Benchmarks.createManager(overlays, frameScheduler, new MapAreaMeasure(500, MapAreaMeasure.Unit.meters));
+		manager.setGeofenceListener(new GeofenceListener<MapAreaWrapper>() {
+			@Override
+			public void onEnter(MapAreaWrapper area, long timeMillis) {
+				events.add("enter " + area.getRadius());
+			}
+
+			@Override
+			public void onExit(MapAreaWrapper area, long timeMillis) {
+				events.add("exit " + area.getRadius());
+			}
+
+			@Override
+			public void onDwell(MapAreaWrapper area, long timeMillis) {
+			}
+		});
+		manager.setOverlapListener(new OverlapListener<MapAreaWrapper>() {
+			@Override
+			public void onOverlapStart(MapAreaWrapper area, MapAreaWrapper other) {
+			}
+
+			@Override
+			public void onOverlapEnd(MapAreaWrapper area, MapAreaWrapper other) {
+				events.add("overlap end " + area.getRadius() + " " + other.getRadius());
+			}
+		});
+	}
+
+	@Test
+	public void removeReusesOverlays() {
+		MapAreaWrapper removed = manager.add(new AreaSpec(new LatLng(48, 11), 1000));
+		MapAreaWrapper kept = manager.add(new AreaSpec(new LatLng(48, 11.01), 2000));
+		Marker centerMarker = removed.getCenterMarker();
+		Marker radiusMarker = removed.getRadiusMarker();
+		int addedOverlays = overlays.getAddedOverlays();
+
+		assertTrue(manager.remove(removed));
+		assertFalse(manager.remove(removed));
+		assertFalse(removed.isAttached());
+		assertFalse(centerMarker.isVisible());
+		assertEquals(48, removed.getLatitude(), 0); //still readable
+		assertEquals(1000, removed.getRadius(), 0);
+
+		//the pooled marker doesn't drag the removed circle
+		manager.onMarkerDragStart(centerMarker);
+		centerMarker.setPosition(new LatLng(10, 10));
+		manager.onMarkerDrag(centerMarker);
+		manager.onMarkerDragEnd(centerMarker);
+		frameScheduler.runAllFrames();
+		assertEquals(48, removed.getLatitude(), 0);
+
+		MapAreaWrapper added = manager.add(new AreaSpec(new LatLng(30, 30), 3000));
+		assertEquals(addedOverlays, overlays.getAddedOverlays());
+		//markers with the same icon are interchangeable
+		Marker reused = added.getCenterMarker();
+		assertTrue(reused == centerMarker || reused == radiusMarker);
+		assertTrue(reused.isVisible());
+
+		manager.onMarkerDragStart(reused);
+		reused.setPosition(new LatLng(31, 31));
+		manager.onMarkerDrag(reused);
+		manager.onMarkerDragEnd(reused);
+		frameScheduler.runAllFrames();
+		assertEquals(31, added.getLatitude(), 0);
+		assertEquals(48, kept.getLatitude(), 0);
+	}
+
+	@Test
+	public void removeCleansIndexes() {
+		MapAreaWrapper removed = manager.add(new AreaSpec(new LatLng(48, 11), 1000));
+		MapAreaWrapper kept = manager.add(new AreaSpec(new LatLng(48, 11.01), 2000));
+		manager.select(removed);
+		manager.processLocation(48, 11, 0);
+		assertEquals(2, manager.findAreasContaining(new LatLng(48, 11)).size());
+		events.clear();
+
+		manager.remove(removed);
+		//no geofence exit for the removed circle
+		assertEquals(1, events.size());
+		assertEquals("overlap end 1000.0 2000.0", events.get(0));
+
+		assertFalse(manager.isSelected(removed));
+		assertEquals(1, manager.getCircles().size());
+		assertEquals(1, manager.getSnapshot().size());
+		assertSame(kept, manager.getSnapshot().getArea(0));
+		List<MapAreaWrapper> containing = manager.findAreasContaining(new LatLng(48, 11));
+		assertEquals(1, containing.size());
+		assertSame(kept, containing.get(0));
+		List<MapAreaWrapper> nearest = new ArrayList<MapAreaWrapper>();
+		assertEquals(1, manager.findNearestAreas(new LatLng(48, 11), 5, nearest, null));
+		assertSame(kept, nearest.get(0));
+		assertTrue(manager.findOverlapping(kept).isEmpty());
+
+		//removing a circle isn't an exit, leaving the kept one is
+		events.clear();
+		manager.processLocation(0, 0, 1);
+		assertEquals(1, events.size());
+		assertEquals("exit 2000.0", events.get(0));
+	}
+
+	@Test
+	public void removeAll() {
+		for (int i = 0; i < 10; i++) {
+			manager.add(new AreaSpec(new LatLng(48, 11 + i), 1000 * (i + 1)));
+		}
+		int removed = manager.removeAll(new MapAreaManager.AreaFilter() {
+			@Override
+			public boolean accept(MapAreaWrapper draggableCircle) {
+				return draggableCircle.getRadius() > 5000;
+			}
+		});
+		assertEquals(5, removed);
+		assertEquals(5, manager.getSnapshot().size());
+		assertEquals(0, manager.findAreasContaining(new LatLng(48, 19)).size());
+		int visibleMarkers = 0;
+		for (Marker marker : overlays.getMarkers()) {
+			if (marker.isVisible()) {
+				visibleMarkers++;
+			}
+		}
+		assertEquals(10, visibleMarkers);
+
+		manager.clear();
+		assertEquals(0, manager.getCircles().size());
+		assertEquals(0, manager.getSnapshot().size());
+	}
+}
@@ -0,0 +1,112 @@
+package com.schuetz.mapareas;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.schuetz.mapareas.benchmarks.Benchmarks;
+import com.schuetz.mapareas.benchmarks.FakeMapOverlays;
+import com.schuetz.mapareas.benchmarks.ManualFrameScheduler;
+
+/**
+ * TrackAnalyzer against a brute force count, and the mapping of its results to circles
+ *
+ * @author ivanschuetz
+ */
+public class TrackAnalyzerTest {
+
+	private MapAreaManager manager;
+
+	@Before
+	public void setUp() {
+		manager = Benchmarks.createManager(new FakeMapOverlays(), new ManualFrameScheduler(), new MapAreaMeasure(500, MapAreaMeasure.Unit.meters));
+	}
+
+	@Test
+	public void resultsOfCircles() {
+		MapAreaWrapper removed = manager.add(new AreaSpec(new LatLng(48, 11), 1000));
+		MapAreaWrapper kept = manager.add(new AreaSpec(new LatLng(49, 12), 1000));
+		TrackAnalyzer before = manager.createTrackAnalyzer();
+		manager.remove(removed);
+		MapAreaWrapper added = manager.add(new AreaSpec(new LatLng(50, 13), 1000)); //reuses the handle of removed
+		TrackAnalyzer after = manager.createTrackAnalyzer();
+
+		double[] latitudes = {48, 49, 50, 50};
+		double[] longitudes = {11, 12, 13, 13};
+		long[] times = {0, 1000, 2000, 3000};
+
+		TrackAnalyzer.TrackStats stats = before.analyze(latitudes, longitudes, times, 4);
+		assertEquals(2, stats.size());
+		assertSame(removed, stats.getArea(0));
+		assertSame(kept, stats.getArea(1));
+		assertArrayEquals(new int[] {1, 1}, stats.hitCounts);
+
+		stats = after.analyze(latitudes, longitudes, times, 4);
+		assertEquals(2, stats.size());
+		assertSame(kept, stats.getArea(0));
+		assertSame(added, stats.getArea(1));
+		assertArrayEquals(new int[] {1, 2}, stats.hitCounts);
+		assertArrayEquals(new long[] {0, 1000}, stats.dwellMillis);
+	}
+
+	@Test
+	public void matchesBruteForce() throws InterruptedException {
+		Random random = new Random(7);
+		for (int i = 0; i < 200; i++) {
+			manager.add(new AreaSpec(new LatLng(48 + random.nextDouble(), 11 + random.nextDouble()), 1000 + random.nextInt(20000)));
+		}
+		int count = 5000;
+		double[] latitudes = new double[count];
+		double[] longitudes = new double[count];
+		long[] times = new long[count];
+		double latitude = 48.5;
+		double longitude = 11.5;
+		for (int i = 0; i < count; i++) {
+			latitude += (random.nextDouble() - 0.5) * 0.01;
+			longitude += (random.nextDouble() - 0.5) * 0.01;
+			latitudes[i] = latitude;
+			longitudes[i] = longitude;
+			times[i] = (i > 0 ? times[i - 1] : 0) + (random.nextInt(20) == 0 ? 60000 : 1000);
+		}
+
+		TrackAnalyzer analyzer = manager.createTrackAnalyzer();
+		analyzer.setMaxGap(10000);
+		TrackAnalyzer.TrackStats stats = analyzer.analyze(latitudes, longitudes, times, count);
+
+		int[] hitCounts = new int[stats.size()];
+		long[] dwellMillis = new long[stats.size()];
+		for (int a = 0; a < stats.size(); a++) {
+			MapAreaWrapper area = stats.getArea(a);
+			boolean previousInside = false;
+			for (int i = 0; i < count; i++) {
+				boolean inside = Geodesy.haversineMeters(area.getLatitude(), area.getLongitude(), latitudes[i], longitudes[i]) <= area.getRadius();
+				if (inside) {
+					hitCounts[a]++;
+					if (previousInside && times[i] - times[i - 1] <= 10000) {
+						dwellMillis[a] += times[i] - times[i - 1];
+					}
+				}
+				previousInside = inside;
+			}
+		}
+		assertArrayEquals(hitCounts, stats.hitCounts);
+		assertArrayEquals(dwellMillis, stats.dwellMillis);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			TrackAnalyzer.TrackStats parallel = analyzer.analyze(latitudes, longitudes, times, count, executor, 7);
+			assertArrayEquals(stats.hitCounts, parallel.hitCounts);
+			assertArrayEquals(stats.dwellMillis, parallel.dwellMillis);
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package com.schuetz.mapareas;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import com.schuetz.mapareas.MapAreaManager.AreasLoadListener;
+
+/**
+ * Adds the overlays of batches of circles to the map, spread over frames
+ * 
+ * Each frame loads circles until the frame budget is used, then continues in the next frame.
+ * Batches are loaded in the order they were enqueued.
+ * 
+ * @author ivanschuetz
+ */
+class AreaBatchLoader implements Runnable {
+
+	/**
+	 * Does the work for one circle, e.g. adding its overlays to the map
+	 */
+	interface LoadStep {
+		void load(MapAreaWrapper draggableCircle);
+	}
+	
+	private static class Batch {
+		List<MapAreaWrapper> areas;
+		AreasLoadListener listener;
+		int loaded;
+		
+		Batch(List<MapAreaWrapper> areas, AreasLoadListener listener) {
+			this.areas = areas;
+			this.listener = listener;
+		}
+	}
+	
+	private FrameScheduler frameScheduler;
+	private LoadStep loadStep;
+	private long frameBudgetNanos;
+	
+	private LinkedList<Batch> batches = new LinkedList<Batch>();
+	private boolean scheduled;
+	
+	AreaBatchLoader(FrameScheduler frameScheduler, LoadStep loadStep, long frameBudgetNanos) {
+		this.frameScheduler = frameScheduler;
+		this.loadStep = loadStep;
+		this.frameBudgetNanos = frameBudgetNanos;
+	}
+	
+	void setFrameScheduler(FrameScheduler frameScheduler) {
+		this.frameScheduler = frameScheduler;
+	}
+	
+	void setFrameBudgetNanos(long frameBudgetNanos) {
+		this.frameBudgetNanos = frameBudgetNanos;
+	}
+	
+	/**
+	 * @param areas circles to load
+	 * @param listener optional, notified after each frame
+	 */
+	void enqueue(List<MapAreaWrapper> areas, AreasLoadListener listener) {
+		batches.add(new Batch(areas, listener));
+		if (!scheduled) {
+			scheduled = true;
+			frameScheduler.scheduleFrame(this);
+		}
+	}
+	
+	boolean isLoading() {
+		return !batches.isEmpty();
+	}
+	
+	@Override
+	public void run() {
+		scheduled = false;
+		long deadline = frameScheduler.nowNanos() + frameBudgetNanos;
+		
+		boolean budgetUsed = false;
+		while (!batches.isEmpty() && !budgetUsed) {
+			Batch batch = batches.getFirst();
+			int total = batch.areas.size();
+			
+			//at least one circle per frame, so loading progresses with any budget
+			while (batch.loaded < total && !budgetUsed) {
+				loadStep.load(batch.areas.get(batch.loaded++));
+				budgetUsed = frameScheduler.nowNanos() >= deadline;
+			}
+			if (batch.listener != null) {
+				batch.listener.onAreasLoadProgress(batch.loaded, total);
+			}
+			if (batch.loaded == total) {
+				batches.removeFirst();
+			}
+		}
+		
+		if (!batches.isEmpty()) {
+			scheduled = true;
+			frameScheduler.scheduleFrame(this);
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package com.schuetz.mapareas;
+
+/**
+ * Cache of the geohash cell coverings of circles (see GeohashCoverer), by handle of the circles in their store
+ *
+ * The geometry a covering was computed for is kept with it, and the covering is computed again only when the
+ * center or radius of the circle has changed since. So it's not necessary to invalidate entries when circles are
+ * moved or resized, only remove() to release the covering of a removed circle.
+ *
+ * Doesn't depend on Android, so it can be used (and tested) on a plain JVM.
+ * Not thread safe.
+ *
+ * @author ivanschuetz
+ */
+public class AreaCellCoverings {
+
+	private final GeohashCoverer coverer;
+
+	private long[][] cells = new long[16][];
+	private double[] latitudes = new double[16];
+	private double[] longitudes = new double[16];
+	private double[] radii = new double[16];
+
+	private int computedCount;
+
+	public AreaCellCoverings(GeohashCoverer coverer) {
+		this.coverer = coverer;
+	}
+
+	public GeohashCoverer getCoverer() {
+		return coverer;
+	}
+
+	/**
+	 * @param handle
+	 * @param latitude current center of the circle
+	 * @param longitude
+	 * @param radiusMeters current radius of the circle
+	 * @return cached covering, or a new one if the circle changed. The array is shared, it must not be modified
+	 */
+	public long[] get(int handle, double latitude, double longitude, double radiusMeters) {
+		ensureCapacity(handle + 1);
+		long[] covering = cells[handle];
+		if (covering == null || latitudes[handle] != latitude || longitudes[handle] != longitude || radii[handle] != radiusMeters) {
+			covering = coverer.cover(latitude, longitude, radiusMeters);
+			cells[handle] = covering;
+			latitudes[handle] = latitude;
+			longitudes[handle] = longitude;
+			radii[handle] = radiusMeters;
+			computedCount++;
+		}
+		return covering;
+	}
+
+	/**
+	 * @param store
+	 * @param handle handle of a circle in store
+	 * @return see get(int, double, double, double)
+	 */
+	public long[] get(AreaStore store, int handle) {
+		return get(handle, store.getLatitude(handle), store.getLongitude(handle), store.getRadius(handle));
+	}
+
+	public void remove(int handle) {
+		if (handle < cells.length) {
+			cells[handle] = null;
+		}
+	}
+
+	public void clear() {
+		for (int i = 0; i < cells.length; i++) {
+			cells[i] = null;
+		}
+	}
+
+	/**
+	 * @return count of coverings computed since creation, the others were taken from the cache
+	 */
+	public int getComputedCount() {
+		return computedCount;
+	}
+
+	private void ensureCapacity(int size) {
+		if (size <= cells.length) {
+			return;
+		}
+		int capacity = Math.max(size, cells.length * 2);
+		long[][] grownCells = new long[capacity][];
+		System.arraycopy(cells, 0, grownCells, 0, cells.length);
+		cells = grownCells;
+		latitudes = grow(latitudes, capacity);
+		longitudes = grow(longitudes, capacity);
+		radii = grow(radii, capacity);
+	}
+
+	private static double[] grow(double[] array, int capacity) {
+		double[] grown = new double[capacity];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+}
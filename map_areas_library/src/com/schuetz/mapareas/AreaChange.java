@@ -0,0 +1,80 @@
+package com.schuetz.mapareas;
+
+/**
+ * Entry of the AreaChangeLog: a change of a circle, with its values before and after
+ * 
+ * After a compaction of the log, an entry can be the merge of several changes of the circle. Its flags are then
+ * the union of the flags of the merged changes, before are the values before the first change and after the values after the last one.
+ * 
+ * Entries are shared by all consumers of the log, so the values are returned as copies.
+ * 
+ * @author ivanschuetz
+ */
+public class AreaChange {
+	
+	public static final int CREATED = 1;
+	public static final int MOVED = 2;
+	public static final int RESIZED = 4;
+	public static final int RESTYLED = 8;
+	public static final int REMOVED = 16;
+	
+	/**
+	 * Position of the change in the log, increasing
+	 */
+	public final long sequence;
+	
+	/**
+	 * Combination of CREATED, MOVED, RESIZED, RESTYLED, REMOVED
+	 */
+	public final int flags;
+	
+	public final MapAreaWrapper area;
+	
+	/**
+	 * Sequence of the first of the merged changes, the same as sequence if the entry wasn't merged
+	 */
+	final long firstSequence;
+	
+	final AreaSpec before;
+	final AreaSpec after;
+	
+	/**
+	 * @param before values before the change, owned by the entry from now on
+	 * @param after values after the change, owned by the entry from now on
+	 */
+	AreaChange(long sequence, int flags, MapAreaWrapper area, AreaSpec before, AreaSpec after) {
+		this(sequence, sequence, flags, area, before, after);
+	}
+	
+	AreaChange(long sequence, long firstSequence, int flags, MapAreaWrapper area, AreaSpec before, AreaSpec after) {
+		this.sequence = sequence;
+		this.firstSequence = firstSequence;
+		this.flags = flags;
+		this.area = area;
+		this.before = before;
+		this.after = after;
+	}
+	
+	public boolean is(int flag) {
+		return (flags & flag) != 0;
+	}
+	
+	/**
+	 * @return copy of the values before the change, null if the circle was created
+	 */
+	public AreaSpec getBefore() {
+		return before == null ? null : new AreaSpec(before);
+	}
+	
+	/**
+	 * @return copy of the values after the change, null if the circle was removed
+	 */
+	public AreaSpec getAfter() {
+		return after == null ? null : new AreaSpec(after);
+	}
+	
+	@Override
+	public String toString() {
+		return "sequence: " + sequence + " flags: " + flags + " area: " + area;
+	}
+}
@@ -0,0 +1,197 @@
+package com.schuetz.mapareas;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sequence numbered log of the changes of the circles of a manager, e.g. to sync them with a backend
+ *
+ * Consumers can be notified about each change with a listener, or poll the changes after the last sequence they processed.
+ *
+ * The memory is bounded by the capacity. When it's reached, the consecutive changes of each circle are merged into one
+ * (see AreaChange), so a consumer still gets the latest values of every changed circle. Changes are not merged across a removal,
+ * and a circle created and removed within the merged changes is dropped from the log. Consumers which may have processed
+ * its creation but not its removal have to read all circles again, like when there are more changed circles than fit in the log
+ * and the oldest changes are dropped (see poll).
+ *
+ * Changes are recorded on the UI thread, poll can be called from any thread.
+ *
+ * @author ivanschuetz
+ */
+public class AreaChangeLog {
+
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	public interface AreaChangeListener {
+		/**
+		 * Called on the UI thread after each change
+		 */
+		void onAreaChanged(AreaChange change);
+	}
+
+	private static final Comparator<AreaChange> SEQUENCE_COMPARATOR = new Comparator<AreaChange>() {
+		@Override
+		public int compare(AreaChange lhs, AreaChange rhs) {
+			return lhs.sequence < rhs.sequence ? -1 : (lhs.sequence == rhs.sequence ? 0 : 1);
+		}
+	};
+
+	private int capacity;
+
+	private List<AreaChange> changes = new ArrayList<AreaChange>();
+	private long lastSequence;
+
+	/**
+	 * Changes up to this sequence were dropped
+	 */
+	private long droppedSequence;
+
+	/**
+	 * Range of sequences [from, to) of consumers which may have missed the removal of a circle dropped with its creation, empty if to is 0
+	 */
+	private long droppedPairsFromSequence;
+	private long droppedPairsToSequence;
+
+	private List<AreaChangeListener> listeners = new ArrayList<AreaChangeListener>(1);
+
+	public AreaChangeLog(int capacity) {
+		this.capacity = Math.max(2, capacity);
+	}
+
+	public synchronized void setCapacity(int capacity) {
+		this.capacity = Math.max(2, capacity);
+		if (changes.size() > this.capacity) {
+			compact();
+		}
+	}
+
+	public void addListener(AreaChangeListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(AreaChangeListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * @return sequence of the last change, 0 if there's none
+	 */
+	public synchronized long getLastSequence() {
+		return lastSequence;
+	}
+
+	/**
+	 * Adds the changes after a sequence to a list, in order
+	 *
+	 * @param afterSequence last sequence processed by the consumer, 0 to get all
+	 * @param out
+	 * @return false if changes after afterSequence were dropped. The consumer should then read all circles (e.g. from a snapshot)
+	 * and continue from the sequence returned by getLastSequence before reading them
+	 */
+	public synchronized boolean poll(long afterSequence, List<AreaChange> out) {
+		int start = Collections.binarySearch(changes, new AreaChange(afterSequence, 0, null, null, null), SEQUENCE_COMPARATOR);
+		start = start >= 0 ? start + 1 : -start - 1;
+		for (int i = start, size = changes.size(); i < size; i++) {
+			out.add(changes.get(i));
+		}
+		return afterSequence >= droppedSequence && (afterSequence < droppedPairsFromSequence || afterSequence >= droppedPairsToSequence);
+	}
+
+	void recordCreated(MapAreaWrapper area, AreaSpec after) {
+		record(AreaChange.CREATED, area, null, after);
+	}
+
+	void recordRemoved(MapAreaWrapper area, AreaSpec before) {
+		record(AreaChange.REMOVED, area, before, null);
+	}
+
+	/**
+	 * Records change if there's a difference between before and after
+	 */
+	void recordUpdated(MapAreaWrapper area, AreaSpec before, AreaSpec after) {
+		int flags = 0;
+		if (!before.center.equals(after.center)) {
+			flags |= AreaChange.MOVED;
+		}
+		if (before.radiusMeters != after.radiusMeters) {
+			flags |= AreaChange.RESIZED;
+		}
+		if (before.strokeWidth != after.strokeWidth || before.strokeColor != after.strokeColor || before.fillColor != after.fillColor) {
+			flags |= AreaChange.RESTYLED;
+		}
+		if (flags != 0) {
+			record(flags, area, before, after);
+		}
+	}
+
+	private void record(int flags, MapAreaWrapper area, AreaSpec before, AreaSpec after) {
+		AreaChange change;
+		synchronized (this) {
+			change = new AreaChange(++lastSequence, flags, area, before, after);
+			changes.add(change);
+			if (changes.size() > capacity) {
+				compact();
+			}
+		}
+		for (int i = 0, size = listeners.size(); i < size; i++) {
+			listeners.get(i).onAreaChanged(change);
+		}
+	}
+
+	/**
+	 * Merges the changes of each circle, then drops the oldest changes if they still take more than half of the capacity
+	 */
+	private void compact() {
+		//changes in sequence order, with null where a change was merged into a later one
+		List<AreaChange> merged = new ArrayList<AreaChange>(changes.size());
+		//index in merged of the last change of each circle, unless it was removed
+		Map<MapAreaWrapper, Integer> lastIndex = new IdentityHashMap<MapAreaWrapper, Integer>();
+		for (AreaChange change : changes) {
+			Integer index = lastIndex.remove(change.area);
+			if (index != null) {
+				AreaChange previous = merged.set(index.intValue(), null);
+				if (previous.is(AreaChange.CREATED) && change.is(AreaChange.REMOVED)) {
+					dropPair(previous.firstSequence, change.sequence);
+					continue;
+				}
+				change = new AreaChange(change.sequence, previous.firstSequence, previous.flags | change.flags, change.area,
+						previous.before, change.after);
+			}
+			if (!change.is(AreaChange.REMOVED)) {
+				lastIndex.put(change.area, Integer.valueOf(merged.size()));
+			}
+			merged.add(change);
+		}
+
+		changes = new ArrayList<AreaChange>(merged.size());
+		for (int i = 0, size = merged.size(); i < size; i++) {
+			if (merged.get(i) != null) {
+				changes.add(merged.get(i));
+			}
+		}
+
+		int keep = capacity / 2;
+		if (changes.size() > keep) {
+			int drop = changes.size() - keep;
+			droppedSequence = changes.get(drop - 1).sequence;
+			changes = new ArrayList<AreaChange>(changes.subList(drop, changes.size()));
+		}
+	}
+
+	/**
+	 * Extends the sequences of consumers which have to read all circles again with those which may have processed
+	 * the first change of a dropped circle, but not its removal
+	 */
+	private void dropPair(long firstSequence, long removedSequence) {
+		if (droppedPairsToSequence == 0) {
+			droppedPairsFromSequence = firstSequence;
+		} else {
+			droppedPairsFromSequence = Math.min(droppedPairsFromSequence, firstSequence);
+		}
+		droppedPairsToSequence = Math.max(droppedPairsToSequence, removedSequence);
+	}
+}
@@ -0,0 +1,250 @@
+package com.schuetz.mapareas;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups circles into clusters per zoom level, to show aggregate circles instead of many small circles at low zoom
+ *
+ * Clusters are computed with a grid over the circle centers, with cells of a fixed size in screen pixels
+ * (so in degrees they halve with each zoom level). The clusters of a zoom level are computed the first time they are requested
+ * and then cached. Changes of single circles update only the affected clusters of the cached levels.
+ *
+ * Doesn't depend on Android or the map, so it can be used (and tested) on a plain JVM.
+ * Not thread safe.
+ *
+ * @author ivanschuetz
+ */
+public class AreaClusterer<T> {
+
+	public static final int DEFAULT_CELL_SIZE_PIXELS = 64;
+
+	/**
+	 * Size of the map in pixels at zoom 0
+	 */
+	private static final int WORLD_SIZE_PIXELS = 256;
+
+	private final int cellSizePixels;
+
+	private Map<T, Member> members = new IdentityHashMap<T, Member>();
+	private Map<Integer, Level<T>> levels = new HashMap<Integer, Level<T>>();
+
+	private static class Member {
+		double latitude;
+		double longitude;
+		double radiusMeters;
+	}
+
+	/**
+	 * Aggregate of the circles with center in a grid cell
+	 */
+	public static class AreaCluster<T> {
+		private List<T> items = new ArrayList<T>(4);
+		private double latitude;
+		private double longitude;
+		private double radiusMeters;
+		private int version;
+		private boolean dirty;
+
+		/**
+		 * @return center latitude, mean of the centers of the circles
+		 */
+		public double getLatitude() {
+			return latitude;
+		}
+
+		/**
+		 * @return center longitude, mean of the centers of the circles
+		 */
+		public double getLongitude() {
+			return longitude;
+		}
+
+		/**
+		 * @return radius of a circle enclosing all the circles in the cluster
+		 */
+		public double getRadiusMeters() {
+			return radiusMeters;
+		}
+
+		public int getSize() {
+			return items.size();
+		}
+
+		public List<T> getItems() {
+			return Collections.unmodifiableList(items);
+		}
+
+		/**
+		 * @return incremented each time center or radius change, to find clusters that have to be redrawn
+		 */
+		public int getVersion() {
+			return version;
+		}
+	}
+
+	private static class Level<T> {
+		double cellSizeDegrees;
+		Map<Long, AreaCluster<T>> cells = new HashMap<Long, AreaCluster<T>>();
+		Map<T, Long> cellOfItem = new IdentityHashMap<T, Long>();
+		List<AreaCluster<T>> dirty = new ArrayList<AreaCluster<T>>();
+		List<AreaCluster<T>> clusters = new ArrayList<AreaCluster<T>>();
+		boolean clustersChanged = true;
+
+		Level(double cellSizeDegrees) {
+			this.cellSizeDegrees = cellSizeDegrees;
+		}
+	}
+
+	public AreaClusterer() {
+		this(DEFAULT_CELL_SIZE_PIXELS);
+	}
+
+	/**
+	 * @param cellSizePixels size of the grid cells on the screen. Circles closer than this are likely to be grouped
+	 */
+	public AreaClusterer(int cellSizePixels) {
+		this.cellSizePixels = cellSizePixels;
+	}
+
+	/**
+	 * Adds circle, or updates its geometry if already added
+	 */
+	public void put(T item, double latitude, double longitude, double radiusMeters) {
+		Member member = members.get(item);
+		if (member == null) {
+			member = new Member();
+			members.put(item, member);
+		}
+		member.latitude = latitude;
+		member.longitude = longitude;
+		member.radiusMeters = radiusMeters;
+
+		for (Level<T> level : levels.values()) {
+			Long newCell = cellKey(level, latitude, longitude);
+			Long oldCell = level.cellOfItem.get(item);
+			if (newCell.equals(oldCell)) {
+				markDirty(level, level.cells.get(newCell)); //same cluster, aggregate changes
+			} else {
+				if (oldCell != null) {
+					removeFromCell(level, item, oldCell);
+				}
+				addToCell(level, item, newCell);
+			}
+		}
+	}
+
+	public void remove(T item) {
+		if (members.remove(item) == null) {
+			return;
+		}
+		for (Level<T> level : levels.values()) {
+			Long cell = level.cellOfItem.get(item);
+			if (cell != null) {
+				removeFromCell(level, item, cell);
+			}
+		}
+	}
+
+	public void clear() {
+		members.clear();
+		levels.clear();
+	}
+
+	/**
+	 * @param zoom
+	 * @return clusters at zoom level. The list is owned by the clusterer and is valid until the next change
+	 */
+	public List<AreaCluster<T>> getClusters(int zoom) {
+		Level<T> level = levels.get(zoom);
+		if (level == null) {
+			level = buildLevel(zoom);
+			levels.put(zoom, level);
+		}
+		for (AreaCluster<T> cluster : level.dirty) {
+			if (!cluster.items.isEmpty()) {
+				updateAggregate(cluster);
+			}
+		}
+		level.dirty.clear();
+		if (level.clustersChanged) {
+			level.clusters.clear();
+			level.clusters.addAll(level.cells.values());
+			level.clustersChanged = false;
+		}
+		return Collections.unmodifiableList(level.clusters);
+	}
+
+	private Level<T> buildLevel(int zoom) {
+		double cellSizeDegrees = 360.0 * cellSizePixels / (WORLD_SIZE_PIXELS * Math.pow(2, zoom));
+		Level<T> level = new Level<T>(cellSizeDegrees);
+		for (Map.Entry<T, Member> entry : members.entrySet()) {
+			addToCell(level, entry.getKey(), cellKey(level, entry.getValue().latitude, entry.getValue().longitude));
+		}
+		return level;
+	}
+
+	private void addToCell(Level<T> level, T item, Long cell) {
+		AreaCluster<T> cluster = level.cells.get(cell);
+		if (cluster == null) {
+			cluster = new AreaCluster<T>();
+			level.cells.put(cell, cluster);
+			level.clustersChanged = true;
+		}
+		cluster.items.add(item);
+		level.cellOfItem.put(item, cell);
+		markDirty(level, cluster);
+	}
+
+	private void removeFromCell(Level<T> level, T item, Long cell) {
+		AreaCluster<T> cluster = level.cells.get(cell);
+		cluster.items.remove(item);
+		level.cellOfItem.remove(item);
+		if (cluster.items.isEmpty()) {
+			level.cells.remove(cell);
+			level.clustersChanged = true;
+		} else {
+			markDirty(level, cluster);
+		}
+	}
+
+	private void markDirty(Level<T> level, AreaCluster<T> cluster) {
+		if (!cluster.dirty) {
+			cluster.dirty = true;
+			level.dirty.add(cluster);
+		}
+	}
+
+	private void updateAggregate(AreaCluster<T> cluster) {
+		double latitudeSum = 0;
+		double longitudeSum = 0;
+		for (T item : cluster.items) {
+			Member member = members.get(item);
+			latitudeSum += member.latitude;
+			longitudeSum += member.longitude;
+		}
+		int size = cluster.items.size();
+		cluster.latitude = latitudeSum / size;
+		cluster.longitude = longitudeSum / size;
+
+		double radius = 0;
+		for (T item : cluster.items) {
+			Member member = members.get(item);
+			double distance = Geodesy.haversineMeters(cluster.latitude, cluster.longitude, member.latitude, member.longitude);
+			radius = Math.max(radius, distance + member.radiusMeters);
+		}
+		cluster.radiusMeters = radius;
+		cluster.version++;
+		cluster.dirty = false;
+	}
+
+	private static <T> Long cellKey(Level<T> level, double latitude, double longitude) {
+		long row = (long)Math.floor((latitude + 90) / level.cellSizeDegrees);
+		long column = (long)Math.floor((Geodesy.normalizeLongitude(longitude) + 180) / level.cellSizeDegrees);
+		return Long.valueOf((row << 32) | column);
+	}
+}
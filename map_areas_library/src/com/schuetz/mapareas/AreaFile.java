@@ -0,0 +1,535 @@
+package com.schuetz.mapareas;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Binary file of areas, to save and load big amounts of areas fast
+ *
+ * The file is a snapshot: a header (magic, format version, count of areas, generation) followed by one column per value
+ * (center latitudes, center longitudes, radius, min radius, max radius, stroke width, stroke color, fill color).
+ * The snapshot is read through a memory mapped buffer, values are read directly from it without creating objects per area.
+ *
+ * Changes done after writing the snapshot are appended to a journal file next to it (same path + ".journal"),
+ * so small edits don't rewrite the whole file. The journal is applied on top of the snapshot when opening the file,
+ * and merged into a new snapshot with compact().
+ *
+ * Snapshots are written to a temporary file which then replaces the file, so a crash leaves either the old or the new snapshot.
+ * Each snapshot has a new generation, and the journal starts with the generation of the snapshot it applies to.
+ * A journal of another generation (left by a crash after replacing the snapshot) is ignored, as its record ids may not match.
+ *
+ * Areas are identified by record ids: 0 to getRecordCount() - 1. Deleted records keep their id until the next compaction.
+ *
+ * Doesn't depend on Android or the map, so it can be used (and tested) on a plain JVM.
+ * Not thread safe.
+ *
+ * @author ivanschuetz
+ */
+public class AreaFile {
+
+	public static final int MAGIC = 0x4D415245; //"MARE"
+	public static final int VERSION = 2;
+
+	private static final int JOURNAL_MAGIC = 0x4D41524A; //"MARJ"
+
+	private static final int HEADER_BYTES = 16; //magic, version, count, generation
+	private static final int JOURNAL_HEADER_BYTES = 8; //magic, generation
+	private static final int RECORD_BYTES = 3 * 8 + 5 * 4;
+	private static final int JOURNAL_RECORD_BYTES = 2 * 4 + RECORD_BYTES; //operation, record id, record
+	private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+	private static final int OPERATION_ADD = 1;
+	private static final int OPERATION_UPDATE = 2;
+	private static final int OPERATION_DELETE = 3;
+
+	/**
+	 * Values per record in override arrays
+	 */
+	private static final int DOUBLES_STRIDE = 3; //latitude, longitude, radius
+	private static final int INTS_STRIDE = 6; //min radius, max radius, stroke width bits, stroke color, fill color, deleted
+
+	private final File file;
+	private final File journalFile;
+
+	private MappedByteBuffer snapshot;
+	private int snapshotCount;
+	private int generation;
+
+	/**
+	 * Records changed by the journal: record id -> slot in override arrays, -1 if the record is read from the snapshot
+	 */
+	private int[] slotOfRecord = new int[0];
+	private double[] overrideDoubles = new double[0];
+	private int[] overrideInts = new int[0];
+	private int slotCount;
+
+	private int recordCount;
+	private int deletedCount;
+
+	private RandomAccessFile journal;
+	private ByteBuffer journalRecord = ByteBuffer.allocate(JOURNAL_RECORD_BYTES);
+
+	/**
+	 * Values of the records to write in a snapshot
+	 */
+	interface RecordSource {
+		int size();
+		double getLatitude(int i);
+		double getLongitude(int i);
+		double getRadius(int i);
+		int getMinRadius(int i);
+		int getMaxRadius(int i);
+		float getStrokeWidth(int i);
+		int getStrokeColor(int i);
+		int getFillColor(int i);
+	}
+
+	private AreaFile(File file) {
+		this.file = file;
+		this.journalFile = new File(file.getPath() + ".journal");
+	}
+
+	/**
+	 * Writes snapshot with the areas, replacing the file if it exists, and deletes its journal
+	 *
+	 * @param file
+	 * @param areas
+	 * @throws IOException
+	 */
+	public static void write(File file, final List<MapAreaWrapper> areas) throws IOException {
+		File tmpFile = tmpFile(file);
+		writeSnapshot(tmpFile, readGeneration(file) + 1, new RecordSource() {
+			public int size() { return areas.size(); }
+			public double getLatitude(int i) { return areas.get(i).getLatitude(); }
+			public double getLongitude(int i) { return areas.get(i).getLongitude(); }
+			public double getRadius(int i) { return areas.get(i).getRadius(); }
+			public int getMinRadius(int i) { return areas.get(i).getMinRadius(); }
+			public int getMaxRadius(int i) { return areas.get(i).getMaxRadius(); }
+			public float getStrokeWidth(int i) { return areas.get(i).getStrokeWidth(); }
+			public int getStrokeColor(int i) { return areas.get(i).getStrokeColor(); }
+			public int getFillColor(int i) { return areas.get(i).getFillColor(); }
+		});
+		replace(file, tmpFile);
+		new File(file.getPath() + ".journal").delete();
+	}
+
+	/**
+	 * Opens file, creating an empty one if it doesn't exist, and applies its journal
+	 *
+	 * @param file
+	 * @return opened file, has to be closed with close()
+	 * @throws IOException if the file can't be read or is not an area file
+	 */
+	public static AreaFile open(File file) throws IOException {
+		if (!file.exists()) {
+			write(file, Collections.<MapAreaWrapper>emptyList());
+		}
+		AreaFile areaFile = new AreaFile(file);
+		areaFile.mapSnapshot();
+		areaFile.openJournal();
+		return areaFile;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return count of record ids, including deleted records
+	 */
+	public int getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * @return count of records which are not deleted
+	 */
+	public int getAreaCount() {
+		return recordCount - deletedCount;
+	}
+
+	public boolean isDeleted(int id) {
+		int slot = slotOfRecord(id);
+		return slot != -1 && overrideInts[slot * INTS_STRIDE + 5] != 0;
+	}
+
+	public double getLatitude(int id) {
+		int slot = slotOfRecord(id);
+		return slot != -1 ? overrideDoubles[slot * DOUBLES_STRIDE] : snapshot.getDouble(HEADER_BYTES + id * 8);
+	}
+
+	public double getLongitude(int id) {
+		int slot = slotOfRecord(id);
+		return slot != -1 ? overrideDoubles[slot * DOUBLES_STRIDE + 1] : snapshot.getDouble(HEADER_BYTES + snapshotCount * 8 + id * 8);
+	}
+
+	public double getRadius(int id) {
+		int slot = slotOfRecord(id);
+		return slot != -1 ? overrideDoubles[slot * DOUBLES_STRIDE + 2] : snapshot.getDouble(HEADER_BYTES + snapshotCount * 16 + id * 8);
+	}
+
+	public int getMinRadius(int id) {
+		return getInt(id, 0);
+	}
+
+	public int getMaxRadius(int id) {
+		return getInt(id, 1);
+	}
+
+	public float getStrokeWidth(int id) {
+		return Float.intBitsToFloat(getInt(id, 2));
+	}
+
+	public int getStrokeColor(int id) {
+		return getInt(id, 3);
+	}
+
+	public int getFillColor(int id) {
+		return getInt(id, 4);
+	}
+
+	/**
+	 * Appends a new record to the journal
+	 *
+	 * @return id of the new record
+	 * @throws IOException
+	 */
+	public int add(double latitude, double longitude, double radiusMeters, int minRadiusMeters, int maxRadiusMeters,
+			float strokeWidth, int strokeColor, int fillColor) throws IOException {
+		int id = recordCount;
+		writeJournalRecord(OPERATION_ADD, id, latitude, longitude, radiusMeters, minRadiusMeters, maxRadiusMeters, strokeWidth, strokeColor, fillColor);
+		apply(OPERATION_ADD, id, latitude, longitude, radiusMeters, minRadiusMeters, maxRadiusMeters, Float.floatToIntBits(strokeWidth), strokeColor, fillColor);
+		return id;
+	}
+
+	/**
+	 * Appends the new values of a record to the journal
+	 *
+	 * @throws IOException
+	 */
+	public void update(int id, double latitude, double longitude, double radiusMeters, int minRadiusMeters, int maxRadiusMeters,
+			float strokeWidth, int strokeColor, int fillColor) throws IOException {
+		checkId(id);
+		writeJournalRecord(OPERATION_UPDATE, id, latitude, longitude, radiusMeters, minRadiusMeters, maxRadiusMeters, strokeWidth, strokeColor, fillColor);
+		apply(OPERATION_UPDATE, id, latitude, longitude, radiusMeters, minRadiusMeters, maxRadiusMeters, Float.floatToIntBits(strokeWidth), strokeColor, fillColor);
+	}
+
+	/**
+	 * Appends the deletion of a record to the journal
+	 *
+	 * @throws IOException
+	 */
+	public void delete(int id) throws IOException {
+		checkId(id);
+		if (isDeleted(id)) {
+			return;
+		}
+		writeJournalRecord(OPERATION_DELETE, id, 0, 0, 0, 0, 0, 0, 0, 0);
+		apply(OPERATION_DELETE, id, 0, 0, 0, 0, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Writes a new snapshot with the records which are not deleted and empties the journal
+	 *
+	 * Record ids change: the records are renumbered in order, skipping deleted records
+	 *
+	 * @return new id of each old record id, -1 for deleted records
+	 * @throws IOException
+	 */
+	public int[] compact() throws IOException {
+		final int[] liveIds = new int[getAreaCount()];
+		int[] newIds = new int[recordCount];
+		for (int id = 0, newId = 0; id < recordCount; id++) {
+			if (isDeleted(id)) {
+				newIds[id] = -1;
+			} else {
+				liveIds[newId] = id;
+				newIds[id] = newId++;
+			}
+		}
+
+		File tmpFile = tmpFile(file);
+		writeSnapshot(tmpFile, generation + 1, new RecordSource() {
+			public int size() { return liveIds.length; }
+			public double getLatitude(int i) { return AreaFile.this.getLatitude(liveIds[i]); }
+			public double getLongitude(int i) { return AreaFile.this.getLongitude(liveIds[i]); }
+			public double getRadius(int i) { return AreaFile.this.getRadius(liveIds[i]); }
+			public int getMinRadius(int i) { return AreaFile.this.getMinRadius(liveIds[i]); }
+			public int getMaxRadius(int i) { return AreaFile.this.getMaxRadius(liveIds[i]); }
+			public float getStrokeWidth(int i) { return AreaFile.this.getStrokeWidth(liveIds[i]); }
+			public int getStrokeColor(int i) { return AreaFile.this.getStrokeColor(liveIds[i]); }
+			public int getFillColor(int i) { return AreaFile.this.getFillColor(liveIds[i]); }
+		});
+		snapshot = null;
+		replace(file, tmpFile);
+
+		slotOfRecord = new int[0];
+		overrideDoubles = new double[0];
+		overrideInts = new int[0];
+		slotCount = 0;
+		deletedCount = 0;
+		mapSnapshot();
+		resetJournal();
+		return newIds;
+	}
+
+	/**
+	 * Closes the journal. The file can't be modified after this
+	 *
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		journal.close();
+	}
+
+	private static File tmpFile(File file) {
+		return new File(file.getPath() + ".tmp");
+	}
+
+	private static void replace(File file, File tmpFile) throws IOException {
+		if (!tmpFile.renameTo(file)) {
+			//some platforms don't replace existing files
+			if (!file.delete() || !tmpFile.renameTo(file)) {
+				throw new IOException("Couldn't replace " + file);
+			}
+		}
+	}
+
+	/**
+	 * @return generation of the snapshot in file, 0 if there's no readable snapshot
+	 */
+	private static int readGeneration(File file) {
+		if (!file.exists()) {
+			return 0;
+		}
+		try {
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+			try {
+				if (randomAccessFile.length() < HEADER_BYTES || randomAccessFile.readInt() != MAGIC) {
+					return 0;
+				}
+				randomAccessFile.seek(12);
+				return randomAccessFile.readInt();
+			} finally {
+				randomAccessFile.close();
+			}
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	private static void writeSnapshot(File file, int generation, RecordSource records) throws IOException {
+		int count = records.size();
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.setLength(0);
+			FileChannel channel = randomAccessFile.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(generation);
+			for (int column = 0; column < 8; column++) {
+				for (int i = 0; i < count; i++) {
+					if (buffer.remaining() < 8) {
+						flush(channel, buffer);
+					}
+					switch (column) {
+						case 0: buffer.putDouble(records.getLatitude(i)); break;
+						case 1: buffer.putDouble(records.getLongitude(i)); break;
+						case 2: buffer.putDouble(records.getRadius(i)); break;
+						case 3: buffer.putInt(records.getMinRadius(i)); break;
+						case 4: buffer.putInt(records.getMaxRadius(i)); break;
+						case 5: buffer.putFloat(records.getStrokeWidth(i)); break;
+						case 6: buffer.putInt(records.getStrokeColor(i)); break;
+						default: buffer.putInt(records.getFillColor(i)); break;
+					}
+				}
+			}
+			flush(channel, buffer);
+			channel.force(false);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	private void mapSnapshot() throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			long size = channel.size();
+			if (size < HEADER_BYTES) {
+				throw new IOException("Not an area file: " + file);
+			}
+			snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, size); //stays valid after closing the channel
+		} finally {
+			randomAccessFile.close();
+		}
+		if (snapshot.getInt(0) != MAGIC) {
+			throw new IOException("Not an area file: " + file);
+		}
+		if (snapshot.getInt(4) != VERSION) {
+			throw new IOException("Unsupported area file version: " + snapshot.getInt(4));
+		}
+		snapshotCount = snapshot.getInt(8);
+		generation = snapshot.getInt(12);
+		if (snapshot.capacity() < HEADER_BYTES + (long)snapshotCount * RECORD_BYTES) {
+			throw new IOException("Truncated area file: " + file);
+		}
+		recordCount = snapshotCount;
+	}
+
+	private void openJournal() throws IOException {
+		journal = new RandomAccessFile(journalFile, "rw");
+		long length = journal.length();
+		if (length < JOURNAL_HEADER_BYTES || journal.readInt() != JOURNAL_MAGIC || journal.readInt() != generation) {
+			//new journal, or one of a replaced snapshot
+			resetJournal();
+			return;
+		}
+		//a crash may leave a partial record at the end
+		long validLength = length - (length - JOURNAL_HEADER_BYTES) % JOURNAL_RECORD_BYTES;
+		if (validLength > JOURNAL_HEADER_BYTES) {
+			MappedByteBuffer records = journal.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, validLength);
+			for (int position = JOURNAL_HEADER_BYTES; position < validLength; position += JOURNAL_RECORD_BYTES) {
+				apply(records.getInt(position), records.getInt(position + 4),
+						records.getDouble(position + 8), records.getDouble(position + 16), records.getDouble(position + 24),
+						records.getInt(position + 32), records.getInt(position + 36), records.getInt(position + 40),
+						records.getInt(position + 44), records.getInt(position + 48));
+			}
+		}
+		if (validLength != length) {
+			journal.setLength(validLength);
+		}
+		journal.seek(validLength);
+	}
+
+	/**
+	 * Empties the journal, for the current snapshot
+	 */
+	private void resetJournal() throws IOException {
+		journal.setLength(0);
+		journal.seek(0);
+		journal.writeInt(JOURNAL_MAGIC);
+		journal.writeInt(generation);
+	}
+
+	private void writeJournalRecord(int operation, int id, double latitude, double longitude, double radiusMeters,
+			int minRadiusMeters, int maxRadiusMeters, float strokeWidth, int strokeColor, int fillColor) throws IOException {
+		journalRecord.clear();
+		journalRecord.putInt(operation).putInt(id)
+			.putDouble(latitude).putDouble(longitude).putDouble(radiusMeters)
+			.putInt(minRadiusMeters).putInt(maxRadiusMeters).putFloat(strokeWidth).putInt(strokeColor).putInt(fillColor);
+		journalRecord.flip();
+		FileChannel channel = journal.getChannel();
+		while (journalRecord.hasRemaining()) {
+			channel.write(journalRecord);
+		}
+	}
+
+	private void apply(int operation, int id, double latitude, double longitude, double radiusMeters,
+			int minRadiusMeters, int maxRadiusMeters, int strokeWidthBits, int strokeColor, int fillColor) throws IOException {
+		if (operation == OPERATION_ADD) {
+			if (id != recordCount) {
+				throw new IOException("Corrupt journal: unexpected record id " + id);
+			}
+			recordCount++;
+		} else if (id < 0 || id >= recordCount) {
+			throw new IOException("Corrupt journal: unknown record id " + id);
+		}
+
+		int slot = slotOfRecord(id);
+		if (slot == -1) {
+			slot = newSlot(id);
+		}
+		int ints = slot * INTS_STRIDE;
+		if (operation == OPERATION_DELETE) {
+			if (overrideInts[ints + 5] == 0) {
+				overrideInts[ints + 5] = 1;
+				deletedCount++;
+			}
+			return;
+		}
+		int doubles = slot * DOUBLES_STRIDE;
+		overrideDoubles[doubles] = latitude;
+		overrideDoubles[doubles + 1] = longitude;
+		overrideDoubles[doubles + 2] = radiusMeters;
+		overrideInts[ints] = minRadiusMeters;
+		overrideInts[ints + 1] = maxRadiusMeters;
+		overrideInts[ints + 2] = strokeWidthBits;
+		overrideInts[ints + 3] = strokeColor;
+		overrideInts[ints + 4] = fillColor;
+	}
+
+	private int slotOfRecord(int id) {
+		checkId(id);
+		return id < slotOfRecord.length ? slotOfRecord[id] : -1;
+	}
+
+	private int newSlot(int id) {
+		if (id >= slotOfRecord.length) {
+			int oldLength = slotOfRecord.length;
+			slotOfRecord = grow(slotOfRecord, Math.max(id + 1, Math.max(snapshotCount, oldLength * 2)));
+			for (int i = oldLength; i < slotOfRecord.length; i++) {
+				slotOfRecord[i] = -1;
+			}
+		}
+		int slot = slotCount++;
+		if (slotCount * DOUBLES_STRIDE > overrideDoubles.length) {
+			int capacity = Math.max(16, slotCount * 2);
+			overrideDoubles = grow(overrideDoubles, capacity * DOUBLES_STRIDE);
+			overrideInts = grow(overrideInts, capacity * INTS_STRIDE);
+		}
+		if (id < snapshotCount) { //start from snapshot values, a delete doesn't write them
+			overrideDoubles[slot * DOUBLES_STRIDE] = getLatitude(id);
+			overrideDoubles[slot * DOUBLES_STRIDE + 1] = getLongitude(id);
+			overrideDoubles[slot * DOUBLES_STRIDE + 2] = getRadius(id);
+			for (int i = 0; i < 5; i++) {
+				overrideInts[slot * INTS_STRIDE + i] = getInt(id, i);
+			}
+		}
+		slotOfRecord[id] = slot;
+		return slot;
+	}
+
+	/**
+	 * @param column 0 min radius, 1 max radius, 2 stroke width bits, 3 stroke color, 4 fill color
+	 */
+	private int getInt(int id, int column) {
+		int slot = slotOfRecord(id);
+		if (slot != -1) {
+			return overrideInts[slot * INTS_STRIDE + column];
+		}
+		return snapshot.getInt(HEADER_BYTES + snapshotCount * 24 + column * snapshotCount * 4 + id * 4);
+	}
+
+	private void checkId(int id) {
+		if (id < 0 || id >= recordCount) {
+			throw new IndexOutOfBoundsException("Record id: " + id + ", record count: " + recordCount);
+		}
+	}
+
+	private static int[] grow(int[] array, int length) {
+		int[] grown = new int[length];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	private static double[] grow(double[] array, int length) {
+		double[] grown = new double[length];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+}
@@ -0,0 +1,653 @@
+package com.schuetz.mapareas;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spatial index of circles, based on a uniform grid of geographic cells
+ *
+ * Each circle is registered in the cells touched by its bounding box. Circles whose bounding box
+ * spans too many cells (very big circles) are kept in a separate list which is checked by every query.
+ *
+ * Nearest and within distance queries measure the distance to the edge of the circles (distance to center - radius,
+ * negative inside). They visit rings of cells around the query point, nearest first, and stop when no circle
+ * registered only in the remaining rings can be nearer than what was found.
+ *
+ * Doesn't depend on Android or the map, so it can be used (and tested) on a plain JVM.
+ * Not thread safe.
+ *
+ * @author ivanschuetz
+ */
+public class AreaGridIndex<T> {
+
+	public static final double DEFAULT_CELL_SIZE_DEGREES = 0.05;
+
+	private static final int MAX_CELLS_PER_ENTRY = 256;
+
+	private final double cellSizeDegrees;
+	private final int rows;
+	private final int columns;
+
+	private Map<Long, List<Entry<T>>> cells = new HashMap<Long, List<Entry<T>>>();
+	private List<Entry<T>> oversized = new ArrayList<Entry<T>>();
+	private Map<T, Entry<T>> entries = new IdentityHashMap<T, Entry<T>>();
+
+	/**
+	 * Incremented on each query, used to report entries registered in several cells only once
+	 */
+	private int queryStamp;
+
+	/**
+	 * Reused by nearest / within distance queries: circles found in a ring, and max heap of the nearest circles
+	 */
+	private List<Entry<T>> candidates = new ArrayList<Entry<T>>();
+	private Object[] heapEntries = new Object[16];
+	private double[] heapDistances = new double[16];
+	private int heapSize;
+
+	private static class Entry<T> {
+		T item;
+		double latitude;
+		double longitude;
+		double radiusMeters;
+
+		double minLat, minLon, maxLat, maxLon; //minLon > maxLon means the box crosses the antimeridian
+		boolean isOversized;
+		int stamp;
+
+		Entry(T item) {
+			this.item = item;
+		}
+	}
+
+	public AreaGridIndex() {
+		this(DEFAULT_CELL_SIZE_DEGREES);
+	}
+
+	/**
+	 * @param cellSizeDegrees size of grid cells. Should be in the order of magnitude of the radius of most circles
+	 */
+	public AreaGridIndex(double cellSizeDegrees) {
+		this.cellSizeDegrees = cellSizeDegrees;
+		this.rows = (int)Math.ceil(180 / cellSizeDegrees);
+		this.columns = (int)Math.ceil(360 / cellSizeDegrees);
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public boolean contains(T item) {
+		return entries.containsKey(item);
+	}
+
+	/**
+	 * Adds circle to the index, or updates its geometry if already added
+	 *
+	 * @param item
+	 * @param latitude center latitude
+	 * @param longitude center longitude
+	 * @param radiusMeters
+	 */
+	public void put(T item, double latitude, double longitude, double radiusMeters) {
+		Entry<T> entry = entries.get(item);
+		if (entry == null) {
+			entry = new Entry<T>(item);
+			entries.put(item, entry);
+		} else {
+			unregister(entry);
+		}
+		entry.latitude = latitude;
+		entry.longitude = longitude;
+		entry.radiusMeters = radiusMeters;
+		computeBounds(entry);
+		register(entry);
+	}
+
+	public void remove(T item) {
+		Entry<T> entry = entries.remove(item);
+		if (entry != null) {
+			unregister(entry);
+		}
+	}
+
+	public void clear() {
+		cells.clear();
+		oversized.clear();
+		entries.clear();
+	}
+
+	/**
+	 * Finds circles containing a point (distance to center <= radius)
+	 *
+	 * @param latitude
+	 * @param longitude
+	 * @param out list where the result is added
+	 */
+	public void findContaining(double latitude, double longitude, List<T> out) {
+		List<Entry<T>> cell = cells.get(cellKey(row(latitude), column(longitude)));
+		if (cell != null) {
+			for (int i = 0, size = cell.size(); i < size; i++) {
+				Entry<T> entry = cell.get(i);
+				if (containsPoint(entry, latitude, longitude)) {
+					out.add(entry.item);
+				}
+			}
+		}
+		for (int i = 0, size = oversized.size(); i < size; i++) {
+			Entry<T> entry = oversized.get(i);
+			if (containsPoint(entry, latitude, longitude)) {
+				out.add(entry.item);
+			}
+		}
+	}
+
+	/**
+	 * @return distance from a point to the edge of the circle of item (negative inside), NaN if item is not in the index
+	 */
+	public double distanceToEdge(T item, double latitude, double longitude) {
+		Entry<T> entry = entries.get(item);
+		return entry != null ? edgeDistance(entry, latitude, longitude) : Double.NaN;
+	}
+
+	/**
+	 * Finds circles intersecting a geographic rectangle
+	 *
+	 * @param minLat
+	 * @param minLon
+	 * @param maxLat
+	 * @param maxLon if smaller than minLon, the rectangle crosses the antimeridian
+	 * @param out list where the result is added
+	 */
+	public void findIntersecting(double minLat, double minLon, double maxLat, double maxLon, List<T> out) {
+		queryStamp++;
+
+		int minRow = row(minLat);
+		int maxRow = row(maxLat);
+		int minColumn = column(minLon);
+		int maxColumn = column(maxLon);
+		boolean wraps = minLon > maxLon;
+		int columnCount = wraps ? columns - minColumn + maxColumn + 1 : maxColumn - minColumn + 1;
+
+		if ((long)(maxRow - minRow + 1) * columnCount > entries.size()) {
+			//rectangle covers more cells than there are circles - cheaper to look at every circle
+			for (Entry<T> entry : entries.values()) {
+				if (intersectsRect(entry, minLat, minLon, maxLat, maxLon)) {
+					out.add(entry.item);
+				}
+			}
+			return;
+		}
+
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int i = 0; i < columnCount; i++) {
+				List<Entry<T>> cell = cells.get(cellKey(row, (minColumn + i) % columns));
+				if (cell == null) {
+					continue;
+				}
+				for (int j = 0, size = cell.size(); j < size; j++) {
+					Entry<T> entry = cell.get(j);
+					if (entry.stamp != queryStamp) {
+						entry.stamp = queryStamp;
+						if (intersectsRect(entry, minLat, minLon, maxLat, maxLon)) {
+							out.add(entry.item);
+						}
+					}
+				}
+			}
+		}
+		for (int i = 0, size = oversized.size(); i < size; i++) {
+			Entry<T> entry = oversized.get(i);
+			if (intersectsRect(entry, minLat, minLon, maxLat, maxLon)) {
+				out.add(entry.item);
+			}
+		}
+	}
+
+	/**
+	 * @return if the circle of item intersects the geographic rectangle, false if item is not in the index
+	 */
+	public boolean intersects(T item, double minLat, double minLon, double maxLat, double maxLon) {
+		Entry<T> entry = entries.get(item);
+		return entry != null && intersectsRect(entry, minLat, minLon, maxLat, maxLon);
+	}
+
+	/**
+	 * Finds circles overlapping a circle of the index (distance between centers < sum of radii)
+	 *
+	 * @param item circle of the index, not included in the result
+	 * @param out list where the result is added
+	 */
+	public void findOverlapping(T item, List<T> out) {
+		Entry<T> query = entries.get(item);
+		if (query == null) {
+			return;
+		}
+		queryStamp++;
+		query.stamp = queryStamp;
+
+		if (query.isOversized) {
+			for (Entry<T> entry : entries.values()) {
+				if (entry.stamp != queryStamp && overlaps(query, entry)) {
+					out.add(entry.item);
+				}
+			}
+			return;
+		}
+
+		int minRow = row(query.minLat);
+		int maxRow = row(query.maxLat);
+		int minColumn = column(query.minLon);
+		int columnCount = columnCount(query);
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int i = 0; i < columnCount; i++) {
+				List<Entry<T>> cell = cells.get(cellKey(row, (minColumn + i) % columns));
+				if (cell == null) {
+					continue;
+				}
+				for (int j = 0, size = cell.size(); j < size; j++) {
+					Entry<T> entry = cell.get(j);
+					if (entry.stamp != queryStamp) {
+						entry.stamp = queryStamp;
+						if (overlaps(query, entry)) {
+							out.add(entry.item);
+						}
+					}
+				}
+			}
+		}
+		for (int i = 0, size = oversized.size(); i < size; i++) {
+			Entry<T> entry = oversized.get(i);
+			if (entry.stamp != queryStamp && overlaps(query, entry)) {
+				out.add(entry.item);
+			}
+		}
+	}
+
+	/**
+	 * Finds the k circles with the nearest edge to a point
+	 *
+	 * @param latitude
+	 * @param longitude
+	 * @param k max count of circles
+	 * @param out list where the circles are added, nearest first
+	 * @param distancesOut array where the edge distances in meters are written (negative inside the circle), 
+	 * 	in the order of out, can be null
+	 * @return count of circles added to out
+	 */
+	@SuppressWarnings("unchecked")
+	public int findNearest(double latitude, double longitude, int k, List<T> out, double[] distancesOut) {
+		if (k <= 0 || entries.isEmpty()) {
+			return 0;
+		}
+		queryStamp++;
+		heapSize = 0;
+		if (heapEntries.length < k) {
+			heapEntries = new Object[k];
+			heapDistances = new double[k];
+		}
+
+		candidates.clear();
+		collectOversized();
+		offerCandidates(latitude, longitude, k);
+
+		int centerRow = row(latitude);
+		int centerColumn = column(longitude);
+		int visitedCells = 0;
+		for (int ring = 0; ; ring++) {
+			if (heapSize == k && ringLowerBound(latitude, longitude, ring) >= heapDistances[0]) {
+				break;
+			}
+			if (visitedCells > entries.size() || ring > rows && ring > columns / 2) {
+				//the remaining rings have more cells than there are circles - cheaper to look at every circle
+				scanRemaining();
+				offerCandidates(latitude, longitude, k);
+				break;
+			}
+			double maxDistance = heapSize == k ? heapDistances[0] : Double.POSITIVE_INFINITY;
+			visitedCells += collectRing(centerRow, centerColumn, ring, maxDistance);
+			offerCandidates(latitude, longitude, k);
+		}
+
+		//the heap is emptied from the farthest circle, fill the result backwards
+		int count = heapSize;
+		int start = out.size();
+		for (int i = 0; i < count; i++) {
+			out.add(null);
+		}
+		while (heapSize > 0) {
+			int index = heapSize - 1;
+			out.set(start + index, ((Entry<T>)heapEntries[0]).item);
+			if (distancesOut != null) {
+				distancesOut[index] = heapDistances[0];
+			}
+			removeHeapTop();
+		}
+		return count;
+	}
+
+	/**
+	 * Finds circles whose edge is at most maxDistanceMeters from a point, including circles containing the point
+	 *
+	 * @param latitude
+	 * @param longitude
+	 * @param maxDistanceMeters
+	 * @param out list where the circles are added, in no particular order
+	 */
+	public void findWithinDistance(double latitude, double longitude, double maxDistanceMeters, List<T> out) {
+		if (entries.isEmpty()) {
+			return;
+		}
+		queryStamp++;
+
+		candidates.clear();
+		collectOversized();
+		addWithinDistance(latitude, longitude, maxDistanceMeters, out);
+
+		int centerRow = row(latitude);
+		int centerColumn = column(longitude);
+		int visitedCells = 0;
+		for (int ring = 0; ringLowerBound(latitude, longitude, ring) <= maxDistanceMeters; ring++) {
+			if (visitedCells > entries.size() || ring > rows && ring > columns / 2) {
+				scanRemaining();
+				addWithinDistance(latitude, longitude, maxDistanceMeters, out);
+				return;
+			}
+			visitedCells += collectRing(centerRow, centerColumn, ring, maxDistanceMeters);
+			addWithinDistance(latitude, longitude, maxDistanceMeters, out);
+		}
+	}
+
+	/**
+	 * Adds the circles of the cells in ring (cells at ring rows or columns from the center cell, wrapping around
+	 * the antimeridian) to candidates, each circle once per query. Rows farther in latitude than maxDistanceMeters are skipped
+	 *
+	 * @return count of cells looked up
+	 */
+	private int collectRing(int centerRow, int centerColumn, int ring, double maxDistanceMeters) {
+		int reachedRows = (int)Math.min(ring, Math.floor(Math.toDegrees(maxDistanceMeters / MapAreasConstants.RADIUS_OF_EARTH_METERS) / cellSizeDegrees) + 1);
+		int minRow = Math.max(0, centerRow - reachedRows);
+		int maxRow = Math.min(rows - 1, centerRow + reachedRows);
+		int lookups = 0;
+		for (int row = minRow; row <= maxRow; row++) {
+			boolean isEdgeRow = row == centerRow - ring || row == centerRow + ring;
+			int step = isEdgeRow || ring == 0 ? 1 : 2 * ring;
+			for (int offset = -ring; offset <= ring; offset += step) {
+				int column = ((centerColumn + offset) % columns + columns) % columns;
+				lookups++;
+				List<Entry<T>> cell = cells.get(cellKey(row, column));
+				if (cell == null) {
+					continue;
+				}
+				for (int i = 0, size = cell.size(); i < size; i++) {
+					Entry<T> entry = cell.get(i);
+					if (entry.stamp != queryStamp) {
+						entry.stamp = queryStamp;
+						candidates.add(entry);
+					}
+				}
+			}
+		}
+		return lookups;
+	}
+
+	/**
+	 * Adds the oversized circles to candidates, marking them as seen by the query
+	 */
+	private void collectOversized() {
+		for (int i = 0, size = oversized.size(); i < size; i++) {
+			Entry<T> entry = oversized.get(i);
+			entry.stamp = queryStamp;
+			candidates.add(entry);
+		}
+	}
+
+	/**
+	 * Adds all the circles not seen yet by the query to candidates
+	 */
+	private void scanRemaining() {
+		for (Entry<T> entry : entries.values()) {
+			if (entry.stamp != queryStamp) {
+				entry.stamp = queryStamp;
+				candidates.add(entry);
+			}
+		}
+	}
+
+	/**
+	 * Lower bound of the distance from a point to the edge of circles registered only in cells of ring or farther rings.
+	 * These cells are at least ring rows or ring columns away from the cell of the point, and the part of a circle
+	 * nearest to the point is in one of its cells.
+	 */
+	private double ringLowerBound(double latitude, double longitude, int ring) {
+		if (ring == 0) {
+			return Double.NEGATIVE_INFINITY; //can contain the point
+		}
+		double inCellLat = (latitude + 90) - row(latitude) * cellSizeDegrees;
+		double inCellLon = (Geodesy.normalizeLongitude(longitude) + 180) - column(longitude) * cellSizeDegrees;
+		double deltaLat = (ring - 1) * cellSizeDegrees + Math.max(0, Math.min(inCellLat, cellSizeDegrees - inCellLat));
+		double deltaLon = (ring - 1) * cellSizeDegrees + Math.max(0, Math.min(inCellLon, cellSizeDegrees - inCellLon));
+		deltaLon = Math.max(0, deltaLon - (columns * cellSizeDegrees - 360)); //last column is narrower if 360 isn't a multiple of the cell size
+
+		//distance to a meridian deltaLon away, or to the nearer pole for meridians on the other side
+		double cosLat = Math.cos(Math.toRadians(latitude));
+		double lonDistance = deltaLon >= 90 ? Math.toRadians(90 - Math.abs(latitude))
+				: Math.asin(Math.min(1, cosLat * Math.sin(Math.toRadians(deltaLon))));
+		double distance = Math.min(Math.toRadians(deltaLat), lonDistance);
+		return distance * MapAreasConstants.RADIUS_OF_EARTH_METERS;
+	}
+
+	/**
+	 * Offers candidates to the heap of the k nearest circles, and clears candidates
+	 */
+	private void offerCandidates(double latitude, double longitude, int k) {
+		for (int i = 0, size = candidates.size(); i < size; i++) {
+			Entry<T> entry = candidates.get(i);
+			double distance = edgeDistance(entry, latitude, longitude);
+			if (heapSize < k) {
+				addToHeap(entry, distance);
+			} else if (distance < heapDistances[0]) {
+				removeHeapTop();
+				addToHeap(entry, distance);
+			}
+		}
+		candidates.clear();
+	}
+
+	/**
+	 * Adds candidates with edge within maxDistanceMeters to out, and clears candidates
+	 */
+	private void addWithinDistance(double latitude, double longitude, double maxDistanceMeters, List<T> out) {
+		for (int i = 0, size = candidates.size(); i < size; i++) {
+			Entry<T> entry = candidates.get(i);
+			if (edgeDistance(entry, latitude, longitude) <= maxDistanceMeters) {
+				out.add(entry.item);
+			}
+		}
+		candidates.clear();
+	}
+
+	private static <T> double edgeDistance(Entry<T> entry, double latitude, double longitude) {
+		return Geodesy.haversineMeters(entry.latitude, entry.longitude, latitude, longitude) - entry.radiusMeters;
+	}
+
+	private void addToHeap(Entry<T> entry, double distance) {
+		int index = heapSize++;
+		while (index > 0) {
+			int parent = (index - 1) / 2;
+			if (heapDistances[parent] >= distance) {
+				break;
+			}
+			heapEntries[index] = heapEntries[parent];
+			heapDistances[index] = heapDistances[parent];
+			index = parent;
+		}
+		heapEntries[index] = entry;
+		heapDistances[index] = distance;
+	}
+
+	private void removeHeapTop() {
+		heapSize--;
+		Object entry = heapEntries[heapSize];
+		double distance = heapDistances[heapSize];
+		heapEntries[heapSize] = null;
+		if (heapSize == 0) {
+			return;
+		}
+		int index = 0;
+		while (true) {
+			int child = 2 * index + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize && heapDistances[child + 1] > heapDistances[child]) {
+				child++;
+			}
+			if (heapDistances[child] <= distance) {
+				break;
+			}
+			heapEntries[index] = heapEntries[child];
+			heapDistances[index] = heapDistances[child];
+			index = child;
+		}
+		heapEntries[index] = entry;
+		heapDistances[index] = distance;
+	}
+
+	private void register(Entry<T> entry) {
+		int minRow = row(entry.minLat);
+		int maxRow = row(entry.maxLat);
+		int minColumn = column(entry.minLon);
+		int columnCount = columnCount(entry);
+
+		entry.isOversized = (maxRow - minRow + 1) * columnCount > MAX_CELLS_PER_ENTRY;
+		if (entry.isOversized) {
+			oversized.add(entry);
+			return;
+		}
+
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int i = 0; i < columnCount; i++) {
+				Long key = cellKey(row, (minColumn + i) % columns);
+				List<Entry<T>> cell = cells.get(key);
+				if (cell == null) {
+					cell = new ArrayList<Entry<T>>(4);
+					cells.put(key, cell);
+				}
+				cell.add(entry);
+			}
+		}
+	}
+
+	private void unregister(Entry<T> entry) {
+		if (entry.isOversized) {
+			oversized.remove(entry);
+			return;
+		}
+
+		int minRow = row(entry.minLat);
+		int maxRow = row(entry.maxLat);
+		int minColumn = column(entry.minLon);
+		int columnCount = columnCount(entry);
+
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int i = 0; i < columnCount; i++) {
+				Long key = cellKey(row, (minColumn + i) % columns);
+				List<Entry<T>> cell = cells.get(key);
+				if (cell != null) {
+					cell.remove(entry);
+					if (cell.isEmpty()) {
+						cells.remove(key);
+					}
+				}
+			}
+		}
+	}
+
+	private int columnCount(Entry<T> entry) {
+		int minColumn = column(entry.minLon);
+		int maxColumn = column(entry.maxLon);
+		return entry.minLon > entry.maxLon ? columns - minColumn + maxColumn + 1 : maxColumn - minColumn + 1;
+	}
+
+	private void computeBounds(Entry<T> entry) {
+		double deltaLat = Math.toDegrees(entry.radiusMeters / MapAreasConstants.RADIUS_OF_EARTH_METERS);
+		entry.minLat = Math.max(-90, entry.latitude - deltaLat);
+		entry.maxLat = Math.min(90, entry.latitude + deltaLat);
+
+		if (entry.minLat <= -90 || entry.maxLat >= 90) { //contains a pole
+			entry.minLon = -180;
+			entry.maxLon = 180;
+			return;
+		}
+		double deltaLon = Math.toDegrees(Math.asin(Math.sin(entry.radiusMeters / MapAreasConstants.RADIUS_OF_EARTH_METERS)
+				/ Math.cos(Math.toRadians(entry.latitude))));
+		if (Double.isNaN(deltaLon) || deltaLon >= 180) {
+			entry.minLon = -180;
+			entry.maxLon = 180;
+			return;
+		}
+		entry.minLon = Geodesy.normalizeLongitude(entry.longitude - deltaLon);
+		entry.maxLon = Geodesy.normalizeLongitude(entry.longitude + deltaLon);
+	}
+
+	private boolean containsPoint(Entry<T> entry, double latitude, double longitude) {
+		return Geodesy.haversineMeters(entry.latitude, entry.longitude, latitude, longitude) <= entry.radiusMeters;
+	}
+
+	private static <T> boolean overlaps(Entry<T> entry1, Entry<T> entry2) {
+		return Geodesy.haversineMeters(entry1.latitude, entry1.longitude, entry2.latitude, entry2.longitude)
+				< entry1.radiusMeters + entry2.radiusMeters;
+	}
+
+	private boolean intersectsRect(Entry<T> entry, double minLat, double minLon, double maxLat, double maxLon) {
+		if (entry.maxLat < minLat || entry.minLat > maxLat
+				|| !longitudeRangesIntersect(entry.minLon, entry.maxLon, minLon, maxLon)) {
+			return false;
+		}
+		if (longitudeRangeContains(minLon, maxLon, entry.longitude)) {
+			double latitude = Math.max(minLat, Math.min(maxLat, entry.latitude));
+			return Geodesy.haversineMeters(entry.latitude, entry.longitude, latitude, entry.longitude) <= entry.radiusMeters;
+		}
+		//otherwise the closest point of the rectangle is on one of its meridian edges
+		return distanceToMeridianEdge(entry, minLon, minLat, maxLat) <= entry.radiusMeters
+				|| distanceToMeridianEdge(entry, maxLon, minLat, maxLat) <= entry.radiusMeters;
+	}
+
+	/**
+	 * @return distance from the center of entry to the closest point of the meridian at longitude between minLat and maxLat
+	 */
+	private static <T> double distanceToMeridianEdge(Entry<T> entry, double longitude, double minLat, double maxLat) {
+		//the closest point of the whole meridian is where the great circle through the center perpendicular to it crosses it
+		double deltaLon = Math.toRadians(Math.abs(Geodesy.normalizeLongitude(entry.longitude - longitude)));
+		double closestLat = deltaLon >= Math.PI / 2 ? (entry.latitude >= 0 ? 90 : -90)
+				: Math.toDegrees(Math.atan(Math.tan(Math.toRadians(entry.latitude)) / Math.cos(deltaLon)));
+		double latitude = Math.max(minLat, Math.min(maxLat, closestLat));
+		return Geodesy.haversineMeters(entry.latitude, entry.longitude, latitude, longitude);
+	}
+
+	private static boolean longitudeRangeContains(double minLon, double maxLon, double longitude) {
+		return minLon <= maxLon ? longitude >= minLon && longitude <= maxLon : longitude >= minLon || longitude <= maxLon;
+	}
+
+	private static boolean longitudeRangesIntersect(double minLon1, double maxLon1, double minLon2, double maxLon2) {
+		return longitudeRangeContains(minLon1, maxLon1, minLon2) || longitudeRangeContains(minLon2, maxLon2, minLon1);
+	}
+
+	private int row(double latitude) {
+		int row = (int)((latitude + 90) / cellSizeDegrees);
+		return Math.max(0, Math.min(rows - 1, row));
+	}
+
+	private int column(double longitude) {
+		int column = (int)((Geodesy.normalizeLongitude(longitude) + 180) / cellSizeDegrees);
+		return Math.max(0, Math.min(columns - 1, column));
+	}
+
+	private static Long cellKey(int row, int column) {
+		return Long.valueOf(((long)row << 32) | column);
+	}
+}
@@ -0,0 +1,210 @@
+package com.schuetz.mapareas;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Timings of the work done by the manager and the circles, to find the source of slow frames
+ *
+ * Each metric records durations in a histogram with logarithmic buckets (8 per power of 2, so values are
+ * reported with at most 12.5% error), updated with atomic operations only, so recording doesn't lock and can be
+ * done from any thread. snapshot() copies the current values, e.g. to export them.
+ *
+ * The manager and circles only measure if metrics are set (see MapAreaManager.setMetrics), so there's no cost otherwise.
+ *
+ * Doesn't depend on Android or the map, so it can be used (and tested) on a plain JVM.
+ *
+ * @author ivanschuetz
+ */
+public class AreaMetrics {
+
+	/**
+	 * Handling of a marker drag event by the manager, including everything else below
+	 */
+	public static final int DRAG_DISPATCH = 0;
+
+	/**
+	 * Lookup of the circle of a dragged marker
+	 */
+	public static final int MARKER_LOOKUP = 1;
+
+	/**
+	 * Updates of circle and marker overlays on the map
+	 */
+	public static final int OVERLAY_UPDATE = 2;
+
+	/**
+	 * Creation of a circle with a long click, without the listener
+	 */
+	public static final int AREA_CREATION = 3;
+
+	/**
+	 * Calls to the CircleManagerListener
+	 */
+	public static final int LISTENER_CALLBACK = 4;
+
+	private static final String[] NAMES = {"drag dispatch", "marker lookup", "overlay update", "area creation", "listener callback"};
+
+	private static final int EXACT_VALUES = 16;
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	static final int BUCKET_COUNT = EXACT_VALUES + (63 - 4) * SUB_BUCKETS; //highest bit of a positive long is 62
+
+	private final Histogram[] histograms = new Histogram[NAMES.length];
+	private volatile long startNanos = System.nanoTime();
+
+	private static class Histogram {
+		final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+		final AtomicLong count = new AtomicLong();
+		final AtomicLong totalNanos = new AtomicLong();
+		final AtomicLong maxNanos = new AtomicLong();
+	}
+
+	/**
+	 * Values of a metric at the time of the snapshot
+	 */
+	public static class MetricSnapshot {
+		private final String name;
+		private final long[] buckets;
+		private final long count;
+		private final long totalNanos;
+		private final long maxNanos;
+		private final long elapsedNanos;
+
+		MetricSnapshot(String name, long[] buckets, long count, long totalNanos, long maxNanos, long elapsedNanos) {
+			this.name = name;
+			this.buckets = buckets;
+			this.count = count;
+			this.totalNanos = totalNanos;
+			this.maxNanos = maxNanos;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getMaxNanos() {
+			return maxNanos;
+		}
+
+		public double getMeanNanos() {
+			return count == 0 ? 0 : (double)totalNanos / count;
+		}
+
+		/**
+		 * @return recorded events per second since the metrics were created or reset
+		 */
+		public double getEventsPerSecond() {
+			return elapsedNanos <= 0 ? 0 : count * 1e9 / elapsedNanos;
+		}
+
+		/**
+		 * @param percentile from 0 to 100
+		 * @return duration which percentile % of the recorded durations don't exceed (upper bound of its bucket)
+		 */
+		public long getPercentileNanos(double percentile) {
+			if (count == 0) {
+				return 0;
+			}
+			long rank = (long)Math.ceil(percentile / 100 * count);
+			long seen = 0;
+			for (int i = 0; i < buckets.length; i++) {
+				seen += buckets[i];
+				if (seen >= Math.max(1, rank)) {
+					return Math.min(maxNanos, bucketUpperBound(i));
+				}
+			}
+			return maxNanos;
+		}
+
+		@Override
+		public String toString() {
+			return name + ": count " + count + " per second " + getEventsPerSecond() + " mean " + getMeanNanos()
+					+ " p50 " + getPercentileNanos(50) + " p99 " + getPercentileNanos(99) + " max " + maxNanos;
+		}
+	}
+
+	public AreaMetrics() {
+		for (int i = 0; i < histograms.length; i++) {
+			histograms[i] = new Histogram();
+		}
+	}
+
+	/**
+	 * @param metric one of the constants, e.g. DRAG_DISPATCH
+	 * @param nanos duration
+	 */
+	public void record(int metric, long nanos) {
+		Histogram histogram = histograms[metric];
+		histogram.buckets.incrementAndGet(bucket(nanos));
+		histogram.count.incrementAndGet();
+		histogram.totalNanos.addAndGet(nanos);
+		long max;
+		while (nanos > (max = histogram.maxNanos.get()) && !histogram.maxNanos.compareAndSet(max, nanos)) {
+			//retry, max was updated by other thread
+		}
+	}
+
+	/**
+	 * @return copy of the values of all metrics, indexed by metric constant. Values recorded concurrently may be partially included
+	 */
+	public MetricSnapshot[] snapshot() {
+		long elapsedNanos = System.nanoTime() - startNanos;
+		MetricSnapshot[] snapshots = new MetricSnapshot[histograms.length];
+		for (int i = 0; i < histograms.length; i++) {
+			Histogram histogram = histograms[i];
+			long[] buckets = new long[BUCKET_COUNT];
+			for (int j = 0; j < BUCKET_COUNT; j++) {
+				buckets[j] = histogram.buckets.get(j);
+			}
+			snapshots[i] = new MetricSnapshot(NAMES[i], buckets, histogram.count.get(), histogram.totalNanos.get(),
+					histogram.maxNanos.get(), elapsedNanos);
+		}
+		return snapshots;
+	}
+
+	/**
+	 * Clears all values
+	 */
+	public void reset() {
+		for (Histogram histogram : histograms) {
+			for (int j = 0; j < BUCKET_COUNT; j++) {
+				histogram.buckets.set(j, 0);
+			}
+			histogram.count.set(0);
+			histogram.totalNanos.set(0);
+			histogram.maxNanos.set(0);
+		}
+		startNanos = System.nanoTime();
+	}
+
+	/**
+	 * @return index of the bucket where nanos is counted, negative durations are counted as 0
+	 */
+	static int bucket(long nanos) {
+		if (nanos < EXACT_VALUES) {
+			return (int)Math.max(0, nanos);
+		}
+		int highestBit = 63 - Long.numberOfLeadingZeros(nanos);
+		int subBucket = (int)(nanos >>> (highestBit - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return EXACT_VALUES + (highestBit - 4) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * @return largest duration counted in bucket
+	 */
+	static long bucketUpperBound(int bucket) {
+		if (bucket < EXACT_VALUES) {
+			return bucket;
+		}
+		int highestBit = (bucket - EXACT_VALUES) / SUB_BUCKETS + 4;
+		int subBucket = (bucket - EXACT_VALUES) % SUB_BUCKETS;
+		int shift = highestBit - SUB_BUCKET_BITS;
+		return ((long)(SUB_BUCKETS + subBucket) << shift) + (1L << shift) - 1;
+	}
+}
@@ -0,0 +1,327 @@
+package com.schuetz.mapareas;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps track of which circles overlap each other (distance between centers < sum of radii)
+ *
+ * The overlaps of a circle are found with the spatial index (grid cells touched by the circle, then exact distance),
+ * and stored per circle, so when a circle is moved or resized only the overlaps of that circle are computed again.
+ * The listener is notified of overlaps created or resolved by each change.
+ *
+ * Doesn't depend on Android or the map, so it can be used (and tested) on a plain JVM.
+ * Not thread safe.
+ *
+ * @author ivanschuetz
+ */
+public class AreaOverlapTracker<T> {
+
+	public static final int DEFAULT_SAMPLES_PER_GROUP = 4096;
+
+	public interface OverlapListener<T> {
+		/**
+		 * @param area changed circle
+		 * @param other circle area overlaps now
+		 */
+		void onOverlapStart(T area, T other);
+
+		/**
+		 * @param area changed or removed circle
+		 * @param other circle area doesn't overlap anymore
+		 */
+		void onOverlapEnd(T area, T other);
+	}
+
+	private final AreaGridIndex<T> index;
+	private final boolean ownsIndex;
+
+	private OverlapListener<T> listener;
+
+	private Map<T, Node<T>> nodes = new IdentityHashMap<T, Node<T>>();
+
+	private List<T> found = new ArrayList<T>();
+	private List<T> containing = new ArrayList<T>();
+	private int stamp;
+
+	private static class Node<T> {
+		T item;
+		double latitude;
+		double longitude;
+		double radiusMeters;
+		List<Node<T>> overlapping = new ArrayList<Node<T>>(2);
+		int stamp;
+		int group;
+
+		Node(T item) {
+			this.item = item;
+		}
+	}
+
+	/**
+	 * Creates tracker with its own index
+	 */
+	public AreaOverlapTracker() {
+		this(new AreaGridIndex<T>(), true);
+	}
+
+	/**
+	 * Creates tracker using an index which is kept up to date by the caller. The caller has to call put after updating the index
+	 *
+	 * @param index
+	 */
+	public AreaOverlapTracker(AreaGridIndex<T> index) {
+		this(index, false);
+	}
+
+	private AreaOverlapTracker(AreaGridIndex<T> index, boolean ownsIndex) {
+		this.index = index;
+		this.ownsIndex = ownsIndex;
+	}
+
+	public void setListener(OverlapListener<T> listener) {
+		this.listener = listener;
+	}
+
+	public int size() {
+		return nodes.size();
+	}
+
+	/**
+	 * Adds circle, or updates its geometry if already added, and updates its overlaps
+	 */
+	public void put(T item, double latitude, double longitude, double radiusMeters) {
+		if (ownsIndex) {
+			index.put(item, latitude, longitude, radiusMeters);
+		}
+		Node<T> node = nodes.get(item);
+		if (node == null) {
+			node = new Node<T>(item);
+			nodes.put(item, node);
+		}
+		node.latitude = latitude;
+		node.longitude = longitude;
+		node.radiusMeters = radiusMeters;
+
+		found.clear();
+		index.findOverlapping(item, found);
+
+		//mark current overlaps, the ones which are still found are unmarked
+		stamp++;
+		for (int i = 0, size = node.overlapping.size(); i < size; i++) {
+			node.overlapping.get(i).stamp = stamp;
+		}
+		for (int i = 0, size = found.size(); i < size; i++) {
+			Node<T> other = nodes.get(found.get(i));
+			if (other == null) {
+				continue; //in shared index but not tracked yet
+			}
+			if (other.stamp == stamp) {
+				other.stamp = 0;
+			} else {
+				node.overlapping.add(other);
+				other.overlapping.add(node);
+				if (listener != null) {
+					listener.onOverlapStart(item, other.item);
+				}
+			}
+		}
+		for (int i = node.overlapping.size() - 1; i >= 0; i--) {
+			Node<T> other = node.overlapping.get(i);
+			if (other.stamp == stamp) {
+				node.overlapping.remove(i);
+				other.overlapping.remove(node);
+				if (listener != null) {
+					listener.onOverlapEnd(item, other.item);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes circle, the listener is notified of each overlap it had
+	 */
+	public void remove(T item) {
+		if (ownsIndex) {
+			index.remove(item);
+		}
+		Node<T> node = nodes.remove(item);
+		if (node == null) {
+			return;
+		}
+		for (int i = 0, size = node.overlapping.size(); i < size; i++) {
+			Node<T> other = node.overlapping.get(i);
+			other.overlapping.remove(node);
+			if (listener != null) {
+				listener.onOverlapEnd(item, other.item);
+			}
+		}
+	}
+
+	public void clear() {
+		if (ownsIndex) {
+			index.clear();
+		}
+		nodes.clear();
+	}
+
+	public boolean hasOverlaps(T item) {
+		Node<T> node = nodes.get(item);
+		return node != null && !node.overlapping.isEmpty();
+	}
+
+	/**
+	 * @param item
+	 * @param out list where the circles overlapping item are added
+	 */
+	public void findOverlapping(T item, List<T> out) {
+		Node<T> node = nodes.get(item);
+		if (node != null) {
+			for (int i = 0, size = node.overlapping.size(); i < size; i++) {
+				out.add(node.overlapping.get(i).item);
+			}
+		}
+	}
+
+	/**
+	 * @param out list where the overlapping pairs are added, each pair once, as 2 consecutive elements
+	 */
+	public void findPairs(List<T> out) {
+		stamp++;
+		for (Node<T> node : nodes.values()) {
+			node.stamp = stamp;
+			for (int i = 0, size = node.overlapping.size(); i < size; i++) {
+				Node<T> other = node.overlapping.get(i);
+				if (other.stamp != stamp) {
+					out.add(node.item);
+					out.add(other.item);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @see #getUnionAreaSquareMeters(int)
+	 */
+	public double getUnionAreaSquareMeters() {
+		return getUnionAreaSquareMeters(DEFAULT_SAMPLES_PER_GROUP);
+	}
+
+	/**
+	 * Area covered by the circles, counting overlapping parts once
+	 *
+	 * Circles without overlaps are added exactly. For each group of overlapping circles (connected by overlaps)
+	 * points are sampled on a regular equal area grid over the bounding box of the group, and the covered part of
+	 * the box is the part of the points inside a circle of the group. The error is in the order of the box area / samplesPerGroup.
+	 *
+	 * @param samplesPerGroup count of sampled points per group of overlapping circles
+	 * @return area in square meters, on the sphere used by the index
+	 */
+	public double getUnionAreaSquareMeters(int samplesPerGroup) {
+		stamp++;
+		double area = 0;
+		List<Node<T>> group = new ArrayList<Node<T>>();
+		int groupId = 0;
+		for (Node<T> node : nodes.values()) {
+			if (node.stamp == stamp) {
+				continue;
+			}
+			if (node.overlapping.isEmpty()) {
+				node.stamp = stamp;
+				node.group = 0;
+				area += capArea(node.radiusMeters);
+				continue;
+			}
+			groupId++;
+			collectGroup(node, groupId, group);
+			area += groupArea(group, groupId, samplesPerGroup);
+		}
+		return area;
+	}
+
+	/**
+	 * Adds the circles connected to start by overlaps to group, and marks them with the current stamp and groupId
+	 */
+	private void collectGroup(Node<T> start, int groupId, List<Node<T>> group) {
+		group.clear();
+		start.stamp = stamp;
+		start.group = groupId;
+		group.add(start);
+		for (int i = 0; i < group.size(); i++) {
+			Node<T> node = group.get(i);
+			for (int j = 0, size = node.overlapping.size(); j < size; j++) {
+				Node<T> other = node.overlapping.get(j);
+				if (other.stamp != stamp) {
+					other.stamp = stamp;
+					other.group = groupId;
+					group.add(other);
+				}
+			}
+		}
+	}
+
+	private double groupArea(List<Node<T>> group, int groupId, int samplesPerGroup) {
+		//bounding box, longitudes relative to the first circle so groups crossing the antimeridian work
+		double referenceLon = group.get(0).longitude;
+		double minLat = 90, maxLat = -90, minLon = 180, maxLon = -180;
+		for (int i = 0, size = group.size(); i < size; i++) {
+			Node<T> node = group.get(i);
+			double angularRadius = node.radiusMeters / MapAreasConstants.RADIUS_OF_EARTH_METERS;
+			minLat = Math.min(minLat, Math.max(-90, node.latitude - Math.toDegrees(angularRadius)));
+			maxLat = Math.max(maxLat, Math.min(90, node.latitude + Math.toDegrees(angularRadius)));
+			double deltaLon = Math.toDegrees(Math.asin(Math.sin(angularRadius) / Math.cos(Math.toRadians(node.latitude))));
+			double centerLon = Geodesy.normalizeLongitude(node.longitude - referenceLon);
+			if (Double.isNaN(deltaLon) || Math.abs(node.latitude) + Math.toDegrees(angularRadius) >= 90) {
+				minLon = -180;
+				maxLon = 180;
+			} else {
+				minLon = Math.min(minLon, centerLon - deltaLon);
+				maxLon = Math.max(maxLon, centerLon + deltaLon);
+			}
+		}
+		if (maxLon - minLon > 360) {
+			minLon = -180;
+			maxLon = 180;
+		}
+
+		//regular grid in (sin(latitude), longitude), where cells have equal area
+		double minSin = Math.sin(Math.toRadians(minLat));
+		double maxSin = Math.sin(Math.toRadians(maxLat));
+		double boxArea = MapAreasConstants.RADIUS_OF_EARTH_METERS * MapAreasConstants.RADIUS_OF_EARTH_METERS
+				* Math.toRadians(maxLon - minLon) * (maxSin - minSin);
+		int side = Math.max(1, (int)Math.sqrt(samplesPerGroup));
+		int inside = 0;
+		for (int row = 0; row < side; row++) {
+			double latitude = Math.toDegrees(Math.asin(minSin + (maxSin - minSin) * (row + 0.5) / side));
+			for (int column = 0; column < side; column++) {
+				double longitude = Geodesy.normalizeLongitude(referenceLon + minLon + (maxLon - minLon) * (column + 0.5) / side);
+				if (groupContains(groupId, latitude, longitude)) {
+					inside++;
+				}
+			}
+		}
+		return boxArea * inside / ((double)side * side);
+	}
+
+	private boolean groupContains(int groupId, double latitude, double longitude) {
+		containing.clear();
+		index.findContaining(latitude, longitude, containing);
+		for (int i = 0, size = containing.size(); i < size; i++) {
+			Node<T> node = nodes.get(containing.get(i));
+			if (node != null && node.stamp == stamp && node.group == groupId) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return area of a circle on the sphere
+	 */
+	private static double capArea(double radiusMeters) {
+		double earthRadius = MapAreasConstants.RADIUS_OF_EARTH_METERS;
+		return 2 * Math.PI * earthRadius * earthRadius * (1 - Math.cos(Math.min(Math.PI, radiusMeters / earthRadius)));
+	}
+}
@@ -0,0 +1,336 @@
+package com.schuetz.mapareas;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable version of the circles of a manager, which can be read from any thread without locks
+ *
+ * Geometry and style are addressed by the handles of the circles in the manager's AreaStore.
+ * A snapshot where only the geometry of a few circles changed (e.g. while dragging) shares the arrays of the previous one
+ * and keeps the changes in small sorted delta arrays. When the delta grows too big, it's merged in new arrays.
+ * The arrays have spare capacity, so a circle added at the end with a new handle is written in place and shared too:
+ * older snapshots don't read past their size and handle limit. Adding circles is then amortized O(1), only removals and
+ * style changes copy all values.
+ *
+ * The wrappers returned by getArea must not be read from other threads, only used as identity of the circles.
+ *
+ * @author ivanschuetz
+ */
+public class AreaSnapshot {
+
+	/**
+	 * Max count of circles in the delta, before it's merged in new arrays
+	 */
+	private static final int MAX_DELTA_SIZE = 32;
+
+	private static final int[] NO_HANDLES = new int[0];
+	private static final double[] NO_VALUES = new double[0];
+
+	private final long version;
+
+	private final MapAreaWrapper[] areas; //in order of the manager's list, with spare capacity
+	private final int[] handles; //handle of each area
+	private final int size;
+	private final int handleLimit; //handles of this snapshot are lower than this
+
+	//base values, indexed by handle
+	private final MapAreaWrapper[] owners;
+	private final double[] latitudes;
+	private final double[] longitudes;
+	private final double[] radii;
+	private final int[] minRadii;
+	private final int[] maxRadii;
+	private final float[] strokeWidths;
+	private final int[] strokeColors;
+	private final int[] fillColors;
+
+	//geometry changes, sorted by handle
+	private final int[] deltaHandles;
+	private final double[] deltaLatitudes;
+	private final double[] deltaLongitudes;
+	private final double[] deltaRadii;
+
+	/**
+	 * Creates snapshot with copies of all the values
+	 *
+	 * @param version
+	 * @param areas circles, in order
+	 */
+	AreaSnapshot(long version, List<MapAreaWrapper> areas, AreaStore store) {
+		this.version = version;
+		this.size = areas.size();
+		this.areas = new MapAreaWrapper[spareCapacity(size)];
+		this.handles = new int[this.areas.length];
+
+		handleLimit = store.getHandleLimit();
+		int capacity = spareCapacity(handleLimit);
+		owners = new MapAreaWrapper[capacity];
+		latitudes = new double[capacity];
+		longitudes = new double[capacity];
+		radii = new double[capacity];
+		minRadii = new int[capacity];
+		maxRadii = new int[capacity];
+		strokeWidths = new float[capacity];
+		strokeColors = new int[capacity];
+		fillColors = new int[capacity];
+
+		for (int i = 0; i < size; i++) {
+			put(i, areas.get(i), store);
+		}
+
+		deltaHandles = NO_HANDLES;
+		deltaLatitudes = NO_VALUES;
+		deltaLongitudes = NO_VALUES;
+		deltaRadii = NO_VALUES;
+	}
+
+	/**
+	 * Creates snapshot sharing the arrays of previous, with a delta
+	 */
+	private AreaSnapshot(AreaSnapshot previous, double[] latitudes, double[] longitudes, double[] radii,
+			int[] deltaHandles, double[] deltaLatitudes, double[] deltaLongitudes, double[] deltaRadii) {
+		this(previous, previous.size, previous.handleLimit, latitudes, longitudes, radii, deltaHandles, deltaLatitudes, deltaLongitudes, deltaRadii);
+	}
+
+	private AreaSnapshot(AreaSnapshot previous, int size, int handleLimit, double[] latitudes, double[] longitudes, double[] radii,
+			int[] deltaHandles, double[] deltaLatitudes, double[] deltaLongitudes, double[] deltaRadii) {
+		this.version = previous.version + 1;
+		this.areas = previous.areas;
+		this.handles = previous.handles;
+		this.size = size;
+		this.handleLimit = handleLimit;
+		this.owners = previous.owners;
+		this.latitudes = latitudes;
+		this.longitudes = longitudes;
+		this.radii = radii;
+		this.minRadii = previous.minRadii;
+		this.maxRadii = previous.maxRadii;
+		this.strokeWidths = previous.strokeWidths;
+		this.strokeColors = previous.strokeColors;
+		this.fillColors = previous.fillColors;
+		this.deltaHandles = deltaHandles;
+		this.deltaLatitudes = deltaLatitudes;
+		this.deltaLongitudes = deltaLongitudes;
+		this.deltaRadii = deltaRadii;
+	}
+
+	/**
+	 * Must only be called on the latest snapshot, as it writes in the spare capacity shared with it
+	 *
+	 * @param area circle added at the end of the manager's list
+	 * @return next version with area appended, null if it has to be created with all the values, i.e. the handle of area
+	 * was used before or there's no spare capacity left
+	 */
+	AreaSnapshot withArea(MapAreaWrapper area, AreaStore store) {
+		int handle = area.getHandle();
+		if (size == areas.length || handle < handleLimit || handle >= owners.length) {
+			return null;
+		}
+		put(size, area, store);
+		return new AreaSnapshot(this, size + 1, handle + 1, latitudes, longitudes, radii, deltaHandles, deltaLatitudes, deltaLongitudes, deltaRadii);
+	}
+
+	/**
+	 * @return next version with changed geometry of one circle
+	 */
+	AreaSnapshot withGeometry(int handle, double latitude, double longitude, double radiusMeters) {
+		int index = Arrays.binarySearch(deltaHandles, handle);
+		if (index < 0 && deltaHandles.length >= MAX_DELTA_SIZE) {
+			//merge delta in new arrays
+			double[] newLatitudes = copy(latitudes);
+			double[] newLongitudes = copy(longitudes);
+			double[] newRadii = copy(radii);
+			for (int i = 0; i < deltaHandles.length; i++) {
+				newLatitudes[deltaHandles[i]] = deltaLatitudes[i];
+				newLongitudes[deltaHandles[i]] = deltaLongitudes[i];
+				newRadii[deltaHandles[i]] = deltaRadii[i];
+			}
+			newLatitudes[handle] = latitude;
+			newLongitudes[handle] = longitude;
+			newRadii[handle] = radiusMeters;
+			return new AreaSnapshot(this, newLatitudes, newLongitudes, newRadii, NO_HANDLES, NO_VALUES, NO_VALUES, NO_VALUES);
+		}
+
+		int[] newHandles;
+		double[] newLatitudes;
+		double[] newLongitudes;
+		double[] newRadii;
+		if (index >= 0) {
+			newHandles = deltaHandles;
+			newLatitudes = copy(deltaLatitudes);
+			newLongitudes = copy(deltaLongitudes);
+			newRadii = copy(deltaRadii);
+		} else {
+			index = -index - 1;
+			newHandles = insert(deltaHandles, index, handle);
+			newLatitudes = insert(deltaLatitudes, index);
+			newLongitudes = insert(deltaLongitudes, index);
+			newRadii = insert(deltaRadii, index);
+		}
+		newLatitudes[index] = latitude;
+		newLongitudes[index] = longitude;
+		newRadii[index] = radiusMeters;
+		return new AreaSnapshot(this, latitudes, longitudes, radii, newHandles, newLatitudes, newLongitudes, newRadii);
+	}
+
+	/**
+	 * @return incremented with each change
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return count of circles
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param i position of circle, from 0 to size() - 1
+	 * @return handle of circle, to read its values
+	 */
+	public int getHandle(int i) {
+		checkPosition(i);
+		return handles[i];
+	}
+
+	/**
+	 * @param i position of circle, from 0 to size() - 1
+	 */
+	public MapAreaWrapper getArea(int i) {
+		checkPosition(i);
+		return areas[i];
+	}
+
+	/**
+	 * @return circles, in order
+	 */
+	public List<MapAreaWrapper> getAreas() {
+		return new AbstractList<MapAreaWrapper>() {
+			@Override
+			public MapAreaWrapper get(int index) {
+				return getArea(index);
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * @return circle with handle, null if there's none in this snapshot
+	 */
+	public MapAreaWrapper getOwner(int handle) {
+		return handle >= 0 && handle < handleLimit ? owners[handle] : null;
+	}
+
+	public double getLatitude(int handle) {
+		checkHandle(handle);
+		int index = Arrays.binarySearch(deltaHandles, handle);
+		return index >= 0 ? deltaLatitudes[index] : latitudes[handle];
+	}
+
+	public double getLongitude(int handle) {
+		checkHandle(handle);
+		int index = Arrays.binarySearch(deltaHandles, handle);
+		return index >= 0 ? deltaLongitudes[index] : longitudes[handle];
+	}
+
+	public double getRadius(int handle) {
+		checkHandle(handle);
+		int index = Arrays.binarySearch(deltaHandles, handle);
+		return index >= 0 ? deltaRadii[index] : radii[handle];
+	}
+
+	public int getMinRadius(int handle) {
+		checkHandle(handle);
+		return minRadii[handle];
+	}
+
+	public int getMaxRadius(int handle) {
+		checkHandle(handle);
+		return maxRadii[handle];
+	}
+
+	public float getStrokeWidth(int handle) {
+		checkHandle(handle);
+		return strokeWidths[handle];
+	}
+
+	public int getStrokeColor(int handle) {
+		checkHandle(handle);
+		return strokeColors[handle];
+	}
+
+	public int getFillColor(int handle) {
+		checkHandle(handle);
+		return fillColors[handle];
+	}
+
+	/**
+	 * Writes the values of area at position i. Slots of the handle and position must not be readable by published snapshots
+	 */
+	private void put(int i, MapAreaWrapper area, AreaStore store) {
+		int handle = area.getHandle();
+		areas[i] = area;
+		handles[i] = handle;
+		owners[handle] = area;
+		latitudes[handle] = store.getLatitude(handle);
+		longitudes[handle] = store.getLongitude(handle);
+		radii[handle] = store.getRadius(handle);
+		minRadii[handle] = store.getMinRadius(handle);
+		maxRadii[handle] = store.getMaxRadius(handle);
+		strokeWidths[handle] = store.getStrokeWidth(handle);
+		strokeColors[handle] = store.getStrokeColor(handle);
+		fillColors[handle] = store.getFillColor(handle);
+	}
+
+	/**
+	 * Positions and handles past the ones of this snapshot may be in use by newer snapshots sharing the arrays
+	 */
+	private void checkPosition(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Position: " + i + ", size: " + size);
+		}
+	}
+
+	private void checkHandle(int handle) {
+		if (handle < 0 || handle >= handleLimit) {
+			throw new IndexOutOfBoundsException("Handle: " + handle + ", handle limit: " + handleLimit);
+		}
+	}
+
+	private static int spareCapacity(int size) {
+		return size + Math.max(16, size / 2);
+	}
+
+	private static double[] copy(double[] array) {
+		double[] copy = new double[array.length];
+		System.arraycopy(array, 0, copy, 0, array.length);
+		return copy;
+	}
+
+	private static int[] insert(int[] array, int index, int value) {
+		int[] result = new int[array.length + 1];
+		System.arraycopy(array, 0, result, 0, index);
+		System.arraycopy(array, index, result, index + 1, array.length - index);
+		result[index] = value;
+		return result;
+	}
+
+	/**
+	 * @return copy of array with a free position at index
+	 */
+	private static double[] insert(double[] array, int index) {
+		double[] result = new double[array.length + 1];
+		System.arraycopy(array, 0, result, 0, index);
+		System.arraycopy(array, index, result, index + 1, array.length - index);
+		return result;
+	}
+}
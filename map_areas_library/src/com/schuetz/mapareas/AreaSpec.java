@@ -0,0 +1,87 @@
+package com.schuetz.mapareas;
+
+import com.google.android.gms.maps.model.LatLng;
+
+/**
+ * Definition of an area to be loaded with MapAreaManager.addAll
+ * 
+ * @author ivanschuetz
+ */
+public class AreaSpec {
+	
+	public LatLng center;
+	public double radiusMeters;
+	
+	/**
+	 * If false, the manager's stroke width and colors are used
+	 */
+	public boolean hasStyle;
+	public float strokeWidth;
+	public int strokeColor;
+	public int fillColor;
+	
+	/**
+	 * If false, the manager's min and max radius are used
+	 */
+	public boolean hasRadiusLimits;
+	public int minRadiusMeters = -1;
+	public int maxRadiusMeters = -1;
+	
+	/**
+	 * Area with manager's style
+	 * 
+	 * @param center center of circle in geo coordinates
+	 * @param radiusMeters radius of circle in meters
+	 */
+	public AreaSpec(LatLng center, double radiusMeters) {
+		this.center = center;
+		this.radiusMeters = radiusMeters;
+	}
+	
+	/**
+	 * Area with own style
+	 * 
+	 * @param center center of circle in geo coordinates
+	 * @param radiusMeters radius of circle in meters
+	 * @param strokeWidth circle stroke with in pixels
+	 * @param strokeColor circle stroke color
+	 * @param fillColor circle fill color
+	 */
+	public AreaSpec(LatLng center, double radiusMeters, float strokeWidth, int strokeColor, int fillColor) {
+		this(center, radiusMeters);
+		this.hasStyle = true;
+		this.strokeWidth = strokeWidth;
+		this.strokeColor = strokeColor;
+		this.fillColor = fillColor;
+	}
+	
+	/**
+	 * Copy of spec
+	 * 
+	 * @param spec
+	 */
+	public AreaSpec(AreaSpec spec) {
+		this(spec.center, spec.radiusMeters);
+		this.hasStyle = spec.hasStyle;
+		this.strokeWidth = spec.strokeWidth;
+		this.strokeColor = spec.strokeColor;
+		this.fillColor = spec.fillColor;
+		this.hasRadiusLimits = spec.hasRadiusLimits;
+		this.minRadiusMeters = spec.minRadiusMeters;
+		this.maxRadiusMeters = spec.maxRadiusMeters;
+	}
+	
+	/**
+	 * Area with own style and radius limits
+	 * 
+	 * @param minRadiusMeters circle min radius in meters, -1 for none
+	 * @param maxRadiusMeters circle max radius in meters, -1 for none
+	 * @params see other constructors for other params
+	 */
+	public AreaSpec(LatLng center, double radiusMeters, float strokeWidth, int strokeColor, int fillColor, int minRadiusMeters, int maxRadiusMeters) {
+		this(center, radiusMeters, strokeWidth, strokeColor, fillColor);
+		this.hasRadiusLimits = true;
+		this.minRadiusMeters = minRadiusMeters;
+		this.maxRadiusMeters = maxRadiusMeters;
+	}
+}
@@ -0,0 +1,253 @@
+package com.schuetz.mapareas;
+
+/**
+ * Geometry and style of circles, in parallel arrays of primitives
+ *
+ * Each circle is identified by an integer handle, which is stable while the circle is in the store.
+ * Handles of released circles are reused. Bulk computations can iterate from 0 to getHandleLimit(),
+ * skipping handles which are not in use.
+ *
+ * Outside of the library the store is read only: circles are added and changed through MapAreaManager and MapAreaWrapper,
+ * which keep the overlays and indexes in sync with it. Only the flags other than FLAG_IN_USE can be set.
+ *
+ * Doesn't depend on Android or the map, so it can be used (and tested) on a plain JVM.
+ * Not thread safe.
+ *
+ * @author ivanschuetz
+ */
+public class AreaStore {
+
+	public static final int FLAG_IN_USE = 1;
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private double[] latitudes;
+	private double[] longitudes;
+	private double[] radii;
+	private int[] minRadii;
+	private int[] maxRadii;
+	private float[] strokeWidths;
+	private int[] strokeColors;
+	private int[] fillColors;
+	private int[] flags;
+	private Object[] owners;
+
+	private int handleLimit;
+	private int size;
+
+	private int[] freeHandles;
+	private int freeCount;
+
+	AreaStore() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	AreaStore(int capacity) {
+		capacity = Math.max(1, capacity);
+		latitudes = new double[capacity];
+		longitudes = new double[capacity];
+		radii = new double[capacity];
+		minRadii = new int[capacity];
+		maxRadii = new int[capacity];
+		strokeWidths = new float[capacity];
+		strokeColors = new int[capacity];
+		fillColors = new int[capacity];
+		flags = new int[capacity];
+		owners = new Object[capacity];
+		freeHandles = new int[capacity];
+	}
+
+	/**
+	 * Adds circle to the store
+	 *
+	 * @return handle of the circle
+	 */
+	int add(double latitude, double longitude, double radiusMeters, int minRadiusMeters, int maxRadiusMeters,
+			float strokeWidth, int strokeColor, int fillColor) {
+		int handle;
+		if (freeCount > 0) {
+			handle = freeHandles[--freeCount];
+		} else {
+			if (handleLimit == latitudes.length) {
+				grow(handleLimit * 2);
+			}
+			handle = handleLimit++;
+		}
+		latitudes[handle] = latitude;
+		longitudes[handle] = longitude;
+		radii[handle] = radiusMeters;
+		minRadii[handle] = minRadiusMeters;
+		maxRadii[handle] = maxRadiusMeters;
+		strokeWidths[handle] = strokeWidth;
+		strokeColors[handle] = strokeColor;
+		fillColors[handle] = fillColor;
+		flags[handle] = FLAG_IN_USE;
+		size++;
+		return handle;
+	}
+
+	/**
+	 * Removes circle from the store. The handle may be returned again by add
+	 *
+	 * @param handle
+	 */
+	void remove(int handle) {
+		if (!isInUse(handle)) {
+			return;
+		}
+		flags[handle] = 0;
+		owners[handle] = null;
+		size--;
+		if (freeCount == freeHandles.length) {
+			freeHandles = grow(freeHandles, freeCount * 2);
+		}
+		freeHandles[freeCount++] = handle;
+	}
+
+	/**
+	 * @return count of circles in the store
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return upper bound (exclusive) of the handles in use
+	 */
+	public int getHandleLimit() {
+		return handleLimit;
+	}
+
+	public boolean isInUse(int handle) {
+		return handle >= 0 && handle < handleLimit && (flags[handle] & FLAG_IN_USE) != 0;
+	}
+
+	public double getLatitude(int handle) {
+		return latitudes[handle];
+	}
+
+	public double getLongitude(int handle) {
+		return longitudes[handle];
+	}
+
+	void setCenter(int handle, double latitude, double longitude) {
+		latitudes[handle] = latitude;
+		longitudes[handle] = longitude;
+	}
+
+	public double getRadius(int handle) {
+		return radii[handle];
+	}
+
+	void setRadius(int handle, double radiusMeters) {
+		radii[handle] = radiusMeters;
+	}
+
+	public int getMinRadius(int handle) {
+		return minRadii[handle];
+	}
+
+	public int getMaxRadius(int handle) {
+		return maxRadii[handle];
+	}
+
+	void setRadiusLimits(int handle, int minRadiusMeters, int maxRadiusMeters) {
+		minRadii[handle] = minRadiusMeters;
+		maxRadii[handle] = maxRadiusMeters;
+	}
+
+	public float getStrokeWidth(int handle) {
+		return strokeWidths[handle];
+	}
+
+	void setStrokeWidth(int handle, float strokeWidth) {
+		strokeWidths[handle] = strokeWidth;
+	}
+
+	public int getStrokeColor(int handle) {
+		return strokeColors[handle];
+	}
+
+	void setStrokeColor(int handle, int strokeColor) {
+		strokeColors[handle] = strokeColor;
+	}
+
+	public int getFillColor(int handle) {
+		return fillColors[handle];
+	}
+
+	void setFillColor(int handle, int fillColor) {
+		fillColors[handle] = fillColor;
+	}
+
+	/**
+	 * @return flags of circle, FLAG_IN_USE and other flags set with setFlag
+	 */
+	public int getFlags(int handle) {
+		return flags[handle];
+	}
+
+	public boolean hasFlag(int handle, int flag) {
+		return (flags[handle] & flag) != 0;
+	}
+
+	/**
+	 * @param handle
+	 * @param flag bit other than FLAG_IN_USE
+	 * @param set
+	 */
+	public void setFlag(int handle, int flag, boolean set) {
+		if ((flag & FLAG_IN_USE) != 0) {
+			throw new IllegalArgumentException("FLAG_IN_USE can't be set");
+		}
+		if (set) {
+			flags[handle] |= flag;
+		} else {
+			flags[handle] &= ~flag;
+		}
+	}
+
+	/**
+	 * @return object representing the circle, e.g. its MapAreaWrapper
+	 */
+	public Object getOwner(int handle) {
+		return owners[handle];
+	}
+
+	void setOwner(int handle, Object owner) {
+		owners[handle] = owner;
+	}
+
+	private void grow(int capacity) {
+		latitudes = grow(latitudes, capacity);
+		longitudes = grow(longitudes, capacity);
+		radii = grow(radii, capacity);
+		minRadii = grow(minRadii, capacity);
+		maxRadii = grow(maxRadii, capacity);
+		strokeWidths = grow(strokeWidths, capacity);
+		strokeColors = grow(strokeColors, capacity);
+		fillColors = grow(fillColors, capacity);
+		flags = grow(flags, capacity);
+		Object[] grownOwners = new Object[capacity];
+		System.arraycopy(owners, 0, grownOwners, 0, owners.length);
+		owners = grownOwners;
+	}
+
+	private static double[] grow(double[] array, int length) {
+		double[] grown = new double[length];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	private static float[] grow(float[] array, int length) {
+		float[] grown = new float[length];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	private static int[] grow(int[] array, int length) {
+		int[] grown = new int[length];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+}
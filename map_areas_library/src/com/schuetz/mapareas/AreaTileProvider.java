@@ -0,0 +1,27 @@
+package com.schuetz.mapareas;
+
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+
+/**
+ * Provides the tiles of an AreaTileRenderer to a tile overlay. Called by the map in a background thread
+ * 
+ * @author ivanschuetz
+ */
+class AreaTileProvider implements TileProvider {
+
+	private final AreaTileRenderer renderer;
+	
+	AreaTileProvider(AreaTileRenderer renderer) {
+		this.renderer = renderer;
+	}
+	
+	@Override
+	public Tile getTile(int x, int y, int zoom) {
+		byte[] png = renderer.renderPng(x, y, zoom);
+		if (png == null) {
+			return NO_TILE;
+		}
+		return new Tile(renderer.getTileSize(), renderer.getTileSize(), png);
+	}
+}
@@ -0,0 +1,473 @@
+package com.schuetz.mapareas;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders circles into map tiles (Web Mercator, x / y / zoom like the map's tiles), as ARGB pixels or PNG
+ *
+ * Allows to show a big amount of circles without a map overlay for each: the circles are drawn in the tiles of a tile overlay.
+ * For each tile the circles touching it are found with a spatial index, and each row of the tile is filled
+ * with the span of each circle in that row, so the cost depends on the covered pixels, not on the amount of circles.
+ * Edges are not antialiased. Stroke widths are in tile pixels.
+ *
+ * Rendered tiles are kept in a LRU cache, with the data version they were rendered with. Changing a circle
+ * removes only the cached tiles touched by the circle before and after the change; clear() changes the version,
+ * which makes all cached tiles stale.
+ *
+ * Circles are identified by an id, e.g. the handle in the AreaStore. Their values are copied, so the renderer can be used
+ * from a different thread than the one changing the circles (the map requests tiles in a background thread).
+ *
+ * Doesn't depend on Android or the map, so it can be used (and tested) on a plain JVM.
+ * Thread safe.
+ *
+ * @author ivanschuetz
+ */
+public class AreaTileRenderer {
+
+	public static final int DEFAULT_TILE_SIZE = 256;
+
+	public static final int DEFAULT_MAX_CACHED_TILES = 128;
+
+	/**
+	 * Cached value for tiles without circles
+	 */
+	private static final byte[] EMPTY_TILE = new byte[0];
+
+	private final int tileSize;
+
+	private final AreaGridIndex<Integer> index = new AreaGridIndex<Integer>();
+
+	/**
+	 * Values of the circles by id. keys holds the Integer registered in the index for each id, null if not added
+	 */
+	private Integer[] keys = new Integer[16];
+	private double[] latitudes = new double[16];
+	private double[] longitudes = new double[16];
+	private double[] radii = new double[16];
+	private float[] strokeWidths = new float[16];
+	private int[] strokeColors = new int[16];
+	private int[] fillColors = new int[16];
+	private boolean[] hidden = new boolean[16];
+	private float maxStrokeWidth;
+
+	private final Map<Long, CachedTile> cache;
+
+	/**
+	 * Incremented by clear(), cached tiles with an older version are not used
+	 */
+	private int version;
+
+	/**
+	 * Incremented by each change, tiles rendered during a change are not cached
+	 */
+	private long changeCount;
+
+	private List<Integer> candidates = new ArrayList<Integer>();
+
+	private static class CachedTile {
+		final byte[] png;
+		final int version;
+
+		CachedTile(byte[] png, int version) {
+			this.png = png;
+			this.version = version;
+		}
+	}
+
+	public AreaTileRenderer() {
+		this(DEFAULT_TILE_SIZE, DEFAULT_MAX_CACHED_TILES);
+	}
+
+	/**
+	 * @param tileSize width and height of tiles in pixels
+	 * @param maxCachedTiles max count of cached tiles, least recently used are dropped
+	 */
+	public AreaTileRenderer(int tileSize, final int maxCachedTiles) {
+		this.tileSize = tileSize;
+		this.cache = new LinkedHashMap<Long, CachedTile>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, CachedTile> eldest) {
+				return size() > maxCachedTiles;
+			}
+		};
+	}
+
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	/**
+	 * Adds circle, or updates it if already added. Cached tiles touched by the circle before or after the change are removed
+	 *
+	 * @param id non negative id, e.g. AreaStore handle
+	 * @return count of removed cached tiles
+	 */
+	public synchronized int put(int id, double latitude, double longitude, double radiusMeters,
+			float strokeWidth, int strokeColor, int fillColor) {
+		ensureCapacity(id + 1);
+		int invalidated = 0;
+		Integer key = keys[id];
+		if (key == null) {
+			key = Integer.valueOf(id);
+			keys[id] = key;
+		} else if (!hidden[id]) {
+			invalidated += invalidate(id);
+		}
+		latitudes[id] = latitude;
+		longitudes[id] = longitude;
+		radii[id] = radiusMeters;
+		strokeWidths[id] = strokeWidth;
+		strokeColors[id] = strokeColor;
+		fillColors[id] = fillColor;
+		maxStrokeWidth = Math.max(maxStrokeWidth, strokeWidth);
+		index.put(key, latitude, longitude, radiusMeters);
+		if (!hidden[id]) {
+			invalidated += invalidate(id);
+		}
+		changeCount++;
+		return invalidated;
+	}
+
+	/**
+	 * @return count of removed cached tiles
+	 */
+	public synchronized int remove(int id) {
+		if (id >= keys.length || keys[id] == null) {
+			return 0;
+		}
+		int invalidated = hidden[id] ? 0 : invalidate(id);
+		index.remove(keys[id]);
+		keys[id] = null;
+		hidden[id] = false;
+		changeCount++;
+		return invalidated;
+	}
+
+	/**
+	 * Hidden circles are not rendered, e.g. while they are shown with map overlays to be edited
+	 *
+	 * @return count of removed cached tiles
+	 */
+	public synchronized int setHidden(int id, boolean hidden) {
+		if (id >= keys.length || keys[id] == null || this.hidden[id] == hidden) {
+			return 0;
+		}
+		this.hidden[id] = hidden;
+		changeCount++;
+		return invalidate(id);
+	}
+
+	public synchronized boolean isHidden(int id) {
+		return id < keys.length && hidden[id];
+	}
+
+	/**
+	 * Removes all circles
+	 */
+	public synchronized void clear() {
+		index.clear();
+		Arrays.fill(keys, null);
+		Arrays.fill(hidden, false);
+		maxStrokeWidth = 0;
+		cache.clear();
+		version++;
+		changeCount++;
+	}
+
+	/**
+	 * @return count of tiles in the cache
+	 */
+	public synchronized int getCachedTileCount() {
+		return cache.size();
+	}
+
+	/**
+	 * Returns tile as PNG, from the cache if possible
+	 *
+	 * @return PNG image of tileSize * tileSize pixels, null if no circle touches the tile
+	 */
+	public byte[] renderPng(int x, int y, int zoom) {
+		Long key = tileKey(x, y, zoom);
+		long startChangeCount;
+		synchronized (this) {
+			CachedTile cached = cache.get(key);
+			if (cached != null && cached.version == version) {
+				return cached.png == EMPTY_TILE ? null : cached.png;
+			}
+			startChangeCount = changeCount;
+		}
+
+		int[] pixels = render(x, y, zoom);
+		byte[] png = pixels == null ? EMPTY_TILE : PngEncoder.encode(pixels, tileSize, tileSize);
+
+		synchronized (this) {
+			if (changeCount == startChangeCount) { //otherwise the tile may be outdated already
+				cache.put(key, new CachedTile(png, version));
+			}
+		}
+		return png == EMPTY_TILE ? null : png;
+	}
+
+	/**
+	 * Renders tile, without cache
+	 *
+	 * @return ARGB pixels, row by row, null if no circle touches the tile
+	 */
+	public int[] render(int x, int y, int zoom) {
+		double worldSize = tileSize * Math.pow(2, zoom);
+		double originX = (double)x * tileSize;
+		double originY = (double)y * tileSize;
+
+		//copy the circles touching the tile (with stroke), then draw them without lock
+		int count;
+		double[] circleLatitudes, circleLongitudes, circleRadii;
+		float[] circleStrokeWidths;
+		int[] circleStrokeColors, circleFillColors;
+		synchronized (this) {
+			double margin = (maxStrokeWidth / 2 + 1) * 360 / worldSize;
+			double maxLat = WebMercator.toLatitude(originY, worldSize) + margin;
+			double minLat = WebMercator.toLatitude(originY + tileSize, worldSize) - margin;
+			double minLon = WebMercator.toLongitude(originX, worldSize) - margin;
+			double maxLon = WebMercator.toLongitude(originX + tileSize, worldSize) + margin;
+			candidates.clear();
+			if (maxLon - minLon >= 360) {
+				index.findIntersecting(minLat, -180, maxLat, 180, candidates);
+			} else {
+				index.findIntersecting(minLat, Geodesy.normalizeLongitude(minLon), maxLat, Geodesy.normalizeLongitude(maxLon), candidates);
+			}
+
+			int[] ids = new int[candidates.size()];
+			count = 0;
+			for (int i = 0, size = candidates.size(); i < size; i++) {
+				int id = candidates.get(i).intValue();
+				if (!hidden[id]) {
+					ids[count++] = id;
+				}
+			}
+			if (count == 0) {
+				return null;
+			}
+			Arrays.sort(ids, 0, count); //draw in the order of the ids, like overlays added in that order
+
+			circleLatitudes = new double[count];
+			circleLongitudes = new double[count];
+			circleRadii = new double[count];
+			circleStrokeWidths = new float[count];
+			circleStrokeColors = new int[count];
+			circleFillColors = new int[count];
+			for (int i = 0; i < count; i++) {
+				int id = ids[i];
+				circleLatitudes[i] = latitudes[id];
+				circleLongitudes[i] = longitudes[id];
+				circleRadii[i] = radii[id];
+				circleStrokeWidths[i] = strokeWidths[id];
+				circleStrokeColors[i] = strokeColors[id];
+				circleFillColors[i] = fillColors[id];
+			}
+		}
+
+		int[] pixels = new int[tileSize * tileSize];
+		double[] rowLatitudes = new double[tileSize];
+		for (int row = 0; row < tileSize; row++) {
+			rowLatitudes[row] = WebMercator.toLatitude(originY + row + 0.5, worldSize);
+		}
+		for (int i = 0; i < count; i++) {
+			drawCircle(pixels, rowLatitudes, originX, originY, worldSize, circleLatitudes[i], circleLongitudes[i], circleRadii[i],
+					circleStrokeWidths[i], circleStrokeColors[i], circleFillColors[i]);
+		}
+		return pixels;
+	}
+
+	/**
+	 * Fills the span of the circle in each row: inner span with fill color, the rest of the outer span with stroke color
+	 */
+	private void drawCircle(int[] pixels, double[] rowLatitudes, double originX, double originY, double worldSize,
+			double latitude, double longitude, double radiusMeters, float strokeWidth, int strokeColor, int fillColor) {
+		double halfStrokeMeters = strokeWidth / 2 * WebMercator.metersPerPixel(latitude, worldSize);
+		double outerRadius = (radiusMeters + halfStrokeMeters) / MapAreasConstants.RADIUS_OF_EARTH_METERS;
+		double innerRadius = Math.max(0, radiusMeters - halfStrokeMeters) / MapAreasConstants.RADIUS_OF_EARTH_METERS;
+		double cosOuter = Math.cos(Math.min(Math.PI, outerRadius));
+		double cosInner = Math.cos(Math.min(Math.PI, innerRadius));
+		double phiC = Math.toRadians(latitude);
+		double sinPhiC = Math.sin(phiC), cosPhiC = Math.cos(phiC);
+
+		//rows between the north and south end of the circle
+		double northY = WebMercator.toY(Math.min(90, latitude + Math.toDegrees(outerRadius)), worldSize) - originY;
+		double southY = WebMercator.toY(Math.max(-90, latitude - Math.toDegrees(outerRadius)), worldSize) - originY;
+		int firstRow = Math.max(0, (int)Math.floor(northY));
+		int lastRow = Math.min(tileSize - 1, (int)Math.ceil(southY));
+
+		double centerX = WebMercator.toX(longitude, worldSize) - originX;
+		double pixelsPerRadian = worldSize / (2 * Math.PI);
+		for (int row = firstRow; row <= lastRow; row++) {
+			double phi = Math.toRadians(rowLatitudes[row]);
+			double sinPhi = Math.sin(phi), cosPhi = Math.cos(phi);
+			double outerHalfSpan = halfSpan(cosOuter, sinPhi, cosPhi, sinPhiC, cosPhiC);
+			if (outerHalfSpan < 0) {
+				continue;
+			}
+			double innerHalfSpan = innerRadius > 0 ? halfSpan(cosInner, sinPhi, cosPhi, sinPhiC, cosPhiC) : -1;
+			int rowStart = row * tileSize;
+			for (int copy = -1; copy <= 1; copy++) { //circles crossing the antimeridian, and tiles at the world's edges
+				double copyX = centerX + copy * worldSize;
+				double outerLeft = copyX - outerHalfSpan * pixelsPerRadian;
+				double outerRight = copyX + outerHalfSpan * pixelsPerRadian;
+				if (outerRight < 0 || outerLeft >= tileSize) {
+					continue;
+				}
+				if (innerHalfSpan < 0) {
+					fillSpan(pixels, rowStart, outerLeft, outerRight, strokeColor);
+				} else {
+					double innerLeft = copyX - innerHalfSpan * pixelsPerRadian;
+					double innerRight = copyX + innerHalfSpan * pixelsPerRadian;
+					fillSpan(pixels, rowStart, outerLeft, innerLeft, strokeColor);
+					fillSpan(pixels, rowStart, innerLeft, innerRight, fillColor);
+					fillSpan(pixels, rowStart, innerRight, outerRight, strokeColor);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return half of the longitude span (radians) of a circle with angular radius acos(cosRadius) at latitude phi, -1 if it doesn't reach it
+	 */
+	private static double halfSpan(double cosRadius, double sinPhi, double cosPhi, double sinPhiC, double cosPhiC) {
+		double denominator = cosPhi * cosPhiC;
+		if (denominator <= 1e-12) { //row or center at a pole
+			return sinPhi * sinPhiC >= cosRadius ? Math.PI : -1;
+		}
+		double cosDeltaLon = (cosRadius - sinPhi * sinPhiC) / denominator;
+		if (cosDeltaLon > 1) {
+			return -1;
+		}
+		return cosDeltaLon < -1 ? Math.PI : Math.acos(cosDeltaLon);
+	}
+
+	/**
+	 * Blends color into the pixels of the row whose centers are in [left, right)
+	 */
+	private void fillSpan(int[] pixels, int rowStart, double left, double right, int color) {
+		int first = Math.max(0, (int)Math.ceil(left - 0.5));
+		int last = Math.min(tileSize - 1, (int)Math.ceil(right - 0.5) - 1);
+		int alpha = color >>> 24;
+		if (alpha == 0) {
+			return;
+		}
+		for (int i = rowStart + first, end = rowStart + last; i <= end; i++) {
+			pixels[i] = alpha == 255 ? color : blend(pixels[i], color, alpha);
+		}
+	}
+
+	/**
+	 * @return color drawn over destination (source over)
+	 */
+	private static int blend(int destination, int color, int alpha) {
+		int destinationAlpha = destination >>> 24;
+		int outAlpha = alpha + destinationAlpha * (255 - alpha) / 255;
+		if (outAlpha == 0) {
+			return 0;
+		}
+		int red = blendChannel((destination >> 16) & 0xff, destinationAlpha, (color >> 16) & 0xff, alpha, outAlpha);
+		int green = blendChannel((destination >> 8) & 0xff, destinationAlpha, (color >> 8) & 0xff, alpha, outAlpha);
+		int blue = blendChannel(destination & 0xff, destinationAlpha, color & 0xff, alpha, outAlpha);
+		return (outAlpha << 24) | (red << 16) | (green << 8) | blue;
+	}
+
+	private static int blendChannel(int destination, int destinationAlpha, int source, int alpha, int outAlpha) {
+		return (source * alpha + destination * destinationAlpha * (255 - alpha) / 255) / outAlpha;
+	}
+
+	/**
+	 * Removes the cached tiles touched by the circle (with stroke). Called with lock held
+	 *
+	 * @return count of removed tiles
+	 */
+	private int invalidate(int id) {
+		double angularRadius = radii[id] / MapAreasConstants.RADIUS_OF_EARTH_METERS;
+		double north = Math.min(90, latitudes[id] + Math.toDegrees(angularRadius));
+		double south = Math.max(-90, latitudes[id] - Math.toDegrees(angularRadius));
+		double deltaLon = Math.toDegrees(Math.asin(Math.sin(Math.min(Math.PI / 2, angularRadius))
+				/ Math.cos(Math.toRadians(latitudes[id]))));
+		boolean allLongitudes = Double.isNaN(deltaLon) || north >= 90 || south <= -90;
+
+		int removed = 0;
+		Iterator<Long> iterator = cache.keySet().iterator();
+		while (iterator.hasNext()) {
+			long key = iterator.next().longValue();
+			int zoom = (int)(key >>> 58);
+			int x = (int)((key >>> 29) & 0x1fffffff);
+			int y = (int)(key & 0x1fffffff);
+			double worldSize = tileSize * Math.pow(2, zoom);
+			double margin = strokeWidths[id] / 2 + 1;
+
+			double top = WebMercator.toY(north, worldSize) - margin;
+			double bottom = WebMercator.toY(south, worldSize) + margin;
+			if (bottom < (double)y * tileSize || top > (double)(y + 1) * tileSize) {
+				continue;
+			}
+			if (!allLongitudes) {
+				double centerX = WebMercator.toX(longitudes[id], worldSize);
+				double halfWidth = deltaLon / 360 * worldSize + margin;
+				double tileLeft = (double)x * tileSize;
+				boolean touches = false;
+				for (int copy = -1; copy <= 1 && !touches; copy++) {
+					double copyX = centerX + copy * worldSize;
+					touches = copyX + halfWidth >= tileLeft && copyX - halfWidth <= tileLeft + tileSize;
+				}
+				if (!touches) {
+					continue;
+				}
+			}
+			iterator.remove();
+			removed++;
+		}
+		return removed;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= keys.length) {
+			return;
+		}
+		int length = Math.max(capacity, keys.length * 2);
+		Integer[] newKeys = new Integer[length];
+		System.arraycopy(keys, 0, newKeys, 0, keys.length);
+		keys = newKeys;
+		latitudes = grow(latitudes, length);
+		longitudes = grow(longitudes, length);
+		radii = grow(radii, length);
+		float[] newStrokeWidths = new float[length];
+		System.arraycopy(strokeWidths, 0, newStrokeWidths, 0, strokeWidths.length);
+		strokeWidths = newStrokeWidths;
+		strokeColors = grow(strokeColors, length);
+		fillColors = grow(fillColors, length);
+		boolean[] newHidden = new boolean[length];
+		System.arraycopy(hidden, 0, newHidden, 0, hidden.length);
+		hidden = newHidden;
+	}
+
+	private static double[] grow(double[] array, int length) {
+		double[] grown = new double[length];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	private static int[] grow(int[] array, int length) {
+		int[] grown = new int[length];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	/**
+	 * @return zoom in the upper 6 bits, x and y in 29 bits each
+	 */
+	private static Long tileKey(int x, int y, int zoom) {
+		return Long.valueOf(((long)zoom << 58) | ((long)x << 29) | y);
+	}
+}
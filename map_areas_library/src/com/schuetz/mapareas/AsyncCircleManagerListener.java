@@ -0,0 +1,346 @@
+package com.schuetz.mapareas;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.schuetz.mapareas.MapAreaManager.CircleManagerListener;
+
+/**
+ * Delivers the calls of the manager's CircleManagerListener to a Listener on an executor, so slow listeners (database, network)
+ * don't block the gestures
+ *
+ * The manager calls this listener on the UI thread, which only puts the event in a bounded queue and returns.
+ * Events of the same circle are delivered in order, one at a time. Events of different circles can be delivered in parallel,
+ * if the executor has more than one thread.
+ * Repeated onMinRadius / onMaxRadius of a circle which weren't delivered yet (e.g. during a resize gesture) are delivered only once.
+ *
+ * The values of the circle are copied on the UI thread when the event is queued, and delivered with the event. The live circle
+ * is passed only to identify it: the manager changes it on the UI thread, so it must not be read on the executor thread.
+ *
+ * Usage: new MapAreaManager(..., new AsyncCircleManagerListener(listener, executor, 256, AsyncCircleManagerListener.OVERFLOW_DROP_OLDEST))
+ *
+ * @author ivanschuetz
+ */
+public class AsyncCircleManagerListener implements CircleManagerListener {
+
+	/**
+	 * When the queue is full, the new event is dropped
+	 */
+	public static final int OVERFLOW_DROP_NEWEST = 0;
+
+	/**
+	 * When the queue is full, the oldest queued event is dropped, so the listener gets the latest events
+	 */
+	public static final int OVERFLOW_DROP_OLDEST = 1;
+
+	private static final int CREATE = 0;
+	private static final int RESIZE_END = 1;
+	private static final int MOVE_END = 2;
+	private static final int MOVE_START = 3;
+	private static final int RESIZE_START = 4;
+	private static final int MIN_RADIUS = 5;
+	private static final int MAX_RADIUS = 6;
+
+	/**
+	 * Listener called on the executor
+	 */
+	public interface Listener {
+		/**
+		 * @param draggableCircle the circle, only to identify it. Its values must not be read on the executor thread
+		 * @param spec copy of the values of the circle when the event happened, owned by the listener
+		 */
+		void onCreateCircle(MapAreaWrapper draggableCircle, AreaSpec spec);
+
+		void onResizeCircleEnd(MapAreaWrapper draggableCircle, AreaSpec spec);
+
+		void onMoveCircleEnd(MapAreaWrapper draggableCircle, AreaSpec spec);
+
+		void onMoveCircleStart(MapAreaWrapper draggableCircle, AreaSpec spec);
+
+		void onResizeCircleStart(MapAreaWrapper draggableCircle, AreaSpec spec);
+
+		void onMinRadius(MapAreaWrapper draggableCircle, AreaSpec spec);
+
+		void onMaxRadius(MapAreaWrapper draggableCircle, AreaSpec spec);
+	}
+
+	private final Listener listener;
+	private final Executor executor;
+	private final int capacity;
+	private final int overflowPolicy;
+
+	private final Object lock = new Object();
+
+	/**
+	 * Circles with queued or running events, in order of their oldest queued event (when the lane was created)
+	 */
+	private final Map<MapAreaWrapper, Lane> lanes = new LinkedHashMap<MapAreaWrapper, Lane>();
+	private int pendingCount;
+	private long droppedCount;
+	private long coalescedCount;
+
+	/**
+	 * Queued events of a circle with the values of the circle at each event, delivered by a single task at a time
+	 */
+	private class Lane implements Runnable {
+		final MapAreaWrapper draggableCircle;
+		int[] events = new int[4];
+		AreaSpec[] specs = new AreaSpec[4];
+		int head;
+		int size;
+		boolean scheduled;
+
+		Lane(MapAreaWrapper draggableCircle) {
+			this.draggableCircle = draggableCircle;
+		}
+
+		void add(int event, AreaSpec spec) {
+			if (size == events.length) {
+				int[] grown = new int[events.length * 2];
+				AreaSpec[] grownSpecs = new AreaSpec[events.length * 2];
+				for (int i = 0; i < size; i++) {
+					grown[i] = events[(head + i) % events.length];
+					grownSpecs[i] = specs[(head + i) % events.length];
+				}
+				events = grown;
+				specs = grownSpecs;
+				head = 0;
+			}
+			events[(head + size) % events.length] = event;
+			specs[(head + size) % events.length] = spec;
+			size++;
+		}
+
+		/**
+		 * @return spec of the first event
+		 */
+		AreaSpec firstSpec() {
+			return specs[head];
+		}
+
+		int poll() {
+			int event = events[head];
+			specs[head] = null;
+			head = (head + 1) % events.length;
+			size--;
+			return event;
+		}
+
+		int last() {
+			return events[(head + size - 1) % events.length];
+		}
+
+		void setLastSpec(AreaSpec spec) {
+			specs[(head + size - 1) % events.length] = spec;
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				int event;
+				AreaSpec spec;
+				synchronized (lock) {
+					if (size == 0) {
+						scheduled = false;
+						lanes.remove(draggableCircle);
+						return;
+					}
+					spec = firstSpec();
+					event = poll();
+					pendingCount--;
+				}
+				try {
+					deliver(draggableCircle, event, spec);
+				} catch (RuntimeException e) {
+					synchronized (lock) {
+						scheduled = false;
+						if (size == 0) {
+							lanes.remove(draggableCircle);
+						} else {
+							schedule(this);
+						}
+					}
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param listener listener called on the executor
+	 * @param executor e.g. a single thread executor, or on a JVM a virtual thread per task executor
+	 * @param capacity max count of queued events, of all circles
+	 * @param overflowPolicy OVERFLOW_DROP_NEWEST or OVERFLOW_DROP_OLDEST
+	 */
+	public AsyncCircleManagerListener(Listener listener, Executor executor, int capacity, int overflowPolicy) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+		}
+		this.listener = listener;
+		this.executor = executor;
+		this.capacity = capacity;
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	public Listener getListener() {
+		return listener;
+	}
+
+	/**
+	 * @return count of events queued and not delivered yet
+	 */
+	public int getPendingCount() {
+		synchronized (lock) {
+			return pendingCount;
+		}
+	}
+
+	/**
+	 * @return count of events dropped because the queue was full or the executor rejected them
+	 */
+	public long getDroppedCount() {
+		synchronized (lock) {
+			return droppedCount;
+		}
+	}
+
+	/**
+	 * @return count of repeated min / max radius events merged with a queued one
+	 */
+	public long getCoalescedCount() {
+		synchronized (lock) {
+			return coalescedCount;
+		}
+	}
+
+	@Override
+	public void onCreateCircle(MapAreaWrapper draggableCircle) {
+		enqueue(draggableCircle, CREATE);
+	}
+
+	@Override
+	public void onResizeCircleEnd(MapAreaWrapper draggableCircle) {
+		enqueue(draggableCircle, RESIZE_END);
+	}
+
+	@Override
+	public void onMoveCircleEnd(MapAreaWrapper draggableCircle) {
+		enqueue(draggableCircle, MOVE_END);
+	}
+
+	@Override
+	public void onMoveCircleStart(MapAreaWrapper draggableCircle) {
+		enqueue(draggableCircle, MOVE_START);
+	}
+
+	@Override
+	public void onResizeCircleStart(MapAreaWrapper draggableCircle) {
+		enqueue(draggableCircle, RESIZE_START);
+	}
+
+	@Override
+	public void onMinRadius(MapAreaWrapper draggableCircle) {
+		enqueue(draggableCircle, MIN_RADIUS);
+	}
+
+	@Override
+	public void onMaxRadius(MapAreaWrapper draggableCircle) {
+		enqueue(draggableCircle, MAX_RADIUS);
+	}
+
+	/**
+	 * Called on the UI thread, where the values of the circle can be read
+	 */
+	private void enqueue(MapAreaWrapper draggableCircle, int event) {
+		AreaSpec spec = draggableCircle.toSpec();
+		synchronized (lock) {
+			Lane lane = lanes.get(draggableCircle);
+			if (lane != null && lane.size > 0 && lane.last() == event && (event == MIN_RADIUS || event == MAX_RADIUS)) {
+				lane.setLastSpec(spec);
+				coalescedCount++;
+				return;
+			}
+
+			if (pendingCount == capacity) {
+				if (overflowPolicy == OVERFLOW_DROP_NEWEST) {
+					droppedCount++;
+					return;
+				}
+				dropOldest();
+			}
+
+			if (lane == null) {
+				lane = new Lane(draggableCircle);
+				lanes.put(draggableCircle, lane);
+			}
+			lane.add(event, spec);
+			pendingCount++;
+			if (!lane.scheduled) {
+				schedule(lane);
+			}
+		}
+	}
+
+	/**
+	 * Drops the first queued event of the circle which has been waiting longest. Called with lock held and pendingCount > 0
+	 */
+	private void dropOldest() {
+		Iterator<Lane> iterator = lanes.values().iterator();
+		while (iterator.hasNext()) {
+			Lane lane = iterator.next();
+			if (lane.size > 0) {
+				lane.poll();
+				pendingCount--;
+				droppedCount++;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Submits the lane to the executor. Called with lock held
+	 */
+	private void schedule(Lane lane) {
+		lane.scheduled = true;
+		try {
+			executor.execute(lane);
+		} catch (RejectedExecutionException e) {
+			lane.scheduled = false;
+			pendingCount -= lane.size;
+			droppedCount += lane.size;
+			while (lane.size > 0) {
+				lane.poll();
+			}
+			lanes.remove(lane.draggableCircle);
+		}
+	}
+
+	private void deliver(MapAreaWrapper draggableCircle, int event, AreaSpec spec) {
+		switch (event) {
+		case CREATE:
+			listener.onCreateCircle(draggableCircle, spec);
+			break;
+		case RESIZE_END:
+			listener.onResizeCircleEnd(draggableCircle, spec);
+			break;
+		case MOVE_END:
+			listener.onMoveCircleEnd(draggableCircle, spec);
+			break;
+		case MOVE_START:
+			listener.onMoveCircleStart(draggableCircle, spec);
+			break;
+		case RESIZE_START:
+			listener.onResizeCircleStart(draggableCircle, spec);
+			break;
+		case MIN_RADIUS:
+			listener.onMinRadius(draggableCircle, spec);
+			break;
+		case MAX_RADIUS:
+			listener.onMaxRadius(draggableCircle, spec);
+			break;
+		}
+	}
+}
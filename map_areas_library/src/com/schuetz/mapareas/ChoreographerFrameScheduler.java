@@ -0,0 +1,55 @@
+package com.schuetz.mapareas;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+
+/**
+ * FrameScheduler which runs the work in the next frame callback of the Choreographer (API 16+)
+ * 
+ * Work scheduled in a frame runs with the next vsync, so e.g. drag updates scheduled during input events are applied 
+ * once per frame, however many input events arrive in between. Work scheduled while running goes to the next frame.
+ * Has to be created on the UI thread.
+ * 
+ * @author ivanschuetz
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+public class ChoreographerFrameScheduler implements FrameScheduler {
+
+	private final Choreographer choreographer = Choreographer.getInstance();
+	
+	private List<Runnable> scheduled = new ArrayList<Runnable>();
+	private List<Runnable> running = new ArrayList<Runnable>();
+	private boolean isPosted;
+	
+	private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			isPosted = false;
+			List<Runnable> frame = scheduled;
+			scheduled = running;
+			running = frame;
+			for (int i = 0, size = frame.size(); i < size; i++) {
+				frame.get(i).run();
+			}
+			frame.clear();
+		}
+	};
+	
+	@Override
+	public void scheduleFrame(Runnable runnable) {
+		scheduled.add(runnable);
+		if (!isPosted) {
+			isPosted = true;
+			choreographer.postFrameCallback(frameCallback);
+		}
+	}
+
+	@Override
+	public long nowNanos() {
+		return System.nanoTime();
+	}
+}
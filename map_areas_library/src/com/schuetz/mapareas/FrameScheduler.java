@@ -0,0 +1,24 @@
+package com.schuetz.mapareas;
+
+/**
+ * Runs work in the next frame of the UI thread
+ * 
+ * Default implementation is ChoreographerFrameScheduler, or HandlerFrameScheduler before API 16. Other implementations
+ * can be used e.g. to drive the work with a test clock
+ * 
+ * @author ivanschuetz
+ */
+public interface FrameScheduler {
+
+	/**
+	 * Runs runnable in the next frame
+	 * 
+	 * @param runnable
+	 */
+	void scheduleFrame(Runnable runnable);
+	
+	/**
+	 * @return current time in nanoseconds, used to measure the time spent in a frame
+	 */
+	long nowNanos();
+}
@@ -0,0 +1,164 @@
+package com.schuetz.mapareas;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outlines of circles on the WGS84 ellipsoid, as polygon vertices
+ *
+ * The vertices are computed once per (radius step, latitude band, zoom level) as offsets from the center (a template),
+ * and cached. Placing a circle translates the template, scaling the longitude offsets from the latitude of the band
+ * to the latitude of the circle, so moving a circle doesn't compute the geodesic of every vertex again.
+ * Radii are quantized in steps of RADIUS_STEP (relative), and the offsets scaled from the radius of the step, so resizing
+ * a circle (every drag event has a new radius) uses the cache too. Vertices are within about 0.02% of the radius from
+ * the geodesic circle, mostly from the latitude band.
+ * The vertex count depends on the size of the circle on the screen at the zoom level.
+ *
+ * Circles bigger than MAX_TEMPLATE_RADIUS_METERS are computed without template, since their shape changes
+ * too much within a latitude band.
+ *
+ * Doesn't depend on Android or the map, so it can be used (and tested) on a plain JVM.
+ * Not thread safe.
+ *
+ * @author ivanschuetz
+ */
+public class GeodesicCircleCache {
+
+	public static final int DEFAULT_MAX_TEMPLATES = 256;
+
+	public static final double MAX_TEMPLATE_RADIUS_METERS = 50000;
+
+	private static final double LATITUDE_BAND_DEGREES = 0.5;
+
+	/**
+	 * Radii of consecutive templates differ by this factor, so a circle is scaled by at most half of it
+	 */
+	private static final double RADIUS_STEP = 1.01;
+	private static final double LOG_RADIUS_STEP = Math.log(RADIUS_STEP);
+
+	private static final int MIN_VERTICES = 16;
+	private static final int MAX_VERTICES = 512;
+
+	/**
+	 * Max length of the outline segments on the screen
+	 */
+	private static final double MAX_SEGMENT_PIXELS = 6;
+
+	/**
+	 * Meters per pixel at the equator at zoom 0, for 256 pixel tiles
+	 */
+	private static final double EQUATOR_METERS_PER_PIXEL = 156543.03392;
+
+	private final Map<Key, double[]> templates;
+
+	private static class Key {
+		final int radiusStep;
+		final int band;
+		final int zoom;
+
+		Key(int radiusStep, int band, int zoom) {
+			this.radiusStep = radiusStep;
+			this.band = band;
+			this.zoom = zoom;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key key = (Key)o;
+			return radiusStep == key.radiusStep && band == key.band && zoom == key.zoom;
+		}
+
+		@Override
+		public int hashCode() {
+			return ((radiusStep * 31) + band) * 31 + zoom;
+		}
+	}
+
+	public GeodesicCircleCache() {
+		this(DEFAULT_MAX_TEMPLATES);
+	}
+
+	/**
+	 * @param maxTemplates max count of cached templates, least recently used are dropped
+	 */
+	public GeodesicCircleCache(final int maxTemplates) {
+		templates = new LinkedHashMap<Key, double[]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, double[]> eldest) {
+				return size() > maxTemplates;
+			}
+		};
+	}
+
+	/**
+	 * @return count of vertices of the outline of the circle
+	 */
+	public static int vertexCount(double latitude, double radiusMeters, int zoom) {
+		double metersPerPixel = EQUATOR_METERS_PER_PIXEL * Math.cos(Math.toRadians(latitude)) / Math.pow(2, zoom);
+		double radiusPixels = radiusMeters / Math.max(metersPerPixel, 1e-9);
+		int count = (int)Math.ceil(2 * Math.PI * radiusPixels / MAX_SEGMENT_PIXELS);
+		count = (count + 7) & ~7; //multiple of 8, so similar sizes share templates
+		return Math.max(MIN_VERTICES, Math.min(MAX_VERTICES, count));
+	}
+
+	/**
+	 * Computes the outline of a circle
+	 *
+	 * @param latitude
+	 * @param longitude
+	 * @param radiusMeters
+	 * @param zoom zoom level, determines the vertex count
+	 * @return interleaved vertices: latitude of vertex i at 2 * i, longitude at 2 * i + 1
+	 */
+	public double[] outline(double latitude, double longitude, double radiusMeters, int zoom) {
+		if (radiusMeters > MAX_TEMPLATE_RADIUS_METERS) {
+			double[] out = new double[vertexCount(latitude, radiusMeters, zoom) * 2];
+			tessellate(latitude, longitude, radiusMeters, out);
+			return out;
+		}
+
+		int band = (int)Math.floor(latitude / LATITUDE_BAND_DEGREES);
+		int radiusStep = (int)Math.round(Math.log(Math.max(radiusMeters, 1e-3)) / LOG_RADIUS_STEP);
+		double templateRadius = Math.exp(radiusStep * LOG_RADIUS_STEP);
+		Key key = new Key(radiusStep, band, zoom);
+		double[] template = templates.get(key);
+		double bandLatitude = (band + 0.5) * LATITUDE_BAND_DEGREES;
+		if (template == null) {
+			template = new double[vertexCount(bandLatitude, templateRadius, zoom) * 2];
+			tessellate(bandLatitude, 0, templateRadius, template);
+			for (int i = 0; i < template.length; i += 2) {
+				template[i] -= bandLatitude;
+			}
+			templates.put(key, template);
+		}
+
+		double radiusScale = radiusMeters / templateRadius;
+		double lonScale = radiusScale * Math.cos(Math.toRadians(bandLatitude)) / Math.cos(Math.toRadians(latitude));
+		double[] out = new double[template.length];
+		for (int i = 0; i < template.length; i += 2) {
+			out[i] = latitude + template[i] * radiusScale;
+			out[i + 1] = Geodesy.normalizeLongitude(longitude + template[i + 1] * lonScale);
+		}
+		return out;
+	}
+
+	public int size() {
+		return templates.size();
+	}
+
+	public void clear() {
+		templates.clear();
+	}
+
+	private static void tessellate(double latitude, double longitude, double radiusMeters, double[] out) {
+		int count = out.length / 2;
+		for (int i = 0; i < count; i++) {
+			Geodesy.vincentyDestination(latitude, longitude, 360.0 * i / count, radiusMeters, out, i * 2);
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package com.schuetz.mapareas;
+
+/**
+ * Geodesic calculations using primitive doubles (degrees and meters)
+ *
+ * Nothing here allocates, results with more than one value are written in caller supplied arrays.
+ * Doesn't depend on Android, so it can be used (and tested) on a plain JVM.
+ *
+ * Spherical formulas use MapAreasConstants.RADIUS_OF_EARTH_METERS, which is also the model used by the map to draw circles.
+ * Vincenty formulas use the WGS84 ellipsoid.
+ *
+ * @author ivanschuetz
+ */
+public class Geodesy {
+
+	public static final double WGS84_SEMI_MAJOR_AXIS_METERS = 6378137;
+	public static final double WGS84_FLATTENING = 1 / 298.257223563;
+	public static final double WGS84_SEMI_MINOR_AXIS_METERS = WGS84_SEMI_MAJOR_AXIS_METERS * (1 - WGS84_FLATTENING);
+
+	private static final int VINCENTY_MAX_ITERATIONS = 200;
+	private static final double VINCENTY_PRECISION = 1e-12;
+
+	private Geodesy() {
+	}
+
+	/**
+	 * Great circle distance on a spherical earth
+	 *
+	 * @return distance in meters
+	 */
+	public static double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
+		double sinDeltaLat = Math.sin(Math.toRadians(lat2 - lat1) / 2);
+		double sinDeltaLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+		double a = sinDeltaLat * sinDeltaLat
+				+ Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinDeltaLon * sinDeltaLon;
+		return 2 * MapAreasConstants.RADIUS_OF_EARTH_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+	}
+
+	/**
+	 * Geodesic distance on the WGS84 ellipsoid (Vincenty inverse formula)
+	 *
+	 * Falls back to haversine for nearly antipodal points, where the iteration doesn't converge
+	 *
+	 * @return distance in meters
+	 */
+	public static double vincentyMeters(double lat1, double lon1, double lat2, double lon2) {
+		double a = WGS84_SEMI_MAJOR_AXIS_METERS;
+		double b = WGS84_SEMI_MINOR_AXIS_METERS;
+		double f = WGS84_FLATTENING;
+
+		double deltaLon = Math.toRadians(lon2 - lon1);
+		double u1 = Math.atan((1 - f) * Math.tan(Math.toRadians(lat1)));
+		double u2 = Math.atan((1 - f) * Math.tan(Math.toRadians(lat2)));
+		double sinU1 = Math.sin(u1), cosU1 = Math.cos(u1);
+		double sinU2 = Math.sin(u2), cosU2 = Math.cos(u2);
+
+		double lambda = deltaLon;
+		double sinSigma, cosSigma, sigma, cosSqAlpha, cos2SigmaM;
+		int iteration = 0;
+		double previousLambda;
+		do {
+			double sinLambda = Math.sin(lambda), cosLambda = Math.cos(lambda);
+			double t1 = cosU2 * sinLambda;
+			double t2 = cosU1 * sinU2 - sinU1 * cosU2 * cosLambda;
+			sinSigma = Math.sqrt(t1 * t1 + t2 * t2);
+			if (sinSigma == 0) {
+				return 0; //coincident points
+			}
+			cosSigma = sinU1 * sinU2 + cosU1 * cosU2 * cosLambda;
+			sigma = Math.atan2(sinSigma, cosSigma);
+			double sinAlpha = cosU1 * cosU2 * sinLambda / sinSigma;
+			cosSqAlpha = 1 - sinAlpha * sinAlpha;
+			cos2SigmaM = cosSqAlpha != 0 ? cosSigma - 2 * sinU1 * sinU2 / cosSqAlpha : 0; //0 on equatorial line
+			double c = f / 16 * cosSqAlpha * (4 + f * (4 - 3 * cosSqAlpha));
+			previousLambda = lambda;
+			lambda = deltaLon + (1 - c) * f * sinAlpha
+					* (sigma + c * sinSigma * (cos2SigmaM + c * cosSigma * (-1 + 2 * cos2SigmaM * cos2SigmaM)));
+		} while (Math.abs(lambda - previousLambda) > VINCENTY_PRECISION && ++iteration < VINCENTY_MAX_ITERATIONS);
+
+		if (iteration >= VINCENTY_MAX_ITERATIONS) {
+			return haversineMeters(lat1, lon1, lat2, lon2);
+		}
+
+		double uSq = cosSqAlpha * (a * a - b * b) / (b * b);
+		double bigA = 1 + uSq / 16384 * (4096 + uSq * (-768 + uSq * (320 - 175 * uSq)));
+		double bigB = uSq / 1024 * (256 + uSq * (-128 + uSq * (74 - 47 * uSq)));
+		double deltaSigma = bigB * sinSigma * (cos2SigmaM + bigB / 4 * (cosSigma * (-1 + 2 * cos2SigmaM * cos2SigmaM)
+				- bigB / 6 * cos2SigmaM * (-3 + 4 * sinSigma * sinSigma) * (-3 + 4 * cos2SigmaM * cos2SigmaM)));
+		return b * bigA * (sigma - deltaSigma);
+	}
+
+	/**
+	 * Initial bearing of the great circle path from point 1 to point 2
+	 *
+	 * @return bearing in degrees, clockwise from north, in [0, 360)
+	 */
+	public static double initialBearing(double lat1, double lon1, double lat2, double lon2) {
+		double phi1 = Math.toRadians(lat1);
+		double phi2 = Math.toRadians(lat2);
+		double deltaLon = Math.toRadians(lon2 - lon1);
+		double y = Math.sin(deltaLon) * Math.cos(phi2);
+		double x = Math.cos(phi1) * Math.sin(phi2) - Math.sin(phi1) * Math.cos(phi2) * Math.cos(deltaLon);
+		double bearing = Math.toDegrees(Math.atan2(y, x));
+		return bearing < 0 ? bearing + 360 : bearing;
+	}
+
+	/**
+	 * Point reached travelling a distance along a great circle on a spherical earth
+	 *
+	 * @param latitude start latitude
+	 * @param longitude start longitude
+	 * @param bearing degrees, clockwise from north
+	 * @param distanceMeters
+	 * @param out array where the result is written, out[offset] latitude, out[offset + 1] longitude (normalized to [-180, 180])
+	 * @param offset
+	 */
+	public static void destination(double latitude, double longitude, double bearing, double distanceMeters, double[] out, int offset) {
+		double angularDistance = distanceMeters / MapAreasConstants.RADIUS_OF_EARTH_METERS;
+		double phi1 = Math.toRadians(latitude);
+		double theta = Math.toRadians(bearing);
+		double sinPhi1 = Math.sin(phi1), cosPhi1 = Math.cos(phi1);
+		double sinDelta = Math.sin(angularDistance), cosDelta = Math.cos(angularDistance);
+
+		double sinPhi2 = sinPhi1 * cosDelta + cosPhi1 * sinDelta * Math.cos(theta);
+		double phi2 = Math.asin(sinPhi2);
+		double lambda2 = Math.toRadians(longitude)
+				+ Math.atan2(Math.sin(theta) * sinDelta * cosPhi1, cosDelta - sinPhi1 * sinPhi2);
+
+		out[offset] = Math.toDegrees(phi2);
+		out[offset + 1] = normalizeLongitude(Math.toDegrees(lambda2));
+	}
+
+	/**
+	 * @see #destination(double, double, double, double, double[], int)
+	 */
+	public static void destination(double latitude, double longitude, double bearing, double distanceMeters, double[] out) {
+		destination(latitude, longitude, bearing, distanceMeters, out, 0);
+	}
+
+	/**
+	 * Point reached travelling a distance along a geodesic on the WGS84 ellipsoid (Vincenty direct formula)
+	 *
+	 * @param latitude start latitude
+	 * @param longitude start longitude
+	 * @param bearing degrees, clockwise from north
+	 * @param distanceMeters
+	 * @param out array where the result is written, out[offset] latitude, out[offset + 1] longitude (normalized to [-180, 180])
+	 * @param offset
+	 */
+	public static void vincentyDestination(double latitude, double longitude, double bearing, double distanceMeters,
+			double[] out, int offset) {
+		double a = WGS84_SEMI_MAJOR_AXIS_METERS;
+		double b = WGS84_SEMI_MINOR_AXIS_METERS;
+		double f = WGS84_FLATTENING;
+
+		double alpha1 = Math.toRadians(bearing);
+		double sinAlpha1 = Math.sin(alpha1), cosAlpha1 = Math.cos(alpha1);
+		double phi1 = Math.toRadians(Math.max(-89.999999, Math.min(89.999999, latitude)));
+
+		double tanU1 = (1 - f) * Math.tan(phi1);
+		double cosU1 = 1 / Math.sqrt(1 + tanU1 * tanU1);
+		double sinU1 = tanU1 * cosU1;
+		double sigma1 = Math.atan2(tanU1, cosAlpha1);
+		double sinAlpha = cosU1 * sinAlpha1;
+		double cosSqAlpha = 1 - sinAlpha * sinAlpha;
+		double uSq = cosSqAlpha * (a * a - b * b) / (b * b);
+		double bigA = 1 + uSq / 16384 * (4096 + uSq * (-768 + uSq * (320 - 175 * uSq)));
+		double bigB = uSq / 1024 * (256 + uSq * (-128 + uSq * (74 - 47 * uSq)));
+
+		double sigma = distanceMeters / (b * bigA);
+		double sinSigma, cosSigma, cos2SigmaM;
+		double previousSigma;
+		int iteration = 0;
+		do {
+			cos2SigmaM = Math.cos(2 * sigma1 + sigma);
+			sinSigma = Math.sin(sigma);
+			cosSigma = Math.cos(sigma);
+			double deltaSigma = bigB * sinSigma * (cos2SigmaM + bigB / 4 * (cosSigma * (-1 + 2 * cos2SigmaM * cos2SigmaM)
+					- bigB / 6 * cos2SigmaM * (-3 + 4 * sinSigma * sinSigma) * (-3 + 4 * cos2SigmaM * cos2SigmaM)));
+			previousSigma = sigma;
+			sigma = distanceMeters / (b * bigA) + deltaSigma;
+		} while (Math.abs(sigma - previousSigma) > VINCENTY_PRECISION && ++iteration < VINCENTY_MAX_ITERATIONS);
+
+		sinSigma = Math.sin(sigma);
+		cosSigma = Math.cos(sigma);
+		cos2SigmaM = Math.cos(2 * sigma1 + sigma);
+		double tmp = sinU1 * sinSigma - cosU1 * cosSigma * cosAlpha1;
+		double phi2 = Math.atan2(sinU1 * cosSigma + cosU1 * sinSigma * cosAlpha1, (1 - f) * Math.sqrt(sinAlpha * sinAlpha + tmp * tmp));
+		double lambda = Math.atan2(sinSigma * sinAlpha1, cosU1 * cosSigma - sinU1 * sinSigma * cosAlpha1);
+		double c = f / 16 * cosSqAlpha * (4 + f * (4 - 3 * cosSqAlpha));
+		double bigL = lambda - (1 - c) * f * sinAlpha
+				* (sigma + c * sinSigma * (cos2SigmaM + c * cosSigma * (-1 + 2 * cos2SigmaM * cos2SigmaM)));
+
+		out[offset] = Math.toDegrees(phi2);
+		out[offset + 1] = normalizeLongitude(longitude + Math.toDegrees(bigL));
+	}
+
+	/**
+	 * @return longitude in [-180, 180]
+	 */
+	public static double normalizeLongitude(double longitude) {
+		if (longitude >= -180 && longitude <= 180) {
+			return longitude;
+		}
+		double normalized = (longitude + 180) % 360;
+		return normalized < 0 ? normalized + 180 : normalized - 180;
+	}
+}
@@ -0,0 +1,223 @@
+package com.schuetz.mapareas;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates location fixes against circles and reports enter, exit and dwell transitions
+ *
+ * Keeps inside/outside state per circle. For each fix, the circles containing it are found with the spatial index
+ * (grid cell pre-filter, then exact distance), and compared with the circles the previous fix was in.
+ * With an exit margin, a circle is exited only when a fix is farther than the margin from its edge, so fixes
+ * jittering around the edge don't report repeated enter and exit transitions.
+ *
+ * Doesn't depend on Android or the map, so it can be used (and tested) on a plain JVM.
+ * Not thread safe.
+ *
+ * @author ivanschuetz
+ */
+public class GeofenceEngine<T> {
+
+	public interface GeofenceListener<T> {
+		void onEnter(T area, long timeMillis);
+
+		void onExit(T area, long timeMillis);
+
+		/**
+		 * Called once per stay, when the location has been inside the circle for the dwell time
+		 */
+		void onDwell(T area, long timeMillis);
+	}
+
+	private final AreaGridIndex<T> index;
+	private final boolean ownsIndex;
+
+	private GeofenceListener<T> listener;
+	private long dwellMillis = -1;
+	private double exitMarginMeters;
+
+	private Map<T, State<T>> states = new IdentityHashMap<T, State<T>>();
+
+	/**
+	 * States of the circles containing the last processed fix
+	 */
+	private List<State<T>> inside = new ArrayList<State<T>>();
+
+	private List<T> containing = new ArrayList<T>();
+	private int stamp;
+
+	private static class State<T> {
+		T item;
+		boolean inside;
+		long enterTimeMillis;
+		boolean dwellReported;
+		int stamp;
+	}
+
+	/**
+	 * Creates engine with its own index, circles are added with put()
+	 */
+	public GeofenceEngine() {
+		this(new AreaGridIndex<T>(), true);
+	}
+
+	/**
+	 * Creates engine evaluating the circles of an index which is kept up to date by the caller
+	 *
+	 * @param index
+	 */
+	public GeofenceEngine(AreaGridIndex<T> index) {
+		this(index, false);
+	}
+
+	private GeofenceEngine(AreaGridIndex<T> index, boolean ownsIndex) {
+		this.index = index;
+		this.ownsIndex = ownsIndex;
+	}
+
+	public void setListener(GeofenceListener<T> listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * @param dwellMillis time inside a circle after which onDwell is called, -1 to disable dwell events
+	 */
+	public void setDwellTime(long dwellMillis) {
+		this.dwellMillis = dwellMillis;
+	}
+
+	/**
+	 * @param exitMarginMeters distance outside of the edge of a circle at which it's exited, 0 (default) to exit at the edge
+	 */
+	public void setExitMargin(double exitMarginMeters) {
+		this.exitMarginMeters = exitMarginMeters;
+	}
+
+	/**
+	 * Adds circle, or updates its geometry if already added. Only for engines with their own index
+	 */
+	public void put(T item, double latitude, double longitude, double radiusMeters) {
+		if (!ownsIndex) {
+			throw new IllegalStateException("Index is updated by its owner");
+		}
+		index.put(item, latitude, longitude, radiusMeters);
+	}
+
+	/**
+	 * Removes circle and its state. No exit event is reported
+	 */
+	public void remove(T item) {
+		if (ownsIndex) {
+			index.remove(item);
+		}
+		State<T> state = states.remove(item);
+		if (state != null && state.inside) {
+			inside.remove(state);
+		}
+	}
+
+	/**
+	 * Removes all state. Circles are kept
+	 */
+	public void reset() {
+		states.clear();
+		inside.clear();
+	}
+
+	/**
+	 * @return if the last processed fix was inside the circle
+	 */
+	public boolean isInside(T item) {
+		State<T> state = states.get(item);
+		return state != null && state.inside;
+	}
+
+	/**
+	 * Processes one location fix
+	 */
+	public void process(double latitude, double longitude, long timeMillis) {
+		containing.clear();
+		index.findContaining(latitude, longitude, containing);
+		stamp++;
+
+		for (int i = 0, size = containing.size(); i < size; i++) {
+			T item = containing.get(i);
+			State<T> state = states.get(item);
+			if (state == null) {
+				state = new State<T>();
+				state.item = item;
+				states.put(item, state);
+			}
+			state.stamp = stamp;
+		}
+
+		//exits
+		for (int i = inside.size() - 1; i >= 0; i--) {
+			State<T> state = inside.get(i);
+			if (state.stamp != stamp && !isInExitMargin(state.item, latitude, longitude)) {
+				state.inside = false;
+				removeInside(i);
+				if (listener != null) {
+					listener.onExit(state.item, timeMillis);
+				}
+			}
+		}
+
+		//enters
+		for (int i = 0, size = containing.size(); i < size; i++) {
+			State<T> state = states.get(containing.get(i));
+			if (!state.inside) {
+				state.inside = true;
+				state.enterTimeMillis = timeMillis;
+				state.dwellReported = false;
+				inside.add(state);
+				if (listener != null) {
+					listener.onEnter(state.item, timeMillis);
+				}
+			}
+		}
+
+		if (dwellMillis >= 0) {
+			for (int i = 0, size = inside.size(); i < size; i++) {
+				State<T> state = inside.get(i);
+				if (!state.dwellReported && timeMillis - state.enterTimeMillis >= dwellMillis) {
+					state.dwellReported = true;
+					if (listener != null) {
+						listener.onDwell(state.item, timeMillis);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Processes location fixes in chronological order
+	 *
+	 * @param latitudes
+	 * @param longitudes
+	 * @param timesMillis
+	 * @param offset index of first fix in the arrays
+	 * @param count number of fixes
+	 */
+	public void process(double[] latitudes, double[] longitudes, long[] timesMillis, int offset, int count) {
+		for (int i = offset, end = offset + count; i < end; i++) {
+			process(latitudes[i], longitudes[i], timesMillis[i]);
+		}
+	}
+
+	private boolean isInExitMargin(T item, double latitude, double longitude) {
+		//NaN if the circle was removed from the index
+		return exitMarginMeters > 0 && index.distanceToEdge(item, latitude, longitude) <= exitMarginMeters;
+	}
+
+	/**
+	 * Removes from inside list without shifting, order of the list doesn't matter
+	 */
+	private void removeInside(int i) {
+		int last = inside.size() - 1;
+		inside.set(i, inside.get(last));
+		inside.remove(last);
+	}
+}
@@ -0,0 +1,325 @@
+package com.schuetz.mapareas;
+
+import java.util.Arrays;
+
+/**
+ * Computes coverings of circles with geohash cells, e.g. to store circles in a backend keyed by cells
+ *
+ * A covering is a set of cells which together contain the whole circle. It starts with the cells of minLevel touching
+ * the circle, and the cells crossing the border of the circle are subdivided (largest first) as long as the covering
+ * doesn't get more than maxCells cells and maxLevel isn't reached. Cells completely inside the circle are not subdivided.
+ * If the circle needs more than maxCells cells of minLevel, the covering has all of them.
+ *
+ * Cells are longs: the geohash bits shifted left by 4 and the level (length of the geohash) in the lowest 4 bits.
+ * toGeohash() converts them to the usual base 32 strings. Coverings are sorted in the order of the geohash strings,
+ * so a cell comes right before the cells it contains. This isn't the numeric order of the longs.
+ *
+ * Doesn't depend on Android, so it can be used (and tested) on a plain JVM.
+ * Not thread safe.
+ *
+ * @author ivanschuetz
+ */
+public class GeohashCoverer {
+
+	public static final int MAX_LEVEL = 12;
+
+	private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+	private static final int DISJOINT = 0;
+	private static final int INTERSECTING = 1;
+	private static final int CONTAINED = 2;
+
+	private final int minLevel;
+	private final int maxLevel;
+	private final int maxCells;
+
+	/**
+	 * Cells of the covering and cells to subdivide (FIFO, so larger cells first), reused between calls
+	 */
+	private long[] result = new long[16];
+	private int resultCount;
+	private long[] queue = new long[16];
+	private int queueStart;
+	private int queueEnd;
+
+	private final double[] bounds = new double[4];
+	private final int[] childClasses = new int[32];
+
+	/**
+	 * @param minLevel geohash length of the biggest cells, from 1
+	 * @param maxLevel geohash length of the smallest cells, up to MAX_LEVEL
+	 * @param maxCells max count of cells of a covering, unless the circle needs more cells of minLevel
+	 */
+	public GeohashCoverer(int minLevel, int maxLevel, int maxCells) {
+		if (minLevel < 1 || maxLevel > MAX_LEVEL || minLevel > maxLevel || maxCells < 1) {
+			throw new IllegalArgumentException("Invalid covering parameters: " + minLevel + ", " + maxLevel + ", " + maxCells);
+		}
+		this.minLevel = minLevel;
+		this.maxLevel = maxLevel;
+		this.maxCells = maxCells;
+	}
+
+	public int getMinLevel() {
+		return minLevel;
+	}
+
+	public int getMaxLevel() {
+		return maxLevel;
+	}
+
+	public int getMaxCells() {
+		return maxCells;
+	}
+
+	/**
+	 * @return cells covering the circle, sorted in the order of their geohash strings
+	 */
+	public long[] cover(double latitude, double longitude, double radiusMeters) {
+		resultCount = 0;
+		queueStart = 0;
+		queueEnd = 0;
+		addStartCells(latitude, longitude, radiusMeters);
+
+		while (queueStart < queueEnd) {
+			long cell = queue[queueStart++];
+			int level = level(cell);
+			if (level == maxLevel) {
+				addResult(cell);
+				continue;
+			}
+			long value = cell >>> 4;
+			int kept = 0;
+			for (int i = 0; i < 32; i++) {
+				cellBounds((value << 5) | i, level + 1, bounds);
+				childClasses[i] = classify(latitude, longitude, radiusMeters, bounds);
+				if (childClasses[i] != DISJOINT) {
+					kept++;
+				}
+			}
+			//the cell is replaced by its kept children
+			if (resultCount + (queueEnd - queueStart) + kept > maxCells) {
+				addResult(cell);
+				continue;
+			}
+			for (int i = 0; i < 32; i++) {
+				long child = toCell((value << 5) | i, level + 1);
+				if (childClasses[i] == CONTAINED) {
+					addResult(child);
+				} else if (childClasses[i] == INTERSECTING) {
+					enqueue(child);
+				}
+			}
+		}
+
+		long[] cells = new long[resultCount];
+		System.arraycopy(result, 0, cells, 0, resultCount);
+		sortGeohashOrder(cells);
+		return cells;
+	}
+
+	/**
+	 * Sorts cells like their geohash strings: the geohash bits are aligned to the top, so cells of different levels can be compared,
+	 * and the sign bit is flipped to sort unsigned (a level 12 cell uses all 64 bits). Shorter geohashes come first on equal bits
+	 */
+	private static void sortGeohashOrder(long[] cells) {
+		for (int i = 0; i < cells.length; i++) {
+			int level = level(cells[i]);
+			cells[i] = (((cells[i] >>> 4) << (64 - level * 5)) | level) ^ Long.MIN_VALUE;
+		}
+		Arrays.sort(cells);
+		for (int i = 0; i < cells.length; i++) {
+			long key = cells[i] ^ Long.MIN_VALUE;
+			int level = (int)(key & 15);
+			cells[i] = ((key >>> (64 - level * 5)) << 4) | level;
+		}
+	}
+
+	/**
+	 * @return geohash string of cell
+	 */
+	public static String toGeohash(long cell) {
+		int level = level(cell);
+		long value = cell >>> 4;
+		char[] chars = new char[level];
+		for (int i = level - 1; i >= 0; i--) {
+			chars[i] = BASE32[(int)(value & 31)];
+			value >>>= 5;
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * @return geohash length of cell
+	 */
+	public static int level(long cell) {
+		return (int)(cell & 15);
+	}
+
+	/**
+	 * @param cell
+	 * @param out array where the bounds are written: minLat, minLon, maxLat, maxLon
+	 */
+	public static void bounds(long cell, double[] out) {
+		cellBounds(cell >>> 4, level(cell), out);
+	}
+
+	/**
+	 * Adds the cells of minLevel touching the circle: contained ones to the result, intersecting ones to the queue
+	 */
+	private void addStartCells(double latitude, double longitude, double radiusMeters) {
+		int bits = minLevel * 5;
+		int lonBits = (bits + 1) / 2;
+		int latBits = bits / 2;
+		int columns = 1 << lonBits;
+		int rows = 1 << latBits;
+		double cellWidth = 360.0 / columns;
+		double cellHeight = 180.0 / rows;
+
+		double angularRadius = radiusMeters / MapAreasConstants.RADIUS_OF_EARTH_METERS;
+		double minLat = Math.max(-90, latitude - Math.toDegrees(angularRadius));
+		double maxLat = Math.min(90, latitude + Math.toDegrees(angularRadius));
+		int firstRow = Math.max(0, Math.min(rows - 1, (int)Math.floor((minLat + 90) / cellHeight)));
+		int lastRow = Math.max(0, Math.min(rows - 1, (int)Math.floor((maxLat + 90) / cellHeight)));
+
+		int firstColumn;
+		int columnCount;
+		double deltaLon = Math.toDegrees(Math.asin(Math.sin(Math.min(Math.PI / 2, angularRadius)) / Math.cos(Math.toRadians(latitude))));
+		if (Double.isNaN(deltaLon) || maxLat >= 90 || minLat <= -90 || deltaLon >= 180) {
+			firstColumn = 0;
+			columnCount = columns;
+		} else {
+			firstColumn = (int)Math.floor((longitude - deltaLon + 180) / cellWidth);
+			int lastColumn = (int)Math.floor((longitude + deltaLon + 180) / cellWidth);
+			columnCount = Math.min(columns, lastColumn - firstColumn + 1);
+		}
+
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int i = 0; i < columnCount; i++) {
+				int column = ((firstColumn + i) % columns + columns) % columns;
+				long value = interleave(column, lonBits, row, latBits);
+				cellBounds(value, minLevel, bounds);
+				int cellClass = classify(latitude, longitude, radiusMeters, bounds);
+				if (cellClass == CONTAINED) {
+					addResult(toCell(value, minLevel));
+				} else if (cellClass == INTERSECTING) {
+					enqueue(toCell(value, minLevel));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return DISJOINT, INTERSECTING or CONTAINED (cell inside circle)
+	 */
+	private static int classify(double latitude, double longitude, double radiusMeters, double[] bounds) {
+		double minLat = bounds[0], minLon = bounds[1], maxLat = bounds[2], maxLon = bounds[3];
+
+		//closest point: center longitude if inside the cell's range, otherwise the closest point on the nearer edge meridian
+		double closestLat;
+		double closestLon;
+		double offset = Geodesy.normalizeLongitude(longitude - minLon);
+		if (offset < 0) {
+			offset += 360;
+		}
+		if (offset <= maxLon - minLon) {
+			closestLon = longitude;
+			closestLat = Math.max(minLat, Math.min(maxLat, latitude));
+		} else {
+			double deltaWest = Math.abs(Geodesy.normalizeLongitude(longitude - minLon));
+			double deltaEast = Math.abs(Geodesy.normalizeLongitude(longitude - maxLon));
+			closestLon = deltaWest <= deltaEast ? minLon : maxLon;
+			double deltaLon = Math.toRadians(Math.min(deltaWest, deltaEast));
+			double latitudeOnMeridian = deltaLon >= Math.PI / 2 ? (latitude >= 0 ? 90 : -90)
+					: Math.toDegrees(Math.atan(Math.tan(Math.toRadians(latitude)) / Math.cos(deltaLon)));
+			closestLat = Math.max(minLat, Math.min(maxLat, latitudeOnMeridian));
+		}
+		if (Geodesy.haversineMeters(latitude, longitude, closestLat, closestLon) > radiusMeters) {
+			return DISJOINT;
+		}
+
+		//the farthest point of a cell is one of its corners
+		if (Geodesy.haversineMeters(latitude, longitude, minLat, minLon) <= radiusMeters
+				&& Geodesy.haversineMeters(latitude, longitude, minLat, maxLon) <= radiusMeters
+				&& Geodesy.haversineMeters(latitude, longitude, maxLat, minLon) <= radiusMeters
+				&& Geodesy.haversineMeters(latitude, longitude, maxLat, maxLon) <= radiusMeters) {
+			return CONTAINED;
+		}
+		return INTERSECTING;
+	}
+
+	/**
+	 * @param value geohash bits, alternating longitude and latitude bits, starting with longitude
+	 * @param level geohash length
+	 * @param out minLat, minLon, maxLat, maxLon
+	 */
+	private static void cellBounds(long value, int level, double[] out) {
+		int bits = level * 5;
+		double minLat = -90, maxLat = 90, minLon = -180, maxLon = 180;
+		for (int i = 0; i < bits; i++) {
+			boolean bit = ((value >>> (bits - 1 - i)) & 1) != 0;
+			if (i % 2 == 0) {
+				double middle = (minLon + maxLon) / 2;
+				if (bit) {
+					minLon = middle;
+				} else {
+					maxLon = middle;
+				}
+			} else {
+				double middle = (minLat + maxLat) / 2;
+				if (bit) {
+					minLat = middle;
+				} else {
+					maxLat = middle;
+				}
+			}
+		}
+		out[0] = minLat;
+		out[1] = minLon;
+		out[2] = maxLat;
+		out[3] = maxLon;
+	}
+
+	/**
+	 * @return geohash bits of the cell in column / row of the grid of a level
+	 */
+	private static long interleave(int column, int lonBits, int row, int latBits) {
+		long value = 0;
+		int bits = lonBits + latBits;
+		int lonBit = lonBits - 1;
+		int latBit = latBits - 1;
+		for (int i = 0; i < bits; i++) {
+			value <<= 1;
+			if (i % 2 == 0) {
+				value |= (column >>> lonBit--) & 1;
+			} else {
+				value |= (row >>> latBit--) & 1;
+			}
+		}
+		return value;
+	}
+
+	private static long toCell(long value, int level) {
+		return (value << 4) | level;
+	}
+
+	private void addResult(long cell) {
+		if (resultCount == result.length) {
+			long[] grown = new long[result.length * 2];
+			System.arraycopy(result, 0, grown, 0, resultCount);
+			result = grown;
+		}
+		result[resultCount++] = cell;
+	}
+
+	private void enqueue(long cell) {
+		if (queueEnd == queue.length) {
+			int size = queueEnd - queueStart;
+			long[] target = size * 2 > queue.length ? new long[queue.length * 2] : queue;
+			System.arraycopy(queue, queueStart, target, 0, size);
+			queue = target;
+			queueStart = 0;
+			queueEnd = size;
+		}
+		queue[queueEnd++] = cell;
+	}
+}
@@ -0,0 +1,52 @@
+package com.schuetz.mapareas;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.Circle;
+import com.google.android.gms.maps.model.CircleOptions;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.Polygon;
+import com.google.android.gms.maps.model.PolygonOptions;
+import com.google.android.gms.maps.model.TileOverlay;
+import com.google.android.gms.maps.model.TileOverlayOptions;
+
+/**
+ * MapOverlays implementation which adds the overlays to a GoogleMap
+ * 
+ * @author ivanschuetz
+ */
+public class GoogleMapOverlays implements MapOverlays {
+
+	private GoogleMap map;
+	
+	public GoogleMapOverlays(GoogleMap map) {
+		this.map = map;
+	}
+	
+	@Override
+	public Marker addMarker(MarkerOptions markerOptions) {
+		return map.addMarker(markerOptions);
+	}
+
+	@Override
+	public Circle addCircle(CircleOptions circleOptions) {
+		return map.addCircle(circleOptions);
+	}
+	
+	@Override
+	public Polygon addPolygon(PolygonOptions polygonOptions) {
+		return map.addPolygon(polygonOptions);
+	}
+	
+	@Override
+	public TileOverlay addTileOverlay(TileOverlayOptions tileOverlayOptions) {
+		return map.addTileOverlay(tileOverlayOptions);
+	}
+
+	@Override
+	public BitmapDescriptor iconFromResource(int drawableId) {
+		return BitmapDescriptorFactory.fromResource(drawableId);
+	}
+}
@@ -0,0 +1,27 @@
+package com.schuetz.mapareas;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * FrameScheduler which posts to the main thread's looper, for devices without Choreographer (before API 16)
+ * 
+ * A posted runnable runs after the current message, which is not a frame: during a drag it usually runs before
+ * the next drag event. Use ChoreographerFrameScheduler where available.
+ * 
+ * @author ivanschuetz
+ */
+public class HandlerFrameScheduler implements FrameScheduler {
+
+	private Handler handler = new Handler(Looper.getMainLooper());
+	
+	@Override
+	public void scheduleFrame(Runnable runnable) {
+		handler.post(runnable);
+	}
+
+	@Override
+	public long nowNanos() {
+		return System.nanoTime();
+	}
+}
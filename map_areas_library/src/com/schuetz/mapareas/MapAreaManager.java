@@ -1,16 +1,41 @@
 package com.schuetz.mapareas;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import android.graphics.Point;
+import android.os.Build;
 
 import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.GoogleMap.OnCameraChangeListener;
 import com.google.android.gms.maps.GoogleMap.OnMapLongClickListener;
 import com.google.android.gms.maps.GoogleMap.OnMarkerDragListener;
+import com.google.android.gms.maps.Projection;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.CameraPosition;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.Circle;
+import com.google.android.gms.maps.model.CircleOptions;
+import com.google.android.gms.maps.model.TileOverlay;
+import com.google.android.gms.maps.model.TileOverlayOptions;
+import com.schuetz.mapareas.AreaClusterer.AreaCluster;
+import com.schuetz.mapareas.AreaOverlapTracker.OverlapListener;
+import com.schuetz.mapareas.GeofenceEngine.GeofenceListener;
 import com.schuetz.mapareas.MapAreaWrapper.MarkerMoveResult;
+import com.schuetz.mapareas.MapAreaWrapper.MarkerType;
+import com.schuetz.mapareas.MapAreaWrapper.OnAreaChangeListener;
+import com.schuetz.mapareas.MapPolygonWrapper.OnPolygonChangeListener;
 
 
 /**
@@ -25,14 +50,233 @@ import com.schuetz.mapareas.MapAreaWrapper.MarkerMoveResult;
  * Based on functionality of Google APIs v19, com.example.mapdemo.CircleDemoActivity
  *
  */
-public class MapAreaManager implements OnMarkerDragListener, OnMapLongClickListener {
+public class MapAreaManager implements OnMarkerDragListener, OnMapLongClickListener, OnCameraChangeListener {
 	
 	private static int DEFAULT_FILL_COLOR = 0xff0000ff;
 	private static int DEFAULT_STROKE_COLOR = 0xff000000;
 	private static int DEFAULT_STROKE_WIDTH = 1;
+	private static long DEFAULT_LOAD_FRAME_BUDGET_MILLIS = 8;
+	private static double DEFAULT_VIEWPORT_MARGIN = 0.25;
+	private static int DEFAULT_COVERING_MIN_LEVEL = 4;
+	private static int DEFAULT_COVERING_MAX_LEVEL = 9;
+	private static int DEFAULT_COVERING_MAX_CELLS = 16;
 
     private List<MapAreaWrapper> areas = new ArrayList<MapAreaWrapper>(1);
+    private List<MapAreaWrapper> circles = Collections.unmodifiableList(areas);
+    
+    /**
+     * Marker id -> circle owning the marker and its role, so drag events don't have to look at every circle
+     */
+    private Map<String, MarkerEntry> markerIndex = new HashMap<String, MarkerEntry>();
+    
+    /**
+     * Geometry and style of the circles, the wrappers are views of it
+     */
+    private AreaStore store = new AreaStore();
+    
+    /**
+     * Last published version of the circles, for readers on other threads
+     */
+    private volatile AreaSnapshot snapshot = new AreaSnapshot(0, areas, store);
+    
+    private AreaChangeLog changeLog = new AreaChangeLog(AreaChangeLog.DEFAULT_CAPACITY);
+    
+    private AreaGridIndex<MapAreaWrapper> spatialIndex = new AreaGridIndex<MapAreaWrapper>();
+    
+    private OnAreaChangeListener areaChangeListener = new OnAreaChangeListener() {
+		@Override
+		public void onGeometryChanged(MapAreaWrapper draggableCircle, boolean radiusChanged) {
+			if (!radiusChanged) {
+				applyPixelRadius(draggableCircle);
+			}
+			indexGeometry(draggableCircle, radiusChanged);
+			if (clustered) {
+				refreshClusterCircles();
+			} else if (virtualized) {
+				updateVisibility(draggableCircle);
+			}
+			if (draggableCircle != draggedArea) { //dragged circle is saved and logged when the gesture ends
+				journalUpdate(draggableCircle);
+				changeLog.recordUpdated(draggableCircle, publishedSpec(draggableCircle), toSpec(draggableCircle));
+			}
+			publishGeometry(draggableCircle);
+		}
+		
+		@Override
+		public void onStyleChanged(MapAreaWrapper draggableCircle) {
+			if (tileRenderer != null) {
+				updateTiles(draggableCircle);
+			}
+			journalUpdate(draggableCircle);
+			changeLog.recordUpdated(draggableCircle, publishedSpec(draggableCircle), toSpec(draggableCircle));
+			publishSnapshot();
+		}
+	};
+	
+    private OverlayPool overlayPool = new OverlayPool(OverlayPool.DEFAULT_MAX_SIZE);
+    
+    /**
+     * Outlines of circles in geodesic mode, null if circles are drawn as map circles
+     */
+    private GeodesicCircleCache geodesicCache;
+    private int geodesicZoom;
+    
+    /**
+     * Renders the circles in the tiles of tileOverlay, null if circles are shown with overlays
+     */
+    private AreaTileRenderer tileRenderer;
+    private TileOverlay tileOverlay;
+    private boolean tileRefreshScheduled;
+    private Runnable tileRefreshRunnable = new Runnable() {
+		@Override
+		public void run() {
+			tileRefreshScheduled = false;
+			if (tileOverlay != null) {
+				tileOverlay.clearTileCache();
+			}
+		}
+	};
+    
+    /**
+     * Circle shown with overlays, so it can be edited, when circles are rendered in tiles
+     */
+    private MapAreaWrapper editedArea;
+    
+    /**
+     * Radius in screen pixels by store handle, 0 for circles with a radius in meters
+     */
+    private double[] pixelRadii = new double[0];
+    private int pixelAreaCount;
+    private boolean keepPixelRadius;
+    
+    /**
+     * Zoom for which the meters of the pixel radii were computed
+     */
+    private float pixelRadiiZoom = -1;
+    
+    /**
+     * World size in screen pixels (see WebMercator) at calibratedZoom, computed once per zoom with the map's projection
+     */
+    private double worldSize;
+    private float calibratedZoom = -1;
+    
+    /**
+     * Last position passed to onCameraChange, null until the manager is the camera change listener
+     */
+    private CameraPosition cameraPosition;
+    
+    /**
+     * Buffers for the batch conversion of pixel radii
+     */
+    private double[] pixelLatitudes = new double[0];
+    private double[] pixelValues = new double[0];
+    private MapAreaWrapper[] pixelAreas = new MapAreaWrapper[0];
+    
+    /**
+     * If true, only circles in the viewport have overlays
+     */
+    private boolean virtualized;
+    private double viewportMargin = DEFAULT_VIEWPORT_MARGIN;
+    
+    /**
+     * Viewport with margin as minLat, minLon, maxLat, maxLon. Null until the first camera change
+     */
+    private double[] viewportBounds;
+    
+    /**
+     * Circles in viewport, which have or will get overlays, when virtualized
+     */
+    private Set<MapAreaWrapper> visibleAreas = new HashSet<MapAreaWrapper>();
+    
+    /**
+     * Selected circles, in order of selection, for group operations
+     */
+    private Set<MapAreaWrapper> selection = new LinkedHashSet<MapAreaWrapper>();
+    private SelectionListener selectionListener;
+    
+    /**
+     * Buffers for group operations: centers and radii, then resize marker positions (latitude, longitude)
+     */
+    private double[] groupLatitudes = new double[0];
+    private double[] groupLongitudes = new double[0];
+    private double[] groupRadii = new double[0];
+    private double[] groupMarkerPositions = new double[0];
+    
+    /**
+     * Circle being dragged, which keeps its overlays while the gesture lasts
+     */
+    private MapAreaWrapper draggedArea;
+    private AreaSpec draggedAreaStartSpec;
+    
+    /**
+     * Null if clustering is disabled
+     */
+    private AreaClusterer<MapAreaWrapper> clusterer;
+    private float clusterMaxZoom;
+    
+    /**
+     * If true, clusters are shown instead of the circles
+     */
+    private boolean clustered;
+    private int clusterZoom;
+    private Map<AreaCluster<MapAreaWrapper>, ClusterOverlay> clusterOverlays = new HashMap<AreaCluster<MapAreaWrapper>, ClusterOverlay>();
+    
+	private float clusterStrokeWidth = DEFAULT_STROKE_WIDTH;
+	private int clusterStrokeColor = DEFAULT_STROKE_COLOR;
+	private int clusterFillColor = DEFAULT_FILL_COLOR;
+    
+    /**
+     * Circle drawn for a cluster, with the version of the cluster it shows
+     */
+    private static class ClusterOverlay {
+    	Circle circle;
+    	int version;
+    	
+    	ClusterOverlay(Circle circle, int version) {
+    		this.circle = circle;
+    		this.version = version;
+    	}
+    }
+    
+    /**
+     * Evaluates location fixes against the circles of the spatial index
+     */
+    private GeofenceEngine<MapAreaWrapper> geofenceEngine = new GeofenceEngine<MapAreaWrapper>(spatialIndex);
+    
+    /**
+     * Overlaps between circles of the spatial index. Null until overlaps are used, then kept up to date
+     */
+    private AreaOverlapTracker<MapAreaWrapper> overlapTracker;
+    
+    /**
+     * Cached geohash coverings of the circles, by handle. Null until coverings are used
+     */
+    private AreaCellCoverings cellCoverings;
+    
+    /**
+     * File where changes are journaled, null if none
+     */
+    private AreaFile areaFile;
+    
     private GoogleMap map;
+    private MapOverlays overlays;
+    
+    private FrameScheduler frameScheduler = createFrameScheduler();
+    private AreaBatchLoader batchLoader;
+    
+    /**
+     * If true, drag events update circles' geometry and the overlays are updated once per frame
+     */
+    private boolean coalesceDragUpdates;
+    private List<MapAreaWrapper> pendingOverlayUpdates = new ArrayList<MapAreaWrapper>(1);
+    private boolean overlayUpdatesScheduled;
+    private Runnable overlayUpdatesRunnable = new Runnable() {
+		@Override
+		public void run() {
+			overlayUpdatesScheduled = false;
+			applyPendingOverlayUpdates();
+		}
+	};
     
 	private int fillColor = DEFAULT_FILL_COLOR;
 	private int strokeWidth = DEFAULT_STROKE_WIDTH;
@@ -45,6 +289,32 @@ public class MapAreaManager implements OnMarkerDragListener, OnMapLongClickListe
 	
 	private CircleManagerListener circleManagerListener;
 	
+	/**
+	 * Camera change listener of the app, called by the manager after its own updates
+	 */
+	private OnCameraChangeListener cameraChangeListener;
+	private boolean isCameraChangeListener;
+	
+	/**
+	 * Null if metrics are disabled
+	 */
+	private AreaMetrics metrics;
+	private PolygonManagerListener polygonManagerListener;
+	
+	private List<MapPolygonWrapper> polygons = new ArrayList<MapPolygonWrapper>();
+	
+	/**
+	 * Index of polygons by their bounding circle
+	 */
+	private AreaGridIndex<MapPolygonWrapper> polygonIndex = new AreaGridIndex<MapPolygonWrapper>();
+	
+	private OnPolygonChangeListener polygonChangeListener = new OnPolygonChangeListener() {
+		@Override
+		public void onGeometryChanged(MapPolygonWrapper polygon) {
+			indexPolygon(polygon);
+		}
+	};
+	
 	private int moveDrawableId = -1;
 	private int radiusDrawableId = -1;
 	
@@ -53,6 +323,12 @@ public class MapAreaManager implements OnMarkerDragListener, OnMapLongClickListe
 	private float resizeDrawableAnchorU;
 	private float resizeDrawableAnchorV;
 	
+	/**
+	 * Marker icons, created once and shared by all circles
+	 */
+	private BitmapDescriptor moveIcon;
+	private BitmapDescriptor radiusIcon;
+	
 	public interface CircleManagerListener {
 		/**
 		 * Called when a circle was placed on the map
@@ -103,6 +379,75 @@ public class MapAreaManager implements OnMarkerDragListener, OnMapLongClickListe
 		void onMaxRadius(MapAreaWrapper draggableCircle);
 	}
 	
+	public interface AreasLoadListener {
+		/**
+		 * Called after each frame in which circles passed to addAll were added to the map
+		 * 
+		 * @param loaded count of circles added to the map so far
+		 * @param total count of circles passed to addAll. Loading is finished when loaded == total
+		 */
+		void onAreasLoadProgress(int loaded, int total);
+	}
+	
+	/**
+	 * Callbacks of the gestures on polygons, like CircleManagerListener for circles
+	 */
+	public interface PolygonManagerListener {
+		/**
+		 * Called when the position marker of the polygon is dropped
+		 */
+		void onMovePolygonEnd(MapPolygonWrapper polygon);
+		
+		void onMovePolygonStart(MapPolygonWrapper polygon);
+		
+		/**
+		 * Called when a vertex marker of the polygon is dropped
+		 * 
+		 * @param polygon
+		 * @param vertex index of the vertex
+		 */
+		void onResizePolygonEnd(MapPolygonWrapper polygon, int vertex);
+		
+		void onResizePolygonStart(MapPolygonWrapper polygon, int vertex);
+	}
+	
+	/**
+	 * Callbacks of selection and group operations
+	 */
+	public interface SelectionListener {
+		/**
+		 * Called when circles are selected or deselected. Not called when selected circles are removed from the manager
+		 * 
+		 * @param selection new list with selected circles
+		 */
+		void onSelectionChanged(List<MapAreaWrapper> selection);
+		
+		/**
+		 * Called once after translateSelection or scaleSelection, instead of a change event for each circle
+		 * 
+		 * @param selection new list with the changed circles
+		 */
+		void onSelectionTransformed(List<MapAreaWrapper> selection);
+	}
+	
+	/**
+	 * Receives the cell coverings of exportCellCoverings, one circle at a time
+	 */
+	public interface CellCoveringVisitor {
+		/**
+		 * @param draggableCircle
+		 * @param cells covering of the circle, see GeohashCoverer. Shared with the cache, it must not be modified or kept
+		 */
+		void visit(MapAreaWrapper draggableCircle, long[] cells);
+	}
+	
+	public interface AreaFilter {
+		/**
+		 * @return true if the circle should be removed
+		 */
+		boolean accept(MapAreaWrapper draggableCircle);
+	}
+	
 	/**
 	 * Primary constructor
 	 *  
@@ -126,6 +471,7 @@ public class MapAreaManager implements OnMarkerDragListener, OnMapLongClickListe
 			MapAreaMeasure initRadius, CircleManagerListener circleManagerListener) {
 		
 		this.map = map;
+		this.overlays = new GoogleMapOverlays(map);
 		this.circleManagerListener = circleManagerListener;
 		
 		this.strokeWidth = strokeWidth;
@@ -142,6 +488,18 @@ public class MapAreaManager implements OnMarkerDragListener, OnMapLongClickListe
 		
 		this.initRadius = initRadius;
 		
+		this.batchLoader = new AreaBatchLoader(frameScheduler, new AreaBatchLoader.LoadStep() {
+			@Override
+			public void load(MapAreaWrapper draggableCircle) {
+				if (draggableCircle.isAttached() || draggableCircle.getStore() != store 
+						|| clustered || (virtualized && !visibleAreas.contains(draggableCircle))
+						|| (tileRenderer != null && draggableCircle != editedArea)) {
+					return; //attached or removed meanwhile, or not in viewport anymore, or clusters or tiles are shown instead
+				}
+				attachArea(draggableCircle);
+			}
+		}, DEFAULT_LOAD_FRAME_BUDGET_MILLIS * 1000000);
+		
 		map.setOnMarkerDragListener(this);
         map.setOnMapLongClickListener(this);
 	}
@@ -173,146 +531,1926 @@ public class MapAreaManager implements OnMarkerDragListener, OnMapLongClickListe
 		this(map, strokeWidth, strokeColor, circleColor, moveDrawableId, radiusDrawableId, 0.5f, 1f, 0.5f, 1f, initRadius, circleManagerListener);
 	}
 
+	/**
+	 * @return unmodifiable view of the circles of the manager, use add and remove to change them. 
+	 * Only for the UI thread, other threads should use getSnapshot()
+	 */
 	public List<MapAreaWrapper> getCircles() {
-		return areas;
+		return circles;
 	}
 	
 	/**
-	 * Set min radius in meters. The circles will shrink bellow this, and onMinRadius will be called when reached
-	 * @param minRadius
+	 * Can be called from any thread, without locking. The snapshot doesn't change, 
+	 * changes of the circles are published as new snapshots.
+	 * 
+	 * @return last published version of the circles
 	 */
-	public void setMinRadius(int minRadius) {
-		this.minRadiusMeters = minRadius;
+	public AreaSnapshot getSnapshot() {
+		return snapshot;
 	}
-
+	
 	/**
-	 * Set min radius in meters. The circles will expand above this, and onMaxRadius will be called when reached
-	 * @param minRadius
+	 * @return log of the changes of the circles, also the ones done directly on the wrappers
 	 */
-	public void setMaxRadius(int maxRadius) {
-		this.maxRadiusMeters = maxRadius;
+	public AreaChangeLog getChangeLog() {
+		return changeLog;
 	}
 	
-	@Override
-    public void onMarkerDragStart(Marker marker) {
-    	MarkerMoveResultWithCircle result = onMarkerMoved(marker);
-        switch (result.markerMoveResult) {
-	        case minRadius: {
-	        	circleManagerListener.onMinRadius(result.draggableCircle);
-	        	break;
-	        }
-	        case maxRadius: {
-	        	circleManagerListener.onMaxRadius(result.draggableCircle);
-	        	break;
-	        }
-	        case radiusChange: {
-	        	circleManagerListener.onResizeCircleStart(result.draggableCircle);
-	        	break;
-	        }
-	        case moved: {
-    			circleManagerListener.onMoveCircleStart(result.draggableCircle);
-	        	break;
-	        }
-	        default: break;
-        }
-    }
-
-    @Override
-    public void onMarkerDragEnd(Marker marker) {
-    	MarkerMoveResultWithCircle result = onMarkerMoved(marker);
-        switch (result.markerMoveResult) {
-	        case minRadius: {
-	        	circleManagerListener.onMinRadius(result.draggableCircle);
-	        	break;
-	        }
-	        case maxRadius: {
-	        	circleManagerListener.onMaxRadius(result.draggableCircle);
-	        	break;
-	        }
-	        case radiusChange: {
-	        	circleManagerListener.onResizeCircleEnd(result.draggableCircle);
-	        	break;
-	        }
-	        case moved: {
-    			circleManagerListener.onMoveCircleEnd(result.draggableCircle);
-	        	break;
-	        }
-	        default: break;
-        }
-    }
-
-    @Override
-    public void onMarkerDrag(Marker marker) {
-    	MarkerMoveResultWithCircle result = onMarkerMoved(marker);
-        switch (result.markerMoveResult) {
-	        case minRadius: {
-	        	circleManagerListener.onMinRadius(result.draggableCircle);
-	        	break;
-	        }
-	        case maxRadius: {
-	        	circleManagerListener.onMaxRadius(result.draggableCircle);
-	        	break;
-	        }
-	        default: break;
-        }
-    }
-
-    public void add(MapAreaWrapper draggableCircle) {
-    	areas.add(draggableCircle);
-    }
-    
-    /**
-     * Wrapper for result of gesture with affected circle
-     */
-    private class MarkerMoveResultWithCircle {
-    	MarkerMoveResult markerMoveResult;
-    	MapAreaWrapper draggableCircle;
-    	
-    	public MarkerMoveResultWithCircle(MarkerMoveResult markerMoveResult, MapAreaWrapper draggableCircle) {
-    		this.markerMoveResult = markerMoveResult;
-    		this.draggableCircle = draggableCircle;
-    	}
-    }
-    
-    /**
-     * When marker is moved, notify circles
-     * The circle containing the marker will execute necessary actions
-     * 
-     * @param marker
-     * @return
-     */
-    private MarkerMoveResultWithCircle onMarkerMoved(Marker marker) {
-    	MarkerMoveResult result = MarkerMoveResult.none;
-    	MapAreaWrapper affectedDraggableCircle = null;
-    	
-    	for (MapAreaWrapper draggableCircle : areas) {
-        	result = draggableCircle.onMarkerMoved(marker); 
-            if (result != MarkerMoveResult.none) {
-            	affectedDraggableCircle = draggableCircle;
-                break;
-            }
-        }
-    	return new MarkerMoveResultWithCircle(result, affectedDraggableCircle);
-    }
-    
-    @Override
-    public void onMapLongClick(LatLng point) {
-    	double initRadiusMetersFinal;
-    	
-    	if (initRadius.unit == MapAreaMeasure.Unit.meters) { //init with meters radius
-    		
-    		initRadiusMetersFinal = initRadius.value;
-    		
-    	} else { //init with pixels radius
-    		Point screenCenterPoint = map.getProjection().toScreenLocation(point);
-    		LatLng radiusLatLng = map.getProjection().fromScreenLocation(new Point(screenCenterPoint.x + (int)initRadius.value, screenCenterPoint.y));
-    		initRadiusMetersFinal = MapAreasUtils.toRadiusMeters(point, radiusLatLng);
-    	}
-        
-        MapAreaWrapper circle = new MapAreaWrapper(map, point, initRadiusMetersFinal, strokeWidth, strokeColor, fillColor, minRadiusMeters, maxRadiusMeters, 
-        		moveDrawableId, radiusDrawableId, moveDrawableAnchorU, moveDrawableAnchorV, resizeDrawableAnchorU, resizeDrawableAnchorV);
-        
-        areas.add(circle);
+	/**
+	 * Geometry and style of all circles of the manager, for bulk computations without going through the wrappers.
+	 * Read only, the circles are changed through the wrappers and the manager
+	 * 
+	 * @return store, the owner of each handle is its MapAreaWrapper
+	 */
+	public AreaStore getAreaStore() {
+		return store;
+	}
+	
+	/**
+	 * Can be called from any thread
+	 * 
+	 * @return analyzer of recorded tracks over the last published snapshot of the circles
+	 */
+	public TrackAnalyzer createTrackAnalyzer() {
+		return new TrackAnalyzer(snapshot);
+	}
+	
+	/**
+	 * Replace the access to the map used to add overlays, e.g. with a fake for testing
+	 * @param overlays
+	 */
+	public void setMapOverlays(MapOverlays overlays) {
+		this.overlays = overlays;
+		this.moveIcon = null;
+		this.radiusIcon = null;
+	}
+	
+	/**
+	 * Replace the scheduler used to spread work over frames, e.g. with one driven by a test clock
+	 * @param frameScheduler
+	 */
+	public void setFrameScheduler(FrameScheduler frameScheduler) {
+		this.frameScheduler = frameScheduler;
+		batchLoader.setFrameScheduler(frameScheduler);
+	}
+	
+	/**
+	 * @return scheduler running work in the next frame, with the Choreographer where available
+	 */
+	private static FrameScheduler createFrameScheduler() {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			return new ChoreographerFrameScheduler();
+		}
+		return new HandlerFrameScheduler();
+	}
+	
+	/**
+	 * Enables or disables coalescing of drag updates
+	 * 
+	 * When enabled, drag events update center and radius of the circle immediately (so callbacks and queries see them),
+	 * but the circle and resize marker overlays are updated at most once per frame, with the last values.
+	 * Min/max radius callbacks are called once each time the limit is reached, instead of for every drag event beyond it.
+	 * 
+	 * @param coalesceDragUpdates
+	 */
+	public void setCoalesceDragUpdates(boolean coalesceDragUpdates) {
+		this.coalesceDragUpdates = coalesceDragUpdates;
+		if (!coalesceDragUpdates) {
+			applyPendingOverlayUpdates();
+		}
+	}
+	
+	/**
+	 * Set max time per frame used by addAll to add overlays to the map. Default is 8 ms
+	 * @param millis
+	 */
+	public void setLoadFrameBudget(long millis) {
+		batchLoader.setFrameBudgetNanos(millis * 1000000);
+	}
+	
+	/**
+	 * Enables or disables virtualized mode
+	 * 
+	 * In virtualized mode only circles intersecting the viewport (plus a margin) have markers and circle overlays on the map.
+	 * The others are kept as plain data, and their overlays are reused for circles entering the viewport after camera changes.
+	 * This allows to have a big amount of circles with a bounded amount of overlays.
+	 * 
+	 * The manager registers itself as camera change listener of the map. If the app needs its own camera change listener,
+	 * it has to set it with setOnCameraChangeListener of the manager.
+	 * 
+	 * @param virtualized
+	 */
+	public void setVirtualized(boolean virtualized) {
+		if (this.virtualized == virtualized) {
+			return;
+		}
+		if (virtualized && tileRenderer != null) {
+			throw new IllegalStateException("Virtualized mode can't be combined with tile rendering");
+		}
+		this.virtualized = virtualized;
+		updateCameraChangeListener();
+		if (clustered) {
+			return; //circles don't have overlays anyway, applied when going back to circles
+		}
+		if (virtualized) {
+			for (MapAreaWrapper draggableCircle : areas) {
+				if (draggableCircle.isAttached()) {
+					visibleAreas.add(draggableCircle);
+				}
+			}
+			updateViewport();
+			
+		} else {
+			viewportBounds = null;
+			visibleAreas.clear();
+			attachAllAreas();
+		}
+	}
+	
+	/**
+	 * Enables clustering for low zoom levels
+	 * 
+	 * Below maxZoom, circles are grouped in clusters, shown as single circles (without markers) enclosing their circles.
+	 * Clusters are cached per zoom level and updated when single circles change.
+	 * 
+	 * Like virtualized mode, the manager registers itself as camera change listener of the map.
+	 * 
+	 * @param maxZoom zoom level from which circles are shown instead of clusters, -1 to disable clustering
+	 */
+	public void setClustering(float maxZoom) {
+		if (maxZoom < 0) {
+			if (clustered) {
+				showAreas();
+			}
+			clusterer = null;
+		} else {
+			if (tileRenderer != null) {
+				throw new IllegalStateException("Clustering can't be combined with tile rendering");
+			}
+			if (clusterer == null) {
+				clusterer = new AreaClusterer<MapAreaWrapper>();
+				for (MapAreaWrapper draggableCircle : areas) {
+					clusterer.put(draggableCircle, draggableCircle.getLatitude(), draggableCircle.getLongitude(), draggableCircle.getRadius());
+				}
+			}
+			clusterMaxZoom = maxZoom;
+			updateClustering(map.getCameraPosition());
+		}
+		updateCameraChangeListener();
+	}
+	
+	/**
+	 * Set style of circles shown for clusters. Default is the style of the manager
+	 * 
+	 * @param strokeWidth stroke with in pixels
+	 * @param strokeColor stroke color
+	 * @param fillColor fill color
+	 */
+	public void setClusterStyle(float strokeWidth, int strokeColor, int fillColor) {
+		this.clusterStrokeWidth = strokeWidth;
+		this.clusterStrokeColor = strokeColor;
+		this.clusterFillColor = fillColor;
+		for (ClusterOverlay clusterOverlay : clusterOverlays.values()) {
+			clusterOverlay.circle.setStrokeWidth(strokeWidth);
+			clusterOverlay.circle.setStrokeColor(strokeColor);
+			clusterOverlay.circle.setFillColor(fillColor);
+		}
+	}
+	
+	/**
+	 * @return if clusters are currently shown instead of circles
+	 */
+	public boolean isClustered() {
+		return clustered;
+	}
+	
+	/**
+	 * Sets the camera change listener of the app. Use this instead of the map's setOnCameraChangeListener, 
+	 * since the manager registers itself as camera change listener of the map when a mode needs camera changes
+	 * 
+	 * @param listener called after the manager has updated its circles to the new camera position, can be null
+	 */
+	public void setOnCameraChangeListener(OnCameraChangeListener listener) {
+		this.cameraChangeListener = listener;
+		updateCameraChangeListener();
+	}
+	
+	/**
+	 * Registers the manager as camera change listener of the map when it's needed the first time. 
+	 * The manager stays registered after that, so a listener set on the map by the app isn't replaced by null
+	 */
+	private void updateCameraChangeListener() {
+		if (!isCameraChangeListener && (virtualized || clusterer != null || geodesicCache != null || pixelAreaCount > 0 
+				|| cameraChangeListener != null)) {
+			map.setOnCameraChangeListener(this);
+			isCameraChangeListener = true;
+		}
+	}
+	
+	private void updateClustering(CameraPosition position) {
+		if (position.zoom < clusterMaxZoom) {
+			showClusters((int)position.zoom);
+		} else if (clustered) {
+			showAreas();
+		}
+	}
+	
+	/**
+	 * Replaces circles with the clusters of zoom level
+	 */
+	private void showClusters(int zoom) {
+		if (!clustered) {
+			clustered = true;
+			for (MapAreaWrapper draggableCircle : areas) {
+				if (draggableCircle.isAttached() && draggableCircle != draggedArea) {
+					detachArea(draggableCircle);
+				}
+			}
+			visibleAreas.clear();
+		}
+		clusterZoom = zoom;
+		refreshClusterCircles();
+	}
+	
+	/**
+	 * Replaces clusters with circles
+	 */
+	private void showAreas() {
+		clustered = false;
+		for (ClusterOverlay clusterOverlay : clusterOverlays.values()) {
+			overlayPool.releaseCircle(clusterOverlay.circle);
+		}
+		clusterOverlays.clear();
+		if (virtualized) {
+			updateViewport();
+		} else {
+			attachAllAreas();
+		}
+	}
+	
+	/**
+	 * Updates the circles of the clusters, only for clusters that are new or changed since last time
+	 */
+	private void refreshClusterCircles() {
+		List<AreaCluster<MapAreaWrapper>> clusters = clusterer.getClusters(clusterZoom);
+		Map<AreaCluster<MapAreaWrapper>, ClusterOverlay> newClusterOverlays = new HashMap<AreaCluster<MapAreaWrapper>, ClusterOverlay>(clusters.size() * 2);
+		
+		for (AreaCluster<MapAreaWrapper> cluster : clusters) {
+			ClusterOverlay clusterOverlay = clusterOverlays.remove(cluster);
+			LatLng center = null;
+			if (clusterOverlay == null) {
+				center = new LatLng(cluster.getLatitude(), cluster.getLongitude());
+				Circle circle = overlayPool.acquireCircle();
+				if (circle != null) {
+					circle.setStrokeWidth(clusterStrokeWidth);
+					circle.setStrokeColor(clusterStrokeColor);
+					circle.setFillColor(clusterFillColor);
+					circle.setVisible(true);
+				} else {
+					circle = overlays.addCircle(new CircleOptions()
+							.center(center)
+							.radius(cluster.getRadiusMeters())
+			                .strokeWidth(clusterStrokeWidth)
+			                .strokeColor(clusterStrokeColor)
+			                .fillColor(clusterFillColor));
+				}
+				clusterOverlay = new ClusterOverlay(circle, -1);
+			}
+			if (clusterOverlay.version != cluster.getVersion()) {
+				clusterOverlay.circle.setCenter(center != null ? center : new LatLng(cluster.getLatitude(), cluster.getLongitude()));
+				clusterOverlay.circle.setRadius(cluster.getRadiusMeters());
+				clusterOverlay.version = cluster.getVersion();
+			}
+			newClusterOverlays.put(cluster, clusterOverlay);
+		}
+		
+		for (ClusterOverlay clusterOverlay : clusterOverlays.values()) { //clusters that don't exist anymore
+			overlayPool.releaseCircle(clusterOverlay.circle);
+		}
+		clusterOverlays = newClusterOverlays;
+	}
+	
+	/**
+	 * Adds overlays for all circles that don't have them, spread over frames
+	 */
+	private void attachAllAreas() {
+		List<MapAreaWrapper> detached = new ArrayList<MapAreaWrapper>();
+		for (MapAreaWrapper draggableCircle : areas) {
+			if (!draggableCircle.isAttached()) {
+				detached.add(draggableCircle);
+			}
+		}
+		batchLoader.enqueue(detached, null);
+	}
+	
+	/**
+	 * Enables recording of timings, see AreaMetrics. Disabled by default
+	 * 
+	 * @param metrics where the timings are recorded, null to disable
+	 */
+	public void setMetrics(AreaMetrics metrics) {
+		if (circleManagerListener instanceof TimedCircleManagerListener) {
+			circleManagerListener = ((TimedCircleManagerListener)circleManagerListener).getListener();
+		}
+		if (metrics != null) {
+			circleManagerListener = new TimedCircleManagerListener(circleManagerListener, metrics);
+		}
+		this.metrics = metrics;
+		for (MapAreaWrapper draggableCircle : areas) {
+			draggableCircle.metrics = metrics;
+		}
+	}
+	
+	public AreaMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * If true, circles are drawn as polygons following the geodesic circle on the WGS84 ellipsoid, 
+	 * with a vertex count adapted to the zoom level. Otherwise (default) they are drawn as map circles
+	 * 
+	 * The resize marker then measures the radius on the ellipsoid too, so it stays on the outline. Queries (findAreasContaining,
+	 * findOverlapping, geofences...) still use a sphere of MapAreasConstants.RADIUS_OF_EARTH_METERS: they can differ from the
+	 * outline by up to about 0.5% of the radius, depending on latitude and direction.
+	 * 
+	 * @param geodesic
+	 */
+	public void setGeodesicCircles(boolean geodesic) {
+		if (geodesic == (geodesicCache != null)) {
+			return;
+		}
+		geodesicCache = geodesic ? new GeodesicCircleCache() : null;
+		geodesicZoom = (int)map.getCameraPosition().zoom;
+		for (MapAreaWrapper draggableCircle : areas) {
+			draggableCircle.setGeodesic(geodesicCache, geodesicZoom, overlays, overlayPool);
+		}
+		updateCameraChangeListener();
+	}
+	
+	public boolean isVirtualized() {
+		return virtualized;
+	}
+	
+	/**
+	 * Set margin around the viewport where circles also get overlays in virtualized mode, so they are already there when panning
+	 * @param margin fraction of viewport's size, added at each side. Default is 0.25
+	 */
+	public void setViewportMargin(double margin) {
+		this.viewportMargin = margin;
+	}
+	
+	/**
+	 * Set max count of hidden markers and circles kept for reuse. Default is 64
+	 * @param maxSize
+	 */
+	public void setOverlayPoolSize(int maxSize) {
+		overlayPool.setMaxSize(maxSize);
+	}
+	
+	@Override
+	public void onCameraChange(CameraPosition position) {
+		cameraPosition = position;
+		if (pixelAreaCount > 0 && position.zoom != pixelRadiiZoom) {
+			updatePixelRadii(); //before updateClustering, which refreshes the cluster circles
+		}
+		if (geodesicCache != null && (int)position.zoom != geodesicZoom) {
+			geodesicZoom = (int)position.zoom;
+			for (MapAreaWrapper draggableCircle : areas) {
+				draggableCircle.setGeodesic(geodesicCache, geodesicZoom, overlays, overlayPool);
+			}
+		}
+		if (clusterer != null) {
+			updateClustering(position);
+		}
+		if (virtualized && !clustered) {
+			updateViewport();
+		}
+		if (cameraChangeListener != null) {
+			cameraChangeListener.onCameraChange(position);
+		}
+	}
+	
+	/**
+	 * Updates overlays to the current viewport: circles which left the viewport release their overlays to the pool,
+	 * circles which entered it get overlays (spread over frames)
+	 */
+	private void updateViewport() {
+		LatLngBounds bounds = map.getProjection().getVisibleRegion().latLngBounds;
+		double latMargin = (bounds.northeast.latitude - bounds.southwest.latitude) * viewportMargin;
+		double lonSpan = bounds.northeast.longitude - bounds.southwest.longitude;
+		if (lonSpan < 0) {
+			lonSpan += 360; //crosses antimeridian
+		}
+		double lonMargin = lonSpan * viewportMargin;
+		
+		if (lonSpan + 2 * lonMargin >= 360) {
+			viewportBounds = new double[] {bounds.southwest.latitude - latMargin, -180, bounds.northeast.latitude + latMargin, 180};
+		} else {
+			viewportBounds = new double[] {bounds.southwest.latitude - latMargin, Geodesy.normalizeLongitude(bounds.southwest.longitude - lonMargin), 
+					bounds.northeast.latitude + latMargin, Geodesy.normalizeLongitude(bounds.northeast.longitude + lonMargin)};
+		}
+		
+		List<MapAreaWrapper> inViewport = new ArrayList<MapAreaWrapper>();
+		spatialIndex.findIntersecting(viewportBounds[0], viewportBounds[1], viewportBounds[2], viewportBounds[3], inViewport);
+		Set<MapAreaWrapper> newVisibleAreas = new HashSet<MapAreaWrapper>(inViewport);
+		if (draggedArea != null) {
+			newVisibleAreas.add(draggedArea);
+		}
+		
+		//release first, so the pool has overlays for the circles entering the viewport
+		for (MapAreaWrapper draggableCircle : visibleAreas) {
+			if (draggableCircle.isAttached() && !newVisibleAreas.contains(draggableCircle)) {
+				detachArea(draggableCircle);
+			}
+		}
+		visibleAreas = newVisibleAreas;
+		
+		List<MapAreaWrapper> toAttach = new ArrayList<MapAreaWrapper>();
+		for (MapAreaWrapper draggableCircle : inViewport) {
+			if (!draggableCircle.isAttached()) {
+				toAttach.add(draggableCircle);
+			}
+		}
+		if (!toAttach.isEmpty()) {
+			batchLoader.enqueue(toAttach, null);
+		}
+	}
+	
+	/**
+	 * Attaches or detaches a single circle after it was added or its geometry changed, in virtualized mode
+	 */
+	private void updateVisibility(MapAreaWrapper draggableCircle) {
+		if (viewportBounds == null) {
+			return;
+		}
+		boolean inViewport = draggableCircle == draggedArea 
+				|| spatialIndex.intersects(draggableCircle, viewportBounds[0], viewportBounds[1], viewportBounds[2], viewportBounds[3]);
+		if (inViewport) {
+			visibleAreas.add(draggableCircle);
+			if (!draggableCircle.isAttached()) {
+				attachArea(draggableCircle);
+			}
+		} else {
+			visibleAreas.remove(draggableCircle);
+			if (draggableCircle.isAttached()) {
+				detachArea(draggableCircle);
+			}
+		}
+	}
+	
+	private void attachArea(MapAreaWrapper draggableCircle) {
+		draggableCircle.attach(overlays, overlayPool);
+		indexMarkers(draggableCircle);
+	}
+	
+	private void detachArea(MapAreaWrapper draggableCircle) {
+		unindexMarkers(draggableCircle);
+		draggableCircle.detach(overlayPool);
+	}
+	
+	/**
+	 * Set min radius in meters. The circles will shrink bellow this, and onMinRadius will be called when reached
+	 * @param minRadius
+	 */
+	public void setMinRadius(int minRadius) {
+		this.minRadiusMeters = minRadius;
+	}
+
+	/**
+	 * Set min radius in meters. The circles will expand above this, and onMaxRadius will be called when reached
+	 * @param minRadius
+	 */
+	public void setMaxRadius(int maxRadius) {
+		this.maxRadiusMeters = maxRadius;
+	}
+	
+	@Override
+    public void onMarkerDragStart(Marker marker) {
+    	if (metrics == null) {
+    		dispatchMarkerDragStart(marker);
+    		return;
+    	}
+    	long start = System.nanoTime();
+    	dispatchMarkerDragStart(marker);
+    	metrics.record(AreaMetrics.DRAG_DISPATCH, System.nanoTime() - start);
+    }
+    
+    private void dispatchMarkerDragStart(Marker marker) {
+    	MarkerEntry entry = markerIndex.get(marker.getId());
+    	if (entry != null && entry.polygon != null) {
+    		onPolygonMarkerMoved(entry, marker);
+    		if (polygonManagerListener != null) {
+    			if (entry.vertex == -1) {
+    				polygonManagerListener.onMovePolygonStart(entry.polygon);
+    			} else {
+    				polygonManagerListener.onResizePolygonStart(entry.polygon, entry.vertex);
+    			}
+    		}
+    		return;
+    	}
+    	if (entry != null) {
+    		draggedArea = entry.draggableCircle;
+    		draggedAreaStartSpec = toSpec(draggedArea);
+    	}
+    	MarkerMoveResultWithCircle result = onMarkerMoved(marker);
+        switch (result.markerMoveResult) {
+	        case minRadius: {
+	        	if (isRadiusLimitCrossed(result)) {
+	        		circleManagerListener.onMinRadius(result.draggableCircle);
+	        	}
+	        	break;
+	        }
+	        case maxRadius: {
+	        	if (isRadiusLimitCrossed(result)) {
+	        		circleManagerListener.onMaxRadius(result.draggableCircle);
+	        	}
+	        	break;
+	        }
+	        case radiusChange: {
+	        	circleManagerListener.onResizeCircleStart(result.draggableCircle);
+	        	break;
+	        }
+	        case moved: {
+    			circleManagerListener.onMoveCircleStart(result.draggableCircle);
+	        	break;
+	        }
+	        default: break;
+        }
+    }
+
+    @Override
+    public void onMarkerDragEnd(Marker marker) {
+    	if (metrics == null) {
+    		dispatchMarkerDragEnd(marker);
+    		return;
+    	}
+    	long start = System.nanoTime();
+    	dispatchMarkerDragEnd(marker);
+    	metrics.record(AreaMetrics.DRAG_DISPATCH, System.nanoTime() - start);
+    }
+    
+    private void dispatchMarkerDragEnd(Marker marker) {
+    	MarkerEntry entry = markerIndex.get(marker.getId());
+    	if (entry != null && entry.polygon != null) {
+    		onPolygonMarkerMoved(entry, marker);
+    		if (polygonManagerListener != null) {
+    			if (entry.vertex == -1) {
+    				polygonManagerListener.onMovePolygonEnd(entry.polygon);
+    			} else {
+    				polygonManagerListener.onResizePolygonEnd(entry.polygon, entry.vertex);
+    			}
+    		}
+    		return;
+    	}
+    	MarkerMoveResultWithCircle result = onMarkerMoved(marker);
+    	draggedArea = null;
+    	applyPendingOverlayUpdates();
+    	if (result.draggableCircle != null) {
+    		journalUpdate(result.draggableCircle);
+    		if (draggedAreaStartSpec != null) {
+    			changeLog.recordUpdated(result.draggableCircle, draggedAreaStartSpec, toSpec(result.draggableCircle));
+    		}
+    	}
+    	draggedAreaStartSpec = null;
+    	if (virtualized && result.draggableCircle != null) {
+    		updateVisibility(result.draggableCircle);
+    	}
+        switch (result.markerMoveResult) {
+	        case minRadius: {
+	        	if (isRadiusLimitCrossed(result)) {
+	        		circleManagerListener.onMinRadius(result.draggableCircle);
+	        	}
+	        	break;
+	        }
+	        case maxRadius: {
+	        	if (isRadiusLimitCrossed(result)) {
+	        		circleManagerListener.onMaxRadius(result.draggableCircle);
+	        	}
+	        	break;
+	        }
+	        case radiusChange: {
+	        	circleManagerListener.onResizeCircleEnd(result.draggableCircle);
+	        	break;
+	        }
+	        case moved: {
+    			circleManagerListener.onMoveCircleEnd(result.draggableCircle);
+	        	break;
+	        }
+	        default: break;
+        }
+        if (result.draggableCircle != null) {
+        	result.draggableCircle.radiusLimitState = MarkerMoveResult.none;
+        }
+    }
+
+    @Override
+    public void onMarkerDrag(Marker marker) {
+    	if (metrics == null) {
+    		dispatchMarkerDrag(marker);
+    		return;
+    	}
+    	long start = System.nanoTime();
+    	dispatchMarkerDrag(marker);
+    	metrics.record(AreaMetrics.DRAG_DISPATCH, System.nanoTime() - start);
+    }
+    
+    private void dispatchMarkerDrag(Marker marker) {
+    	MarkerEntry entry = markerIndex.get(marker.getId());
+    	if (entry != null && entry.polygon != null) {
+    		onPolygonMarkerMoved(entry, marker);
+    		return;
+    	}
+    	MarkerMoveResultWithCircle result = onMarkerMoved(marker);
+        switch (result.markerMoveResult) {
+	        case minRadius: {
+	        	if (isRadiusLimitCrossed(result)) {
+	        		circleManagerListener.onMinRadius(result.draggableCircle);
+	        	}
+	        	break;
+	        }
+	        case maxRadius: {
+	        	if (isRadiusLimitCrossed(result)) {
+	        		circleManagerListener.onMaxRadius(result.draggableCircle);
+	        	}
+	        	break;
+	        }
+	        default: break;
+        }
+    }
+
+    public void add(MapAreaWrapper draggableCircle) {
+    	addArea(draggableCircle);
+    	if (clustered) {
+    		refreshClusterCircles();
+    	}
+    	publishAdded(draggableCircle);
+    }
+    
+    /**
+     * Registers circle in the manager. Clusters and snapshot have to be refreshed by the caller,
+     * so it's done once when adding many circles
+     */
+    private void addArea(MapAreaWrapper draggableCircle) {
+    	draggableCircle.moveToStore(store);
+    	if (pixelRadii.length < store.getHandleLimit()) {
+    		double[] grown = new double[Math.max(16, store.getHandleLimit() * 2)];
+    		System.arraycopy(pixelRadii, 0, grown, 0, pixelRadii.length);
+    		pixelRadii = grown;
+    	}
+    	draggableCircle.setGeodesic(geodesicCache, geodesicZoom, overlays, overlayPool);
+    	draggableCircle.metrics = metrics;
+    	areas.add(draggableCircle);
+    	journalAdd(draggableCircle);
+    	changeLog.recordCreated(draggableCircle, toSpec(draggableCircle));
+    	if (draggableCircle.isAttached()) {
+    		indexMarkers(draggableCircle);
+    	}
+    	
+    	spatialIndex.put(draggableCircle, draggableCircle.getLatitude(), draggableCircle.getLongitude(), draggableCircle.getRadius());
+    	if (overlapTracker != null) {
+    		overlapTracker.put(draggableCircle, draggableCircle.getLatitude(), draggableCircle.getLongitude(), draggableCircle.getRadius());
+    	}
+    	draggableCircle.setOnAreaChangeListener(areaChangeListener);
+    	
+    	if (clusterer != null) {
+    		clusterer.put(draggableCircle, draggableCircle.getLatitude(), draggableCircle.getLongitude(), draggableCircle.getRadius());
+    	}
+    	if (tileRenderer != null) {
+    		updateTiles(draggableCircle);
+    		if (draggableCircle.isAttached() && draggableCircle != editedArea) {
+    			detachArea(draggableCircle);
+    		}
+    	}
+    	if (clustered) {
+    		if (draggableCircle.isAttached()) {
+    			detachArea(draggableCircle);
+    		}
+    	} else if (virtualized) {
+    		updateVisibility(draggableCircle);
+    	}
+    }
+    
+    /**
+     * Adds many circles at once, e.g. to restore saved areas
+     * 
+     * The circles are available immediately (getCircles, queries), but their overlays are added to the map
+     * in chunks over the next frames, so the UI thread isn't blocked. Circles without overlays yet return false in isAttached().
+     * onCreateCircle is not called for these circles.
+     * 
+     * @param specs
+     * @param listener optional, to be notified about the progress of adding the overlays
+     * @return created circles
+     */
+    public List<MapAreaWrapper> addAll(Collection<AreaSpec> specs, AreasLoadListener listener) {
+    	List<MapAreaWrapper> created = new ArrayList<MapAreaWrapper>(specs.size());
+    	for (AreaSpec spec : specs) {
+    		MapAreaWrapper draggableCircle = createArea(spec);
+    		addArea(draggableCircle);
+    		created.add(draggableCircle);
+    	}
+    	if (clustered) {
+    		refreshClusterCircles();
+    	}
+    	publishSnapshot();
+    	batchLoader.enqueue(created, listener);
+    	return created;
+    }
+    
+    /**
+     * @see #addAll(Collection, AreasLoadListener)
+     */
+    public List<MapAreaWrapper> addAll(Collection<AreaSpec> specs) {
+    	return addAll(specs, null);
+    }
+    
+    /**
+     * Adds a circle, reusing released overlays if possible
+     * 
+     * @param spec
+     * @return created circle
+     */
+    public MapAreaWrapper add(AreaSpec spec) {
+    	MapAreaWrapper draggableCircle = createArea(spec);
+    	if (!clustered && tileRenderer == null) {
+    		draggableCircle.attach(overlays, overlayPool);
+    	}
+    	add(draggableCircle);
+    	return draggableCircle;
+    }
+    
+    /**
+     * Removes circle from the manager and the map. Its overlays are kept for reuse by next added circles
+     * 
+     * @param draggableCircle
+     * @return false if the circle was not in the manager
+     */
+    public boolean remove(MapAreaWrapper draggableCircle) {
+    	if (draggableCircle.getStore() != store || !areas.remove(draggableCircle)) {
+    		return false;
+    	}
+    	removeArea(draggableCircle);
+    	if (clustered) {
+    		refreshClusterCircles();
+    	}
+    	publishSnapshot();
+    	return true;
+    }
+    
+    /**
+     * Removes the circles accepted by filter, see remove
+     * 
+     * @param filter
+     * @return count of removed circles
+     */
+    public int removeAll(AreaFilter filter) {
+    	List<MapAreaWrapper> kept = new ArrayList<MapAreaWrapper>(areas.size());
+    	int removed = 0;
+    	for (int i = 0, size = areas.size(); i < size; i++) {
+    		MapAreaWrapper draggableCircle = areas.get(i);
+    		if (filter.accept(draggableCircle)) {
+    			removeArea(draggableCircle);
+    			removed++;
+    		} else {
+    			kept.add(draggableCircle);
+    		}
+    	}
+    	if (removed > 0) {
+    		areas.clear();
+    		areas.addAll(kept);
+    		if (clustered) {
+    			refreshClusterCircles();
+    		}
+    		publishSnapshot();
+    	}
+    	return removed;
+    }
+    
+    /**
+     * Removes all circles, see remove
+     */
+    public void clear() {
+    	removeAll(new AreaFilter() {
+			@Override
+			public boolean accept(MapAreaWrapper draggableCircle) {
+				return true;
+			}
+		});
+    }
+    
+    /**
+     * Unregisters circle, which was already removed from the list of circles. 
+     * Clusters and snapshot have to be refreshed by the caller, so it's done once when removing many circles
+     */
+    private void removeArea(MapAreaWrapper draggableCircle) {
+    	AreaSpec before = toSpec(draggableCircle);
+    	if (draggableCircle.isAttached()) {
+    		detachArea(draggableCircle);
+    	}
+    	draggableCircle.setOnAreaChangeListener(null);
+    	draggableCircle.metrics = null;
+    	selection.remove(draggableCircle);
+    	spatialIndex.remove(draggableCircle);
+    	geofenceEngine.remove(draggableCircle);
+    	if (overlapTracker != null) {
+    		overlapTracker.remove(draggableCircle);
+    	}
+    	if (cellCoverings != null) {
+    		cellCoverings.remove(draggableCircle.getHandle());
+    	}
+    	if (clusterer != null) {
+    		clusterer.remove(draggableCircle);
+    	}
+    	visibleAreas.remove(draggableCircle);
+    	pendingOverlayUpdates.remove(draggableCircle);
+    	if (draggableCircle == draggedArea) {
+    		draggedArea = null;
+    		draggedAreaStartSpec = null;
+    	}
+    	journalDelete(draggableCircle);
+    	if (tileRenderer != null) {
+    		if (draggableCircle == editedArea) {
+    			editedArea = null;
+    		}
+    		if (tileRenderer.remove(draggableCircle.getHandle()) > 0) {
+    			scheduleTileRefresh();
+    		}
+    	}
+    	if (pixelRadii[draggableCircle.getHandle()] > 0) {
+    		pixelRadii[draggableCircle.getHandle()] = 0;
+    		pixelAreaCount--;
+    		updateCameraChangeListener();
+    	}
+    	
+    	//the wrapper keeps its values, in a store of its own
+    	draggableCircle.moveToStore(new AreaStore(1));
+    	changeLog.recordRemoved(draggableCircle, before);
+    }
+    
+    /**
+     * Saves all circles in a binary file (see AreaFile), replacing it if it exists.
+     * If it's the file opened with openAreaFile, it's reopened after writing, and changes are journaled to it again
+     * 
+     * @param file
+     * @throws IOException
+     */
+    public void saveAreas(File file) throws IOException {
+    	if (areaFile == null || !areaFile.getFile().getCanonicalFile().equals(file.getCanonicalFile())) {
+    		AreaFile.write(file, areas);
+    		return;
+    	}
+    	//the open file maps the old snapshot and appends to the journal which write deletes
+    	closeAreaFile();
+    	AreaFile.write(file, areas);
+    	areaFile = AreaFile.open(file);
+    	for (int i = 0, size = areas.size(); i < size; i++) {
+    		areas.get(i).fileRecordId = i; //written in list order
+    	}
+    }
+    
+    /**
+     * Loads the circles of a binary file (see AreaFile), creating the file if it doesn't exist.
+     * 
+     * After this, new circles and changes of center or radius are appended to the journal of the file, 
+     * until closeAreaFile is called. Circles which were already in the manager are added to the file.
+     * The overlays of the loaded circles are added like in addAll.
+     * 
+     * @param file
+     * @param listener optional, to be notified about the progress of adding the overlays
+     * @return loaded circles
+     * @throws IOException
+     */
+    public List<MapAreaWrapper> openAreaFile(File file, AreasLoadListener listener) throws IOException {
+    	closeAreaFile();
+    	
+    	AreaFile newAreaFile = AreaFile.open(file);
+    	int recordCount = newAreaFile.getRecordCount();
+    	List<AreaSpec> specs = new ArrayList<AreaSpec>(newAreaFile.getAreaCount());
+    	int[] recordIds = new int[newAreaFile.getAreaCount()];
+    	for (int id = 0; id < recordCount; id++) {
+    		if (!newAreaFile.isDeleted(id)) {
+    			recordIds[specs.size()] = id;
+    			specs.add(new AreaSpec(new LatLng(newAreaFile.getLatitude(id), newAreaFile.getLongitude(id)), newAreaFile.getRadius(id), 
+    					newAreaFile.getStrokeWidth(id), newAreaFile.getStrokeColor(id), newAreaFile.getFillColor(id), 
+    					newAreaFile.getMinRadius(id), newAreaFile.getMaxRadius(id)));
+    		}
+    	}
+    	
+    	List<MapAreaWrapper> loaded = addAll(specs, listener);
+    	for (int i = 0; i < loaded.size(); i++) {
+    		loaded.get(i).fileRecordId = recordIds[i];
+    	}
+    	areaFile = newAreaFile;
+    	for (int i = 0, size = areas.size(); i < size; i++) {
+    		journalAdd(areas.get(i)); //circles added before opening the file, the loaded ones have a record id
+    	}
+    	return loaded;
+    }
+    
+    /**
+     * Merges the journal of the area file opened with openAreaFile into its snapshot
+     * 
+     * @throws IOException
+     */
+    public void compactAreaFile() throws IOException {
+    	if (areaFile == null) {
+    		return;
+    	}
+    	int[] newIds = areaFile.compact();
+    	for (MapAreaWrapper draggableCircle : areas) {
+    		if (draggableCircle.fileRecordId != -1) {
+    			draggableCircle.fileRecordId = newIds[draggableCircle.fileRecordId];
+    		}
+    	}
+    }
+    
+    /**
+     * Stops journaling changes to the area file opened with openAreaFile
+     * 
+     * @throws IOException
+     */
+    public void closeAreaFile() throws IOException {
+    	if (areaFile == null) {
+    		return;
+    	}
+    	areaFile.close();
+    	areaFile = null;
+    	for (MapAreaWrapper draggableCircle : areas) {
+    		draggableCircle.fileRecordId = -1;
+    	}
+    }
+    
+    /**
+     * @return current values of circle
+     */
+    private AreaSpec toSpec(MapAreaWrapper draggableCircle) {
+    	return draggableCircle.toSpec();
+    }
+    
+    /**
+     * @return values of circle in the current snapshot, i.e. before the change being handled
+     */
+    private AreaSpec publishedSpec(MapAreaWrapper draggableCircle) {
+    	AreaSnapshot current = snapshot;
+    	int handle = draggableCircle.getHandle();
+    	if (current.getOwner(handle) != draggableCircle) {
+    		return toSpec(draggableCircle);
+    	}
+    	return new AreaSpec(new LatLng(current.getLatitude(handle), current.getLongitude(handle)), current.getRadius(handle), 
+    			current.getStrokeWidth(handle), current.getStrokeColor(handle), current.getFillColor(handle), 
+    			current.getMinRadius(handle), current.getMaxRadius(handle));
+    }
+    
+    /**
+     * Publishes a copy of all circles
+     */
+    private void publishSnapshot() {
+    	snapshot = new AreaSnapshot(snapshot.getVersion() + 1, areas, store);
+    }
+    
+    /**
+     * Publishes a circle added at the end of the list by appending it to the current snapshot, if possible
+     */
+    private void publishAdded(MapAreaWrapper draggableCircle) {
+    	AreaSnapshot current = snapshot;
+    	AreaSnapshot appended = current.size() == areas.size() - 1 ? current.withArea(draggableCircle, store) : null;
+    	if (appended == null) {
+    		publishSnapshot();
+    	} else {
+    		snapshot = appended;
+    	}
+    }
+    
+    /**
+     * Publishes the new geometry of a circle as a delta of the current snapshot
+     */
+    private void publishGeometry(MapAreaWrapper draggableCircle) {
+    	AreaSnapshot current = snapshot;
+    	int handle = draggableCircle.getHandle();
+    	if (current.getOwner(handle) != draggableCircle) { //not published yet
+    		publishSnapshot();
+    		return;
+    	}
+    	snapshot = current.withGeometry(handle, draggableCircle.getLatitude(), draggableCircle.getLongitude(), draggableCircle.getRadius());
+    }
+    
+    private void journalAdd(MapAreaWrapper draggableCircle) {
+    	if (areaFile == null || draggableCircle.fileRecordId != -1) {
+    		return;
+    	}
+    	try {
+    		draggableCircle.fileRecordId = areaFile.add(draggableCircle.getLatitude(), draggableCircle.getLongitude(), draggableCircle.getRadius(), 
+    				draggableCircle.getMinRadius(), draggableCircle.getMaxRadius(), 
+    				draggableCircle.getStrokeWidth(), draggableCircle.getStrokeColor(), draggableCircle.getFillColor());
+    	} catch (IOException e) {
+    		throw new IllegalStateException("Couldn't write to area file journal", e);
+    	}
+    }
+    
+    private void journalDelete(MapAreaWrapper draggableCircle) {
+    	if (areaFile == null || draggableCircle.fileRecordId == -1) {
+    		return;
+    	}
+    	try {
+    		areaFile.delete(draggableCircle.fileRecordId);
+    	} catch (IOException e) {
+    		throw new IllegalStateException("Couldn't write to area file journal", e);
+    	}
+    	draggableCircle.fileRecordId = -1;
+    }
+    
+    private void journalUpdate(MapAreaWrapper draggableCircle) {
+    	if (areaFile == null || draggableCircle.fileRecordId == -1) {
+    		return;
+    	}
+    	try {
+    		areaFile.update(draggableCircle.fileRecordId, draggableCircle.getLatitude(), draggableCircle.getLongitude(), draggableCircle.getRadius(), 
+    				draggableCircle.getMinRadius(), draggableCircle.getMaxRadius(), 
+    				draggableCircle.getStrokeWidth(), draggableCircle.getStrokeColor(), draggableCircle.getFillColor());
+    	} catch (IOException e) {
+    		throw new IllegalStateException("Couldn't write to area file journal", e);
+    	}
+    }
+    
+    /**
+     * Creates circle with manager's settings, without adding overlays to the map
+     */
+    private MapAreaWrapper createArea(LatLng center, double radiusMeters, float strokeWidth, int strokeColor, int fillColor) {
+    	return createArea(center, radiusMeters, strokeWidth, strokeColor, fillColor, minRadiusMeters, maxRadiusMeters);
+    }
+    
+    private MapAreaWrapper createArea(LatLng center, double radiusMeters, float strokeWidth, int strokeColor, int fillColor, 
+    		int minRadiusMeters, int maxRadiusMeters) {
+    	MapAreaWrapper draggableCircle = new MapAreaWrapper(store, center, radiusMeters, strokeWidth, strokeColor, fillColor, 
+    			minRadiusMeters, maxRadiusMeters, 
+    			getMoveIcon(), getRadiusIcon(), moveDrawableAnchorU, moveDrawableAnchorV, resizeDrawableAnchorU, resizeDrawableAnchorV);
+    	draggableCircle.setGeodesic(geodesicCache, geodesicZoom, overlays, overlayPool); //before attaching, so the right overlay is added
+    	return draggableCircle;
+    }
+    
+    /**
+     * Creates circle from spec, with manager's settings where the spec doesn't define them
+     */
+    private MapAreaWrapper createArea(AreaSpec spec) {
+    	return createArea(spec.center, spec.radiusMeters, 
+    			spec.hasStyle ? spec.strokeWidth : strokeWidth, 
+    			spec.hasStyle ? spec.strokeColor : strokeColor, 
+    			spec.hasStyle ? spec.fillColor : fillColor, 
+    			spec.hasRadiusLimits ? spec.minRadiusMeters : minRadiusMeters, 
+    			spec.hasRadiusLimits ? spec.maxRadiusMeters : maxRadiusMeters);
+    }
+    
+    private BitmapDescriptor getMoveIcon() {
+    	if (moveIcon == null && moveDrawableId != -1) {
+    		moveIcon = overlays.iconFromResource(moveDrawableId);
+    	}
+    	return moveIcon;
+    }
+    
+    private BitmapDescriptor getRadiusIcon() {
+    	if (radiusIcon == null && radiusDrawableId != -1) {
+    		radiusIcon = overlays.iconFromResource(radiusDrawableId);
+    	}
+    	return radiusIcon;
+    }
+    
+    /**
+     * Finds the circles containing a point, using spatial index
+     * 
+     * @param point
+     * @return circles where distance from center to point (on the sphere, see setGeodesicCircles) is not bigger than the radius
+     */
+    public List<MapAreaWrapper> findAreasContaining(LatLng point) {
+    	List<MapAreaWrapper> result = new ArrayList<MapAreaWrapper>();
+    	spatialIndex.findContaining(point.latitude, point.longitude, result);
+    	return result;
+    }
+    
+    /**
+     * Finds the circles intersecting geographic bounds, using spatial index
+     * 
+     * @param bounds
+     * @return circles with at least one point inside of bounds
+     */
+    public List<MapAreaWrapper> findAreasIntersecting(LatLngBounds bounds) {
+    	List<MapAreaWrapper> result = new ArrayList<MapAreaWrapper>();
+    	spatialIndex.findIntersecting(bounds.southwest.latitude, bounds.southwest.longitude, 
+    			bounds.northeast.latitude, bounds.northeast.longitude, result);
+    	return result;
+    }
+    
+    /**
+     * Finds the k circles with the nearest edge (distance to center - radius) to a point, using spatial index
+     * 
+     * @param point
+     * @param k max count of circles
+     * @param out list where the circles are added, nearest first. Can be reused between calls
+     * @param distancesOut array of at least k elements where the edge distances in meters are written, 
+     * 	negative if the circle contains the point. Can be null
+     * @return count of circles added to out
+     */
+    public int findNearestAreas(LatLng point, int k, List<MapAreaWrapper> out, double[] distancesOut) {
+    	return spatialIndex.findNearest(point.latitude, point.longitude, k, out, distancesOut);
+    }
+    
+    /**
+     * Finds the circles whose edge is at most a distance away from a point, including the circles containing it, using spatial index
+     * 
+     * @param point
+     * @param maxDistanceMeters
+     * @param out list where the circles are added, in no particular order. Can be reused between calls
+     */
+    public void findAreasWithinDistance(LatLng point, double maxDistanceMeters, List<MapAreaWrapper> out) {
+    	spatialIndex.findWithinDistance(point.latitude, point.longitude, maxDistanceMeters, out);
+    }
+    
+    public void setPolygonManagerListener(PolygonManagerListener polygonManagerListener) {
+    	this.polygonManagerListener = polygonManagerListener;
+    }
+    
+    public List<MapPolygonWrapper> getPolygons() {
+    	return polygons;
+    }
+    
+    /**
+     * Adds a polygon with the manager's style
+     * 
+     * @param vertices at least 3, the polygon is closed automatically
+     * @return created polygon
+     */
+    public MapPolygonWrapper addPolygon(List<LatLng> vertices) {
+    	return addPolygon(vertices, strokeWidth, strokeColor, fillColor);
+    }
+    
+    /**
+     * Adds a polygon. The position marker uses the move drawable and the vertex markers the resize drawable
+     * 
+     * @param vertices at least 3, the polygon is closed automatically
+     * @return created polygon
+     */
+    public MapPolygonWrapper addPolygon(List<LatLng> vertices, float strokeWidth, int strokeColor, int fillColor) {
+    	MapPolygonWrapper polygon = new MapPolygonWrapper(vertices, strokeWidth, strokeColor, fillColor, getMoveIcon(), getRadiusIcon(), 
+    			moveDrawableAnchorU, moveDrawableAnchorV, resizeDrawableAnchorU, resizeDrawableAnchorV);
+    	polygon.attach(overlays);
+    	
+    	markerIndex.put(polygon.getCenterMarker().getId(), new MarkerEntry(polygon, -1));
+    	List<Marker> vertexMarkers = polygon.getVertexMarkers();
+    	for (int i = 0, size = vertexMarkers.size(); i < size; i++) {
+    		markerIndex.put(vertexMarkers.get(i).getId(), new MarkerEntry(polygon, i));
+    	}
+    	
+    	polygons.add(polygon);
+    	indexPolygon(polygon);
+    	polygon.setOnPolygonChangeListener(polygonChangeListener);
+    	return polygon;
+    }
+    
+    /**
+     * Removes polygon from the manager and the map
+     * 
+     * @param polygon
+     * @return false if the polygon was not in the manager
+     */
+    public boolean removePolygon(MapPolygonWrapper polygon) {
+    	if (!polygons.remove(polygon)) {
+    		return false;
+    	}
+    	markerIndex.remove(polygon.getCenterMarker().getId());
+    	for (Marker vertexMarker : polygon.getVertexMarkers()) {
+    		markerIndex.remove(vertexMarker.getId());
+    	}
+    	polygonIndex.remove(polygon);
+    	polygon.setOnPolygonChangeListener(null);
+    	polygon.detach();
+    	return true;
+    }
+    
+    /**
+     * Finds the polygons containing a point, using spatial index
+     * 
+     * @param point
+     * @return polygons containing point
+     */
+    public List<MapPolygonWrapper> findPolygonsContaining(LatLng point) {
+    	List<MapPolygonWrapper> candidates = new ArrayList<MapPolygonWrapper>();
+    	polygonIndex.findContaining(point.latitude, point.longitude, candidates);
+    	List<MapPolygonWrapper> result = new ArrayList<MapPolygonWrapper>(candidates.size());
+    	for (MapPolygonWrapper polygon : candidates) {
+    		if (polygon.contains(point)) {
+    			result.add(polygon);
+    		}
+    	}
+    	return result;
+    }
+    
+    private void indexPolygon(MapPolygonWrapper polygon) {
+    	PolygonGeometry geometry = polygon.getGeometry();
+    	polygonIndex.put(polygon, geometry.getCenterLatitude(), geometry.getCenterLongitude(), geometry.getBoundingRadiusMeters());
+    }
+    
+    private void onPolygonMarkerMoved(MarkerEntry entry, Marker marker) {
+    	entry.polygon.onMarkerMoved(marker, entry.vertex);
+    }
+    
+    /**
+     * @param listener receives enter, exit and dwell transitions of processed location fixes
+     */
+    public void setGeofenceListener(GeofenceListener<MapAreaWrapper> listener) {
+    	geofenceEngine.setListener(listener);
+    }
+    
+    /**
+     * @param dwellMillis time inside a circle after which onDwell is called, -1 (default) to disable dwell events
+     */
+    public void setGeofenceDwellTime(long dwellMillis) {
+    	geofenceEngine.setDwellTime(dwellMillis);
+    }
+    
+    /**
+     * @param exitMarginMeters distance outside of the edge of a circle at which it's exited, so fixes jittering around 
+     * the edge don't report repeated transitions. 0 (default) to exit at the edge
+     */
+    public void setGeofenceExitMargin(double exitMarginMeters) {
+    	geofenceEngine.setExitMargin(exitMarginMeters);
+    }
+    
+    /**
+     * Evaluates a location fix against the circles. Transitions are reported to the geofence listener
+     * 
+     * @param latitude
+     * @param longitude
+     * @param timeMillis
+     */
+    public void processLocation(double latitude, double longitude, long timeMillis) {
+    	geofenceEngine.process(latitude, longitude, timeMillis);
+    }
+    
+    /**
+     * Evaluates location fixes in chronological order. Transitions are reported to the geofence listener
+     * 
+     * @param latitudes
+     * @param longitudes
+     * @param timesMillis
+     * @param offset index of first fix in the arrays
+     * @param count number of fixes
+     */
+    public void processLocations(double[] latitudes, double[] longitudes, long[] timesMillis, int offset, int count) {
+    	geofenceEngine.process(latitudes, longitudes, timesMillis, offset, count);
+    }
+    
+    /**
+     * @param listener notified when adding, moving, resizing or removing a circle creates or resolves an overlap with other circles
+     */
+    public void setOverlapListener(OverlapListener<MapAreaWrapper> listener) {
+    	getOverlapTracker().setListener(listener);
+    }
+    
+    /**
+     * Finds the circles overlapping a circle (distance between centers < sum of radii)
+     * 
+     * @param draggableCircle
+     * @return new list with the overlapping circles
+     */
+    public List<MapAreaWrapper> findOverlapping(MapAreaWrapper draggableCircle) {
+    	List<MapAreaWrapper> result = new ArrayList<MapAreaWrapper>();
+    	getOverlapTracker().findOverlapping(draggableCircle, result);
+    	return result;
+    }
+    
+    /**
+     * @return new list with all pairs of overlapping circles, each pair once, as 2 consecutive elements
+     */
+    public List<MapAreaWrapper> findOverlappingPairs() {
+    	List<MapAreaWrapper> result = new ArrayList<MapAreaWrapper>();
+    	getOverlapTracker().findPairs(result);
+    	return result;
+    }
+    
+    /**
+     * @return area covered by the circles in square meters, counting overlapping parts once. See AreaOverlapTracker.getUnionAreaSquareMeters
+     */
+    public double getCoveredAreaSquareMeters() {
+    	return getOverlapTracker().getUnionAreaSquareMeters();
+    }
+    
+    /**
+     * The overlaps are computed the first time they are needed, and then updated on each change of a circle
+     */
+    private AreaOverlapTracker<MapAreaWrapper> getOverlapTracker() {
+    	if (overlapTracker == null) {
+    		overlapTracker = new AreaOverlapTracker<MapAreaWrapper>(spatialIndex);
+    		for (MapAreaWrapper draggableCircle : areas) {
+    			overlapTracker.put(draggableCircle, draggableCircle.getLatitude(), draggableCircle.getLongitude(), draggableCircle.getRadius());
+    		}
+    	}
+    	return overlapTracker;
+    }
+    
+    /**
+     * Sets the parameters of the geohash coverings of the circles (see GeohashCoverer). Cached coverings are discarded
+     * 
+     * @param minLevel geohash length of the biggest cells
+     * @param maxLevel geohash length of the smallest cells
+     * @param maxCells max count of cells per circle
+     */
+    public void setCellCovering(int minLevel, int maxLevel, int maxCells) {
+    	cellCoverings = new AreaCellCoverings(new GeohashCoverer(minLevel, maxLevel, maxCells));
+    }
+    
+    /**
+     * Geohash cells covering a circle, e.g. to join it with data keyed by cells in a backend.
+     * The covering is cached, and computed again only after the circle was moved or resized
+     * 
+     * @param draggableCircle
+     * @return new array with the cells in geohash order, see GeohashCoverer. Empty if the circle isn't in the manager
+     */
+    public long[] getCellCovering(MapAreaWrapper draggableCircle) {
+    	if (!isManaged(draggableCircle)) {
+    		return new long[0];
+    	}
+    	return getCellCoverings().get(store, draggableCircle.getHandle()).clone();
+    }
+    
+    /**
+     * Passes the covering of each circle to visitor, without copying the coverings or collecting them in a list
+     * 
+     * @param visitor
+     */
+    public void exportCellCoverings(CellCoveringVisitor visitor) {
+    	AreaCellCoverings coverings = getCellCoverings();
+    	for (MapAreaWrapper draggableCircle : areas) {
+    		visitor.visit(draggableCircle, coverings.get(store, draggableCircle.getHandle()));
+    	}
+    }
+    
+    private AreaCellCoverings getCellCoverings() {
+    	if (cellCoverings == null) {
+    		setCellCovering(DEFAULT_COVERING_MIN_LEVEL, DEFAULT_COVERING_MAX_LEVEL, DEFAULT_COVERING_MAX_CELLS);
+    	}
+    	return cellCoverings;
+    }
+    
+    public void setSelectionListener(SelectionListener selectionListener) {
+    	this.selectionListener = selectionListener;
+    }
+    
+    /**
+     * Adds circles to the selection
+     * 
+     * @param draggableCircles circles of the manager
+     */
+    public void select(Collection<MapAreaWrapper> draggableCircles) {
+    	if (selection.addAll(draggableCircles)) {
+    		notifySelectionChanged();
+    	}
+    }
+    
+    public void select(MapAreaWrapper draggableCircle) {
+    	if (selection.add(draggableCircle)) {
+    		notifySelectionChanged();
+    	}
+    }
+    
+    public void deselect(MapAreaWrapper draggableCircle) {
+    	if (selection.remove(draggableCircle)) {
+    		notifySelectionChanged();
+    	}
+    }
+    
+    public void clearSelection() {
+    	if (!selection.isEmpty()) {
+    		selection.clear();
+    		notifySelectionChanged();
+    	}
+    }
+    
+    public boolean isSelected(MapAreaWrapper draggableCircle) {
+    	return selection.contains(draggableCircle);
+    }
+    
+    /**
+     * @return new list with selected circles, in order of selection
+     */
+    public List<MapAreaWrapper> getSelection() {
+    	return new ArrayList<MapAreaWrapper>(selection);
+    }
+    
+    /**
+     * Moves all selected circles by the same offset, see transformSelection
+     * 
+     * @param deltaLatitude degrees, latitudes are limited to [-90, 90]
+     * @param deltaLongitude degrees
+     */
+    public void translateSelection(double deltaLatitude, double deltaLongitude) {
+    	transformSelection(0, 0, 1, deltaLatitude, deltaLongitude);
+    }
+    
+    /**
+     * Scales the selected circles around the center of the selection (mean of the centers), see transformSelection
+     * 
+     * @param factor factor for radii and distances to the center of the selection. Radii are limited to the min / max radius of each circle
+     */
+    public void scaleSelection(double factor) {
+    	if (selection.isEmpty()) {
+    		return;
+    	}
+    	//mean longitude relative to the first circle, so selections crossing the antimeridian work
+    	double referenceLongitude = selection.iterator().next().getLongitude();
+    	double latitudeSum = 0;
+    	double longitudeSum = 0;
+    	for (MapAreaWrapper draggableCircle : selection) {
+    		latitudeSum += draggableCircle.getLatitude();
+    		longitudeSum += Geodesy.normalizeLongitude(draggableCircle.getLongitude() - referenceLongitude);
+    	}
+    	int count = selection.size();
+    	scaleSelection(new LatLng(latitudeSum / count, Geodesy.normalizeLongitude(referenceLongitude + longitudeSum / count)), factor);
+    }
+    
+    /**
+     * Scales the selected circles around a point, see transformSelection
+     * 
+     * @param pivot point which stays in place
+     * @param factor factor for radii and distances to the pivot. Radii are limited to the min / max radius of each circle
+     */
+    public void scaleSelection(LatLng pivot, double factor) {
+    	transformSelection(pivot.latitude, pivot.longitude, factor, 0, 0);
+    }
+    
+    /**
+     * Scales the selected circles around pivot, then moves them. The new geometry of all circles is computed in one pass over arrays,
+     * then the overlays are updated, then indexes, journal and change log, and the snapshot is published once.
+     * The circle change listener is not called, the selection listener gets a single onSelectionTransformed.
+     */
+    private void transformSelection(double pivotLatitude, double pivotLongitude, double factor, double deltaLatitude, double deltaLongitude) {
+    	int count = selection.size();
+    	if (count == 0) {
+    		return;
+    	}
+    	if (groupLatitudes.length < count) {
+    		groupLatitudes = new double[count];
+    		groupLongitudes = new double[count];
+    		groupRadii = new double[count];
+    		groupMarkerPositions = new double[count * 2];
+    	}
+    	List<MapAreaWrapper> transformed = new ArrayList<MapAreaWrapper>(selection);
+    	List<AreaSpec> before = new ArrayList<AreaSpec>(count);
+    	for (int i = 0; i < count; i++) {
+    		MapAreaWrapper draggableCircle = transformed.get(i);
+    		groupLatitudes[i] = draggableCircle.getLatitude();
+    		groupLongitudes[i] = draggableCircle.getLongitude();
+    		groupRadii[i] = draggableCircle.getRadius();
+    		before.add(publishedSpec(draggableCircle));
+    	}
+    	
+    	for (int i = 0; i < count; i++) {
+    		double latitude = pivotLatitude + (groupLatitudes[i] - pivotLatitude) * factor + deltaLatitude;
+    		groupLatitudes[i] = Math.max(-90, Math.min(90, latitude));
+    		groupLongitudes[i] = Geodesy.normalizeLongitude(
+    				pivotLongitude + Geodesy.normalizeLongitude(groupLongitudes[i] - pivotLongitude) * factor + deltaLongitude);
+    		groupRadii[i] *= factor;
+    		int handle = transformed.get(i).getHandle();
+    		if (factor == 1 && pixelRadii[handle] > 0) { //moved, keeps its size on the screen at the new latitude
+    			groupRadii[i] = pixelRadii[handle] * WebMercator.metersPerPixel(groupLatitudes[i], getWorldSize());
+    		}
+    	}
+    	for (int i = 0; i < count; i++) {
+    		MapAreaWrapper draggableCircle = transformed.get(i);
+    		int min = draggableCircle.getMinRadius();
+    		int max = draggableCircle.getMaxRadius();
+    		if (factor != 1) { //moved circles keep their radius, or their radius in pixels, see setPixelRadius
+	    		if (min != -1 && groupRadii[i] < min) {
+	    			groupRadii[i] = min;
+	    		} else if (max != -1 && groupRadii[i] > max) {
+	    			groupRadii[i] = max;
+	    		}
+    		}
+    		if (draggableCircle.isAttached()) {
+    			if (geodesicCache != null) {
+    				Geodesy.vincentyDestination(groupLatitudes[i], groupLongitudes[i], 90, groupRadii[i], groupMarkerPositions, i * 2);
+    			} else {
+    				Geodesy.destination(groupLatitudes[i], groupLongitudes[i], 90, groupRadii[i], groupMarkerPositions, i * 2);
+    			}
+    		}
+    	}
+    	
+    	for (int i = 0; i < count; i++) {
+    		MapAreaWrapper draggableCircle = transformed.get(i);
+    		store.setCenter(draggableCircle.getHandle(), groupLatitudes[i], groupLongitudes[i]);
+    		store.setRadius(draggableCircle.getHandle(), groupRadii[i]);
+    		if (draggableCircle.isAttached()) {
+    			draggableCircle.applyGeometry(new LatLng(groupMarkerPositions[i * 2], groupMarkerPositions[i * 2 + 1]));
+    		}
+    	}
+    	
+    	for (int i = 0; i < count; i++) {
+    		MapAreaWrapper draggableCircle = transformed.get(i);
+    		indexGeometry(draggableCircle, factor != 1);
+    		if (virtualized && !clustered) {
+    			updateVisibility(draggableCircle);
+    		}
+    		journalUpdate(draggableCircle);
+    		changeLog.recordUpdated(draggableCircle, before.get(i), toSpec(draggableCircle));
+    	}
+    	if (clustered) {
+    		refreshClusterCircles();
+    	}
+    	publishSnapshot();
+    	
+    	if (selectionListener != null) {
+    		selectionListener.onSelectionTransformed(transformed);
+    	}
+    }
+    
+    private void notifySelectionChanged() {
+    	if (selectionListener != null) {
+    		selectionListener.onSelectionChanged(getSelection());
+    	}
+    }
+    
+    /**
+     * After a circle with a radius in pixels moved, computes its radius in meters at the new latitude
+     */
+    private void applyPixelRadius(MapAreaWrapper draggableCircle) {
+    	double pixels = pixelRadii[draggableCircle.getHandle()];
+    	if (pixels > 0) {
+    		double meters = pixels * WebMercator.metersPerPixel(draggableCircle.getLatitude(), getWorldSize());
+    		if (meters != draggableCircle.getRadius()) {
+    			draggableCircle.applyRadius(meters);
+    		}
+    	}
+    }
+    
+    /**
+     * Updates the indexes of the manager after the geometry of a circle changed
+     * 
+     * @param radiusChanged if the radius was changed (e.g. with the resize marker), a radius in pixels is computed again from it
+     */
+    private void indexGeometry(MapAreaWrapper draggableCircle, boolean radiusChanged) {
+    	spatialIndex.put(draggableCircle, draggableCircle.getLatitude(), draggableCircle.getLongitude(), draggableCircle.getRadius());
+    	if (radiusChanged && pixelRadii[draggableCircle.getHandle()] > 0) { //resized by the user, keeps its new size on the screen
+    		pixelRadii[draggableCircle.getHandle()] = draggableCircle.getRadius() 
+    				/ WebMercator.metersPerPixel(draggableCircle.getLatitude(), getWorldSize());
+    	}
+    	if (overlapTracker != null) {
+    		overlapTracker.put(draggableCircle, draggableCircle.getLatitude(), draggableCircle.getLongitude(), draggableCircle.getRadius());
+    	}
+    	if (tileRenderer != null) {
+    		updateTiles(draggableCircle);
+    	}
+    	if (clusterer != null) {
+    		clusterer.put(draggableCircle, draggableCircle.getLatitude(), draggableCircle.getLongitude(), draggableCircle.getRadius());
+    	}
+    }
+    
+    /**
+     * Enables or disables tile rendering
+     * 
+     * With tile rendering the circles are drawn in the tiles of a tile overlay (see AreaTileRenderer) instead of having 
+     * a circle and markers each, which allows to show much more circles. Only the edited circle (see setEditedArea) has overlays, 
+     * so it can be moved and resized. After a change only the tiles touched by the changed circle are rendered again.
+     * Can't be combined with virtualized mode or clustering.
+     * 
+     * @param enabled
+     */
+    public void setTileRendering(boolean enabled) {
+    	if (enabled == (tileRenderer != null)) {
+    		return;
+    	}
+    	if (enabled) {
+    		if (virtualized || clusterer != null) {
+    			throw new IllegalStateException("Tile rendering can't be combined with virtualized mode or clustering");
+    		}
+    		tileRenderer = new AreaTileRenderer();
+    		MapAreaWrapper edited = draggedArea; //a circle being dragged keeps its overlays
+    		for (MapAreaWrapper draggableCircle : areas) {
+    			updateTiles(draggableCircle);
+    			if (draggableCircle.isAttached() && draggableCircle != edited) {
+    				detachArea(draggableCircle);
+    			}
+    		}
+    		tileOverlay = overlays.addTileOverlay(new TileOverlayOptions().tileProvider(new AreaTileProvider(tileRenderer)));
+    		setEditedArea(edited);
+    		
+    	} else {
+    		tileOverlay.remove();
+    		tileOverlay = null;
+    		tileRenderer = null;
+    		editedArea = null;
+    		attachAllAreas();
+    	}
+    }
+    
+    public boolean isTileRendering() {
+    	return tileRenderer != null;
+    }
+    
+    /**
+     * Shows a circle with overlays, so it can be edited, when tile rendering is enabled. The previously edited circle goes back to the tiles.
+     * Circles created with a long click become the edited circle. To select a circle with a click, the app can use findAreasContaining.
+     * 
+     * @param draggableCircle circle of the manager, null to show all circles in tiles
+     */
+    public void setEditedArea(MapAreaWrapper draggableCircle) {
+    	if (tileRenderer == null) {
+    		throw new IllegalStateException("Tile rendering is not enabled");
+    	}
+    	if (draggableCircle == editedArea) {
+    		return;
+    	}
+    	int invalidated = 0;
+    	if (editedArea != null) {
+    		if (editedArea.isAttached() && editedArea != draggedArea) {
+    			detachArea(editedArea);
+    		}
+    		invalidated += tileRenderer.setHidden(editedArea.getHandle(), false);
+    	}
+    	editedArea = draggableCircle;
+    	if (draggableCircle != null) {
+    		invalidated += tileRenderer.setHidden(draggableCircle.getHandle(), true);
+    		if (!draggableCircle.isAttached()) {
+    			attachArea(draggableCircle);
+    		}
+    	}
+    	if (invalidated > 0) {
+    		scheduleTileRefresh();
+    	}
+    }
+    
+    public MapAreaWrapper getEditedArea() {
+    	return editedArea;
+    }
+    
+    /**
+     * Updates circle in tile renderer
+     */
+    private void updateTiles(MapAreaWrapper draggableCircle) {
+    	int invalidated = tileRenderer.put(draggableCircle.getHandle(), draggableCircle.getLatitude(), draggableCircle.getLongitude(), 
+    			draggableCircle.getRadius(), draggableCircle.getStrokeWidth(), draggableCircle.getStrokeColor(), draggableCircle.getFillColor());
+    	if (invalidated > 0) {
+    		scheduleTileRefresh();
+    	}
+    }
+    
+    /**
+     * Makes the map request the tiles again, once per frame. Tiles which weren't invalidated come from the renderer's cache
+     */
+    private void scheduleTileRefresh() {
+    	if (!tileRefreshScheduled) {
+    		tileRefreshScheduled = true;
+    		frameScheduler.scheduleFrame(tileRefreshRunnable);
+    	}
+    }
+    
+    /**
+     * If true, circles created with a long click with an init radius in pixels keep that size on the screen when zooming,
+     * see setPixelRadius. Otherwise (default) the init radius is converted to meters once
+     * 
+     * @param keepPixelRadius
+     */
+    public void setKeepPixelRadius(boolean keepPixelRadius) {
+    	this.keepPixelRadius = keepPixelRadius;
+    }
+    
+    /**
+     * Gives a circle a constant size on the screen: after each zoom change its radius in meters is computed again from the radius in pixels.
+     * The radii of all such circles are computed in one batch with a Web Mercator projection, and the overlays updated in one pass.
+     * Resizing the circle with the marker changes its radius in pixels. Radius limits are not applied
+     * 
+     * The manager registers itself as camera change listener of the map. If the app needs its own camera change listener,
+     * it has to set it with setOnCameraChangeListener of the manager.
+     * 
+     * @param draggableCircle circle of the manager, other circles are ignored
+     * @param pixels radius in screen pixels, 0 to keep the current radius in meters from now on
+     */
+    public void setPixelRadius(MapAreaWrapper draggableCircle, double pixels) {
+    	if (!isManaged(draggableCircle)) {
+    		return;
+    	}
+    	int handle = draggableCircle.getHandle();
+    	boolean wasPixels = pixelRadii[handle] > 0;
+    	pixelRadii[handle] = Math.max(0, pixels);
+    	if (pixels > 0) {
+    		draggableCircle.setRadius(pixels * WebMercator.metersPerPixel(draggableCircle.getLatitude(), getWorldSize()));
+    		pixelRadii[handle] = pixels; //setRadius updated it from the meters
+    		pixelRadiiZoom = calibratedZoom;
+    	}
+    	if (wasPixels != pixels > 0) {
+    		pixelAreaCount += pixels > 0 ? 1 : -1;
+    		updateCameraChangeListener();
+    	}
+    }
+    
+    /**
+     * @return radius in screen pixels set with setPixelRadius, 0 if the circle has a radius in meters
+     */
+    public double getPixelRadius(MapAreaWrapper draggableCircle) {
+    	return isManaged(draggableCircle) ? pixelRadii[draggableCircle.getHandle()] : 0;
+    }
+    
+    /**
+     * @return if the circle was added to this manager and not removed. Handles of other circles index other stores
+     */
+    private boolean isManaged(MapAreaWrapper draggableCircle) {
+    	return draggableCircle.getStore() == store && store.getOwner(draggableCircle.getHandle()) == draggableCircle;
+    }
+    
+    /**
+     * Computes the radii in meters of the circles with a pixel radius for the current zoom, and updates their overlays.
+     * The cluster circles are refreshed once by onCameraChange afterwards
+     */
+    private void updatePixelRadii() {
+    	double worldSize = getWorldSize();
+    	pixelRadiiZoom = calibratedZoom;
+    	if (pixelAreas.length < pixelAreaCount) {
+    		pixelLatitudes = new double[pixelAreaCount];
+    		pixelValues = new double[pixelAreaCount];
+    		pixelAreas = new MapAreaWrapper[pixelAreaCount];
+    	}
+    	int count = 0;
+    	for (int handle = 0, limit = store.getHandleLimit(); handle < limit; handle++) {
+    		if (pixelRadii[handle] > 0 && store.isInUse(handle)) {
+    			pixelLatitudes[count] = store.getLatitude(handle);
+    			pixelValues[count] = pixelRadii[handle];
+    			pixelAreas[count] = (MapAreaWrapper)store.getOwner(handle);
+    			count++;
+    		}
+    	}
+    	WebMercator.toRadiiMeters(pixelLatitudes, pixelValues, pixelValues, 0, count, worldSize);
+    	
+    	for (int i = 0; i < count; i++) {
+    		MapAreaWrapper draggableCircle = pixelAreas[i];
+    		pixelAreas[i] = null;
+    		draggableCircle.applyRadius(pixelValues[i]);
+    		spatialIndex.put(draggableCircle, pixelLatitudes[i], draggableCircle.getLongitude(), pixelValues[i]);
+    		if (overlapTracker != null) {
+    			overlapTracker.put(draggableCircle, pixelLatitudes[i], draggableCircle.getLongitude(), pixelValues[i]);
+    		}
+    		if (tileRenderer != null) {
+    			updateTiles(draggableCircle);
+    		}
+    		if (clusterer != null) {
+    			clusterer.put(draggableCircle, pixelLatitudes[i], draggableCircle.getLongitude(), pixelValues[i]);
+    		}
+    	}
+    	publishSnapshot();
+    }
+    
+    /**
+     * @return size of the world in screen pixels at the current zoom. The map's projection is used once per zoom level,
+     * and the camera position of the last camera change, once the manager is the camera change listener
+     */
+    private double getWorldSize() {
+    	CameraPosition position = cameraPosition != null ? cameraPosition : map.getCameraPosition();
+    	if (position.zoom != calibratedZoom) {
+    		//screen distance of a longitude span of about 256 density independent pixels at the camera target
+    		double span = Math.min(90, 360 / Math.pow(2, position.zoom));
+    		double latitude = position.target.latitude;
+    		double longitude = position.target.longitude;
+    		double otherLongitude = longitude + span <= 180 ? longitude + span : longitude - span;
+    		Projection projection = map.getProjection();
+    		Point point = projection.toScreenLocation(new LatLng(latitude, longitude));
+    		Point otherPoint = projection.toScreenLocation(new LatLng(latitude, otherLongitude));
+    		worldSize = Math.abs(otherPoint.x - point.x) * 360 / span;
+    		calibratedZoom = position.zoom;
+    	}
+    	return worldSize;
+    }
+    
+    /**
+     * Entry of marker index
+     */
+    private static class MarkerEntry {
+    	MapAreaWrapper draggableCircle;
+    	MarkerType markerType;
+    	
+    	MapPolygonWrapper polygon;
+    	int vertex; //-1 for position marker
+    	
+    	public MarkerEntry(MapAreaWrapper draggableCircle, MarkerType markerType) {
+    		this.draggableCircle = draggableCircle;
+    		this.markerType = markerType;
+    	}
+    	
+    	public MarkerEntry(MapPolygonWrapper polygon, int vertex) {
+    		this.polygon = polygon;
+    		this.vertex = vertex;
+    		this.markerType = vertex == -1 ? MarkerType.move : MarkerType.resize;
+    	}
+    }
+    
+    private void indexMarkers(MapAreaWrapper draggableCircle) {
+    	markerIndex.put(draggableCircle.getCenterMarker().getId(), new MarkerEntry(draggableCircle, MarkerType.move));
+    	markerIndex.put(draggableCircle.getRadiusMarker().getId(), new MarkerEntry(draggableCircle, MarkerType.resize));
+    }
+    
+    private void unindexMarkers(MapAreaWrapper draggableCircle) {
+    	markerIndex.remove(draggableCircle.getCenterMarker().getId());
+    	markerIndex.remove(draggableCircle.getRadiusMarker().getId());
+    }
+    
+    /**
+     * Wrapper for result of gesture with affected circle
+     */
+    private class MarkerMoveResultWithCircle {
+    	MarkerMoveResult markerMoveResult;
+    	MapAreaWrapper draggableCircle;
+    	
+    	public MarkerMoveResultWithCircle(MarkerMoveResult markerMoveResult, MapAreaWrapper draggableCircle) {
+    		this.markerMoveResult = markerMoveResult;
+    		this.draggableCircle = draggableCircle;
+    	}
+    }
+    
+    /**
+     * When marker is moved, notify the circle owning it
+     * The circle is looked up in the marker index and will execute necessary actions
+     * 
+     * @param marker
+     * @return
+     */
+    private MarkerMoveResultWithCircle onMarkerMoved(Marker marker) {
+    	MarkerEntry entry;
+    	if (metrics == null) {
+    		entry = markerIndex.get(marker.getId());
+    	} else {
+    		long start = System.nanoTime();
+    		entry = markerIndex.get(marker.getId());
+    		metrics.record(AreaMetrics.MARKER_LOOKUP, System.nanoTime() - start);
+    	}
+    	if (entry == null) {
+    		return new MarkerMoveResultWithCircle(MarkerMoveResult.none, null);
+    	}
+    	MarkerMoveResult result = entry.draggableCircle.onMarkerMoved(marker, entry.markerType, !coalesceDragUpdates);
+    	if (result == MarkerMoveResult.radiusChange) {
+    		entry.draggableCircle.radiusLimitState = MarkerMoveResult.none; //back between limits
+    	}
+    	if (entry.draggableCircle.hasPendingOverlayUpdates()) {
+    		schedulePendingOverlayUpdates(entry.draggableCircle);
+    	}
+    	return new MarkerMoveResultWithCircle(result, entry.draggableCircle);
+    }
+    
+    /**
+     * Used to notify min/max radius only once per crossing when coalescing drag updates
+     * 
+     * @param result min or max radius result
+     * @return if the callback for this result should be called
+     */
+    private boolean isRadiusLimitCrossed(MarkerMoveResultWithCircle result) {
+    	if (!coalesceDragUpdates) {
+    		return true;
+    	}
+    	if (result.draggableCircle.radiusLimitState == result.markerMoveResult) {
+    		return false;
+    	}
+    	result.draggableCircle.radiusLimitState = result.markerMoveResult;
+    	return true;
+    }
+    
+    private void schedulePendingOverlayUpdates(MapAreaWrapper draggableCircle) {
+    	if (!pendingOverlayUpdates.contains(draggableCircle)) {
+    		pendingOverlayUpdates.add(draggableCircle);
+    	}
+    	if (!overlayUpdatesScheduled) {
+    		overlayUpdatesScheduled = true;
+    		frameScheduler.scheduleFrame(overlayUpdatesRunnable);
+    	}
+    }
+    
+    private void applyPendingOverlayUpdates() {
+    	for (int i = 0, size = pendingOverlayUpdates.size(); i < size; i++) {
+    		pendingOverlayUpdates.get(i).applyPendingOverlayUpdates();
+    	}
+    	pendingOverlayUpdates.clear();
+    }
+    
+    @Override
+    public void onMapLongClick(LatLng point) {
+    	long start = metrics != null ? System.nanoTime() : 0;
+    	double initRadiusMetersFinal;
+    	
+    	if (initRadius.unit == MapAreaMeasure.Unit.meters) { //init with meters radius
+    		
+    		initRadiusMetersFinal = initRadius.value;
+    		
+    	} else { //init with pixels radius
+    		initRadiusMetersFinal = initRadius.value * WebMercator.metersPerPixel(point.latitude, getWorldSize());
+    	}
+        
+        MapAreaWrapper circle = createArea(point, initRadiusMetersFinal, strokeWidth, strokeColor, fillColor);
+        if (!clustered && tileRenderer == null) {
+        	circle.attach(overlays, overlayPool);
+        }
+        
+        add(circle);
+        if (tileRenderer != null) {
+        	setEditedArea(circle);
+        }
+        if (keepPixelRadius && initRadius.unit == MapAreaMeasure.Unit.pixels) {
+        	setPixelRadius(circle, initRadius.value);
+        }
+        if (metrics != null) {
+        	metrics.record(AreaMetrics.AREA_CREATION, System.nanoTime() - start);
+        }
         
         circleManagerListener.onCreateCircle(circle);
     }
@@ -1,12 +1,18 @@
 package com.schuetz.mapareas;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
 import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.Circle;
 import com.google.android.gms.maps.model.CircleOptions;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.Polygon;
+import com.google.android.gms.maps.model.PolygonOptions;
 
 /**
  * This class manages a map circle, with markers
@@ -25,10 +31,63 @@ public class MapAreaWrapper {
 	private Marker centerMarker;
     private Marker radiusMarker;
     private Circle circle;
-    private double radiusMeters;
     
-    private int minRadiusMeters = -1;
-    private int maxRadiusMeters = -1;
+    /**
+     * Used instead of circle in geodesic mode
+     */
+    private Polygon outline;
+    private GeodesicCircleCache geodesicCache;
+    private int geodesicZoom;
+    
+    /**
+     * Geometry and style are kept in the store, this object is a view of the circle with handle
+     */
+    private AreaStore store;
+    private int handle;
+    
+    private BitmapDescriptor centerIcon;
+    private BitmapDescriptor radiusIcon;
+    private float moveDrawableAnchorU;
+    private float moveDrawableAnchorV;
+    private float resizeDrawableAnchorU;
+    private float resizeDrawableAnchorV;
+    
+    private OnAreaChangeListener onAreaChangeListener;
+    
+    /**
+     * Changes not yet applied to the overlays, see onMarkerMoved(Marker, MarkerType, boolean)
+     */
+    private boolean pendingCenterUpdate;
+    private boolean pendingRadiusUpdate;
+    
+    /**
+     * Last min/max radius result of the current resize gesture, used by the manager to notify only when the limit is crossed
+     */
+    MarkerMoveResult radiusLimitState = MarkerMoveResult.none;
+    
+    /**
+     * Id of the record of this circle in the manager's area file, -1 if none
+     */
+    int fileRecordId = -1;
+    
+    /**
+     * Where the duration of overlay updates is recorded, null if metrics are disabled
+     */
+    AreaMetrics metrics;
+    
+    /**
+     * Notified when the circle changes, used by the manager to keep its indexes up to date
+     */
+    interface OnAreaChangeListener {
+    	/**
+    	 * Center or radius changed
+    	 * 
+    	 * @param radiusChanged false if only the center changed
+    	 */
+    	void onGeometryChanged(MapAreaWrapper draggableCircle, boolean radiusChanged);
+    	
+    	void onStyleChanged(MapAreaWrapper draggableCircle);
+    }
     
     
     /**
@@ -52,34 +111,12 @@ public class MapAreaWrapper {
     public MapAreaWrapper(GoogleMap map, LatLng center, double radiusMeters, float strokeWidth, int strokeColor, int fillColor, int minRadiusMeters, int maxRadiusMeters, 
     		int centerDrawableId, int radiusDrawableId, float moveDrawableAnchorU, float moveDrawableAnchorV, float resizeDrawableAnchorU, float resizeDrawableAnchorV) {
     	
-        this.radiusMeters = radiusMeters;
-        this.minRadiusMeters = minRadiusMeters;
-        this.maxRadiusMeters = maxRadiusMeters;
-        
-        centerMarker = map.addMarker(new MarkerOptions()
-                .position(center)
-                .anchor(moveDrawableAnchorU, moveDrawableAnchorV)
-                .draggable(true));
+    	this(new AreaStore(1), center, radiusMeters, strokeWidth, strokeColor, fillColor, minRadiusMeters, maxRadiusMeters, 
+    			centerDrawableId != -1 ? BitmapDescriptorFactory.fromResource(centerDrawableId) : null, 
+    			radiusDrawableId != -1 ? BitmapDescriptorFactory.fromResource(radiusDrawableId) : null, 
+    			moveDrawableAnchorU, moveDrawableAnchorV, resizeDrawableAnchorU, resizeDrawableAnchorV);
     	
-        if (centerDrawableId != -1) {
-        	centerMarker.setIcon(BitmapDescriptorFactory.fromResource(centerDrawableId));
-        }
-        
-        radiusMarker = map.addMarker(new MarkerOptions()
-	        .position(MapAreasUtils.toRadiusLatLng(center, radiusMeters))
-	        .anchor(resizeDrawableAnchorU, resizeDrawableAnchorV)
-	        .draggable(true));
-        
-        if (radiusDrawableId != -1) {
-        	radiusMarker.setIcon(BitmapDescriptorFactory.fromResource(radiusDrawableId));
-        }
-		
-        circle = map.addCircle(new CircleOptions()
-                .center(center)
-                .radius(radiusMeters)
-                .strokeWidth(strokeWidth)
-                .strokeColor(strokeColor)
-                .fillColor(fillColor));
+    	attach(new GoogleMapOverlays(map));
     }
     
     /**
@@ -106,35 +143,316 @@ public class MapAreaWrapper {
     	this(map, center, radiusMeters, strokeWidth, strokeColor, fillColor, minRadius, maxRadius, centerDrawableId, radiusDrawableId, 0.5f, 1f, 0.5f, 1f);
     }
     
+    /**
+     * Creates the circle without adding anything to the map. Overlays are added with attach()
+     * 
+     * @param store where geometry and style of the circle are kept
+     * @param centerIcon icon for positioning marker, null to use default geomarker
+     * @param radiusIcon icon for resizing marker, null to use default geomarker
+     * @params see primary constructor for other params
+     */
+    MapAreaWrapper(AreaStore store, LatLng center, double radiusMeters, float strokeWidth, int strokeColor, int fillColor, int minRadiusMeters, int maxRadiusMeters, 
+    		BitmapDescriptor centerIcon, BitmapDescriptor radiusIcon, float moveDrawableAnchorU, float moveDrawableAnchorV, float resizeDrawableAnchorU, float resizeDrawableAnchorV) {
+    	
+    	this.store = store;
+    	this.handle = store.add(center.latitude, center.longitude, radiusMeters, minRadiusMeters, maxRadiusMeters, strokeWidth, strokeColor, fillColor);
+    	store.setOwner(handle, this);
+        this.centerIcon = centerIcon;
+        this.radiusIcon = radiusIcon;
+        this.moveDrawableAnchorU = moveDrawableAnchorU;
+        this.moveDrawableAnchorV = moveDrawableAnchorV;
+        this.resizeDrawableAnchorU = resizeDrawableAnchorU;
+        this.resizeDrawableAnchorV = resizeDrawableAnchorV;
+    }
+    
+    /**
+     * Moves geometry and style of the circle to another store, e.g. the one of the manager when the circle is added to it
+     * 
+     * @param target
+     */
+    void moveToStore(AreaStore target) {
+    	if (target == store) {
+    		return;
+    	}
+    	int newHandle = target.add(store.getLatitude(handle), store.getLongitude(handle), store.getRadius(handle), 
+    			store.getMinRadius(handle), store.getMaxRadius(handle), 
+    			store.getStrokeWidth(handle), store.getStrokeColor(handle), store.getFillColor(handle));
+    	target.setOwner(newHandle, this);
+    	store.remove(handle);
+    	store = target;
+    	handle = newHandle;
+    }
+    
+    AreaStore getStore() {
+    	return store;
+    }
+    
+    /**
+     * @return handle of the circle in its store
+     */
+    int getHandle() {
+    	return handle;
+    }
+    
+    /**
+     * Adds markers and circle to the map
+     * 
+     * @param overlays
+     */
+    void attach(MapOverlays overlays) {
+    	attach(overlays, null);
+    }
+    
+    /**
+     * Adds markers and circle to the map, reusing overlays from the pool when available
+     * 
+     * @param overlays
+     * @param pool optional
+     */
+    void attach(MapOverlays overlays, OverlayPool pool) {
+    	LatLng center = getCenter();
+    	double radiusMeters = getRadius();
+    	LatLng radiusPosition = toRadiusLatLng(center, radiusMeters);
+    	
+    	centerMarker = pool != null ? pool.acquireMarker(centerIcon) : null;
+    	if (centerMarker != null) {
+    		centerMarker.setPosition(center);
+    		centerMarker.setAnchor(moveDrawableAnchorU, moveDrawableAnchorV);
+    		centerMarker.setVisible(true);
+    	} else {
+	    	MarkerOptions centerMarkerOptions = new MarkerOptions()
+	                .position(center)
+	                .anchor(moveDrawableAnchorU, moveDrawableAnchorV)
+	                .draggable(true);
+	        if (centerIcon != null) {
+	        	centerMarkerOptions.icon(centerIcon);
+	        }
+	        centerMarker = overlays.addMarker(centerMarkerOptions);
+    	}
+        
+    	radiusMarker = pool != null ? pool.acquireMarker(radiusIcon) : null;
+    	if (radiusMarker != null) {
+    		radiusMarker.setPosition(radiusPosition);
+    		radiusMarker.setAnchor(resizeDrawableAnchorU, resizeDrawableAnchorV);
+    		radiusMarker.setVisible(true);
+    	} else {
+	        MarkerOptions radiusMarkerOptions = new MarkerOptions()
+		        .position(radiusPosition)
+		        .anchor(resizeDrawableAnchorU, resizeDrawableAnchorV)
+		        .draggable(true);
+	        if (radiusIcon != null) {
+	        	radiusMarkerOptions.icon(radiusIcon);
+	        }
+	        radiusMarker = overlays.addMarker(radiusMarkerOptions);
+    	}
+		
+    	attachShape(overlays, pool);
+    	pendingCenterUpdate = false;
+    	pendingRadiusUpdate = false;
+    }
+    
+    /**
+     * Adds the map circle, or the outline in geodesic mode
+     */
+    private void attachShape(MapOverlays overlays, OverlayPool pool) {
+    	LatLng center = getCenter();
+    	double radiusMeters = getRadius();
+    	float strokeWidth = getStrokeWidth();
+    	int strokeColor = getStrokeColor();
+    	int fillColor = getFillColor();
+    	if (geodesicCache != null) {
+    		outline = overlays.addPolygon(new PolygonOptions()
+    				.addAll(outlinePoints())
+    				.strokeWidth(strokeWidth)
+    				.strokeColor(strokeColor)
+    				.fillColor(fillColor));
+    		return;
+    	}
+    	circle = pool != null ? pool.acquireCircle() : null;
+    	if (circle != null) {
+    		circle.setCenter(center);
+    		circle.setRadius(radiusMeters);
+    		circle.setStrokeWidth(strokeWidth);
+    		circle.setStrokeColor(strokeColor);
+    		circle.setFillColor(fillColor);
+    		circle.setVisible(true);
+    	} else {
+	        circle = overlays.addCircle(new CircleOptions()
+	                .center(center)
+	                .radius(radiusMeters)
+	                .strokeWidth(strokeWidth)
+	                .strokeColor(strokeColor)
+	                .fillColor(fillColor));
+    	}
+    }
+    
+    /**
+     * Takes markers and circle out of the map. The circle keeps its geometry and style and can be attached again
+     * 
+     * @param pool optional, where the overlays are released for reuse. If null the overlays are removed from the map
+     */
+    void detach(OverlayPool pool) {
+    	if (centerMarker == null) {
+    		return;
+    	}
+    	if (pool != null) {
+    		pool.releaseMarker(centerMarker, centerIcon);
+    		pool.releaseMarker(radiusMarker, radiusIcon);
+    	} else {
+    		centerMarker.remove();
+    		radiusMarker.remove();
+    	}
+    	detachShape(pool);
+    	centerMarker = null;
+    	radiusMarker = null;
+    }
+    
+    /**
+     * Takes the map circle or the outline out of the map
+     */
+    private void detachShape(OverlayPool pool) {
+    	if (circle != null) {
+    		if (pool != null) {
+    			pool.releaseCircle(circle);
+    		} else {
+    			circle.remove();
+    		}
+    	}
+    	if (outline != null) {
+    		outline.remove();
+    	}
+    	circle = null;
+    	outline = null;
+    }
+    
+    /**
+     * Draws the circle as a polygon following the geodesic circle on the WGS84 ellipsoid, instead of a map circle.
+     * The resize marker is placed on this outline and the radius is measured on the ellipsoid
+     * 
+     * @param cache where the outlines are computed, null to draw a map circle
+     * @param zoom zoom level, determines the vertex count of the outline
+     * @param overlays to replace the overlay if the circle is attached. The markers are kept
+     * @param pool optional, where a replaced map circle is released and a new one acquired
+     */
+    void setGeodesic(GeodesicCircleCache cache, int zoom, MapOverlays overlays, OverlayPool pool) {
+    	if (cache == geodesicCache && zoom == geodesicZoom) {
+    		return;
+    	}
+    	boolean modeChanged = (cache == null) != (geodesicCache == null);
+    	geodesicCache = cache;
+    	geodesicZoom = zoom;
+    	if (!isAttached()) {
+    		return;
+    	}
+    	if (modeChanged) {
+    		detachShape(pool);
+    		attachShape(overlays, pool);
+    		radiusMarker.setPosition(toRadiusLatLng(getCenter(), getRadius()));
+    		pendingCenterUpdate = false;
+    		pendingRadiusUpdate = false;
+    	} else if (outline != null) {
+    		outline.setPoints(outlinePoints());
+    	}
+    }
+    
+    /**
+     * @return if markers and circle are on the map
+     */
+    public boolean isAttached() {
+    	return centerMarker != null;
+    }
     
     /**
      * @return center of circle in geocoordinates
      */
     public LatLng getCenter() {
-    	return centerMarker.getPosition();
+    	return new LatLng(store.getLatitude(handle), store.getLongitude(handle));
+    }
+    
+    /**
+     * @return latitude of center, without creating a LatLng
+     */
+    public double getLatitude() {
+    	return store.getLatitude(handle);
+    }
+    
+    /**
+     * @return longitude of center, without creating a LatLng
+     */
+    public double getLongitude() {
+    	return store.getLongitude(handle);
     }
     
     /**
      * @return radius of circle in meters
      */
     public double getRadius() {
-    	return radiusMeters;
+    	return store.getRadius(handle);
+    }
+    
+    /**
+     * @return min radius in meters, -1 if not set
+     */
+    public int getMinRadius() {
+    	return store.getMinRadius(handle);
+    }
+    
+    /**
+     * @return max radius in meters, -1 if not set
+     */
+    public int getMaxRadius() {
+    	return store.getMaxRadius(handle);
+    }
+    
+    public float getStrokeWidth() {
+    	return store.getStrokeWidth(handle);
+    }
+    
+    public int getStrokeColor() {
+    	return store.getStrokeColor(handle);
+    }
+    
+    public int getFillColor() {
+    	return store.getFillColor(handle);
     }
 
     public void setStokeWidth(float strokeWidth) {
-    	circle.setStrokeWidth(strokeWidth);
+    	store.setStrokeWidth(handle, strokeWidth);
+    	if (circle != null) {
+    		circle.setStrokeWidth(strokeWidth);
+    	}
+    	if (outline != null) {
+    		outline.setStrokeWidth(strokeWidth);
+    	}
+    	notifyStyleChanged();
     }
     
     public void setStokeColor(int strokeColor) {
-    	circle.setStrokeColor(strokeColor);
+    	store.setStrokeColor(handle, strokeColor);
+    	if (circle != null) {
+    		circle.setStrokeColor(strokeColor);
+    	}
+    	if (outline != null) {
+    		outline.setStrokeColor(strokeColor);
+    	}
+    	notifyStyleChanged();
     }
     
     public void setFillColor(int fillColor) {
-    	circle.setFillColor(fillColor);
+    	store.setFillColor(handle, fillColor);
+    	if (circle != null) {
+    		circle.setFillColor(fillColor);
+    	}
+    	if (outline != null) {
+    		outline.setFillColor(fillColor);
+    	}
+    	notifyStyleChanged();
     }
     
     public void setCenter(LatLng center) {
-    	centerMarker.setPosition(center);
+    	if (centerMarker != null) {
+    		centerMarker.setPosition(center);
+    	}
         onCenterUpdated(center);
     }
     
@@ -152,13 +470,47 @@ public class MapAreaWrapper {
 	 * When the marker is not in this circle returned action is MarkerMoveResult.none
      */
     public MarkerMoveResult onMarkerMoved(Marker marker) {
-        if (marker.equals(centerMarker)) {
-        	onCenterUpdated(marker.getPosition());
+        return onMarkerMoved(marker, getMarkerType(marker));
+    }
+    
+    /**
+     * Same as onMarkerMoved(Marker), for callers that already know the role of the marker in this circle
+     * (e.g. from an index of marker ids), which skips the marker comparisons
+     * 
+     * @param marker
+     * @param markerType role of the marker in this circle
+     * 
+     * @return flag indicating which action was done
+     */
+    public MarkerMoveResult onMarkerMoved(Marker marker, MarkerType markerType) {
+    	return onMarkerMoved(marker, markerType, true);
+    }
+    
+    /**
+     * @param updateOverlays if false, only center and radius are updated and the overlays are updated
+     * later with applyPendingOverlayUpdates (used to apply many drag events at once)
+     */
+    MarkerMoveResult onMarkerMoved(Marker marker, MarkerType markerType, boolean updateOverlays) {
+        if (markerType == MarkerType.move) {
+        	if (updateOverlays) {
+        		onCenterUpdated(marker.getPosition());
+        	} else {
+        		LatLng position = marker.getPosition();
+        		store.setCenter(handle, position.latitude, position.longitude);
+        		pendingCenterUpdate = true;
+        		notifyGeometryChanged(false);
+        	}
             return MarkerMoveResult.moved;
         }
         
-        if (marker.equals(radiusMarker)) {
-        	 double newRadius = MapAreasUtils.toRadiusMeters(centerMarker.getPosition(), marker.getPosition());
+        if (markerType == MarkerType.resize) {
+        	 LatLng position = marker.getPosition();
+        	 //on the ellipsoid for geodesic outlines, where the marker is placed, the manager's queries use the sphere
+        	 double newRadius = geodesicCache != null 
+        			 ? Geodesy.vincentyMeters(store.getLatitude(handle), store.getLongitude(handle), position.latitude, position.longitude)
+        			 : MapAreasUtils.toRadiusMeters(store.getLatitude(handle), store.getLongitude(handle), position.latitude, position.longitude);
+        	 int minRadiusMeters = store.getMinRadius(handle);
+        	 int maxRadiusMeters = store.getMaxRadius(handle);
         		
         	 if (minRadiusMeters != -1 && newRadius < minRadiusMeters) {
         		 return MarkerMoveResult.minRadius;
@@ -167,8 +519,13 @@ public class MapAreaWrapper {
         		 return MarkerMoveResult.maxRadius;
         		 
         	 } else {
-        		 setRadius(newRadius);
-        		 
+        		 if (updateOverlays) {
+        			 setRadius(newRadius);
+        		 } else {
+        			 store.setRadius(handle, newRadius);
+        			 pendingRadiusUpdate = true;
+        			 notifyGeometryChanged(true);
+        		 }
         		 return MarkerMoveResult.radiusChange;
         	 }
              
@@ -176,13 +533,43 @@ public class MapAreaWrapper {
         return MarkerMoveResult.none;
     }
     
+    /**
+     * @param marker
+     * @return role of the marker in this circle, MarkerType.none if the marker doesn't belong to this circle
+     */
+    public MarkerType getMarkerType(Marker marker) {
+        if (marker.equals(centerMarker)) {
+            return MarkerType.move;
+        }
+        if (marker.equals(radiusMarker)) {
+            return MarkerType.resize;
+        }
+        return MarkerType.none;
+    }
+    
+    Marker getCenterMarker() {
+    	return centerMarker;
+    }
+    
+    Marker getRadiusMarker() {
+    	return radiusMarker;
+    }
+    
     /**
      * Called after update position of center marker, to update the circle and the radius marker 
      * @param center
      */
     public void onCenterUpdated(LatLng center) {
-    	circle.setCenter(center);
-        radiusMarker.setPosition(MapAreasUtils.toRadiusLatLng(center, radiusMeters));
+    	store.setCenter(handle, center.latitude, center.longitude);
+    	if (isAttached()) {
+    		long start = metrics != null ? System.nanoTime() : 0;
+	    	updateShape(center);
+	        radiusMarker.setPosition(toRadiusLatLng(center, store.getRadius(handle)));
+	        if (metrics != null) {
+	        	metrics.record(AreaMetrics.OVERLAY_UPDATE, System.nanoTime() - start);
+	        }
+    	}
+        notifyGeometryChanged(false);
     }
     
     /**
@@ -192,8 +579,156 @@ public class MapAreaWrapper {
      * @param radiusMeters
      */
     public void setRadius(double radiusMeters) {
-    	this.radiusMeters = radiusMeters;
-    	circle.setRadius(radiusMeters);
+    	store.setRadius(handle, radiusMeters);
+    	long start = metrics != null ? System.nanoTime() : 0;
+    	if (circle != null) {
+    		circle.setRadius(radiusMeters);
+    	}
+    	if (outline != null) {
+    		outline.setPoints(outlinePoints());
+    	}
+    	if (metrics != null && isAttached()) {
+    		metrics.record(AreaMetrics.OVERLAY_UPDATE, System.nanoTime() - start);
+    	}
+    	notifyGeometryChanged(true);
+    }
+    
+    /**
+     * Sets a radius computed by the manager (e.g. from a radius in pixels after a zoom change) and updates the overlays,
+     * without notifying the change listener. The caller updates its indexes. If overlay updates are pending (drag updates
+     * being coalesced), the radius is applied with them
+     * 
+     * @param radiusMeters
+     */
+    void applyRadius(double radiusMeters) {
+    	store.setRadius(handle, radiusMeters);
+    	if (hasPendingOverlayUpdates()) {
+    		pendingRadiusUpdate = true;
+    	} else if (isAttached()) {
+    		long start = metrics != null ? System.nanoTime() : 0;
+    		if (circle != null) {
+    			circle.setRadius(radiusMeters);
+    		} else {
+    			outline.setPoints(outlinePoints());
+    		}
+    		radiusMarker.setPosition(toRadiusLatLng(getCenter(), radiusMeters));
+    		if (metrics != null) {
+    			metrics.record(AreaMetrics.OVERLAY_UPDATE, System.nanoTime() - start);
+    		}
+    	}
+    }
+    
+    /**
+     * Updates the overlays after the manager changed center and radius in the store (e.g. moving a group of circles),
+     * without notifying the change listener. The caller updates its indexes
+     * 
+     * @param radiusMarkerPosition position of the resize marker, computed by the caller
+     */
+    void applyGeometry(LatLng radiusMarkerPosition) {
+    	if (!isAttached()) {
+    		return;
+    	}
+    	long start = metrics != null ? System.nanoTime() : 0;
+    	LatLng center = getCenter();
+    	if (circle != null) {
+    		circle.setCenter(center);
+    		circle.setRadius(store.getRadius(handle));
+    	} else {
+    		outline.setPoints(outlinePoints());
+    	}
+    	centerMarker.setPosition(center);
+    	radiusMarker.setPosition(radiusMarkerPosition);
+    	if (metrics != null) {
+    		metrics.record(AreaMetrics.OVERLAY_UPDATE, System.nanoTime() - start);
+    	}
+    }
+    
+    /**
+     * Updates the overlays with center and radius changes which were deferred by onMarkerMoved
+     */
+    void applyPendingOverlayUpdates() {
+    	if (isAttached() && hasPendingOverlayUpdates()) {
+    		long start = metrics != null ? System.nanoTime() : 0;
+    		if (pendingCenterUpdate) {
+    			LatLng center = getCenter();
+    			updateShape(center);
+    			radiusMarker.setPosition(toRadiusLatLng(center, store.getRadius(handle)));
+    		}
+    		if (pendingRadiusUpdate) {
+    			if (circle != null) {
+    				circle.setRadius(store.getRadius(handle));
+    			} else if (!pendingCenterUpdate) {
+    				outline.setPoints(outlinePoints());
+    			}
+    		}
+    		if (metrics != null) {
+    			metrics.record(AreaMetrics.OVERLAY_UPDATE, System.nanoTime() - start);
+    		}
+    	}
+    	pendingCenterUpdate = false;
+    	pendingRadiusUpdate = false;
+    }
+    
+    /**
+     * Moves circle or outline to center
+     */
+    private void updateShape(LatLng center) {
+    	if (circle != null) {
+    		circle.setCenter(center);
+    	} else {
+    		outline.setPoints(outlinePoints());
+    	}
+    }
+    
+    /**
+     * @return vertices of the geodesic outline
+     */
+    private List<LatLng> outlinePoints() {
+    	double[] vertices = geodesicCache.outline(store.getLatitude(handle), store.getLongitude(handle), store.getRadius(handle), geodesicZoom);
+    	List<LatLng> points = new ArrayList<LatLng>(vertices.length / 2);
+    	for (int i = 0; i < vertices.length; i += 2) {
+    		points.add(new LatLng(vertices[i], vertices[i + 1]));
+    	}
+    	return points;
+    }
+    
+    /**
+     * @return position of resize marker, east of center on the circle
+     */
+    private LatLng toRadiusLatLng(LatLng center, double radiusMeters) {
+    	if (geodesicCache == null) {
+    		return MapAreasUtils.toRadiusLatLng(center, radiusMeters);
+    	}
+    	double[] position = new double[2];
+    	Geodesy.vincentyDestination(center.latitude, center.longitude, 90, radiusMeters, position, 0);
+    	return new LatLng(position[0], position[1]);
+    }
+    
+    /**
+     * @return new spec with the current values of the circle
+     */
+    AreaSpec toSpec() {
+    	return new AreaSpec(getCenter(), getRadius(), getStrokeWidth(), getStrokeColor(), getFillColor(), getMinRadius(), getMaxRadius());
+    }
+    
+    boolean hasPendingOverlayUpdates() {
+    	return pendingCenterUpdate || pendingRadiusUpdate;
+    }
+    
+    void setOnAreaChangeListener(OnAreaChangeListener onAreaChangeListener) {
+    	this.onAreaChangeListener = onAreaChangeListener;
+    }
+    
+    private void notifyGeometryChanged(boolean radiusChanged) {
+    	if (onAreaChangeListener != null) {
+    		onAreaChangeListener.onGeometryChanged(this, radiusChanged);
+    	}
+    }
+    
+    private void notifyStyleChanged() {
+    	if (onAreaChangeListener != null) {
+    		onAreaChangeListener.onStyleChanged(this);
+    	}
     }
     
     @Override
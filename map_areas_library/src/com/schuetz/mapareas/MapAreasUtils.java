@@ -1,24 +1,42 @@
 package com.schuetz.mapareas;
 
-import android.location.Location;
-
 import com.google.android.gms.maps.model.LatLng;
 
 /**
  * Utilities
  * 
+ * Distances and positions are calculated on a sphere (see Geodesy), the same model used by the map to draw circles,
+ * so the resizing marker stays on the border of the circle at any latitude.
+ * 
  * @author ivanschuetz 
  */
 public class MapAreasUtils {
 
+	/**
+	 * @param center
+	 * @param radius in meters
+	 * @return position in the east border of the circle
+	 */
     public static LatLng toRadiusLatLng(LatLng center, double radius) {
-        double radiusAngle = Math.toDegrees(radius / MapAreasConstants.RADIUS_OF_EARTH_METERS) / Math.cos(Math.toRadians(center.latitude));
-        return new LatLng(center.latitude, center.longitude + radiusAngle);
+    	double[] position = new double[2];
+    	toRadiusLatLng(center.latitude, center.longitude, radius, position);
+        return new LatLng(position[0], position[1]);
+    }
+
+    /**
+     * Allocation free version of toRadiusLatLng(LatLng, double)
+     * 
+     * @param out array where the result is written, out[0] latitude, out[1] longitude
+     */
+    public static void toRadiusLatLng(double centerLatitude, double centerLongitude, double radius, double[] out) {
+    	Geodesy.destination(centerLatitude, centerLongitude, 90, radius, out);
     }
 
     public static double toRadiusMeters(LatLng center, LatLng radius) {
-        float[] result = new float[1];
-        Location.distanceBetween(center.latitude, center.longitude, radius.latitude, radius.longitude, result);
-        return result[0];
+        return toRadiusMeters(center.latitude, center.longitude, radius.latitude, radius.longitude);
+    }
+    
+    public static double toRadiusMeters(double centerLatitude, double centerLongitude, double radiusLatitude, double radiusLongitude) {
+    	return Geodesy.haversineMeters(centerLatitude, centerLongitude, radiusLatitude, radiusLongitude);
     }
 }
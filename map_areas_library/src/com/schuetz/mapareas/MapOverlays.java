@@ -0,0 +1,35 @@
+package com.schuetz.mapareas;
+
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.Circle;
+import com.google.android.gms.maps.model.CircleOptions;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.Polygon;
+import com.google.android.gms.maps.model.PolygonOptions;
+import com.google.android.gms.maps.model.TileOverlay;
+import com.google.android.gms.maps.model.TileOverlayOptions;
+
+/**
+ * Access to the map, for the overlays created by the library
+ * 
+ * Default implementation is GoogleMapOverlays. Other implementations can be used e.g. to test on a JVM without a map
+ * 
+ * @author ivanschuetz
+ */
+public interface MapOverlays {
+	
+	Marker addMarker(MarkerOptions markerOptions);
+	
+	Circle addCircle(CircleOptions circleOptions);
+	
+	Polygon addPolygon(PolygonOptions polygonOptions);
+	
+	TileOverlay addTileOverlay(TileOverlayOptions tileOverlayOptions);
+	
+	/**
+	 * @param drawableId drawable resource id
+	 * @return icon for markers
+	 */
+	BitmapDescriptor iconFromResource(int drawableId);
+}
@@ -0,0 +1,284 @@
+package com.schuetz.mapareas;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.Polygon;
+import com.google.android.gms.maps.model.PolygonOptions;
+
+/**
+ * This class manages a map polygon, with markers
+ *
+ * There's a marker on each vertex and a position marker in the middle (center of the bounding box).
+ * Long pressing the vertex markers allows to change the shape, the position marker moves the whole polygon.
+ *
+ * @author ivanschuetz
+ */
+public class MapPolygonWrapper {
+
+	private Polygon polygon;
+	private Marker centerMarker;
+	private List<Marker> vertexMarkers;
+
+	private PolygonGeometry geometry;
+
+	private float strokeWidth;
+	private int strokeColor;
+	private int fillColor;
+
+	private BitmapDescriptor centerIcon;
+	private BitmapDescriptor vertexIcon;
+	private float moveDrawableAnchorU;
+	private float moveDrawableAnchorV;
+	private float resizeDrawableAnchorU;
+	private float resizeDrawableAnchorV;
+
+	private OnPolygonChangeListener onPolygonChangeListener;
+
+	/**
+	 * Notified when the vertices change, used by the manager to keep its index up to date
+	 */
+	interface OnPolygonChangeListener {
+		void onGeometryChanged(MapPolygonWrapper polygon);
+	}
+
+	/**
+	 * Creates the polygon without adding anything to the map. Overlays are added with attach()
+	 *
+	 * @param vertices at least 3, the polygon is closed automatically
+	 * @param centerIcon icon of position marker, null for default marker
+	 * @param vertexIcon icon of vertex markers, null for default marker
+	 */
+	MapPolygonWrapper(List<LatLng> vertices, float strokeWidth, int strokeColor, int fillColor,
+			BitmapDescriptor centerIcon, BitmapDescriptor vertexIcon,
+			float moveDrawableAnchorU, float moveDrawableAnchorV, float resizeDrawableAnchorU, float resizeDrawableAnchorV) {
+		int count = vertices.size();
+		double[] latitudes = new double[count];
+		double[] longitudes = new double[count];
+		for (int i = 0; i < count; i++) {
+			latitudes[i] = vertices.get(i).latitude;
+			longitudes[i] = vertices.get(i).longitude;
+		}
+		this.geometry = new PolygonGeometry(latitudes, longitudes, count);
+		this.strokeWidth = strokeWidth;
+		this.strokeColor = strokeColor;
+		this.fillColor = fillColor;
+		this.centerIcon = centerIcon;
+		this.vertexIcon = vertexIcon;
+		this.moveDrawableAnchorU = moveDrawableAnchorU;
+		this.moveDrawableAnchorV = moveDrawableAnchorV;
+		this.resizeDrawableAnchorU = resizeDrawableAnchorU;
+		this.resizeDrawableAnchorV = resizeDrawableAnchorV;
+	}
+
+	/**
+	 * Adds polygon and markers to the map
+	 *
+	 * @param overlays
+	 */
+	void attach(MapOverlays overlays) {
+		polygon = overlays.addPolygon(new PolygonOptions()
+				.addAll(getVertices())
+				.strokeWidth(strokeWidth)
+				.strokeColor(strokeColor)
+				.fillColor(fillColor));
+
+		MarkerOptions centerMarkerOptions = new MarkerOptions()
+				.position(getCenter())
+				.anchor(moveDrawableAnchorU, moveDrawableAnchorV)
+				.draggable(true);
+		if (centerIcon != null) {
+			centerMarkerOptions.icon(centerIcon);
+		}
+		centerMarker = overlays.addMarker(centerMarkerOptions);
+
+		int count = geometry.getVertexCount();
+		vertexMarkers = new ArrayList<Marker>(count);
+		for (int i = 0; i < count; i++) {
+			MarkerOptions vertexMarkerOptions = new MarkerOptions()
+					.position(new LatLng(geometry.getLatitude(i), geometry.getLongitude(i)))
+					.anchor(resizeDrawableAnchorU, resizeDrawableAnchorV)
+					.draggable(true);
+			if (vertexIcon != null) {
+				vertexMarkerOptions.icon(vertexIcon);
+			}
+			vertexMarkers.add(overlays.addMarker(vertexMarkerOptions));
+		}
+	}
+
+	/**
+	 * Removes polygon and markers from the map. The polygon keeps its geometry and style and can be attached again
+	 */
+	void detach() {
+		if (polygon == null) {
+			return;
+		}
+		polygon.remove();
+		centerMarker.remove();
+		for (Marker vertexMarker : vertexMarkers) {
+			vertexMarker.remove();
+		}
+		polygon = null;
+		centerMarker = null;
+		vertexMarkers = null;
+	}
+
+	/**
+	 * @return if polygon and markers are on the map
+	 */
+	public boolean isAttached() {
+		return polygon != null;
+	}
+
+	/**
+	 * @return vertices and point in polygon test. Must not be modified, use setVertex and translate
+	 */
+	public PolygonGeometry getGeometry() {
+		return geometry;
+	}
+
+	/**
+	 * @return new list with the vertices
+	 */
+	public List<LatLng> getVertices() {
+		int count = geometry.getVertexCount();
+		List<LatLng> vertices = new ArrayList<LatLng>(count);
+		for (int i = 0; i < count; i++) {
+			vertices.add(new LatLng(geometry.getLatitude(i), geometry.getLongitude(i)));
+		}
+		return vertices;
+	}
+
+	/**
+	 * @return center of the bounding box, where the position marker is
+	 */
+	public LatLng getCenter() {
+		return new LatLng(geometry.getCenterLatitude(), geometry.getCenterLongitude());
+	}
+
+	public boolean contains(LatLng point) {
+		return geometry.contains(point.latitude, point.longitude);
+	}
+
+	public float getStrokeWidth() {
+		return strokeWidth;
+	}
+
+	public int getStrokeColor() {
+		return strokeColor;
+	}
+
+	public int getFillColor() {
+		return fillColor;
+	}
+
+	public void setStrokeWidth(float strokeWidth) {
+		this.strokeWidth = strokeWidth;
+		if (polygon != null) {
+			polygon.setStrokeWidth(strokeWidth);
+		}
+	}
+
+	public void setStrokeColor(int strokeColor) {
+		this.strokeColor = strokeColor;
+		if (polygon != null) {
+			polygon.setStrokeColor(strokeColor);
+		}
+	}
+
+	public void setFillColor(int fillColor) {
+		this.fillColor = fillColor;
+		if (polygon != null) {
+			polygon.setFillColor(fillColor);
+		}
+	}
+
+	/**
+	 * Changes the position of a vertex
+	 *
+	 * @param vertex index of vertex
+	 * @param position
+	 */
+	public void setVertex(int vertex, LatLng position) {
+		geometry.setVertex(vertex, position.latitude, position.longitude);
+		if (polygon != null) {
+			vertexMarkers.get(vertex).setPosition(position);
+			updateOverlays();
+		}
+		notifyGeometryChanged();
+	}
+
+	/**
+	 * Moves the polygon, so the center of its bounding box is at center
+	 *
+	 * @param center
+	 */
+	public void setCenter(LatLng center) {
+		geometry.translate(center.latitude - geometry.getCenterLatitude(), center.longitude - geometry.getCenterLongitude());
+		if (polygon != null) {
+			for (int i = 0, count = geometry.getVertexCount(); i < count; i++) {
+				vertexMarkers.get(i).setPosition(new LatLng(geometry.getLatitude(i), geometry.getLongitude(i)));
+			}
+			centerMarker.setPosition(center);
+			polygon.setPoints(getVertices());
+		}
+		notifyGeometryChanged();
+	}
+
+	/**
+	 * Updates the polygon after one of its markers was dragged
+	 *
+	 * @param marker
+	 * @param vertex index of dragged vertex, -1 for the position marker
+	 */
+	void onMarkerMoved(Marker marker, int vertex) {
+		if (vertex == -1) {
+			LatLng center = marker.getPosition();
+			geometry.translate(center.latitude - geometry.getCenterLatitude(), center.longitude - geometry.getCenterLongitude());
+			for (int i = 0, count = geometry.getVertexCount(); i < count; i++) {
+				vertexMarkers.get(i).setPosition(new LatLng(geometry.getLatitude(i), geometry.getLongitude(i)));
+			}
+			polygon.setPoints(getVertices());
+		} else {
+			LatLng position = marker.getPosition();
+			geometry.setVertex(vertex, position.latitude, position.longitude);
+			updateOverlays();
+		}
+		notifyGeometryChanged();
+	}
+
+	Marker getCenterMarker() {
+		return centerMarker;
+	}
+
+	List<Marker> getVertexMarkers() {
+		return vertexMarkers;
+	}
+
+	/**
+	 * Updates polygon and position marker after a vertex changed, the center of the bounding box may have moved
+	 */
+	private void updateOverlays() {
+		polygon.setPoints(getVertices());
+		centerMarker.setPosition(getCenter());
+	}
+
+	void setOnPolygonChangeListener(OnPolygonChangeListener onPolygonChangeListener) {
+		this.onPolygonChangeListener = onPolygonChangeListener;
+	}
+
+	private void notifyGeometryChanged() {
+		if (onPolygonChangeListener != null) {
+			onPolygonChangeListener.onGeometryChanged(this);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "center: " + getCenter() + " vertices: " + geometry.getVertexCount();
+	}
+}
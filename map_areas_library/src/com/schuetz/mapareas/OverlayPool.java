@@ -0,0 +1,128 @@
+package com.schuetz.mapareas;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.Circle;
+import com.google.android.gms.maps.model.Marker;
+
+/**
+ * Bounded pool of hidden markers and circles, to reuse overlays instead of removing and adding them to the map
+ * 
+ * Markers are pooled by icon, since the icon can't be reset to default marker once set. Only icons with pooled markers are in the map.
+ * When the pool is full, released overlays are removed from the map.
+ * 
+ * @author ivanschuetz
+ */
+class OverlayPool {
+
+	public static final int DEFAULT_MAX_SIZE = 64;
+	
+	private int maxSize;
+	
+	private Map<BitmapDescriptor, List<Marker>> markers = new HashMap<BitmapDescriptor, List<Marker>>();
+	private List<Circle> circles = new ArrayList<Circle>();
+	private int markerCount;
+	
+	OverlayPool(int maxSize) {
+		this.maxSize = maxSize;
+	}
+	
+	/**
+	 * @param maxSize max count of pooled markers, and of pooled circles
+	 */
+	void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+		Iterator<List<Marker>> lists = markers.values().iterator();
+		while (markerCount > maxSize) {
+			List<Marker> list = lists.next();
+			while (markerCount > maxSize && !list.isEmpty()) {
+				list.remove(list.size() - 1).remove();
+				markerCount--;
+			}
+			if (list.isEmpty()) {
+				lists.remove();
+			}
+		}
+		while (circles.size() > maxSize) {
+			circles.remove(circles.size() - 1).remove();
+		}
+	}
+	
+	/**
+	 * @param icon icon of marker, null for default marker
+	 * @return hidden marker with this icon, or null if there's none in the pool
+	 */
+	Marker acquireMarker(BitmapDescriptor icon) {
+		List<Marker> list = markers.get(icon);
+		if (list == null || list.isEmpty()) {
+			return null;
+		}
+		markerCount--;
+		Marker marker = list.remove(list.size() - 1);
+		if (list.isEmpty()) {
+			markers.remove(icon);
+		}
+		return marker;
+	}
+	
+	/**
+	 * @return hidden circle, or null if there's none in the pool
+	 */
+	Circle acquireCircle() {
+		return circles.isEmpty() ? null : circles.remove(circles.size() - 1);
+	}
+	
+	void releaseMarker(Marker marker, BitmapDescriptor icon) {
+		if (markerCount >= maxSize) {
+			marker.remove();
+			return;
+		}
+		marker.setVisible(false);
+		List<Marker> list = markers.get(icon);
+		if (list == null) {
+			list = new ArrayList<Marker>();
+			markers.put(icon, list);
+		}
+		list.add(marker);
+		markerCount++;
+	}
+	
+	void releaseCircle(Circle circle) {
+		if (circles.size() >= maxSize) {
+			circle.remove();
+			return;
+		}
+		circle.setVisible(false);
+		circles.add(circle);
+	}
+	
+	int getMarkerCount() {
+		return markerCount;
+	}
+	
+	int getCircleCount() {
+		return circles.size();
+	}
+	
+	/**
+	 * Removes all pooled overlays from the map
+	 */
+	void clear() {
+		for (List<Marker> list : markers.values()) {
+			for (Marker marker : list) {
+				marker.remove();
+			}
+		}
+		markers.clear();
+		markerCount = 0;
+		for (Circle circle : circles) {
+			circle.remove();
+		}
+		circles.clear();
+	}
+}
@@ -0,0 +1,95 @@
+package com.schuetz.mapareas;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Minimal PNG encoder for ARGB pixels (8 bit RGBA, no interlacing), for tiles rendered without Android's Bitmap
+ *
+ * Rows are stored with the "sub" filter, which makes the runs of equal colors of filled circles compress well.
+ *
+ * @author ivanschuetz
+ */
+class PngEncoder {
+
+	private static final byte[] SIGNATURE = {(byte)137, 80, 78, 71, 13, 10, 26, 10};
+
+	private PngEncoder() {
+	}
+
+	/**
+	 * @param argb pixels, row by row
+	 * @param width
+	 * @param height
+	 * @return PNG file
+	 */
+	static byte[] encode(int[] argb, int width, int height) {
+		try {
+			ByteArrayOutputStream png = new ByteArrayOutputStream(1024);
+			png.write(SIGNATURE);
+
+			byte[] header = new byte[13];
+			writeInt(header, 0, width);
+			writeInt(header, 4, height);
+			header[8] = 8; //bit depth
+			header[9] = 6; //color type RGBA
+			writeChunk(png, "IHDR", header, header.length);
+
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(1024);
+			Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+			DeflaterOutputStream deflaterStream = new DeflaterOutputStream(compressed, deflater);
+			byte[] row = new byte[1 + width * 4];
+			row[0] = 1; //sub filter
+			for (int y = 0; y < height; y++) {
+				int previous = 0;
+				for (int x = 0; x < width; x++) {
+					int pixel = argb[y * width + x];
+					int i = 1 + x * 4;
+					row[i] = (byte)((pixel >> 16) - (previous >> 16));
+					row[i + 1] = (byte)((pixel >> 8) - (previous >> 8));
+					row[i + 2] = (byte)(pixel - previous);
+					row[i + 3] = (byte)((pixel >>> 24) - (previous >>> 24));
+					previous = pixel;
+				}
+				deflaterStream.write(row);
+			}
+			deflaterStream.finish();
+			deflater.end();
+			byte[] data = compressed.toByteArray();
+			writeChunk(png, "IDAT", data, data.length);
+
+			writeChunk(png, "IEND", new byte[0], 0);
+			return png.toByteArray();
+
+		} catch (IOException e) {
+			throw new IllegalStateException("Couldn't encode PNG", e); //doesn't happen, streams are in memory
+		}
+	}
+
+	private static void writeChunk(ByteArrayOutputStream out, String type, byte[] data, int length) throws IOException {
+		byte[] lengthAndType = new byte[8];
+		writeInt(lengthAndType, 0, length);
+		for (int i = 0; i < 4; i++) {
+			lengthAndType[4 + i] = (byte)type.charAt(i);
+		}
+		out.write(lengthAndType);
+		out.write(data, 0, length);
+
+		CRC32 crc = new CRC32();
+		crc.update(lengthAndType, 4, 4);
+		crc.update(data, 0, length);
+		byte[] crcBytes = new byte[4];
+		writeInt(crcBytes, 0, (int)crc.getValue());
+		out.write(crcBytes);
+	}
+
+	private static void writeInt(byte[] out, int offset, int value) {
+		out[offset] = (byte)(value >>> 24);
+		out[offset + 1] = (byte)(value >>> 16);
+		out[offset + 2] = (byte)(value >>> 8);
+		out[offset + 3] = (byte)value;
+	}
+}
@@ -0,0 +1,231 @@
+package com.schuetz.mapareas;
+
+/**
+ * Vertices of a polygon with a structure for fast point in polygon tests
+ *
+ * The polygon is divided in horizontal bands (by latitude), each band knows the edges overlapping it.
+ * A point test only looks at the edges of the band of the point, so it takes about the same time for big polygons
+ * as for small ones. Edges are straight lines in latitude/longitude, which is what the map draws for non geodesic polygons.
+ * Like on the map, edges take the shorter way around the globe, so the longitudes of polygons crossing the antimeridian
+ * are stored continuous (beyond 180 or -180). Polygons around a pole are not supported.
+ *
+ * Doesn't depend on Android or the map, so it can be used (and tested) on a plain JVM.
+ * Not thread safe.
+ *
+ * @author ivanschuetz
+ */
+public class PolygonGeometry {
+
+	/**
+	 * Average count of edges per band, for polygons without very long edges
+	 */
+	private static final int EDGES_PER_BAND = 4;
+
+	private double[] latitudes;
+	private double[] longitudes;
+	private int count;
+
+	private double minLat, minLon, maxLat, maxLon;
+
+	private int bandCount;
+	private double bandHeight;
+	private int[] bandStarts; //edges of band i are bandEdges[bandStarts[i]] to bandEdges[bandStarts[i + 1] - 1]
+	private int[] bandEdges; //edge i goes from vertex i to vertex i + 1
+
+	/**
+	 * @param latitudes
+	 * @param longitudes
+	 * @param count number of vertices, at least 3. The polygon is closed automatically
+	 */
+	public PolygonGeometry(double[] latitudes, double[] longitudes, int count) {
+		if (count < 3) {
+			throw new IllegalArgumentException("Polygon needs at least 3 vertices: " + count);
+		}
+		this.count = count;
+		this.latitudes = new double[count];
+		this.longitudes = new double[count];
+		System.arraycopy(latitudes, 0, this.latitudes, 0, count);
+		System.arraycopy(longitudes, 0, this.longitudes, 0, count);
+		update();
+	}
+
+	public int getVertexCount() {
+		return count;
+	}
+
+	public double getLatitude(int vertex) {
+		return latitudes[vertex];
+	}
+
+	/**
+	 * @return longitude, continuous with the previous vertex, so it may be beyond 180 or -180
+	 */
+	public double getLongitude(int vertex) {
+		return longitudes[vertex];
+	}
+
+	public void setVertex(int vertex, double latitude, double longitude) {
+		latitudes[vertex] = latitude;
+		longitudes[vertex] = longitude;
+		update();
+	}
+
+	/**
+	 * Moves all vertices. The bands stay valid, so nothing is recomputed
+	 */
+	public void translate(double deltaLat, double deltaLon) {
+		for (int i = 0; i < count; i++) {
+			latitudes[i] += deltaLat;
+			longitudes[i] += deltaLon;
+		}
+		minLat += deltaLat;
+		maxLat += deltaLat;
+		minLon += deltaLon;
+		maxLon += deltaLon;
+	}
+
+	public double getMinLatitude() {
+		return minLat;
+	}
+
+	public double getMinLongitude() {
+		return minLon;
+	}
+
+	public double getMaxLatitude() {
+		return maxLat;
+	}
+
+	public double getMaxLongitude() {
+		return maxLon;
+	}
+
+	/**
+	 * @return latitude of the center of the bounding box
+	 */
+	public double getCenterLatitude() {
+		return (minLat + maxLat) / 2;
+	}
+
+	/**
+	 * @return longitude of the center of the bounding box
+	 */
+	public double getCenterLongitude() {
+		return (minLon + maxLon) / 2;
+	}
+
+	/**
+	 * @return radius of a circle around the center of the bounding box containing all vertices
+	 */
+	public double getBoundingRadiusMeters() {
+		double centerLat = getCenterLatitude();
+		double centerLon = getCenterLongitude();
+		double radius = 0;
+		for (int i = 0; i < count; i++) {
+			radius = Math.max(radius, Geodesy.haversineMeters(centerLat, centerLon, latitudes[i], longitudes[i]));
+		}
+		return radius;
+	}
+
+	/**
+	 * @return if the point is inside the polygon (even-odd rule)
+	 */
+	public boolean contains(double latitude, double longitude) {
+		if (longitude < minLon) {
+			longitude += 360;
+		} else if (longitude > maxLon) {
+			longitude -= 360;
+		}
+		if (latitude < minLat || latitude > maxLat || longitude < minLon || longitude > maxLon) {
+			return false;
+		}
+		int band = band(latitude);
+		boolean inside = false;
+		for (int i = bandStarts[band], end = bandStarts[band + 1]; i < end; i++) {
+			int edge = bandEdges[i];
+			int next = edge + 1 == count ? 0 : edge + 1;
+			double lat1 = latitudes[edge], lon1 = longitudes[edge];
+			double lat2 = latitudes[next], lon2 = longitudes[next];
+			if ((lat1 > latitude) != (lat2 > latitude)
+					&& longitude < (lon2 - lon1) * (latitude - lat1) / (lat2 - lat1) + lon1) {
+				inside = !inside;
+			}
+		}
+		return inside;
+	}
+
+	/**
+	 * Makes the longitudes continuous, recomputes bounding box and bands
+	 */
+	private void update() {
+		for (int i = 1; i < count; i++) {
+			double delta = longitudes[i] - longitudes[i - 1];
+			if (delta > 180 || delta < -180) {
+				longitudes[i] -= 360 * Math.floor((delta + 180) / 360);
+			}
+		}
+
+		minLat = Double.MAX_VALUE;
+		minLon = Double.MAX_VALUE;
+		maxLat = -Double.MAX_VALUE;
+		maxLon = -Double.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			minLat = Math.min(minLat, latitudes[i]);
+			maxLat = Math.max(maxLat, latitudes[i]);
+			minLon = Math.min(minLon, longitudes[i]);
+			maxLon = Math.max(maxLon, longitudes[i]);
+		}
+
+		bandCount = Math.max(1, count / EDGES_PER_BAND);
+		bandHeight = (maxLat - minLat) / bandCount;
+		if (bandStarts == null || bandStarts.length != bandCount + 1) {
+			bandStarts = new int[bandCount + 1];
+		} else {
+			for (int i = 0; i <= bandCount; i++) {
+				bandStarts[i] = 0;
+			}
+		}
+
+		//count edges per band, then fill
+		int total = 0;
+		for (int edge = 0; edge < count; edge++) {
+			int first = firstBand(edge);
+			int last = lastBand(edge);
+			for (int band = first; band <= last; band++) {
+				bandStarts[band + 1]++;
+			}
+			total += last - first + 1;
+		}
+		for (int band = 0; band < bandCount; band++) {
+			bandStarts[band + 1] += bandStarts[band];
+		}
+		if (bandEdges == null || bandEdges.length < total) {
+			bandEdges = new int[total];
+		}
+		int[] positions = new int[bandCount];
+		System.arraycopy(bandStarts, 0, positions, 0, bandCount);
+		for (int edge = 0; edge < count; edge++) {
+			for (int band = firstBand(edge), last = lastBand(edge); band <= last; band++) {
+				bandEdges[positions[band]++] = edge;
+			}
+		}
+	}
+
+	private int firstBand(int edge) {
+		int next = edge + 1 == count ? 0 : edge + 1;
+		return band(Math.min(latitudes[edge], latitudes[next]));
+	}
+
+	private int lastBand(int edge) {
+		int next = edge + 1 == count ? 0 : edge + 1;
+		return band(Math.max(latitudes[edge], latitudes[next]));
+	}
+
+	private int band(double latitude) {
+		if (bandHeight <= 0) {
+			return 0;
+		}
+		int band = (int)((latitude - minLat) / bandHeight);
+		return Math.max(0, Math.min(bandCount - 1, band));
+	}
+}
@@ -0,0 +1,72 @@
+package com.schuetz.mapareas;
+
+import com.schuetz.mapareas.MapAreaManager.CircleManagerListener;
+
+/**
+ * Records the duration of the calls to a CircleManagerListener in the metrics
+ * 
+ * @author ivanschuetz
+ */
+class TimedCircleManagerListener implements CircleManagerListener {
+
+	private final CircleManagerListener listener;
+	private final AreaMetrics metrics;
+	
+	TimedCircleManagerListener(CircleManagerListener listener, AreaMetrics metrics) {
+		this.listener = listener;
+		this.metrics = metrics;
+	}
+	
+	CircleManagerListener getListener() {
+		return listener;
+	}
+	
+	@Override
+	public void onCreateCircle(MapAreaWrapper draggableCircle) {
+		long start = System.nanoTime();
+		listener.onCreateCircle(draggableCircle);
+		metrics.record(AreaMetrics.LISTENER_CALLBACK, System.nanoTime() - start);
+	}
+
+	@Override
+	public void onMoveCircleEnd(MapAreaWrapper draggableCircle) {
+		long start = System.nanoTime();
+		listener.onMoveCircleEnd(draggableCircle);
+		metrics.record(AreaMetrics.LISTENER_CALLBACK, System.nanoTime() - start);
+	}
+
+	@Override
+	public void onMoveCircleStart(MapAreaWrapper draggableCircle) {
+		long start = System.nanoTime();
+		listener.onMoveCircleStart(draggableCircle);
+		metrics.record(AreaMetrics.LISTENER_CALLBACK, System.nanoTime() - start);
+	}
+
+	@Override
+	public void onResizeCircleEnd(MapAreaWrapper draggableCircle) {
+		long start = System.nanoTime();
+		listener.onResizeCircleEnd(draggableCircle);
+		metrics.record(AreaMetrics.LISTENER_CALLBACK, System.nanoTime() - start);
+	}
+
+	@Override
+	public void onResizeCircleStart(MapAreaWrapper draggableCircle) {
+		long start = System.nanoTime();
+		listener.onResizeCircleStart(draggableCircle);
+		metrics.record(AreaMetrics.LISTENER_CALLBACK, System.nanoTime() - start);
+	}
+
+	@Override
+	public void onMinRadius(MapAreaWrapper draggableCircle) {
+		long start = System.nanoTime();
+		listener.onMinRadius(draggableCircle);
+		metrics.record(AreaMetrics.LISTENER_CALLBACK, System.nanoTime() - start);
+	}
+
+	@Override
+	public void onMaxRadius(MapAreaWrapper draggableCircle) {
+		long start = System.nanoTime();
+		listener.onMaxRadius(draggableCircle);
+		metrics.record(AreaMetrics.LISTENER_CALLBACK, System.nanoTime() - start);
+	}
+}
@@ -0,0 +1,175 @@
+package com.schuetz.mapareas;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Computes per circle aggregates of recorded tracks: how many points fell in each circle and the time spent in it
+ *
+ * Works on an AreaSnapshot of the circles, so it can run on background threads while the circles are edited.
+ * A track can be split in segments which are processed in parallel and merged.
+ *
+ * Time spent in a circle is the sum of the intervals between consecutive points which are both inside of it.
+ * Intervals longer than the max gap (e.g. recording paused) are not counted.
+ *
+ * Doesn't depend on Android or the map, so it can be used (and tested) on a plain JVM.
+ * Thread safe once configured.
+ *
+ * @author ivanschuetz
+ */
+public class TrackAnalyzer {
+
+	/**
+	 * Aggregates indexed by position of the circle in the snapshot of the analyzer, see getArea
+	 */
+	public static class TrackStats {
+		public final int[] hitCounts;
+		public final long[] dwellMillis;
+
+		private final AreaSnapshot snapshot;
+
+		TrackStats(AreaSnapshot snapshot) {
+			this.snapshot = snapshot;
+			hitCounts = new int[snapshot.size()];
+			dwellMillis = new long[snapshot.size()];
+		}
+
+		/**
+		 * @return count of circles
+		 */
+		public int size() {
+			return hitCounts.length;
+		}
+
+		/**
+		 * @param i position of circle, from 0 to size() - 1
+		 * @return circle of the aggregates at i
+		 */
+		public MapAreaWrapper getArea(int i) {
+			return snapshot.getArea(i);
+		}
+
+		void add(TrackStats stats) {
+			for (int i = 0; i < hitCounts.length; i++) {
+				hitCounts[i] += stats.hitCounts[i];
+				dwellMillis[i] += stats.dwellMillis[i];
+			}
+		}
+	}
+
+	private final AreaGridIndex<Integer> index = new AreaGridIndex<Integer>();
+	private final AreaSnapshot snapshot;
+
+	private long maxGapMillis = Long.MAX_VALUE;
+
+	/**
+	 * @param snapshot circles to analyze, e.g. MapAreaManager.getSnapshot()
+	 */
+	public TrackAnalyzer(AreaSnapshot snapshot) {
+		this.snapshot = snapshot;
+		for (int i = 0, size = snapshot.size(); i < size; i++) {
+			int handle = snapshot.getHandle(i);
+			index.put(Integer.valueOf(i), snapshot.getLatitude(handle), snapshot.getLongitude(handle), snapshot.getRadius(handle));
+		}
+	}
+
+	/**
+	 * @param maxGapMillis intervals between points longer than this are not added to the time spent in circles
+	 */
+	public void setMaxGap(long maxGapMillis) {
+		this.maxGapMillis = maxGapMillis;
+	}
+
+	/**
+	 * Analyzes track on the calling thread
+	 *
+	 * @param latitudes
+	 * @param longitudes
+	 * @param timesMillis chronological
+	 * @param count number of points
+	 * @return aggregates
+	 */
+	public TrackStats analyze(double[] latitudes, double[] longitudes, long[] timesMillis, int count) {
+		TrackStats stats = new TrackStats(snapshot);
+		analyzeSegment(latitudes, longitudes, timesMillis, count, 0, count, stats);
+		return stats;
+	}
+
+	/**
+	 * Analyzes track in segments with an executor, and merges the results
+	 *
+	 * @param latitudes
+	 * @param longitudes
+	 * @param timesMillis chronological
+	 * @param count number of points
+	 * @param executor
+	 * @param segments number of parts the track is split in, e.g. some multiple of the threads of the executor
+	 * @return aggregates, the same as analyze() on the calling thread
+	 * @throws InterruptedException
+	 */
+	public TrackStats analyze(final double[] latitudes, final double[] longitudes, final long[] timesMillis, final int count,
+			ExecutorService executor, int segments) throws InterruptedException {
+		segments = Math.max(1, Math.min(segments, count));
+		int segmentSize = (count + segments - 1) / segments;
+
+		List<Future<TrackStats>> futures = new ArrayList<Future<TrackStats>>(segments);
+		for (int start = 0; start < count; start += segmentSize) {
+			final int from = start;
+			final int to = Math.min(count, start + segmentSize);
+			futures.add(executor.submit(new Callable<TrackStats>() {
+				@Override
+				public TrackStats call() {
+					TrackStats stats = new TrackStats(snapshot);
+					analyzeSegment(latitudes, longitudes, timesMillis, count, from, to, stats);
+					return stats;
+				}
+			}));
+		}
+
+		TrackStats result = new TrackStats(snapshot);
+		try {
+			for (Future<TrackStats> future : futures) {
+				result.add(future.get());
+			}
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Track analysis failed", e.getCause());
+		} finally {
+			for (Future<TrackStats> future : futures) {
+				future.cancel(true);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Counts points [from, to) and intervals starting at them. The interval starting at the last point
+	 * of the segment ends at the first point of the next one, so that point is evaluated too
+	 */
+	private void analyzeSegment(double[] latitudes, double[] longitudes, long[] timesMillis, int count, int from, int to,
+			TrackStats stats) {
+		int[] lastInside = new int[snapshot.size()]; //index of the last point inside of the circle, +1 so 0 means none
+		List<Integer> containing = new ArrayList<Integer>();
+
+		int end = Math.min(count - 1, to);
+		for (int i = from; i <= end; i++) {
+			containing.clear();
+			index.findContaining(latitudes[i], longitudes[i], containing);
+			boolean countInterval = i > from && timesMillis[i] - timesMillis[i - 1] <= maxGapMillis;
+
+			for (int j = 0, size = containing.size(); j < size; j++) {
+				int area = containing.get(j);
+				if (i < to) {
+					stats.hitCounts[area]++;
+				}
+				if (countInterval && lastInside[area] == i) { //previous point, i - 1, was inside
+					stats.dwellMillis[area] += timesMillis[i] - timesMillis[i - 1];
+				}
+				lastInside[area] = i + 1;
+			}
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package com.schuetz.mapareas;
+
+/**
+ * Web Mercator projection, used by the map, with the size of the world in screen pixels as scale
+ *
+ * The world size depends only on the zoom level (and screen density), so it can be computed once per camera change
+ * with the map's projection, and then used for any number of points without calling the projection again.
+ * Points and radii are passed in primitive arrays, nothing here allocates.
+ *
+ * Doesn't depend on Android, so it can be used (and tested) on a plain JVM.
+ *
+ * @author ivanschuetz
+ */
+public class WebMercator {
+
+	/**
+	 * Size of a map tile at zoom 0, in density independent pixels
+	 */
+	public static final double TILE_SIZE = 256;
+
+	private static final double MAX_LATITUDE = 85.05112878;
+
+	private WebMercator() {
+	}
+
+	/**
+	 * @param zoom camera zoom
+	 * @param density screen pixels per density independent pixel
+	 * @return width of the world in screen pixels
+	 */
+	public static double worldSize(double zoom, double density) {
+		return TILE_SIZE * density * Math.pow(2, zoom);
+	}
+
+	/**
+	 * @return x in pixels, from 0 (longitude -180) to worldSize
+	 */
+	public static double toX(double longitude, double worldSize) {
+		return (longitude + 180) / 360 * worldSize;
+	}
+
+	/**
+	 * @return y in pixels, from 0 (north) to worldSize (south)
+	 */
+	public static double toY(double latitude, double worldSize) {
+		double sin = Math.sin(Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude))));
+		return (0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI)) * worldSize;
+	}
+
+	public static double toLongitude(double x, double worldSize) {
+		return x / worldSize * 360 - 180;
+	}
+
+	public static double toLatitude(double y, double worldSize) {
+		double n = Math.PI * (1 - 2 * y / worldSize);
+		return Math.toDegrees(Math.atan(Math.sinh(n)));
+	}
+
+	/**
+	 * @return meters per screen pixel at latitude, on the sphere of MapAreasConstants.RADIUS_OF_EARTH_METERS
+	 */
+	public static double metersPerPixel(double latitude, double worldSize) {
+		return 2 * Math.PI * MapAreasConstants.RADIUS_OF_EARTH_METERS * Math.cos(Math.toRadians(latitude)) / worldSize;
+	}
+
+	/**
+	 * Converts radii in screen pixels to meters, for circles at the given latitudes
+	 *
+	 * @param latitudes
+	 * @param pixelRadii
+	 * @param metersOut array where radii in meters are written, can be pixelRadii
+	 * @param offset index of first circle in the arrays
+	 * @param count
+	 * @param worldSize see worldSize()
+	 */
+	public static void toRadiiMeters(double[] latitudes, double[] pixelRadii, double[] metersOut, int offset, int count, double worldSize) {
+		double metersPerPixelAtEquator = 2 * Math.PI * MapAreasConstants.RADIUS_OF_EARTH_METERS / worldSize;
+		for (int i = offset, end = offset + count; i < end; i++) {
+			metersOut[i] = pixelRadii[i] * metersPerPixelAtEquator * Math.cos(Math.toRadians(latitudes[i]));
+		}
+	}
+}